@@ -0,0 +1,123 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.ws.benchmark;
+
+import static java.util.Collections.emptyList;
+import static org.mule.extension.ws.benchmark.Payloads.NAMESPACE;
+import static org.mule.extension.ws.benchmark.Payloads.reader;
+import org.mule.extension.ws.api.ServiceDefinition;
+import org.mule.extension.ws.api.SoapProxyClient;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.stream.XMLStreamReader;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Serialization of the request envelope by {@link SoapProxyClient#buildSoapRequest}, by payload size and by number of
+ * headers. The envelope is written into a stream that discards it so only the serialization is measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BuildRequestBenchmark
+{
+
+    private SoapProxyClient client;
+
+    @State(Scope.Thread)
+    public static class PayloadSize
+    {
+
+        @Param({"1024", "102400", "1048576", "10485760"})
+        public int payloadBytes;
+
+        private byte[] payload;
+        private final CountingOutputStream out = new CountingOutputStream();
+
+        @Setup
+        public void setup()
+        {
+            payload = Payloads.echo(payloadBytes);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class HeaderCount
+    {
+
+        @Param({"0", "1", "10", "50"})
+        public int headers;
+
+        private final byte[] payload = Payloads.echo(1024);
+        private final List<byte[]> headerContents = new ArrayList<>();
+        private final CountingOutputStream out = new CountingOutputStream();
+
+        @Setup
+        public void setup()
+        {
+            for (int i = 0; i < headers; i++)
+            {
+                headerContents.add(Payloads.header(i));
+            }
+        }
+
+        List<XMLStreamReader> readers()
+        {
+            List<XMLStreamReader> readers = new ArrayList<>(headerContents.size());
+            for (byte[] header : headerContents)
+            {
+                readers.add(reader(header));
+            }
+            return readers;
+        }
+    }
+
+    @Setup
+    public void setup()
+    {
+        client = SoapProxyClient.create(new ServiceDefinition("http://localhost:6049/benchmark", NAMESPACE, "TestService", "TestPort"));
+    }
+
+    @TearDown
+    public void tearDown() throws IOException
+    {
+        client.close();
+    }
+
+    @Benchmark
+    public long payloadSize(PayloadSize state) throws Exception
+    {
+        client.buildSoapRequest(reader(state.payload), "echo", emptyList(), state.out);
+        return state.out.reset();
+    }
+
+    @Benchmark
+    public long headerCount(HeaderCount state) throws Exception
+    {
+        client.buildSoapRequest(reader(state.payload), "echo", state.readers(), state.out);
+        return state.out.reset();
+    }
+}
@@ -0,0 +1,37 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.ws.benchmark;
+
+import java.io.OutputStream;
+
+/**
+ * Stands for the connection output stream, it only counts the bytes written to it.
+ */
+class CountingOutputStream extends OutputStream
+{
+
+    private long count;
+
+    @Override
+    public void write(int b)
+    {
+        count++;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len)
+    {
+        count += len;
+    }
+
+    long reset()
+    {
+        long written = count;
+        count = 0;
+        return written;
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.ws.benchmark;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.mule.extension.ws.benchmark.Payloads.ENVELOPE_NAMESPACE;
+import static org.mule.extension.ws.benchmark.Payloads.NAMESPACE;
+import static org.mule.extension.ws.benchmark.Payloads.reader;
+import org.mule.extension.ws.api.Response;
+import org.mule.extension.ws.api.ServiceDefinition;
+import org.mule.extension.ws.api.SoapProxyClient;
+import org.mule.extension.ws.api.builder.ClientConfigurationBuilder;
+import org.mule.extension.ws.api.transport.LoopbackSoapTransport;
+import org.mule.extension.ws.api.transport.TransportResponse;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.stream.XMLStreamWriter;
+
+import com.sun.xml.fastinfoset.stax.StAXDocumentSerializer;
+import org.apache.cxf.staxutils.StaxUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Textual XML against Fast Infoset for {@code Account} shaped requests and responses, through a
+ * {@link LoopbackSoapTransport} so only serializing the request and parsing the response is measured. The size of
+ * both envelopes in each encoding is printed when the trial ends.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FastInfosetBenchmark
+{
+
+    @Param({"10", "100", "1000"})
+    public int accounts;
+
+    @Param({"false", "true"})
+    public boolean fastInfoset;
+
+    private SoapProxyClient client;
+    private byte[] payload;
+    private volatile long requestBytes;
+    private long responseBytes;
+
+    @Setup
+    public void setup() throws Exception
+    {
+        payload = Payloads.accounts("echoAccounts", accounts);
+        byte[] textResponse = ("<soap:Envelope xmlns:soap=\"" + ENVELOPE_NAMESPACE + "\"><soap:Body>"
+                               + new String(Payloads.accounts("echoAccountsResponse", accounts), UTF_8)
+                               + "</soap:Body></soap:Envelope>").getBytes(UTF_8);
+        byte[] response = fastInfoset ? encode(textResponse) : textResponse;
+        responseBytes = response.length;
+
+        LoopbackSoapTransport transport = new LoopbackSoapTransport((soapAction, envelope, attachments) ->
+                                                                    {
+                                                                        requestBytes = drain(envelope);
+                                                                        return new TransportResponse(new ByteArrayInputStream(response));
+                                                                    });
+        client = SoapProxyClient.create(new ServiceDefinition("loopback://benchmark", NAMESPACE, "TestService", "TestPort"),
+                                        ClientConfigurationBuilder.getInstance().setFastInfoset(fastInfoset).build(), transport);
+        // Lets the client negotiate the encoding before measuring
+        client.invoke("echoAccounts", reader(payload)).close();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException
+    {
+        client.close();
+        System.out.println();
+        System.out.println((fastInfoset ? "Fast Infoset" : "Text XML") + " envelopes with " + accounts + " accounts: request "
+                           + requestBytes + " bytes, response " + responseBytes + " bytes");
+    }
+
+    @Benchmark
+    public void echoAccounts(Blackhole blackhole) throws Exception
+    {
+        try (Response response = client.invoke("echoAccounts", reader(payload)))
+        {
+            Payloads.consume(response.getBody(), blackhole);
+        }
+    }
+
+    private static byte[] encode(byte[] xml) throws Exception
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        XMLStreamWriter writer = new StAXDocumentSerializer(out);
+        writer.writeStartDocument();
+        StaxUtils.copy(reader(xml), writer);
+        writer.writeEndDocument();
+        writer.close();
+        return out.toByteArray();
+    }
+
+    private static long drain(InputStream in) throws IOException
+    {
+        long count = 0;
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = in.read(buffer)) != -1)
+        {
+            count += read;
+        }
+        return count;
+    }
+}
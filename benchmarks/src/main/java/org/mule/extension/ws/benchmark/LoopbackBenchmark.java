@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.ws.benchmark;
+
+import static org.mule.extension.ws.benchmark.Payloads.NAMESPACE;
+import static org.mule.extension.ws.benchmark.Payloads.reader;
+import org.mule.extension.ws.api.ClientConfiguration;
+import org.mule.extension.ws.api.Response;
+import org.mule.extension.ws.api.ServiceDefinition;
+import org.mule.extension.ws.api.SoapProxyClient;
+import org.mule.extension.ws.api.transport.LoopbackSoapTransport;
+import org.mule.extension.ws.api.transport.TransportResponse;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.IOUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * {@code invoke} round trips through a {@link LoopbackSoapTransport} that echoes the request envelope, so only the
+ * client serializing the request and parsing the response is measured, without sockets nor a server.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LoopbackBenchmark
+{
+
+    @Param({"1024", "102400", "1048576"})
+    public int payloadBytes;
+
+    private SoapProxyClient client;
+    private byte[] payload;
+
+    @Setup
+    public void setup()
+    {
+        payload = Payloads.echo(payloadBytes);
+        LoopbackSoapTransport transport = new LoopbackSoapTransport((soapAction, envelope, attachments) ->
+                                                                    new TransportResponse(new ByteArrayInputStream(IOUtils.toByteArray(envelope))));
+        client = SoapProxyClient.create(new ServiceDefinition("loopback://benchmark", NAMESPACE, "TestService", "TestPort"),
+                                        ClientConfiguration.getDefault(), transport);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException
+    {
+        client.close();
+    }
+
+    @Benchmark
+    public void echo(Blackhole blackhole) throws Exception
+    {
+        try (Response response = client.invoke("echo", reader(payload)))
+        {
+            Payloads.consume(response.getBody(), blackhole);
+        }
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.ws.benchmark;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import org.mule.extension.ws.internal.XmlReaders;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Payloads shared by the benchmarks, readers are created from byte arrays so parsing the input is as cheap as possible.
+ */
+final class Payloads
+{
+
+    static final String NAMESPACE = "http://consumer.ws.extension.mule.org/";
+    static final String ENVELOPE_NAMESPACE = "http://schemas.xmlsoap.org/soap/envelope/";
+
+    private Payloads()
+    {
+    }
+
+    /**
+     * @return an {@code echo} payload whose serialized form has about the given size.
+     */
+    static byte[] echo(int size)
+    {
+        StringBuilder xml = new StringBuilder("<con:echo xmlns:con=\"").append(NAMESPACE).append("\">");
+        for (int i = 0; xml.length() < size; i++)
+        {
+            xml.append("<text>element number ").append(i).append(" with some content</text>");
+        }
+        return xml.append("</con:echo>").toString().getBytes(UTF_8);
+    }
+
+    /**
+     * @return a payload with the given number of {@code account} elements, shaped like the {@code Account} type of
+     * the test service.
+     */
+    static byte[] accounts(String element, int count)
+    {
+        StringBuilder xml = new StringBuilder("<con:").append(element).append(" xmlns:con=\"").append(NAMESPACE).append("\">");
+        for (int i = 0; i < count; i++)
+        {
+            xml.append("<account><clientName>Client number ").append(i).append("</clientName><id>").append(i).append("</id>")
+                    .append("<items>chocolate</items><items>banana</items><items>dulce de leche</items>")
+                    .append("<startingDate>2016-09-23T00:00:00-03:00</startingDate></account>");
+        }
+        return xml.append("</con:").append(element).append(">").toString().getBytes(UTF_8);
+    }
+
+    static byte[] header(int index)
+    {
+        return ("<con:header" + index + " xmlns:con=\"" + NAMESPACE + "\">value " + index + "</con:header" + index + ">").getBytes(UTF_8);
+    }
+
+    static byte[] resource(String name) throws IOException
+    {
+        try (InputStream in = Thread.currentThread().getContextClassLoader().getResourceAsStream(name))
+        {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1)
+            {
+                out.write(buffer, 0, read);
+            }
+            return out.toByteArray();
+        }
+    }
+
+    /**
+     * Readers from CXF's {@code StaxUtils} reject elements with more than 50000 children, which the biggest payloads
+     * have, so the same reader the client uses for responses is used instead.
+     */
+    static XMLStreamReader reader(byte[] content)
+    {
+        try
+        {
+            return XmlReaders.createReader(new ByteArrayInputStream(content));
+        }
+        catch (XMLStreamException e)
+        {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Reads the whole document so the cost of parsing it is accounted for.
+     */
+    static void consume(XMLStreamReader reader, Blackhole blackhole) throws XMLStreamException
+    {
+        while (reader.hasNext())
+        {
+            blackhole.consume(reader.next());
+        }
+        reader.close();
+    }
+
+    static void consume(InputStream content, Blackhole blackhole) throws IOException
+    {
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = content.read(buffer)) != -1)
+        {
+            blackhole.consume(read);
+        }
+        content.close();
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.ws.benchmark;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Collections.emptyList;
+import static org.mule.extension.ws.benchmark.Payloads.reader;
+import org.mule.extension.ws.api.ServiceDefinition;
+import org.mule.extension.ws.api.SoapProxyClient;
+import org.mule.extension.ws.api.SoapVersion;
+import org.mule.extension.ws.api.builder.DocumentBuilder;
+import org.mule.extension.ws.internal.SoapEnvelopeEntity;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.soap.MessageFactory;
+import javax.xml.soap.SOAPEnvelope;
+import javax.xml.soap.SOAPMessage;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.apache.http.HttpEntity;
+import org.apache.http.client.entity.EntityBuilder;
+import org.apache.http.entity.ContentType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the request entity written by the client, in both chunked and known-length modes, against the
+ * previous path that built a SAAJ message, copied it into a byte array, decoded it into a {@code String} and encoded it
+ * again into the entity.
+ * <p>
+ * Run it with {@code -prof gc} to compare the bytes allocated per request.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RequestEntityBenchmark
+{
+
+    private static final String NAMESPACE = "http://consumer.ws.extension.mule.org/";
+    private static final String ENCODING_NAMESPACE = "http://schemas.xmlsoap.org/soap/encoding/";
+    private static final ContentType CONTENT_TYPE = ContentType.create(SoapVersion.SOAP_11.getContentType(), UTF_8);
+
+    /**
+     * Number of elements in the request payload.
+     */
+    @Param({"1", "100", "1000"})
+    public int elements;
+
+    private byte[] payload;
+    private SoapProxyClient client;
+    private MessageFactory messageFactory;
+    private final CountingOutputStream connection = new CountingOutputStream();
+
+    @Setup
+    public void setup() throws Exception
+    {
+        StringBuilder xml = new StringBuilder("<con:echo xmlns:con=\"").append(NAMESPACE).append("\">");
+        for (int i = 0; i < elements; i++)
+        {
+            xml.append("<text>element number ").append(i).append(" with some content ñ</text>");
+        }
+        payload = xml.append("</con:echo>").toString().getBytes(UTF_8);
+
+        client = SoapProxyClient.create(new ServiceDefinition("http://localhost:6048/benchmark", NAMESPACE, "TestService", "TestPort"));
+        messageFactory = MessageFactory.newInstance(SoapVersion.SOAP_11.getProtocol());
+    }
+
+    @TearDown
+    public void tearDown() throws IOException
+    {
+        client.close();
+    }
+
+    @Benchmark
+    public long saajStringEntity() throws Exception
+    {
+        SOAPMessage message = messageFactory.createMessage();
+        SOAPEnvelope envelope = message.getSOAPPart().getEnvelope();
+        envelope.setEncodingStyle(ENCODING_NAMESPACE);
+        envelope.addNamespaceDeclaration("body", NAMESPACE + "echo/");
+        envelope.addNamespaceDeclaration("header", NAMESPACE);
+        envelope.getBody().addDocument(DocumentBuilder.getInstance().createDocument(payload()));
+        message.saveChanges();
+
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        message.writeTo(os);
+        HttpEntity entity = EntityBuilder.create().setText(new String(os.toByteArray())).build();
+        return write(entity);
+    }
+
+    @Benchmark
+    public long streamingChunkedEntity() throws Exception
+    {
+        return write(streamingEntity(true));
+    }
+
+    @Benchmark
+    public long streamingKnownLengthEntity() throws Exception
+    {
+        SoapEnvelopeEntity entity = streamingEntity(false);
+        return entity.getContentLength() + write(entity);
+    }
+
+    private SoapEnvelopeEntity streamingEntity(boolean chunked) throws XMLStreamException
+    {
+        XMLStreamReader reader = payload();
+        return new SoapEnvelopeEntity(out ->
+                                      {
+                                          try
+                                          {
+                                              client.buildSoapRequest(reader, "echo", emptyList(), out);
+                                          }
+                                          catch (XMLStreamException e)
+                                          {
+                                              throw new IOException(e);
+                                          }
+                                      }, CONTENT_TYPE.toString(), chunked);
+    }
+
+    private XMLStreamReader payload()
+    {
+        return reader(payload);
+    }
+
+    private long write(HttpEntity entity) throws IOException
+    {
+        entity.writeTo(connection);
+        return connection.reset();
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.ws.benchmark;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Collections.singletonList;
+import static org.mule.extension.ws.benchmark.Payloads.ENVELOPE_NAMESPACE;
+import static org.mule.extension.ws.benchmark.Payloads.consume;
+import org.mule.extension.ws.api.exception.SoapFaultException;
+import org.mule.extension.ws.internal.SoapEnvelopeReader;
+import org.mule.extension.ws.internal.mime.MultipartContent;
+import org.mule.extension.ws.internal.mime.MultipartRelatedEntity;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.entity.ContentType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Parsing of canned response envelopes, without any network involved: plain bodies by size, SOAP faults and
+ * multipart/related responses with an attachment.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ResponseParsingBenchmark
+{
+
+    @Param({"1024", "102400", "1048576"})
+    public int responseBytes;
+
+    private final SoapEnvelopeReader envelopeReader = new SoapEnvelopeReader();
+    private byte[] response;
+    private byte[] fault;
+    private byte[] multipart;
+    private String boundary;
+
+    @Setup
+    public void setup() throws Exception
+    {
+        response = envelope(new String(Payloads.echo(responseBytes), UTF_8));
+        fault = envelope("<soap:Fault><faultcode>soap:Server</faultcode><faultstring>test</faultstring>"
+                         + "<detail><con:EchoFault xmlns:con=\"" + Payloads.NAMESPACE + "\"><text>test</text></con:EchoFault></detail></soap:Fault>");
+
+        byte[] attachment = new byte[responseBytes];
+        MultipartRelatedEntity entity = new MultipartRelatedEntity(out -> out.write(envelope("<con:downloadAttachmentResponse xmlns:con=\"" + Payloads.NAMESPACE + "\"/>")),
+                                                                   ContentType.TEXT_XML,
+                                                                   singletonList(new ByteArrayInputStream(attachment)));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        entity.writeTo(out);
+        multipart = out.toByteArray();
+        boundary = ContentType.parse(entity.getContentType().getValue()).getParameter("boundary");
+    }
+
+    @Benchmark
+    public void body(Blackhole blackhole) throws Exception
+    {
+        consume(envelopeReader.read(new ByteArrayInputStream(response), () -> {}), blackhole);
+    }
+
+    @Benchmark
+    public Object fault() throws Exception
+    {
+        try
+        {
+            return envelopeReader.read(new ByteArrayInputStream(fault), () -> {});
+        }
+        catch (SoapFaultException e)
+        {
+            return e;
+        }
+    }
+
+    @Benchmark
+    public void multipart(Blackhole blackhole) throws Exception
+    {
+        try (MultipartContent content = new MultipartContent(new ByteArrayInputStream(multipart), boundary, () -> {}))
+        {
+            InputStream root = content.getRoot();
+            consume(envelopeReader.read(root, root), blackhole);
+            for (InputStream attachment : content.getAttachments())
+            {
+                consume(attachment, blackhole);
+            }
+        }
+    }
+
+    private static byte[] envelope(String body)
+    {
+        return ("<?xml version=\"1.0\" encoding=\"UTF-8\"?><soap:Envelope xmlns:soap=\"" + ENVELOPE_NAMESPACE + "\">"
+                + "<soap:Body>" + body + "</soap:Body></soap:Envelope>").getBytes(UTF_8);
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.ws.benchmark;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
+import static javax.xml.ws.Endpoint.publish;
+import static org.mule.extension.ws.benchmark.Payloads.NAMESPACE;
+import static org.mule.extension.ws.benchmark.Payloads.reader;
+import static org.mule.extension.ws.benchmark.Payloads.resource;
+import org.mule.extension.ws.api.Response;
+import org.mule.extension.ws.api.ServiceDefinition;
+import org.mule.extension.ws.api.SoapProxyClient;
+import org.mule.extension.ws.consumer.TestAttachments;
+import org.mule.extension.ws.consumer.TestService;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.ws.Endpoint;
+
+import org.apache.cxf.BusFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Full {@code invoke} round trips against the {@link TestService} and {@link TestAttachments} endpoints published in
+ * the benchmark JVM. The response body and attachments are read completely before the response is closed.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class RoundTripBenchmark
+{
+
+    private static final String SERVICE_URL = "http://localhost:6050/benchmarkService";
+    private static final String ATTACHMENTS_URL = "http://localhost:6051/benchmarkAttachments";
+
+    private Endpoint service;
+    private Endpoint attachmentsService;
+    private SoapProxyClient client;
+    private SoapProxyClient attachmentsClient;
+
+    private byte[] echo;
+    private byte[] echoAccount;
+    private byte[] echoWithHeaders;
+    private byte[] headerIn;
+    private byte[] headerInOut;
+    private byte[] downloadAttachment;
+    private byte[] uploadAttachment;
+    private byte[] attachment;
+
+    @Setup
+    public void setup() throws Exception
+    {
+        service = publish(SERVICE_URL, new TestService());
+        attachmentsService = publish(ATTACHMENTS_URL, new TestAttachments());
+        client = SoapProxyClient.create(new ServiceDefinition(SERVICE_URL, NAMESPACE, "TestService", "TestPort"));
+        attachmentsClient = SoapProxyClient.create(new ServiceDefinition(ATTACHMENTS_URL, NAMESPACE, "TestService", "TestPort"));
+
+        echo = resource("request/echo.xml");
+        echoAccount = resource("request/echoAccount.xml");
+        echoWithHeaders = resource("request/echoWithHeaders.xml");
+        headerIn = resource("request/headerIn.xml");
+        headerInOut = resource("request/headerInOut.xml");
+        downloadAttachment = resource("request/attachment/downloadAttachment.xml");
+        uploadAttachment = resource("request/attachment/uploadAttachment.xml");
+        attachment = resource("attachment_file.txt");
+    }
+
+    @TearDown
+    public void tearDown() throws Exception
+    {
+        try
+        {
+            client.close();
+            attachmentsClient.close();
+        }
+        finally
+        {
+            service.stop();
+            attachmentsService.stop();
+            BusFactory.getDefaultBus().shutdown(true);
+        }
+    }
+
+    @Benchmark
+    public void echo(Blackhole blackhole) throws Exception
+    {
+        consume(client.invoke("echo", reader(echo)), blackhole);
+    }
+
+    @Benchmark
+    public void echoAccount(Blackhole blackhole) throws Exception
+    {
+        consume(client.invoke("echoAccount", reader(echoAccount)), blackhole);
+    }
+
+    @Benchmark
+    public void echoWithHeaders(Blackhole blackhole) throws Exception
+    {
+        consume(client.invoke("echoWithHeaders", reader(echoWithHeaders), asList(reader(headerInOut), reader(headerIn)), emptyList()), blackhole);
+    }
+
+    @Benchmark
+    public void downloadAttachment(Blackhole blackhole) throws Exception
+    {
+        consume(attachmentsClient.invoke("downloadAttachment", reader(downloadAttachment)), blackhole);
+    }
+
+    @Benchmark
+    public void uploadAttachment(Blackhole blackhole) throws Exception
+    {
+        consume(attachmentsClient.invoke("uploadAttachment", reader(uploadAttachment), emptyList(), singletonList(new ByteArrayInputStream(attachment))), blackhole);
+    }
+
+    private static void consume(Response response, Blackhole blackhole) throws Exception
+    {
+        try (Response closed = response)
+        {
+            Payloads.consume(closed.getBody(), blackhole);
+            for (InputStream attachment : closed.getAtt())
+            {
+                Payloads.consume(attachment, blackhole);
+            }
+        }
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.ws.api;
+
+import org.mule.extension.ws.api.builder.AttachmentStorageConfigurationBuilder;
+
+import java.nio.file.Path;
+
+/**
+ * How the attachments of the responses are stored once they are read. Attachments up to the spill threshold are
+ * kept in memory while the memory taken by all of them stays under a cap, the rest are written to temporary files
+ * that are memory mapped to be read. When disabled the attachments are read straight from the connection instead,
+ * and they can only be read once.
+ * <p>
+ * Instances are created through a {@link AttachmentStorageConfigurationBuilder}.
+ */
+public class AttachmentStorageConfiguration
+{
+
+    public static final AttachmentStorageConfiguration DISABLED = new AttachmentStorageConfiguration(false, 1, 1, null);
+
+    private final boolean enabled;
+    private final long spillThreshold;
+    private final long maxHeapBytes;
+    private final Path directory;
+
+    public AttachmentStorageConfiguration(AttachmentStorageConfigurationBuilder builder)
+    {
+        this(true, builder.getSpillThreshold(), builder.getMaxHeapBytes(), builder.getDirectory());
+    }
+
+    private AttachmentStorageConfiguration(boolean enabled, long spillThreshold, long maxHeapBytes, Path directory)
+    {
+        this.enabled = enabled;
+        this.spillThreshold = spillThreshold;
+        this.maxHeapBytes = maxHeapBytes;
+        this.directory = directory;
+    }
+
+    public boolean isEnabled()
+    {
+        return enabled;
+    }
+
+    /**
+     * @return the size over which an attachment is written to a temporary file instead of being kept in memory.
+     */
+    public long getSpillThreshold()
+    {
+        return spillThreshold;
+    }
+
+    /**
+     * @return the maximum size of the attachments kept in memory added up, across all the responses of a client that
+     *         were not closed yet. Attachments that don't fit are written to temporary files.
+     */
+    public long getMaxHeapBytes()
+    {
+        return maxHeapBytes;
+    }
+
+    /**
+     * @return the directory of the temporary files, {@code null} for the default temporary directory.
+     */
+    public Path getDirectory()
+    {
+        return directory;
+    }
+}
@@ -0,0 +1,26 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.ws.api;
+
+/**
+ * How a call picks the endpoint it is sent to. Two endpoints are picked at random among the available ones and the
+ * call goes to the least loaded of both, which spreads the load almost as well as comparing every endpoint without
+ * sending every call to the same one.
+ */
+public enum BalancingStrategy
+{
+    /**
+     * The load of an endpoint is the number of its calls still waiting for a response.
+     */
+    LEAST_OUTSTANDING,
+
+    /**
+     * The load of an endpoint is its moving average latency, which jumps to any higher latency observed and decays
+     * over time, scaled by the number of its calls still waiting for a response.
+     */
+    PEAK_EWMA
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.ws.api;
+
+import org.mule.extension.ws.api.exception.SoapFaultException;
+
+/**
+ * Outcome of a {@link SoapCall} sent in a batch, either its {@link Response} or the failure that prevented getting
+ * one. A failed call doesn't affect the rest of the batch.
+ */
+public class CallResult
+{
+
+    private final int index;
+    private final SoapCall call;
+    private final Response response;
+    private final Throwable failure;
+
+    public CallResult(int index, SoapCall call, Response response, Throwable failure)
+    {
+        this.index = index;
+        this.call = call;
+        this.response = response;
+        this.failure = failure;
+    }
+
+    /**
+     * @return the position of the call in the submitted batch.
+     */
+    public int getIndex()
+    {
+        return index;
+    }
+
+    public SoapCall getCall()
+    {
+        return call;
+    }
+
+    public boolean isSuccess()
+    {
+        return failure == null;
+    }
+
+    /**
+     * @return whether the service answered the call with a SOAP Fault.
+     */
+    public boolean isFault()
+    {
+        return failure instanceof SoapFaultException;
+    }
+
+    /**
+     * @return the response of the call, {@code null} if it failed.
+     */
+    public Response getResponse()
+    {
+        return response;
+    }
+
+    /**
+     * @return the {@link SoapFaultException} answered by the service or the error that prevented the call,
+     * {@code null} if it succeeded.
+     */
+    public Throwable getFailure()
+    {
+        return failure;
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.ws.api;
+
+import org.mule.extension.ws.api.builder.CircuitBreakerConfigurationBuilder;
+
+/**
+ * A circuit breaker per endpoint that opens when the failure rate of its recent calls goes over a threshold. While
+ * open, the calls that would go to the endpoint fail fast, see {@link CircuitState}.
+ */
+public class CircuitBreakerConfiguration
+{
+
+    public static final CircuitBreakerConfiguration DISABLED = new CircuitBreakerConfiguration(false, 50, 20, 10, 10000, 1);
+
+    private final boolean enabled;
+    private final int failureRateThreshold;
+    private final int windowSize;
+    private final int minCalls;
+    private final long openTime;
+    private final int trialCalls;
+
+    public CircuitBreakerConfiguration(CircuitBreakerConfigurationBuilder builder)
+    {
+        this(true, builder.getFailureRateThreshold(), builder.getWindowSize(), builder.getMinCalls(), builder.getOpenTime(), builder.getTrialCalls());
+    }
+
+    private CircuitBreakerConfiguration(boolean enabled, int failureRateThreshold, int windowSize, int minCalls, long openTime, int trialCalls)
+    {
+        this.enabled = enabled;
+        this.failureRateThreshold = failureRateThreshold;
+        this.windowSize = windowSize;
+        this.minCalls = minCalls;
+        this.openTime = openTime;
+        this.trialCalls = trialCalls;
+    }
+
+    public boolean isEnabled()
+    {
+        return enabled;
+    }
+
+    /**
+     * @return the percentage of failed calls within the window that opens the circuit.
+     */
+    public int getFailureRateThreshold()
+    {
+        return failureRateThreshold;
+    }
+
+    /**
+     * @return the number of most recent calls whose failure rate is computed.
+     */
+    public int getWindowSize()
+    {
+        return windowSize;
+    }
+
+    /**
+     * @return the calls the window must hold before the circuit can open.
+     */
+    public int getMinCalls()
+    {
+        return minCalls;
+    }
+
+    /**
+     * @return the milliseconds the circuit stays open before letting trial calls through.
+     */
+    public long getOpenTime()
+    {
+        return openTime;
+    }
+
+    /**
+     * @return the trial calls that must succeed to close the circuit again, a single failure opens it.
+     */
+    public int getTrialCalls()
+    {
+        return trialCalls;
+    }
+}
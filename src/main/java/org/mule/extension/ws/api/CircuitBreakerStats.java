@@ -0,0 +1,51 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.ws.api;
+
+public class CircuitBreakerStats
+{
+
+    public static final CircuitBreakerStats EMPTY = new CircuitBreakerStats(CircuitState.CLOSED, 0, 0);
+
+    private final CircuitState state;
+    private final long openings;
+    private final long rejected;
+
+    public CircuitBreakerStats(CircuitState state, long openings, long rejected)
+    {
+        this.state = state;
+        this.openings = openings;
+        this.rejected = rejected;
+    }
+
+    public CircuitState getState()
+    {
+        return state;
+    }
+
+    /**
+     * @return the times the circuit opened, including the failed trials.
+     */
+    public long getOpenings()
+    {
+        return openings;
+    }
+
+    /**
+     * @return the calls that weren't sent to the endpoint because its circuit was open.
+     */
+    public long getRejected()
+    {
+        return rejected;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "CircuitBreakerStats{state=" + state + ", openings=" + openings + ", rejected=" + rejected + "}";
+    }
+}
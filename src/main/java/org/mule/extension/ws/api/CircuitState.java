@@ -0,0 +1,25 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.ws.api;
+
+public enum CircuitState
+{
+    /**
+     * Calls go through, their outcome is recorded.
+     */
+    CLOSED,
+
+    /**
+     * Too many of the recent calls failed, calls fail fast without being sent.
+     */
+    OPEN,
+
+    /**
+     * The open time elapsed, a few trial calls go through to decide whether to close the circuit again.
+     */
+    HALF_OPEN
+}
@@ -0,0 +1,266 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.ws.api;
+
+import org.mule.extension.ws.api.builder.ClientConfigurationBuilder;
+import org.mule.extension.ws.api.metrics.SoapClientMetrics;
+
+/**
+ * Immutable set of settings used by a {@link SoapProxyClient} during its whole lifecycle.
+ * <p>
+ * Instances are created through a {@link ClientConfigurationBuilder}.
+ */
+public class ClientConfiguration
+{
+
+    private final int maxConnectionsPerRoute;
+    private final int maxConnectionsTotal;
+    private final boolean keepAlive;
+    private final long keepAliveTimeout;
+    private final long connectionIdleTimeout;
+    private final long connectionTimeToLive;
+    private final int ioThreadCount;
+    private final int maxInFlightRequests;
+    private final boolean chunkedRequests;
+    private final SoapClientMetrics metrics;
+    private final int batchParallelism;
+    private final ResponseCacheConfiguration responseCache;
+    private final boolean fastInfoset;
+    private final CompressionConfiguration compression;
+    private final SoapHeaders staticHeaders;
+    private final boolean virtualThreads;
+    private final ConcurrencyLimitConfiguration concurrencyLimit;
+    private final HedgingConfiguration hedging;
+    private final LoadBalancingConfiguration loadBalancing;
+    private final RetryConfiguration retry;
+    private final CircuitBreakerConfiguration circuitBreaker;
+    private final AttachmentStorageConfiguration attachmentStorage;
+    private final MtomConfiguration mtom;
+
+    public ClientConfiguration(ClientConfigurationBuilder builder)
+    {
+        this.maxConnectionsPerRoute = builder.getMaxConnectionsPerRoute();
+        this.maxConnectionsTotal = builder.getMaxConnectionsTotal();
+        this.keepAlive = builder.isKeepAlive();
+        this.keepAliveTimeout = builder.getKeepAliveTimeout();
+        this.connectionIdleTimeout = builder.getConnectionIdleTimeout();
+        this.connectionTimeToLive = builder.getConnectionTimeToLive();
+        this.ioThreadCount = builder.getIoThreadCount();
+        this.maxInFlightRequests = builder.getMaxInFlightRequests();
+        this.chunkedRequests = builder.isChunkedRequests();
+        this.metrics = builder.getMetrics();
+        this.batchParallelism = builder.getBatchParallelism();
+        this.responseCache = builder.getResponseCache();
+        this.fastInfoset = builder.isFastInfoset();
+        this.compression = builder.getCompression();
+        this.staticHeaders = builder.getStaticHeaders();
+        this.virtualThreads = builder.isVirtualThreads();
+        this.concurrencyLimit = builder.getConcurrencyLimit();
+        this.hedging = builder.getHedging();
+        this.loadBalancing = builder.getLoadBalancing();
+        this.retry = builder.getRetry();
+        this.circuitBreaker = builder.getCircuitBreaker();
+        this.attachmentStorage = builder.getAttachmentStorage();
+        this.mtom = builder.getMtom();
+    }
+
+    public static ClientConfiguration getDefault()
+    {
+        return ClientConfigurationBuilder.getInstance().build();
+    }
+
+    /**
+     * @return the maximum number of pooled connections kept against a single endpoint.
+     */
+    public int getMaxConnectionsPerRoute()
+    {
+        return maxConnectionsPerRoute;
+    }
+
+    /**
+     * @return the maximum number of pooled connections kept by the client across all endpoints.
+     */
+    public int getMaxConnectionsTotal()
+    {
+        return maxConnectionsTotal;
+    }
+
+    /**
+     * @return whether connections are returned to the pool and reused by subsequent calls.
+     */
+    public boolean isKeepAlive()
+    {
+        return keepAlive;
+    }
+
+    /**
+     * @return the milliseconds a connection is kept alive when the server does not send a {@code Keep-Alive} header.
+     */
+    public long getKeepAliveTimeout()
+    {
+        return keepAliveTimeout;
+    }
+
+    /**
+     * @return the milliseconds after which an idle pooled connection is evicted.
+     */
+    public long getConnectionIdleTimeout()
+    {
+        return connectionIdleTimeout;
+    }
+
+    /**
+     * @return the maximum milliseconds a pooled connection lives, {@code -1} means no limit.
+     */
+    public long getConnectionTimeToLive()
+    {
+        return connectionTimeToLive;
+    }
+
+    /**
+     * @return the number of non-blocking I/O threads used by asynchronous invocations.
+     */
+    public int getIoThreadCount()
+    {
+        return ioThreadCount;
+    }
+
+    /**
+     * @return the maximum number of asynchronous invocations waiting for a response at the same time, calls over
+     * this limit are queued until a previous one completes.
+     */
+    public int getMaxInFlightRequests()
+    {
+        return maxInFlightRequests;
+    }
+
+    /**
+     * @return whether request envelopes are sent chunked while they are serialized, otherwise they are serialized
+     * first so the request carries a {@code Content-Length}.
+     */
+    public boolean isChunkedRequests()
+    {
+        return chunkedRequests;
+    }
+
+    /**
+     * @return the listener notified with the timings, sizes and outcome of every call.
+     */
+    public SoapClientMetrics getMetrics()
+    {
+        return metrics;
+    }
+
+    /**
+     * @return the maximum number of calls of a batch sent at the same time. Going over the max connections per route
+     * only makes the calls wait for a connection.
+     */
+    public int getBatchParallelism()
+    {
+        return batchParallelism;
+    }
+
+    /**
+     * @return the settings of the cache of responses of idempotent operations, disabled by default.
+     */
+    public ResponseCacheConfiguration getResponseCache()
+    {
+        return responseCache;
+    }
+
+    /**
+     * @return whether Fast Infoset is negotiated with the service. Requests advertise that Fast Infoset responses are
+     * accepted, and are themselves encoded as Fast Infoset once the service answered with it. Otherwise textual XML is
+     * used.
+     */
+    public boolean isFastInfoset()
+    {
+        return fastInfoset;
+    }
+
+    /**
+     * @return how requests are compressed and whether compressed responses are accepted.
+     */
+    public CompressionConfiguration getCompression()
+    {
+        return compression;
+    }
+
+    /**
+     * @return the headers added to every request, serialized once so they are copied as they are into each envelope.
+     */
+    public SoapHeaders getStaticHeaders()
+    {
+        return staticHeaders;
+    }
+
+    /**
+     * @return whether async and batch calls are run on a virtual thread per call, blocking on the transport instead
+     * of using its non-blocking API. It only applies on Java 21 or later, platform threads are used otherwise.
+     */
+    public boolean isVirtualThreads()
+    {
+        return virtualThreads;
+    }
+
+    /**
+     * @return the adaptive limit of the calls in flight to each endpoint, disabled by default.
+     */
+    public ConcurrencyLimitConfiguration getConcurrencyLimit()
+    {
+        return concurrencyLimit;
+    }
+
+    /**
+     * @return the operations whose requests are hedged and how, disabled by default.
+     */
+    public HedgingConfiguration getHedging()
+    {
+        return hedging;
+    }
+
+    /**
+     * @return how calls are balanced between the endpoints of the service.
+     */
+    public LoadBalancingConfiguration getLoadBalancing()
+    {
+        return loadBalancing;
+    }
+
+    /**
+     * @return the operations whose failed calls are retried and how, disabled by default.
+     */
+    public RetryConfiguration getRetry()
+    {
+        return retry;
+    }
+
+    /**
+     * @return the circuit breaker of each endpoint, disabled by default.
+     */
+    public CircuitBreakerConfiguration getCircuitBreaker()
+    {
+        return circuitBreaker;
+    }
+
+    /**
+     * @return how the attachments of the responses are stored, disabled by default so they are read straight from
+     *         the connection.
+     */
+    public AttachmentStorageConfiguration getAttachmentStorage()
+    {
+        return attachmentStorage;
+    }
+
+    /**
+     * @return whether requests are sent as MTOM/XOP packages, disabled by default.
+     */
+    public MtomConfiguration getMtom()
+    {
+        return mtom;
+    }
+}
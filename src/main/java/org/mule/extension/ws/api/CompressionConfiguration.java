@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.ws.api;
+
+import static java.util.Collections.emptySet;
+import static java.util.Collections.unmodifiableSet;
+import org.mule.extension.ws.api.builder.CompressionConfigurationBuilder;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Settings of the HTTP content compression of a {@link SoapProxyClient}. Requests are compressed while they are
+ * written, responses are decompressed while they are read, neither is ever buffered to be compressed at once.
+ * <p>
+ * Instances are created through a {@link CompressionConfigurationBuilder}.
+ */
+public class CompressionConfiguration
+{
+
+    /**
+     * Requests are sent uncompressed and compressed responses are accepted.
+     */
+    public static final CompressionConfiguration DEFAULT = new CompressionConfiguration(false, ContentEncoding.GZIP, 1024, emptySet(), emptySet(), true);
+
+    private final boolean compressRequests;
+    private final ContentEncoding requestEncoding;
+    private final long threshold;
+    private final Set<String> compressedOperations;
+    private final Set<String> uncompressedOperations;
+    private final boolean acceptCompressedResponses;
+
+    public CompressionConfiguration(CompressionConfigurationBuilder builder)
+    {
+        this(builder.isCompressRequests(), builder.getRequestEncoding(), builder.getThreshold(), builder.getCompressedOperations(),
+             builder.getUncompressedOperations(), builder.isAcceptCompressedResponses());
+    }
+
+    private CompressionConfiguration(boolean compressRequests, ContentEncoding requestEncoding, long threshold, Set<String> compressedOperations,
+                                     Set<String> uncompressedOperations, boolean acceptCompressedResponses)
+    {
+        this.compressRequests = compressRequests;
+        this.requestEncoding = requestEncoding;
+        this.threshold = threshold;
+        this.compressedOperations = unmodifiableSet(new HashSet<>(compressedOperations));
+        this.uncompressedOperations = unmodifiableSet(new HashSet<>(uncompressedOperations));
+        this.acceptCompressedResponses = acceptCompressedResponses;
+    }
+
+    /**
+     * @return whether requests over the threshold are compressed, the ones of {@link #getCompressedOperations()}
+     * always are.
+     */
+    public boolean isCompressRequests()
+    {
+        return compressRequests;
+    }
+
+    public ContentEncoding getRequestEncoding()
+    {
+        return requestEncoding;
+    }
+
+    /**
+     * @return the minimum size of an envelope to be compressed, smaller ones cost more to compress than what they
+     * save.
+     */
+    public long getThreshold()
+    {
+        return threshold;
+    }
+
+    /**
+     * @return the names of the operations whose requests are always compressed.
+     */
+    public Set<String> getCompressedOperations()
+    {
+        return compressedOperations;
+    }
+
+    /**
+     * @return the names of the operations whose requests are never compressed.
+     */
+    public Set<String> getUncompressedOperations()
+    {
+        return uncompressedOperations;
+    }
+
+    /**
+     * @return whether the service is told it can send compressed responses.
+     */
+    public boolean isAcceptCompressedResponses()
+    {
+        return acceptCompressedResponses;
+    }
+
+    /**
+     * @param operation the name of the operation being invoked.
+     * @param size      the size of its envelope, {@code -1} if it is not known.
+     * @return whether the request must be compressed.
+     */
+    public boolean isCompressed(String operation, long size)
+    {
+        if (compressedOperations.contains(operation))
+        {
+            return true;
+        }
+        return compressRequests && (threshold == 0 || size >= threshold) && !uncompressedOperations.contains(operation);
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.ws.api;
+
+import org.mule.extension.ws.api.builder.ConcurrencyLimitConfigurationBuilder;
+
+/**
+ * Adaptive limit of the calls in flight to an endpoint. Calls over the limit wait up to {@link #getMaxWait()} for
+ * a running one to complete and are rejected afterwards, so they fail fast instead of piling up on a slow endpoint.
+ */
+public class ConcurrencyLimitConfiguration
+{
+
+    public static final ConcurrencyLimitConfiguration DISABLED = new ConcurrencyLimitConfiguration(false, LimitAlgorithm.GRADIENT, 1, 1, 1, 0, 1, 0.9, 2, 0.2);
+
+    private final boolean enabled;
+    private final LimitAlgorithm algorithm;
+    private final int initialLimit;
+    private final int minLimit;
+    private final int maxLimit;
+    private final long maxWait;
+    private final long latencyThreshold;
+    private final double backoffRatio;
+    private final double tolerance;
+    private final double smoothing;
+
+    public ConcurrencyLimitConfiguration(ConcurrencyLimitConfigurationBuilder builder)
+    {
+        this(true, builder.getAlgorithm(), builder.getInitialLimit(), builder.getMinLimit(), builder.getMaxLimit(), builder.getMaxWait(),
+             builder.getLatencyThreshold(), builder.getBackoffRatio(), builder.getTolerance(), builder.getSmoothing());
+    }
+
+    private ConcurrencyLimitConfiguration(boolean enabled, LimitAlgorithm algorithm, int initialLimit, int minLimit, int maxLimit, long maxWait,
+                                          long latencyThreshold, double backoffRatio, double tolerance, double smoothing)
+    {
+        this.enabled = enabled;
+        this.algorithm = algorithm;
+        this.initialLimit = initialLimit;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.maxWait = maxWait;
+        this.latencyThreshold = latencyThreshold;
+        this.backoffRatio = backoffRatio;
+        this.tolerance = tolerance;
+        this.smoothing = smoothing;
+    }
+
+    public boolean isEnabled()
+    {
+        return enabled;
+    }
+
+    public LimitAlgorithm getAlgorithm()
+    {
+        return algorithm;
+    }
+
+    public int getInitialLimit()
+    {
+        return initialLimit;
+    }
+
+    public int getMinLimit()
+    {
+        return minLimit;
+    }
+
+    public int getMaxLimit()
+    {
+        return maxLimit;
+    }
+
+    /**
+     * @return the milliseconds a call over the limit waits for room before it is rejected, zero to reject it right away.
+     * Only synchronous calls wait, asynchronous ones are rejected right away so no thread is blocked.
+     */
+    public long getMaxWait()
+    {
+        return maxWait;
+    }
+
+    /**
+     * @return the round-trip milliseconds over which {@link LimitAlgorithm#AIMD} backs off.
+     */
+    public long getLatencyThreshold()
+    {
+        return latencyThreshold;
+    }
+
+    /**
+     * @return the factor {@link LimitAlgorithm#AIMD} multiplies the limit by when it backs off.
+     */
+    public double getBackoffRatio()
+    {
+        return backoffRatio;
+    }
+
+    /**
+     * @return how many times the lowest round-trip latency {@link LimitAlgorithm#GRADIENT} accepts before it starts
+     * shrinking the limit.
+     */
+    public double getTolerance()
+    {
+        return tolerance;
+    }
+
+    /**
+     * @return the weight of each new sample in the limit computed by {@link LimitAlgorithm#GRADIENT}.
+     */
+    public double getSmoothing()
+    {
+        return smoothing;
+    }
+}
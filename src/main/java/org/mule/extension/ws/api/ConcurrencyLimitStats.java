@@ -0,0 +1,51 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.ws.api;
+
+public class ConcurrencyLimitStats
+{
+
+    public static final ConcurrencyLimitStats EMPTY = new ConcurrencyLimitStats(0, 0, 0);
+
+    private final int limit;
+    private final int inFlight;
+    private final long rejected;
+
+    public ConcurrencyLimitStats(int limit, int inFlight, long rejected)
+    {
+        this.limit = limit;
+        this.inFlight = inFlight;
+        this.rejected = rejected;
+    }
+
+    /**
+     * @return the number of calls currently allowed in flight.
+     */
+    public int getLimit()
+    {
+        return limit;
+    }
+
+    public int getInFlight()
+    {
+        return inFlight;
+    }
+
+    /**
+     * @return the calls that failed because there was no room for them within the limit.
+     */
+    public long getRejected()
+    {
+        return rejected;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "ConcurrencyLimitStats{limit=" + limit + ", inFlight=" + inFlight + ", rejected=" + rejected + "}";
+    }
+}
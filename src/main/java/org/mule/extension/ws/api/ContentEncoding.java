@@ -0,0 +1,46 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.ws.api;
+
+/**
+ * HTTP content codings a request entity can be compressed with.
+ */
+public enum ContentEncoding
+{
+    GZIP("gzip"),
+    DEFLATE("deflate");
+
+    private final String name;
+
+    ContentEncoding(String name)
+    {
+        this.name = name;
+    }
+
+    /**
+     * @return the name of the coding as used in the Content-Encoding and Accept-Encoding headers.
+     */
+    public String getName()
+    {
+        return name;
+    }
+
+    /**
+     * @return the coding with the given name, {@code null} if it is not supported.
+     */
+    public static ContentEncoding fromName(String name)
+    {
+        for (ContentEncoding encoding : values())
+        {
+            if (encoding.name.equalsIgnoreCase(name))
+            {
+                return encoding;
+            }
+        }
+        return null;
+    }
+}
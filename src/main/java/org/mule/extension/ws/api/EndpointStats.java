@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.ws.api;
+
+public class EndpointStats
+{
+
+    private final String address;
+    private final long requests;
+    private final long failures;
+    private final int outstanding;
+    private final double latency;
+    private final boolean ejected;
+    private final long ejections;
+    private final ConcurrencyLimitStats concurrencyLimit;
+    private final CircuitBreakerStats circuitBreaker;
+
+    public EndpointStats(String address, long requests, long failures, int outstanding, double latency, boolean ejected, long ejections,
+                         ConcurrencyLimitStats concurrencyLimit, CircuitBreakerStats circuitBreaker)
+    {
+        this.address = address;
+        this.requests = requests;
+        this.failures = failures;
+        this.outstanding = outstanding;
+        this.latency = latency;
+        this.ejected = ejected;
+        this.ejections = ejections;
+        this.concurrencyLimit = concurrencyLimit;
+        this.circuitBreaker = circuitBreaker;
+    }
+
+    public String getAddress()
+    {
+        return address;
+    }
+
+    /**
+     * @return the requests sent to the endpoint.
+     */
+    public long getRequests()
+    {
+        return requests;
+    }
+
+    /**
+     * @return the requests that failed without a response from the endpoint.
+     */
+    public long getFailures()
+    {
+        return failures;
+    }
+
+    /**
+     * @return the requests currently waiting for a response from the endpoint.
+     */
+    public int getOutstanding()
+    {
+        return outstanding;
+    }
+
+    /**
+     * @return the moving average latency of the endpoint in milliseconds.
+     */
+    public double getLatency()
+    {
+        return latency;
+    }
+
+    public boolean isEjected()
+    {
+        return ejected;
+    }
+
+    /**
+     * @return the times the endpoint was ejected, including failed probes.
+     */
+    public long getEjections()
+    {
+        return ejections;
+    }
+
+    public ConcurrencyLimitStats getConcurrencyLimit()
+    {
+        return concurrencyLimit;
+    }
+
+    public CircuitBreakerStats getCircuitBreaker()
+    {
+        return circuitBreaker;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "EndpointStats{address=" + address + ", requests=" + requests + ", failures=" + failures + ", outstanding=" + outstanding
+               + ", latency=" + latency + ", ejected=" + ejected + ", ejections=" + ejections + ", concurrencyLimit=" + concurrencyLimit + ", circuitBreaker=" + circuitBreaker + "}";
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.ws.api;
+
+import static java.util.Collections.emptySet;
+import static java.util.Collections.unmodifiableSet;
+import org.mule.extension.ws.api.builder.HedgingConfigurationBuilder;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Hedged requests for idempotent operations. When no response arrived after the configured percentile of the
+ * recent latency of the operation, the same request is sent again and the first response that arrives is used, the
+ * other request is cancelled.
+ */
+public class HedgingConfiguration
+{
+
+    public static final HedgingConfiguration DISABLED = new HedgingConfiguration(emptySet(), 95, 10, 20);
+
+    private final Set<String> operations;
+    private final double percentile;
+    private final int budgetPercent;
+    private final int minSamples;
+
+    public HedgingConfiguration(HedgingConfigurationBuilder builder)
+    {
+        this(builder.getOperations(), builder.getPercentile(), builder.getBudgetPercent(), builder.getMinSamples());
+    }
+
+    private HedgingConfiguration(Set<String> operations, double percentile, int budgetPercent, int minSamples)
+    {
+        this.operations = unmodifiableSet(new HashSet<>(operations));
+        this.percentile = percentile;
+        this.budgetPercent = budgetPercent;
+        this.minSamples = minSamples;
+    }
+
+    public boolean isEnabled()
+    {
+        return !operations.isEmpty();
+    }
+
+    /**
+     * @return the names of the operations whose requests are hedged, they must be safe to send more than once.
+     */
+    public Set<String> getOperations()
+    {
+        return operations;
+    }
+
+    /**
+     * @return the percentile of the recent latency of an operation after which a request is hedged.
+     */
+    public double getPercentile()
+    {
+        return percentile;
+    }
+
+    /**
+     * @return the hedges allowed for every hundred requests, the extra load they add is at most this percentage.
+     */
+    public int getBudgetPercent()
+    {
+        return budgetPercent;
+    }
+
+    /**
+     * @return the latencies an operation needs to have recorded before its requests are hedged.
+     */
+    public int getMinSamples()
+    {
+        return minSamples;
+    }
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.ws.api;
+
+public class HedgingStats
+{
+
+    public static final HedgingStats EMPTY = new HedgingStats(0, 0, 0);
+
+    private final long sent;
+    private final long won;
+    private final long throttled;
+
+    public HedgingStats(long sent, long won, long throttled)
+    {
+        this.sent = sent;
+        this.won = won;
+        this.throttled = throttled;
+    }
+
+    /**
+     * @return the duplicate requests sent because the first one was taking too long.
+     */
+    public long getSent()
+    {
+        return sent;
+    }
+
+    /**
+     * @return the hedges whose response arrived before the one of the first request.
+     */
+    public long getWon()
+    {
+        return won;
+    }
+
+    /**
+     * @return the hedges that weren't sent because the budget was used up.
+     */
+    public long getThrottled()
+    {
+        return throttled;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "HedgingStats{sent=" + sent + ", won=" + won + ", throttled=" + throttled + "}";
+    }
+}
@@ -0,0 +1,25 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.ws.api;
+
+/**
+ * How the concurrency limit of an endpoint adapts to the round-trip latency of its calls.
+ */
+public enum LimitAlgorithm
+{
+    /**
+     * Grows the limit by one while calls complete under the latency threshold, and shrinks it by the backoff ratio
+     * when one goes over it or fails.
+     */
+    AIMD,
+
+    /**
+     * Scales the limit by how much the latency grew over the lowest one observed, leaving room for a queue that
+     * grows with the square root of the limit.
+     */
+    GRADIENT
+}
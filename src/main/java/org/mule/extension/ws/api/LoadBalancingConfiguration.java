@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.ws.api;
+
+import org.mule.extension.ws.api.builder.LoadBalancingConfigurationBuilder;
+
+/**
+ * How calls are balanced between the endpoints of a service. Endpoints that fail several calls in a row are ejected
+ * for a while, after which a single call probes whether they are back. The ejection grows with every failed probe.
+ */
+public class LoadBalancingConfiguration
+{
+
+    public static final LoadBalancingConfiguration DEFAULT = new LoadBalancingConfiguration(BalancingStrategy.PEAK_EWMA, 5, 30000, 300000, 10000);
+
+    private final BalancingStrategy strategy;
+    private final int failuresToEject;
+    private final long ejectionTime;
+    private final long maxEjectionTime;
+    private final long latencyDecay;
+
+    public LoadBalancingConfiguration(LoadBalancingConfigurationBuilder builder)
+    {
+        this(builder.getStrategy(), builder.getFailuresToEject(), builder.getEjectionTime(), builder.getMaxEjectionTime(), builder.getLatencyDecay());
+    }
+
+    private LoadBalancingConfiguration(BalancingStrategy strategy, int failuresToEject, long ejectionTime, long maxEjectionTime, long latencyDecay)
+    {
+        this.strategy = strategy;
+        this.failuresToEject = failuresToEject;
+        this.ejectionTime = ejectionTime;
+        this.maxEjectionTime = maxEjectionTime;
+        this.latencyDecay = latencyDecay;
+    }
+
+    public BalancingStrategy getStrategy()
+    {
+        return strategy;
+    }
+
+    /**
+     * @return the calls an endpoint has to fail in a row to be ejected.
+     */
+    public int getFailuresToEject()
+    {
+        return failuresToEject;
+    }
+
+    /**
+     * @return the milliseconds an endpoint stays ejected the first time, doubled after every failed probe.
+     */
+    public long getEjectionTime()
+    {
+        return ejectionTime;
+    }
+
+    public long getMaxEjectionTime()
+    {
+        return maxEjectionTime;
+    }
+
+    /**
+     * @return the milliseconds it takes the average latency of an endpoint to decay to about a third, when using
+     * {@link BalancingStrategy#PEAK_EWMA}.
+     */
+    public long getLatencyDecay()
+    {
+        return latencyDecay;
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.ws.api;
+
+import static java.util.Collections.emptySet;
+import static java.util.Collections.unmodifiableSet;
+import org.mule.extension.ws.api.builder.MtomConfigurationBuilder;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import javax.xml.namespace.QName;
+
+/**
+ * MTOM/XOP packaging of the requests. When enabled, requests are sent as XOP packages and the content of the listed
+ * payload elements, which must be of type {@code xs:base64Binary}, is moved into a binary MIME part of its own when it
+ * is over the threshold. The element then references the part with an {@code xop:Include}. A listed element whose
+ * whole content is {@code cid:attachment-i} is turned into a reference to the attachment {@code i} of the request.
+ * <p>
+ * Requests encoded as Fast Infoset are never packaged.
+ * <p>
+ * Instances are created through a {@link MtomConfigurationBuilder}.
+ */
+public class MtomConfiguration
+{
+
+    public static final MtomConfiguration DISABLED = new MtomConfiguration(false, emptySet(), 1024);
+
+    private final boolean enabled;
+    private final Set<QName> elements;
+    private final int threshold;
+
+    public MtomConfiguration(MtomConfigurationBuilder builder)
+    {
+        this(true, builder.getElements(), builder.getThreshold());
+    }
+
+    private MtomConfiguration(boolean enabled, Set<QName> elements, int threshold)
+    {
+        this.enabled = enabled;
+        this.elements = unmodifiableSet(new HashSet<>(elements));
+        this.threshold = threshold;
+    }
+
+    public boolean isEnabled()
+    {
+        return enabled;
+    }
+
+    /**
+     * @return the elements of type {@code xs:base64Binary} whose content may be moved into MIME parts.
+     */
+    public Set<QName> getElements()
+    {
+        return elements;
+    }
+
+    /**
+     * @return the size in bytes of the decoded binary content from which it is moved into a MIME part, smaller
+     *         content stays inlined as base64.
+     */
+    public int getThreshold()
+    {
+        return threshold;
+    }
+}
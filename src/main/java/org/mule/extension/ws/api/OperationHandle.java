@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.ws.api;
+
+import static java.util.Collections.emptyList;
+import org.mule.extension.ws.internal.EnvelopeTemplate;
+
+import java.io.InputStream;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * A single operation of the service consumed by a {@link SoapProxyClient}, obtained through
+ * {@link SoapProxyClient#operation(String)}.
+ * <p>
+ * Everything that only depends on the operation, the envelope markup, the SOAPAction and the content type, is
+ * computed once when the handle is created, so invocations only serialize their own headers and payload. Handles are
+ * thread safe.
+ */
+public class OperationHandle
+{
+
+    private final SoapProxyClient client;
+    private final String name;
+    private final String soapAction;
+    private final String contentType;
+    private final EnvelopeTemplate envelope;
+
+    OperationHandle(SoapProxyClient client, String name, String soapAction, String contentType, EnvelopeTemplate envelope)
+    {
+        this.client = client;
+        this.name = name;
+        this.soapAction = soapAction;
+        this.contentType = contentType;
+        this.envelope = envelope;
+    }
+
+    public String getName()
+    {
+        return name;
+    }
+
+    public String getSoapAction()
+    {
+        return soapAction;
+    }
+
+    public Response invoke(XMLStreamReader payload)
+    {
+        return invoke(payload, emptyList(), emptyList());
+    }
+
+    public Response invoke(XMLStreamReader payload, List<XMLStreamReader> headers, List<InputStream> attachments)
+    {
+        return client.invoke(this, payload, headers, attachments);
+    }
+
+    public CompletableFuture<Response> invokeAsync(XMLStreamReader payload)
+    {
+        return invokeAsync(payload, emptyList(), emptyList());
+    }
+
+    public CompletableFuture<Response> invokeAsync(XMLStreamReader payload, List<XMLStreamReader> headers, List<InputStream> attachments)
+    {
+        return client.invokeAsync(this, payload, headers, attachments);
+    }
+
+    String getContentType()
+    {
+        return contentType;
+    }
+
+    EnvelopeTemplate getEnvelope()
+    {
+        return envelope;
+    }
+}
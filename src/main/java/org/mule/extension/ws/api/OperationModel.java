@@ -0,0 +1,72 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.ws.api;
+
+import javax.xml.namespace.QName;
+
+/**
+ * What a WSDL tells about a single operation of a {@link ServiceDefinition}. Instances are immutable.
+ */
+public class OperationModel
+{
+
+    private final String name;
+    private final String soapAction;
+    private final OperationStyle style;
+    private final QName inputElement;
+    private final QName outputElement;
+
+    public OperationModel(String name, String soapAction, OperationStyle style, QName inputElement, QName outputElement)
+    {
+        this.name = name;
+        this.soapAction = soapAction;
+        this.style = style;
+        this.inputElement = inputElement;
+        this.outputElement = outputElement;
+    }
+
+    public String getName()
+    {
+        return name;
+    }
+
+    /**
+     * @return the SOAPAction of the requests, which may be empty but never {@code null}.
+     */
+    public String getSoapAction()
+    {
+        return soapAction;
+    }
+
+    public OperationStyle getStyle()
+    {
+        return style;
+    }
+
+    /**
+     * @return the first element in the body of the requests, {@code null} if they have an empty body.
+     */
+    public QName getInputElement()
+    {
+        return inputElement;
+    }
+
+    /**
+     * @return the first element in the body of the responses, {@code null} for one-way operations or if they have an
+     * empty body.
+     */
+    public QName getOutputElement()
+    {
+        return outputElement;
+    }
+
+    @Override
+    public String toString()
+    {
+        return name + " [soapAction=" + soapAction + ", style=" + style + ", input=" + inputElement + ", output=" + outputElement + "]";
+    }
+}
@@ -0,0 +1,23 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.ws.api;
+
+/**
+ * Binding style of an operation, it tells how the body of its messages is laid out.
+ */
+public enum OperationStyle
+{
+    /**
+     * The body holds the message parts as they are, usually a single element.
+     */
+    DOCUMENT,
+
+    /**
+     * The body holds an element named after the operation that wraps its parameters.
+     */
+    RPC
+}
@@ -6,21 +6,61 @@
  */
 package org.mule.extension.ws.api;
 
+import static java.util.Spliterator.NONNULL;
+import static java.util.Spliterator.ORDERED;
+import org.mule.extension.ws.internal.RecordReader;
+
+import java.io.Closeable;
+import java.io.IOException;
 import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.ToIntFunction;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
+import javax.xml.stream.XMLStreamException;
 import javax.xml.stream.XMLStreamReader;
 
-public class Response
+public class Response implements Closeable
 {
     private XMLStreamReader body;
 
     private List<InputStream> att;
 
+    private Closeable resources;
+
+    private ToIntFunction<String> attachmentIndex;
+
+    private RecordReader records;
+
     public Response(XMLStreamReader body, List<InputStream> att)
+    {
+        this(body, att, () -> {});
+    }
+
+    /**
+     * @param resources released when the response is closed.
+     */
+    public Response(XMLStreamReader body, List<InputStream> att, Closeable resources)
+    {
+        this(body, att, resources, contentId -> -1);
+    }
+
+    /**
+     * @param attachmentIndex finds the position of an attachment from its Content-ID, -1 if there is none with it.
+     */
+    public Response(XMLStreamReader body, List<InputStream> att, Closeable resources, ToIntFunction<String> attachmentIndex)
     {
         this.body = body;
         this.att = att;
+        this.resources = resources;
+        this.attachmentIndex = attachmentIndex;
     }
 
     public XMLStreamReader getBody()
@@ -32,4 +72,119 @@ public class Response
     {
         return att;
     }
+
+    /**
+     * Resolves a reference to an attachment, such as the {@code href} of an {@code xop:Include} in an MTOM response.
+     * Attachments are only read from the connection as far as the one referenced, so references can be resolved while
+     * the body is being read.
+     *
+     * @param reference a {@code cid:} URL or a bare Content-ID.
+     * @return the attachment, {@code null} if the response has none with that Content-ID.
+     */
+    public InputStream getAttachment(String reference)
+    {
+        int index = attachmentIndex.applyAsInt(toContentId(reference));
+        return index >= 0 ? att.get(index) : null;
+    }
+
+    /**
+     * Iterates lazily over the children of the result element, the first element of the body, reading each of them
+     * from the stream only when it is requested. Records are consumed from the body, so it must not be read through
+     * {@link #getBody()} as well.
+     */
+    public Iterator<XMLStreamReader> getRecords()
+    {
+        Iterator<byte[]> records = recordReader();
+        return new Iterator<XMLStreamReader>()
+        {
+            @Override
+            public boolean hasNext()
+            {
+                return records.hasNext();
+            }
+
+            @Override
+            public XMLStreamReader next()
+            {
+                return RecordReader.parse(records.next());
+            }
+        };
+    }
+
+    /**
+     * @return the records of the result element, each one serialized as a standalone document. Splits hand over
+     *         batches of records already read from the stream, so they can be parsed in parallel.
+     */
+    public Spliterator<byte[]> getRecordSpliterator()
+    {
+        return Spliterators.spliteratorUnknownSize(recordReader(), ORDERED | NONNULL);
+    }
+
+    /**
+     * @param parallel whether the records are parsed and processed in parallel.
+     * @return a stream over the records of the result element that closes this response when it is closed.
+     */
+    public Stream<XMLStreamReader> streamRecords(boolean parallel)
+    {
+        return StreamSupport.stream(getRecordSpliterator(), parallel)
+                .map(RecordReader::parse)
+                .onClose(() ->
+                         {
+                             try
+                             {
+                                 close();
+                             }
+                             catch (IOException e)
+                             {
+                                 throw new UncheckedIOException(e);
+                             }
+                         });
+    }
+
+    private static String toContentId(String reference)
+    {
+        if (!reference.startsWith("cid:"))
+        {
+            return reference;
+        }
+        try
+        {
+            // cid: URLs are percent-encoded, where a plus sign stands for itself
+            return URLDecoder.decode(reference.substring(4).replace("+", "%2B"), "UTF-8");
+        }
+        catch (UnsupportedEncodingException e)
+        {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private RecordReader recordReader()
+    {
+        if (records == null)
+        {
+            records = new RecordReader(body);
+        }
+        return records;
+    }
+
+    /**
+     * Discards whatever is left of the response body and attachments. Both are read straight from the connection,
+     * so a response that is not fully consumed must be closed for the connection to be reused.
+     */
+    @Override
+    public void close() throws IOException
+    {
+        try
+        {
+            body.close();
+        }
+        catch (XMLStreamException e)
+        {
+            throw new IOException(e);
+        }
+        finally
+        {
+            resources.close();
+        }
+    }
 }
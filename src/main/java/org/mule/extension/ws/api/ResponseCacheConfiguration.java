@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.ws.api;
+
+import static java.util.Collections.emptySet;
+import static java.util.Collections.unmodifiableSet;
+import org.mule.extension.ws.api.builder.ResponseCacheConfigurationBuilder;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Settings of the response cache of a {@link SoapProxyClient}. Only the responses of the listed operations are
+ * cached, so it must only be enabled for operations whose response depends on nothing but the request.
+ * <p>
+ * Instances are created through a {@link ResponseCacheConfigurationBuilder}.
+ */
+public class ResponseCacheConfiguration
+{
+
+    public static final ResponseCacheConfiguration DISABLED = new ResponseCacheConfiguration(emptySet(), 1, 1, false);
+
+    private final Set<String> operations;
+    private final long maxBytes;
+    private final long timeToLive;
+    private final boolean cacheFaults;
+
+    public ResponseCacheConfiguration(ResponseCacheConfigurationBuilder builder)
+    {
+        this(builder.getOperations(), builder.getMaxBytes(), builder.getTimeToLive(), builder.isCacheFaults());
+    }
+
+    private ResponseCacheConfiguration(Set<String> operations, long maxBytes, long timeToLive, boolean cacheFaults)
+    {
+        this.operations = unmodifiableSet(new HashSet<>(operations));
+        this.maxBytes = maxBytes;
+        this.timeToLive = timeToLive;
+        this.cacheFaults = cacheFaults;
+    }
+
+    public boolean isEnabled()
+    {
+        return !operations.isEmpty();
+    }
+
+    /**
+     * @return the names of the operations whose responses are cached.
+     */
+    public Set<String> getOperations()
+    {
+        return operations;
+    }
+
+    /**
+     * @return the maximum size of the cached responses added up, least valuable entries are evicted over it.
+     */
+    public long getMaxBytes()
+    {
+        return maxBytes;
+    }
+
+    /**
+     * @return the milliseconds a response is served from the cache after it was received.
+     */
+    public long getTimeToLive()
+    {
+        return timeToLive;
+    }
+
+    /**
+     * @return whether SOAP Faults are cached as well, otherwise a request that got a fault is always sent again.
+     */
+    public boolean isCacheFaults()
+    {
+        return cacheFaults;
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.ws.api;
+
+/**
+ * Counters of the response cache of a {@link SoapProxyClient}, since the client was created.
+ */
+public class ResponseCacheStats
+{
+
+    public static final ResponseCacheStats EMPTY = new ResponseCacheStats(0, 0, 0, 0, 0);
+
+    private final long hits;
+    private final long misses;
+    private final long evictions;
+    private final long entries;
+    private final long bytes;
+
+    public ResponseCacheStats(long hits, long misses, long evictions, long entries, long bytes)
+    {
+        this.hits = hits;
+        this.misses = misses;
+        this.evictions = evictions;
+        this.entries = entries;
+        this.bytes = bytes;
+    }
+
+    public long getHits()
+    {
+        return hits;
+    }
+
+    public long getMisses()
+    {
+        return misses;
+    }
+
+    /**
+     * @return the entries removed because of the size bound or because they expired.
+     */
+    public long getEvictions()
+    {
+        return evictions;
+    }
+
+    public long getEntries()
+    {
+        return entries;
+    }
+
+    /**
+     * @return the size of the cached responses added up.
+     */
+    public long getBytes()
+    {
+        return bytes;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "ResponseCacheStats{hits=" + hits + ", misses=" + misses + ", evictions=" + evictions + ", entries=" + entries + ", bytes=" + bytes + "}";
+    }
+}
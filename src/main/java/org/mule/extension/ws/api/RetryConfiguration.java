@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.ws.api;
+
+import static java.util.Collections.emptySet;
+import static java.util.Collections.unmodifiableSet;
+import org.mule.extension.ws.api.builder.RetryConfigurationBuilder;
+import org.mule.extension.ws.api.exception.SoapTransportException;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Retries of idempotent operations whose calls fail with a retryable {@link SoapTransportException}. Each retry
+ * waits a random backoff up to an exponentially growing cap, and retries are bounded by a budget that grows with the
+ * calls made, so they can't multiply the load of an endpoint that is already failing.
+ */
+public class RetryConfiguration
+{
+
+    public static final RetryConfiguration DISABLED = new RetryConfiguration(emptySet(), 3, 50, 1000, 10);
+
+    private final Set<String> operations;
+    private final int maxAttempts;
+    private final long initialBackoff;
+    private final long maxBackoff;
+    private final int budgetPercent;
+
+    public RetryConfiguration(RetryConfigurationBuilder builder)
+    {
+        this(builder.getOperations(), builder.getMaxAttempts(), builder.getInitialBackoff(), builder.getMaxBackoff(), builder.getBudgetPercent());
+    }
+
+    private RetryConfiguration(Set<String> operations, int maxAttempts, long initialBackoff, long maxBackoff, int budgetPercent)
+    {
+        this.operations = unmodifiableSet(new HashSet<>(operations));
+        this.maxAttempts = maxAttempts;
+        this.initialBackoff = initialBackoff;
+        this.maxBackoff = maxBackoff;
+        this.budgetPercent = budgetPercent;
+    }
+
+    public boolean isEnabled()
+    {
+        return !operations.isEmpty();
+    }
+
+    /**
+     * @return the names of the operations whose calls are retried, they must be safe to send more than once.
+     */
+    public Set<String> getOperations()
+    {
+        return operations;
+    }
+
+    /**
+     * @return the times a call is sent at most, including the first one.
+     */
+    public int getMaxAttempts()
+    {
+        return maxAttempts;
+    }
+
+    /**
+     * @return the cap in milliseconds of the backoff before the first retry, doubled for every later one.
+     */
+    public long getInitialBackoff()
+    {
+        return initialBackoff;
+    }
+
+    public long getMaxBackoff()
+    {
+        return maxBackoff;
+    }
+
+    /**
+     * @return the retries allowed for every hundred calls, the extra load they add is at most this percentage.
+     */
+    public int getBudgetPercent()
+    {
+        return budgetPercent;
+    }
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.ws.api;
+
+public class RetryStats
+{
+
+    public static final RetryStats EMPTY = new RetryStats(0, 0, 0);
+
+    private final long retries;
+    private final long throttled;
+    private final int budget;
+
+    public RetryStats(long retries, long throttled, int budget)
+    {
+        this.retries = retries;
+        this.throttled = throttled;
+        this.budget = budget;
+    }
+
+    /**
+     * @return the calls sent again after a retryable failure.
+     */
+    public long getRetries()
+    {
+        return retries;
+    }
+
+    /**
+     * @return the retryable failures that weren't retried because the budget was used up.
+     */
+    public long getThrottled()
+    {
+        return throttled;
+    }
+
+    /**
+     * @return the retries currently left in the budget.
+     */
+    public int getBudget()
+    {
+        return budget;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "RetryStats{retries=" + retries + ", throttled=" + throttled + ", budget=" + budget + "}";
+    }
+}
@@ -6,23 +6,224 @@
  */
 package org.mule.extension.ws.api;
 
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
+import static java.util.Collections.unmodifiableList;
+import static java.util.Collections.unmodifiableMap;
+import org.mule.extension.ws.internal.ServiceSnapshot;
+import org.mule.extension.ws.internal.WsdlParser;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * The service consumed by a {@link SoapProxyClient}. It is either entered by hand, in which case operations are
+ * invoked by guessing their SOAPAction and body namespace, or read from a WSDL along with the model of its operations.
+ * <p>
+ * The same service may be deployed on several endpoints, the client then balances its calls between them.
+ */
 public class ServiceDefinition
 {
 
-    private final String baseEndpoint;
+    private static final ConcurrentMap<String, ServiceDefinition> parsed = new ConcurrentHashMap<>();
+
+    private final List<String> endpoints;
     private final String namespace;
     private final String serviceName;
     private final String portName;
+    private final SoapVersion version;
+    private final Map<String, OperationModel> operations;
 
     public ServiceDefinition(String baseEndpoint,
                              String namespace,
                              String serviceName,
                              String portName)
     {
-        this.baseEndpoint = baseEndpoint.endsWith("/") ? baseEndpoint : baseEndpoint +"/";
-        this.namespace = namespace.endsWith("/") ? namespace : namespace +"/";
+        this(singletonList(baseEndpoint), namespace, serviceName, portName);
+    }
+
+    /**
+     * @param endpoints the addresses of the nodes the service is deployed on.
+     */
+    public ServiceDefinition(Collection<String> endpoints,
+                             String namespace,
+                             String serviceName,
+                             String portName)
+    {
+        this(normalize(endpoints),
+             namespace.endsWith("/") ? namespace : namespace +"/",
+             serviceName,
+             portName,
+             SoapVersion.SOAP_11,
+             emptyList());
+    }
+
+    public ServiceDefinition(String baseEndpoint,
+                             String namespace,
+                             String serviceName,
+                             String portName,
+                             SoapVersion version,
+                             Collection<OperationModel> operations)
+    {
+        this(singletonList(baseEndpoint), namespace, serviceName, portName, version, operations);
+    }
+
+    private ServiceDefinition(List<String> endpoints,
+                              String namespace,
+                              String serviceName,
+                              String portName,
+                              SoapVersion version,
+                              Collection<OperationModel> operations)
+    {
+        if (endpoints.isEmpty())
+        {
+            throw new IllegalArgumentException("A service needs at least one endpoint");
+        }
+        this.endpoints = unmodifiableList(new ArrayList<>(endpoints));
+        this.namespace = namespace;
         this.serviceName = serviceName;
         this.portName = portName;
+        this.version = version;
+        Map<String, OperationModel> byName = new LinkedHashMap<>();
+        for (OperationModel operation : operations)
+        {
+            byName.put(operation.getName(), operation);
+        }
+        this.operations = unmodifiableMap(byName);
+    }
+
+    private static List<String> normalize(Collection<String> endpoints)
+    {
+        List<String> normalized = new ArrayList<>();
+        for (String endpoint : endpoints)
+        {
+            normalized.add(endpoint.endsWith("/") ? endpoint : endpoint + "/");
+        }
+        return normalized;
+    }
+
+    /**
+     * @return a copy of this definition for the same service deployed on the given endpoints, for example to
+     * balance the calls of a service read from a WSDL between several nodes.
+     */
+    public ServiceDefinition withEndpoints(Collection<String> endpoints)
+    {
+        return new ServiceDefinition(new ArrayList<>(endpoints), namespace, serviceName, portName, version, operations.values());
+    }
+
+    /**
+     * Reads the first SOAP port of the first service of a WSDL.
+     *
+     * @see #fromWsdl(String, String, String)
+     */
+    public static ServiceDefinition fromWsdl(String wsdlLocation)
+    {
+        return fromWsdl(wsdlLocation, null, null);
+    }
+
+    /**
+     * Reads the definition of a service port from a WSDL. Each WSDL is only parsed once, later calls for the same
+     * service port get the same definition.
+     *
+     * @param wsdlLocation the path of a WSDL file, a classpath resource or a URL.
+     * @param serviceName  the local name of the service, {@code null} to take the first one.
+     * @param portName     the name of the port, {@code null} to take the first SOAP one of the service.
+     */
+    public static ServiceDefinition fromWsdl(String wsdlLocation, String serviceName, String portName)
+    {
+        URL wsdl = locate(wsdlLocation);
+        String key = wsdl + "#" + serviceName + "#" + portName;
+        ServiceDefinition definition = parsed.get(key);
+        return definition != null ? definition : parsed.computeIfAbsent(key, k -> WsdlParser.parse(wsdl, serviceName, portName));
+    }
+
+    /**
+     * Same as {@link #fromWsdl(String, String, String)} but the definition is loaded from the given snapshot when it
+     * is newer than the WSDL, otherwise the WSDL is parsed and the snapshot written so the next startup can skip it.
+     * Only the modification time of the WSDL itself is checked, not the one of the documents it imports.
+     */
+    public static ServiceDefinition fromWsdl(String wsdlLocation, String serviceName, String portName, Path snapshot)
+    {
+        URL wsdl = locate(wsdlLocation);
+        String key = wsdl + "#" + serviceName + "#" + portName;
+        ServiceDefinition definition = parsed.get(key);
+        if (definition != null)
+        {
+            return definition;
+        }
+        return parsed.computeIfAbsent(key, k ->
+        {
+            try
+            {
+                if (Files.isRegularFile(snapshot) && Files.getLastModifiedTime(snapshot).toMillis() >= wsdl.openConnection().getLastModified())
+                {
+                    return fromSnapshot(snapshot);
+                }
+                ServiceDefinition read = WsdlParser.parse(wsdl, serviceName, portName);
+                read.writeSnapshot(snapshot);
+                return read;
+            }
+            catch (IOException e)
+            {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    /**
+     * Loads a definition written by {@link #writeSnapshot(Path)}.
+     */
+    public static ServiceDefinition fromSnapshot(Path snapshot) throws IOException
+    {
+        try (InputStream in = Files.newInputStream(snapshot))
+        {
+            return ServiceSnapshot.read(in);
+        }
+    }
+
+    /**
+     * Writes this definition and its operation model in a compact binary form, to be loaded with
+     * {@link #fromSnapshot(Path)}.
+     */
+    public void writeSnapshot(Path snapshot) throws IOException
+    {
+        try (OutputStream out = Files.newOutputStream(snapshot))
+        {
+            ServiceSnapshot.write(this, out);
+        }
+    }
+
+    private static URL locate(String wsdlLocation)
+    {
+        try
+        {
+            File file = new File(wsdlLocation);
+            if (file.isFile())
+            {
+                return file.toURI().toURL();
+            }
+            ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+            URL resource = (classLoader != null ? classLoader : ServiceDefinition.class.getClassLoader()).getResource(wsdlLocation);
+            return resource != null ? resource : new URL(wsdlLocation);
+        }
+        catch (MalformedURLException e)
+        {
+            throw new IllegalArgumentException("WSDL " + wsdlLocation + " is neither a file, a classpath resource nor a URL", e);
+        }
     }
 
     public String getNamespace()
@@ -40,9 +241,38 @@ public class ServiceDefinition
         return portName;
     }
 
+    /**
+     * @return the first endpoint of the service.
+     */
     public String getBaseEndpoint()
     {
-        return baseEndpoint;
+        return endpoints.get(0);
     }
 
+    public List<String> getEndpoints()
+    {
+        return endpoints;
+    }
+
+    public SoapVersion getVersion()
+    {
+        return version;
+    }
+
+    /**
+     * @return the operations of the service by name, empty if the definition was not read from a WSDL.
+     */
+    public Map<String, OperationModel> getOperations()
+    {
+        return operations;
+    }
+
+    /**
+     * @return the model of the given operation, {@code null} if the service has no such operation or its definition
+     * was not read from a WSDL.
+     */
+    public OperationModel getOperation(String name)
+    {
+        return operations.get(name);
+    }
 }
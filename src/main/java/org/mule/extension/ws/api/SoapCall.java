@@ -0,0 +1,59 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.ws.api;
+
+import static java.util.Collections.emptyList;
+
+import java.io.InputStream;
+import java.util.List;
+
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * A single invocation of a batch sent through {@link SoapProxyClient#invokeAll(List)}.
+ */
+public class SoapCall
+{
+
+    private final String operation;
+    private final XMLStreamReader payload;
+    private final List<XMLStreamReader> headers;
+    private final List<InputStream> attachments;
+
+    public SoapCall(String operation, XMLStreamReader payload)
+    {
+        this(operation, payload, emptyList(), emptyList());
+    }
+
+    public SoapCall(String operation, XMLStreamReader payload, List<XMLStreamReader> headers, List<InputStream> attachments)
+    {
+        this.operation = operation;
+        this.payload = payload;
+        this.headers = headers;
+        this.attachments = attachments;
+    }
+
+    public String getOperation()
+    {
+        return operation;
+    }
+
+    public XMLStreamReader getPayload()
+    {
+        return payload;
+    }
+
+    public List<XMLStreamReader> getHeaders()
+    {
+        return headers;
+    }
+
+    public List<InputStream> getAttachments()
+    {
+        return attachments;
+    }
+}
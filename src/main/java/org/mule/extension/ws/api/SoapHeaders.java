@@ -0,0 +1,64 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.ws.api;
+
+import static java.util.Collections.emptyList;
+import static java.util.Collections.unmodifiableList;
+import org.mule.extension.ws.api.builder.HeadersBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * SOAP header elements serialized once into UTF-8, so they can be added to every request of a client without
+ * serializing them again. Each element declares the namespaces it uses, so it can be placed in any envelope.
+ * <p>
+ * Instances are immutable and created through a {@link HeadersBuilder}.
+ */
+public class SoapHeaders
+{
+
+    public static final SoapHeaders NONE = new SoapHeaders(emptyList());
+
+    private final List<byte[]> elements;
+    private final byte[] serialized;
+
+    public SoapHeaders(List<byte[]> elements)
+    {
+        List<byte[]> copy = new ArrayList<>(elements.size());
+        ByteArrayOutputStream all = new ByteArrayOutputStream();
+        for (byte[] element : elements)
+        {
+            copy.add(element.clone());
+            all.write(element, 0, element.length);
+        }
+        this.elements = unmodifiableList(copy);
+        this.serialized = all.toByteArray();
+    }
+
+    public boolean isEmpty()
+    {
+        return elements.isEmpty();
+    }
+
+    /**
+     * @return each header element on its own, the arrays must not be modified.
+     */
+    public List<byte[]> getElements()
+    {
+        return elements;
+    }
+
+    /**
+     * @return all the header elements one after the other, the array must not be modified.
+     */
+    public byte[] getSerialized()
+    {
+        return serialized;
+    }
+}
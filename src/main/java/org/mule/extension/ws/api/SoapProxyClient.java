@@ -8,75 +8,163 @@ package org.mule.extension.ws.api;
 
 
 import static java.util.Collections.emptyList;
-import static java.util.Collections.singletonList;
-import org.mule.extension.ws.api.builder.DocumentBuilder;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static org.apache.commons.io.IOUtils.closeQuietly;
+import static org.mule.extension.ws.api.metrics.Phase.BUILD_REQUEST;
+import static org.mule.extension.ws.api.metrics.Phase.FAULT_EXTRACTION;
+import static org.mule.extension.ws.api.metrics.Phase.RESPONSE_PARSE;
+import org.mule.extension.ws.api.exception.ConcurrencyLimitExceededException;
+import org.mule.extension.ws.api.exception.SoapClientException;
 import org.mule.extension.ws.api.exception.SoapFaultException;
-import org.mule.runtime.core.util.IOUtils;
+import org.mule.extension.ws.api.exception.SoapTransportException;
+import org.mule.extension.ws.api.exception.UnexpectedStatusException;
+import org.mule.extension.ws.api.transport.HttpSoapTransport;
+import org.mule.extension.ws.api.transport.SoapTransport;
+import org.mule.extension.ws.api.transport.TransportRequest;
+import org.mule.extension.ws.api.transport.TransportResponse;
+import org.mule.extension.ws.internal.CallBatch;
+import org.mule.extension.ws.internal.CallRecorder;
+import org.mule.extension.ws.internal.CanonicalDigest;
+import org.mule.extension.ws.internal.ConcurrencyLimiter;
+import org.mule.extension.ws.internal.EnvelopeBuffer;
+import org.mule.extension.ws.internal.FastInfoset;
+import org.mule.extension.ws.internal.HedgedCall;
+import org.mule.extension.ws.internal.LoadBalancer;
+import org.mule.extension.ws.internal.RequestHedging;
+import org.mule.extension.ws.internal.ResponseCache;
+import org.mule.extension.ws.internal.RetryPolicy;
+import org.mule.extension.ws.internal.SoapEnvelopeReader;
+import org.mule.extension.ws.internal.SoapEnvelopeWriter;
+import org.mule.extension.ws.internal.TransportFailures;
+import org.mule.extension.ws.internal.VirtualThreads;
+import org.mule.extension.ws.internal.mime.AttachmentStore;
+import org.mule.extension.ws.internal.mime.XopPackage;
 
 import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PushbackInputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
 
-import javax.xml.namespace.QName;
-import javax.xml.soap.MessageFactory;
-import javax.xml.soap.Name;
-import javax.xml.soap.SOAPBody;
-import javax.xml.soap.SOAPBodyElement;
-import javax.xml.soap.SOAPEnvelope;
-import javax.xml.soap.SOAPException;
-import javax.xml.soap.SOAPFault;
-import javax.xml.soap.SOAPHeader;
-import javax.xml.soap.SOAPMessage;
-import javax.xml.soap.SOAPPart;
-import javax.xml.stream.XMLInputFactory;
 import javax.xml.stream.XMLStreamException;
 import javax.xml.stream.XMLStreamReader;
-import javax.xml.transform.TransformerException;
-import javax.xml.transform.dom.DOMSource;
-import javax.xml.transform.stax.StAXSource;
-
-import org.apache.http.HttpEntity;
-import org.apache.http.client.entity.EntityBuilder;
-import org.apache.http.client.methods.CloseableHttpResponse;
-import org.apache.http.client.methods.HttpPost;
-import org.apache.http.entity.ContentType;
-import org.apache.http.entity.mime.FormBodyPartBuilder;
-import org.apache.http.entity.mime.MultipartEntityBuilder;
-import org.apache.http.entity.mime.content.StringBody;
-import org.apache.http.impl.client.CloseableHttpClient;
-import org.apache.http.impl.client.HttpClients;
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
-import org.w3c.dom.NamedNodeMap;
-import org.w3c.dom.NodeList;
-
-public class SoapProxyClient
-{
 
-    private static final XMLInputFactory inputFactory = XMLInputFactory.newInstance();
-    private static final String XMLSOAP_ORG_SOAP_ENCODING_NAMESPACE = "http://schemas.xmlsoap.org/soap/encoding/";
+import org.apache.commons.io.IOUtils;
+
+public class SoapProxyClient implements Closeable
+{
 
     private final ServiceDefinition serviceDefinition;
-    private final MessageFactory messageFactory;
+    private final SoapVersion version;
+    private final String envelopeContentType;
+    private final String fastInfosetContentType;
+    private final String acceptedContentTypes;
+    private final SoapEnvelopeWriter envelopeWriter;
+    private final SoapEnvelopeReader envelopeReader;
+    private final ClientConfiguration configuration;
+    private final LoadBalancer loadBalancer;
+    private final ResponseCache responseCache;
+    private final RequestHedging hedging;
+    private final RetryPolicy retries;
+    private final AttachmentStore attachmentStore;
+    private final ConcurrentMap<String, OperationHandle> operations = new ConcurrentHashMap<>();
+    private final Lock batchExecutorLock = new ReentrantLock();
+    private volatile ExecutorService batchExecutor;
+    // Starts a virtual thread per async or batch call, null when calls don't run on virtual threads
+    private final ExecutorService callExecutor;
 
-    private SoapProxyClient(ServiceDefinition service, SoapVersion version)
+    private SoapProxyClient(ServiceDefinition service, SoapVersion version, ClientConfiguration configuration, Function<String, SoapTransport> transports)
     {
         serviceDefinition = service;
-        try
+        this.version = version;
+        this.configuration = configuration;
+        loadBalancer = new LoadBalancer(service.getEndpoints(), configuration, transports);
+        envelopeContentType = version.getContentType() + "; charset=UTF-8";
+        fastInfosetContentType = version.getFastInfosetContentType();
+        acceptedContentTypes = configuration.isFastInfoset() ? fastInfosetContentType + ", " + version.getContentType() : null;
+        envelopeWriter = new SoapEnvelopeWriter(version, configuration.getStaticHeaders());
+        envelopeReader = new SoapEnvelopeReader();
+        responseCache = new ResponseCache(configuration.getResponseCache());
+        hedging = new RequestHedging(configuration.getHedging());
+        retries = new RetryPolicy(configuration.getRetry());
+        attachmentStore = new AttachmentStore(configuration.getAttachmentStorage());
+        callExecutor = configuration.isVirtualThreads() ? VirtualThreads.newThreadPerTaskExecutor("soap-client-call-").orElse(null) : null;
+    }
+
+    public static SoapProxyClient create(ServiceDefinition service)
+    {
+        return create(service, ClientConfiguration.getDefault());
+    }
+
+    /**
+     * Creates a client with an HTTP transport for each endpoint of the service, so every endpoint has a connection pool
+     * of its own.
+     */
+    public static SoapProxyClient create(ServiceDefinition service, ClientConfiguration configuration)
+    {
+        return new SoapProxyClient(service, service.getVersion(), configuration, endpoint -> new HttpSoapTransport(configuration));
+    }
+
+    /**
+     * Creates a client that sends its requests through the given transport, which is closed along with the client. The
+     * transport is shared by every endpoint of the service.
+     */
+    public static SoapProxyClient create(ServiceDefinition service, ClientConfiguration configuration, SoapTransport transport)
+    {
+        return new SoapProxyClient(service, service.getVersion(), configuration, endpoint -> transport);
+    }
+
+    /**
+     * Returns the handle of the given operation, the envelope markup and SOAPAction of the operation are computed the
+     * first time it is requested and shared by every later invocation.
+     */
+    public OperationHandle operation(String operationName)
+    {
+        OperationHandle operation = operations.get(operationName);
+        return operation != null ? operation : operations.computeIfAbsent(operationName, this::createOperation);
+    }
+
+    private OperationHandle createOperation(String operationName)
+    {
+        String namespace = serviceDefinition.getNamespace();
+        OperationModel model = serviceDefinition.getOperation(operationName);
+        if (model != null)
         {
-            messageFactory = MessageFactory.newInstance(version.getProtocol());
+            String bodyNamespace = model.getInputElement() != null ? model.getInputElement().getNamespaceURI() : namespace;
+            return new OperationHandle(this, operationName, model.getSoapAction(), contentType(model.getSoapAction()),
+                                       envelopeWriter.createTemplate(bodyNamespace, namespace));
         }
-        catch (SOAPException e)
+        if (!serviceDefinition.getOperations().isEmpty())
         {
-            throw new RuntimeException(e);
+            throw new IllegalArgumentException("Operation " + operationName + " is not defined by service " + serviceDefinition.getServiceName());
         }
+        // Without a WSDL the operation name is sent as the SOAPAction
+        return new OperationHandle(this, operationName, operationName, contentType(operationName),
+                                   envelopeWriter.createTemplate(namespace + operationName + "/", namespace));
     }
 
-    public static SoapProxyClient create(ServiceDefinition service)
+    private String contentType(String soapAction)
     {
-        return new SoapProxyClient(service, SoapVersion.SOAP_11);
+        // SOAP 1.2 carries the action as a parameter of the content type
+        return version == SoapVersion.SOAP_12 ? envelopeContentType + "; action=\"" + soapAction + "\"" : envelopeContentType;
     }
 
     public Response invoke(String operationName, XMLStreamReader payload)
@@ -84,220 +172,1001 @@ public class SoapProxyClient
         return invoke(operationName, payload, emptyList(), emptyList());
     }
 
+    /**
+     * @throws SoapFaultException if the response is a SOAP Fault.
+     * @throws SoapTransportException if the call failed without a response from the endpoint.
+     */
     public Response invoke(String operationName, XMLStreamReader payload, List<XMLStreamReader> headers, List<InputStream> attachments)
     {
-        try
-        {
-            final SOAPMessage soapRequest = buildSoapRequest(payload, operationName, DocumentBuilder.getInstance(), headers);
-
-            // Aca deberia ir la cagada que llama a lo que se configuro como transporte
-
-            // La request tiene que armarse como un "Multipart Payload" con Attachments (content, contentType, encoding) y el Body
-            // y pasarselo al transporte especifico que se configuro para que el sepa que hacer especificamente con eso.
-            SoapResponse post = post(soapRequest, attachments, operationName);
+        return invoke(operation(operationName), payload, headers, attachments);
+    }
 
-            SOAPMessage message = messageFactory.createMessage(null, post.getBody());
-            SOAPBody resultBody = message.getSOAPBody();
+    Response invoke(OperationHandle operation, XMLStreamReader payload, List<XMLStreamReader> headers, List<InputStream> attachments)
+    {
+        return invoke(operation, payload, headers, attachments, false);
+    }
 
-            if (resultBody.hasFault() && resultBody.getFault() != null) // check this if
+    /**
+     * @param buffered whether the response is read into memory so its connection is released before returning it.
+     */
+    private Response invoke(OperationHandle operation, XMLStreamReader payload, List<XMLStreamReader> headers, List<InputStream> attachments, boolean buffered)
+    {
+        CallRecorder recorder = CallRecorder.create(configuration.getMetrics(), operation.getName());
+        recorder.setRequestAttachments(attachments.size());
+        if (isHedged(operation, attachments))
+        {
+            return await(operation, invokeHedged(operation, payload, headers, recorder, buffered));
+        }
+        try
+        {
+            if (isCached(operation, attachments))
             {
-                SOAPFault fault = resultBody.getFault();
-                throw new SoapFaultException(fault.getFaultCodeAsQName(),
-                                             null, // This parameter only apply for SOAP 1.2
-                                             fault.getFaultString(),
-                                             fault.getDetail());
+                return invokeCached(operation, payload, headers, attachments, recorder);
+            }
+            if (isRetried(operation, attachments))
+            {
+                return invokeRetried(operation, payload, headers, recorder, buffered);
             }
 
-            Document document = resultBody.extractContentAsDocument();
-            return new Response(inputFactory.createXMLStreamReader(new DOMSource(document)), post.getAttachments());
-
+            // The envelope is serialized straight into the transport when the request is written
+            TransportResponse response = send(endpoint -> createRequest(endpoint, operation, payload, headers, attachments, recorder));
+            return toResponse(buffered ? buffer(response) : response, recorder);
         }
         catch (SoapFaultException e)
         {
             // Error on the SOAPCall
             throw e;
         }
+        catch (SoapTransportException e)
+        {
+            recorder.failed(e);
+            throw e;
+        }
         catch (Exception e)
         {
-            // What should I throw here???? ni idea wachin, soap fault maybe?
-            throw new RuntimeException(e);
+            recorder.failed(e);
+            throw callFailed(operation, e);
         }
     }
 
 
-    // Just to hand test. REMOVE
-    private String soapMessageToString(SOAPMessage message) throws SOAPException, IOException
+    public CompletableFuture<Response> invokeAsync(String operationName, XMLStreamReader payload)
     {
-        ByteArrayOutputStream os = new ByteArrayOutputStream();
-        message.writeTo(os);
-        return new String(os.toByteArray());
+        return invokeAsync(operationName, payload, emptyList(), emptyList());
     }
 
+    /**
+     * Non-blocking version of {@link #invoke(String, XMLStreamReader, List, List)}. The request is serialized in the
+     * calling thread and handed to {@link SoapTransport#sendAsync(TransportRequest)}, with the default HTTP transport
+     * no thread is held while waiting for the response. When the client runs its calls on virtual threads, the
+     * request is sent and its response parsed from a virtual thread of its own instead.
+     * <p>
+     * If the response is a SOAP Fault the returned future completes exceptionally with a {@link SoapFaultException},
+     * and with a {@link SoapTransportException} if the call failed without a response.
+     */
+    public CompletableFuture<Response> invokeAsync(String operationName, XMLStreamReader payload, List<XMLStreamReader> headers, List<InputStream> attachments)
+    {
+        return invokeAsync(operation(operationName), payload, headers, attachments);
+    }
 
-    // SUPER IGNORE este metodo es momentaneo para la POC, para transportar el mensaje por algun medio
-    private SoapResponse post(SOAPMessage message, List<InputStream> attachments, String operationName) throws TransformerException, SOAPException, XMLStreamException, IOException
+    CompletableFuture<Response> invokeAsync(OperationHandle operation, XMLStreamReader payload, List<XMLStreamReader> headers, List<InputStream> attachments)
     {
+        CallRecorder recorder = CallRecorder.create(configuration.getMetrics(), operation.getName());
+        recorder.setRequestAttachments(attachments.size());
+        if (isCached(operation, attachments))
+        {
+            return invokeCachedAsync(operation, payload, headers, attachments, recorder);
+        }
+        if (isHedged(operation, attachments))
+        {
+            return invokeHedged(operation, payload, headers, recorder, false);
+        }
+        if (callExecutor != null)
+        {
+            return invokeOnCallThread(operation, payload, headers, attachments, recorder);
+        }
+        if (isRetried(operation, attachments))
+        {
+            return invokeRetriedAsync(operation, payload, headers, recorder);
+        }
+        return whenSent(operation, sendAsync(endpoint -> createRequest(endpoint, operation, payload, headers, attachments, recorder)), response -> toResponse(response, recorder), recorder);
+    }
 
-        ByteArrayOutputStream os = new ByteArrayOutputStream();
-        message.writeTo(os);
+    /**
+     * The envelope is serialized in the calling thread, as the readers can't be handed over, and then sent through
+     * the blocking transport from a new virtual thread.
+     */
+    private CompletableFuture<Response> invokeOnCallThread(OperationHandle operation, XMLStreamReader payload, List<XMLStreamReader> headers, List<InputStream> attachments, CallRecorder recorder)
+    {
+        CompletableFuture<TransportResponse> sent = new CompletableFuture<>();
+        EnvelopeBuffer envelope = EnvelopeBuffer.borrow();
+        try
+        {
+            boolean fastInfoset = loadBalancer.isFastInfosetAccepted();
+            XopPackage xop = xopPackage(attachments, fastInfoset);
+            writeEnvelope(operation, payload, headers, envelope, fastInfoset, xop, recorder);
+            callExecutor.execute(() ->
+                                 {
+                                     try
+                                     {
+                                         sent.complete(sendRetrying(operation, attachments, endpoint -> createRequest(endpoint, operation, envelope, fastInfoset, attachments, xop, recorder)));
+                                     }
+                                     catch (IOException | RuntimeException e)
+                                     {
+                                         sent.completeExceptionally(e);
+                                     }
+                                     finally
+                                     {
+                                         envelope.release();
+                                     }
+                                 });
+        }
+        catch (IOException | RejectedExecutionException e)
+        {
+            envelope.release();
+            sent.completeExceptionally(e);
+        }
+        return whenSent(operation, sent, response -> toResponse(response, recorder), recorder);
+    }
 
-        CloseableHttpClient client = HttpClients.createDefault();
-        HttpPost httpPost = new HttpPost(serviceDefinition.getBaseEndpoint());
-        HttpEntity entity;
-        if (!attachments.isEmpty())
+    /**
+     * The cache key is built from the envelope alone, so requests with attachments always go to the service.
+     */
+    private boolean isCached(OperationHandle operation, List<InputStream> attachments)
+    {
+        return responseCache.isCached(operation.getName()) && attachments.isEmpty();
+    }
+
+    /**
+     * Attachments are streams that can only be sent once, so requests with attachments are never hedged. Neither are
+     * cached operations, whose responses are served from the cache instead.
+     */
+    private boolean isHedged(OperationHandle operation, List<InputStream> attachments)
+    {
+        return hedging.isHedged(operation.getName()) && attachments.isEmpty() && !responseCache.isCached(operation.getName());
+    }
+
+    /**
+     * The envelope is kept to send it again if the response takes too long. It's not given back to the pool as the
+     * hedge is sent from the hedging timer. Both requests are recorded in the metrics of the call.
+     */
+    private CompletableFuture<Response> invokeHedged(OperationHandle operation, XMLStreamReader payload, List<XMLStreamReader> headers, CallRecorder recorder, boolean buffered)
+    {
+        EnvelopeBuffer envelope = EnvelopeBuffer.borrow();
+        boolean fastInfoset = loadBalancer.isFastInfosetAccepted();
+        XopPackage xop = xopPackage(emptyList(), fastInfoset);
+        try
+        {
+            writeEnvelope(operation, payload, headers, envelope, fastInfoset, xop, recorder);
+        }
+        catch (IOException e)
         {
-            MultipartEntityBuilder builder = MultipartEntityBuilder.create();
-            builder.addPart(FormBodyPartBuilder.create("envelope", new StringBody(new String(os.toByteArray()), ContentType.TEXT_XML)).build());
+            recorder.failed(e);
+            CompletableFuture<Response> failed = new CompletableFuture<>();
+            failed.completeExceptionally(callFailed(operation, e));
+            return failed;
+        }
+        CompletableFuture<TransportResponse> sent = HedgedCall.start(hedging, operation.getName(),
+                                                                     hedged -> sendAsync(endpoint -> createRequest(endpoint, operation, envelope, fastInfoset, emptyList(), xop, recorder)));
+        return whenSent(operation, sent, response -> toResponse(buffered ? buffer(response) : response, recorder), recorder);
+    }
 
-            for (InputStream attachment : attachments)
-            {
-                StringBody part = new StringBody(org.apache.commons.io.IOUtils.toString(attachment), ContentType.TEXT_PLAIN);
-                builder.addPart(FormBodyPartBuilder.create("9999", part).addField("Content-ID", "<9999>").addField("Part", "9999").addField("Type", "CONTENT").build());
-            }
+    /**
+     * Requests with attachments are sent once, their streams can't be read again. Hedged operations aren't retried
+     * either, the hedge already covers for a request that doesn't get a response.
+     */
+    private boolean isRetried(OperationHandle operation, List<InputStream> attachments)
+    {
+        return retries.isRetried(operation.getName()) && attachments.isEmpty();
+    }
 
-            builder.seContentType(ContentType.create("multipart/related"));
-            entity = builder.build();
-            ByteArrayOutputStream test = new ByteArrayOutputStream();
-            entity.writeTo(test);
+    /**
+     * The envelope is serialized upfront so it can be sent again if the call fails.
+     */
+    private Response invokeRetried(OperationHandle operation, XMLStreamReader payload, List<XMLStreamReader> headers, CallRecorder recorder, boolean buffered) throws XMLStreamException, IOException
+    {
+        EnvelopeBuffer envelope = EnvelopeBuffer.borrow();
+        try
+        {
+            boolean fastInfoset = loadBalancer.isFastInfosetAccepted();
+            XopPackage xop = xopPackage(emptyList(), fastInfoset);
+            writeEnvelope(operation, payload, headers, envelope, fastInfoset, xop, recorder);
+            TransportResponse response = sendRetrying(operation, emptyList(), endpoint -> createRequest(endpoint, operation, envelope, fastInfoset, emptyList(), xop, recorder));
+            return toResponse(buffered ? buffer(response) : response, recorder);
+        }
+        finally
+        {
+            envelope.release();
+        }
+    }
 
-            System.out.println(new String(test.toByteArray()));
+    /**
+     * As with hedged requests, the envelope is not given back to the pool as retries are sent from the retry timer.
+     */
+    private CompletableFuture<Response> invokeRetriedAsync(OperationHandle operation, XMLStreamReader payload, List<XMLStreamReader> headers, CallRecorder recorder)
+    {
+        EnvelopeBuffer envelope = EnvelopeBuffer.borrow();
+        boolean fastInfoset = loadBalancer.isFastInfosetAccepted();
+        XopPackage xop = xopPackage(emptyList(), fastInfoset);
+        try
+        {
+            writeEnvelope(operation, payload, headers, envelope, fastInfoset, xop, recorder);
         }
-        else
+        catch (IOException e)
         {
-            entity = EntityBuilder.create().setText(new String(os.toByteArray())).build();
+            recorder.failed(e);
+            CompletableFuture<Response> failed = new CompletableFuture<>();
+            failed.completeExceptionally(callFailed(operation, e));
+            return failed;
         }
+        CompletableFuture<TransportResponse> sent = sendAsyncRetrying(operation, emptyList(), endpoint -> createRequest(endpoint, operation, envelope, fastInfoset, emptyList(), xop, recorder));
+        return whenSent(operation, sent, response -> toResponse(response, recorder), recorder);
+    }
 
-        httpPost.setEntity(entity);
-        CloseableHttpResponse response = client.execute(httpPost);
+    /**
+     * Sends the request again after a retryable failure, waiting a random backoff in between, as long as the operation
+     * is retried and the retry budget allows it.
+     */
+    private TransportResponse sendRetrying(OperationHandle operation, List<InputStream> attachments, Function<String, TransportRequest> request) throws IOException
+    {
+        if (!isRetried(operation, attachments))
+        {
+            return send(request);
+        }
+        retries.requested();
+        for (int attempt = 1; ; attempt++)
+        {
+            try
+            {
+                return send(request);
+            }
+            catch (SoapTransportException e)
+            {
+                long backoff = retries.retry(e, attempt);
+                if (backoff < 0)
+                {
+                    throw e;
+                }
+                try
+                {
+                    NANOSECONDS.sleep(backoff);
+                }
+                catch (InterruptedException interrupted)
+                {
+                    Thread.currentThread().interrupt();
+                    throw e;
+                }
+            }
+        }
+    }
 
-        response.close();
+    private CompletableFuture<TransportResponse> sendAsyncRetrying(OperationHandle operation, List<InputStream> attachments, Function<String, TransportRequest> request)
+    {
+        if (!isRetried(operation, attachments))
+        {
+            return sendAsync(request);
+        }
+        retries.requested();
+        CompletableFuture<TransportResponse> result = new CompletableFuture<>();
+        sendAttempt(request, 1, result);
+        return result;
+    }
 
-        client.close();
+    private void sendAttempt(Function<String, TransportRequest> request, int attempt, CompletableFuture<TransportResponse> result)
+    {
+        if (result.isDone())
+        {
+            // Cancelled while waiting for the backoff
+            return;
+        }
+        CompletableFuture<TransportResponse> sent = sendAsync(request);
+        result.whenComplete((response, failure) ->
+                            {
+                                if (result.isCancelled())
+                                {
+                                    sent.cancel(true);
+                                }
+                            });
+        sent.whenComplete((response, failure) ->
+                          {
+                              if (failure == null)
+                              {
+                                  if (!result.complete(response))
+                                  {
+                                      closeQuietly(response);
+                                  }
+                                  return;
+                              }
+                              if (failure instanceof SoapTransportException)
+                              {
+                                  long backoff = retries.retry((SoapTransportException) failure, attempt);
+                                  if (backoff >= 0)
+                                  {
+                                      try
+                                      {
+                                          retries.schedule(() -> sendAttempt(request, attempt + 1, result), backoff);
+                                          return;
+                                      }
+                                      catch (RejectedExecutionException e)
+                                      {
+                                          // The client was closed meanwhile
+                                      }
+                                  }
+                              }
+                              if (failure instanceof CancellationException)
+                              {
+                                  result.cancel(false);
+                              }
+                              else
+                              {
+                                  result.completeExceptionally(failure);
+                              }
+                          });
+    }
 
-        httpPost.addHeader("SOAPAction", operationName);  // ????? fijate esto pero por ahora lo mando igual.
+    private static Response await(OperationHandle operation, CompletableFuture<Response> response)
+    {
+        try
+        {
+            return response.get();
+        }
+        catch (ExecutionException e)
+        {
+            // Failures are already wrapped as the synchronous calls throw them
+            throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : callFailed(operation, e.getCause());
+        }
+        catch (InterruptedException e)
+        {
+            response.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new SoapClientException(operation.getName(), "Interrupted while waiting for the response of operation " + operation.getName(), e);
+        }
+    }
 
-        HttpEntity result = response.getEntity();
+    private static SoapClientException callFailed(OperationHandle operation, Throwable cause)
+    {
+        return new SoapClientException(operation.getName(), "Call to operation " + operation.getName() + " failed: " + cause, cause);
+    }
+
+    /**
+     * Sends the request to the endpoint chosen by the load balancer within its concurrency limit, the permit is given
+     * back once the response arrives. Failures of the transport are thrown as {@link SoapTransportException}s.
+     *
+     * @param request creates the request for the address of the chosen endpoint.
+     */
+    private TransportResponse send(Function<String, TransportRequest> request) throws IOException
+    {
+        LoadBalancer.Call call = loadBalancer.choose();
+        LoadBalancer.Endpoint endpoint = call.getEndpoint();
+        ConcurrencyLimiter.Permit permit = acquire(call, false);
+        long start = call.started();
+        TransportRequest sent = request.apply(endpoint.getAddress());
+        TransportResponse response;
+        try
+        {
+            response = endpoint.getTransport().send(sent);
+            permit.succeeded();
+            call.succeeded(start);
+        }
+        catch (IOException | RuntimeException e)
+        {
+            permit.dropped();
+            Throwable failure = TransportFailures.translate(e, endpoint.getAddress());
+            if (failure instanceof SoapTransportException)
+            {
+                call.failed(start);
+                checkFastInfosetRejected(endpoint, sent, failure);
+                throw (SoapTransportException) failure;
+            }
+            call.abandoned();
+            throw e;
+        }
+        return negotiateFastInfoset(endpoint, sent, response);
+    }
 
-        if (result.getContentType().getValue().contains("multipart"))
+    private CompletableFuture<TransportResponse> sendAsync(Function<String, TransportRequest> request)
+    {
+        LoadBalancer.Call call;
+        ConcurrencyLimiter.Permit permit;
+        try
         {
-            // Magia negra para obtener body y attachment del test. esto vuela con el transporte configurado
-            String s = IOUtils.toString(result.getContent());
-            String[] split = s.split("\r\n\r\n");
+            call = loadBalancer.choose();
+            // Runs on the caller of invokeAsync or on the retry and hedging timers, none of them may wait for room
+            permit = acquire(call, true);
+        }
+        catch (SoapTransportException e)
+        {
+            CompletableFuture<TransportResponse> rejected = new CompletableFuture<>();
+            rejected.completeExceptionally(e);
+            return rejected;
+        }
+        LoadBalancer.Endpoint endpoint = call.getEndpoint();
+        long start = call.started();
+        TransportRequest transportRequest = request.apply(endpoint.getAddress());
+        CompletableFuture<TransportResponse> sent = endpoint.getTransport().sendAsync(transportRequest);
+        CompletableFuture<TransportResponse> result = new CompletableFuture<>();
+        sent.whenComplete((response, failure) ->
+                          {
+                              if (failure == null)
+                              {
+                                  permit.succeeded();
+                                  call.succeeded(start);
+                                  TransportResponse negotiated;
+                                  try
+                                  {
+                                      negotiated = negotiateFastInfoset(endpoint, transportRequest, response);
+                                  }
+                                  catch (IOException e)
+                                  {
+                                      result.completeExceptionally(e);
+                                      return;
+                                  }
+                                  if (!result.complete(negotiated))
+                                  {
+                                      closeQuietly(negotiated);
+                                  }
+                              }
+                              else if (failure instanceof CancellationException)
+                              {
+                                  // Cancelled by the caller, it says nothing about the health of the endpoint
+                                  permit.dropped();
+                                  call.abandoned();
+                                  result.cancel(false);
+                              }
+                              else
+                              {
+                                  permit.dropped();
+                                  Throwable translated = TransportFailures.translate(failure, endpoint.getAddress());
+                                  if (translated instanceof SoapTransportException)
+                                  {
+                                      call.failed(start);
+                                      checkFastInfosetRejected(endpoint, transportRequest, translated);
+                                  }
+                                  else
+                                  {
+                                      call.abandoned();
+                                  }
+                                  result.completeExceptionally(translated);
+                              }
+                          });
+        result.whenComplete((response, failure) ->
+                            {
+                                if (result.isCancelled())
+                                {
+                                    sent.cancel(true);
+                                }
+                            });
+        return result;
+    }
 
-            List<InputStream> streams = split.length > 2 ? singletonList(new ByteArrayInputStream(split[2].substring(0, split[2].indexOf("--uuid")).getBytes())) : emptyList();
+    /**
+     * Takes the endpoint as accepting Fast Infoset once it answers with it, and as not accepting it anymore once it
+     * answers a request encoded with it in plain XML. Other plain XML responses, such as the ones to requests that
+     * only advertised it, don't tell whether the endpoint accepts it.
+     *
+     * @return the response, with its body still unread.
+     */
+    private TransportResponse negotiateFastInfoset(LoadBalancer.Endpoint endpoint, TransportRequest request, TransportResponse response) throws IOException
+    {
+        if (!configuration.isFastInfoset())
+        {
+            return response;
+        }
+        try
+        {
+            PushbackInputStream body = FastInfoset.sniffable(response.getBody());
+            if (FastInfoset.isFastInfoset(body))
+            {
+                endpoint.setFastInfosetAccepted(true);
+            }
+            else if (fastInfosetContentType.equals(request.getContentType()))
+            {
+                endpoint.setFastInfosetAccepted(false);
+            }
+            return new TransportResponse(body, response.getAttachments(), response.getBodyRelease(), response, response.isFault(), response::getAttachmentIndex);
+        }
+        catch (IOException | RuntimeException e)
+        {
+            closeQuietly(response);
+            throw e;
+        }
+    }
 
-            String is = split[1].contains("--uuid") ? split[1].substring(0, split[1].indexOf("--uuid")) : split[1];
+    /**
+     * Stops encoding requests to the endpoint with Fast Infoset if it rejected one with 415 Unsupported Media Type.
+     */
+    private void checkFastInfosetRejected(LoadBalancer.Endpoint endpoint, TransportRequest request, Throwable failure)
+    {
+        if (failure instanceof UnexpectedStatusException && ((UnexpectedStatusException) failure).getStatusCode() == 415
+            && fastInfosetContentType.equals(request.getContentType()))
+        {
+            endpoint.setFastInfosetAccepted(false);
+        }
+    }
 
-            return new SoapResponse(new ByteArrayInputStream(is.getBytes()), streams);
+    private static ConcurrencyLimiter.Permit acquire(LoadBalancer.Call call, boolean async)
+    {
+        ConcurrencyLimiter limiter = call.getEndpoint().getLimiter();
+        try
+        {
+            return async ? limiter.tryAcquire() : limiter.acquire();
         }
-        else
+        catch (ConcurrencyLimitExceededException e)
         {
-            return new SoapResponse(result.getContent(), emptyList());
+            call.skipped();
+            throw e;
         }
+    }
 
+    private CompletableFuture<Response> whenSent(OperationHandle operation, CompletableFuture<TransportResponse> sent, ResponseParser parser, CallRecorder recorder)
+    {
+        CompletableFuture<Response> result = new CompletableFuture<>();
+        sent.whenComplete((response, failure) ->
+                          {
+                              if (failure != null)
+                              {
+                                  recorder.failed(failure);
+                                  if (failure instanceof CancellationException)
+                                  {
+                                      result.cancel(false);
+                                  }
+                                  else if (failure instanceof SoapTransportException)
+                                  {
+                                      result.completeExceptionally(failure);
+                                  }
+                                  else
+                                  {
+                                      result.completeExceptionally(callFailed(operation, failure));
+                                  }
+                                  return;
+                              }
+                              try
+                              {
+                                  if (!result.complete(parser.parse(response)))
+                                  {
+                                      // Cancelled in the meantime, nobody will consume it
+                                      closeQuietly(response);
+                                  }
+                              }
+                              catch (SoapFaultException e)
+                              {
+                                  result.completeExceptionally(e);
+                              }
+                              catch (Exception e)
+                              {
+                                  recorder.failed(e);
+                                  result.completeExceptionally(callFailed(operation, e));
+                              }
+                          });
+        result.whenComplete((response, failure) ->
+                            {
+                                if (result.isCancelled())
+                                {
+                                    sent.cancel(true);
+                                }
+                            });
+        return result;
     }
 
-    public SOAPMessage buildSoapRequest(XMLStreamReader payload,
-                                        String operationName,
-                                        DocumentBuilder docBuilder,
-                                        List<XMLStreamReader> headers) throws Exception
+    /**
+     * The envelope of a cacheable request is serialized upfront, its key is digested from the readers meanwhile. The
+     * request is only sent when there is no cached response for that key.
+     */
+    private Response invokeCached(OperationHandle operation, XMLStreamReader payload, List<XMLStreamReader> headers, List<InputStream> attachments, CallRecorder recorder) throws XMLStreamException, IOException
     {
-        SOAPMessage result = messageFactory.createMessage();
-        SOAPPart part = result.getSOAPPart();
-        SOAPEnvelope envelope = part.getEnvelope();
+        EnvelopeBuffer envelope = EnvelopeBuffer.borrow();
+        try
+        {
+            boolean fastInfoset = loadBalancer.isFastInfosetAccepted();
+            XopPackage xop = xopPackage(attachments, fastInfoset);
+            ResponseCache.Key key = writeCachedEnvelope(operation, payload, headers, envelope, fastInfoset, xop, recorder);
+            byte[] cached = responseCache.get(key);
+            if (cached != null)
+            {
+                return toResponse(replay(cached, emptyList(), contentId -> -1, recorder), recorder);
+            }
+            TransportResponse response = sendRetrying(operation, attachments, endpoint -> createRequest(endpoint, operation, envelope, fastInfoset, attachments, xop, recorder));
+            return toCachedResponse(key, response, recorder);
+        }
+        finally
+        {
+            envelope.release();
+        }
+    }
 
-        // ???????
-        envelope.setEncodingStyle(XMLSOAP_ORG_SOAP_ENCODING_NAMESPACE);
+    private CompletableFuture<Response> invokeCachedAsync(OperationHandle operation, XMLStreamReader payload, List<XMLStreamReader> headers, List<InputStream> attachments, CallRecorder recorder)
+    {
+        CompletableFuture<Response> result = new CompletableFuture<>();
+        EnvelopeBuffer envelope = EnvelopeBuffer.borrow();
+        boolean retried = isRetried(operation, attachments);
+        try
+        {
+            boolean fastInfoset = loadBalancer.isFastInfosetAccepted();
+            XopPackage xop = xopPackage(attachments, fastInfoset);
+            ResponseCache.Key key = writeCachedEnvelope(operation, payload, headers, envelope, fastInfoset, xop, recorder);
+            byte[] cached = responseCache.get(key);
+            if (cached != null)
+            {
+                result.complete(toResponse(replay(cached, emptyList(), contentId -> -1, recorder), recorder));
+                return result;
+            }
+            // Transports serialize the request before returning from sendAsync, so the buffer can be released afterwards
+            // unless the request may be sent again
+            return whenSent(operation, sendAsyncRetrying(operation, attachments, endpoint -> createRequest(endpoint, operation, envelope, fastInfoset, attachments, xop, recorder)),
+                            response -> toCachedResponse(key, response, recorder), recorder);
+        }
+        catch (SoapFaultException e)
+        {
+            result.completeExceptionally(e);
+            return result;
+        }
+        catch (Exception e)
+        {
+            recorder.failed(e);
+            result.completeExceptionally(callFailed(operation, e));
+            return result;
+        }
+        finally
+        {
+            if (!retried)
+            {
+                envelope.release();
+            }
+        }
+    }
 
-        String namespace = serviceDefinition.getNamespace();
-        envelope.addNamespaceDeclaration("body", namespace + operationName + "/");
-        envelope.addNamespaceDeclaration("header", namespace);
+    private ResponseCache.Key writeCachedEnvelope(OperationHandle operation, XMLStreamReader payload, List<XMLStreamReader> headers, EnvelopeBuffer envelope, boolean fastInfoset, XopPackage xop,
+                                                  CallRecorder recorder) throws IOException
+    {
+        CanonicalDigest digest = new CanonicalDigest();
+        List<XMLStreamReader> digestedHeaders = digest.wrap(headers);
+        XMLStreamReader digestedPayload = digest.wrap(payload);
+        writeEnvelope(operation, digestedPayload, digestedHeaders, envelope, fastInfoset, xop, recorder);
+        return responseCache.key(operation.getName(), digest.digest());
+    }
 
-        SOAPHeader soapHeader = envelope.getHeader();
+    /**
+     * Reads the response into memory and caches it unless it has attachments, faults are only cached if configured.
+     */
+    private Response toCachedResponse(ResponseCache.Key key, TransportResponse response, CallRecorder recorder) throws XMLStreamException, IOException
+    {
+        if (response.isFault() && !configuration.getResponseCache().isCacheFaults())
+        {
+            // Nothing to cache, the fault is read straight from the response
+            return toResponse(response, recorder);
+        }
 
-        // Request Header
-        //if (soapHeaderBuilder != null) {
-        //    soapHeaderBuilder.build(header, serviceDefinition);
-        //}
+        byte[] envelope;
+        List<InputStream> attachments;
+        try (TransportResponse released = response)
+        {
+            envelope = IOUtils.toByteArray(released.getBody());
+            attachments = readAttachments(released);
+        }
 
-        for (XMLStreamReader reader : headers)
+        try
         {
-            Document document = docBuilder.createDocument(reader);
-            Element element = document.getDocumentElement();
-            soapHeader.addChildElement(new QName(namespace, element.getTagName())).addTextNode(element.getTextContent());
+            Response result = toResponse(replay(envelope, attachments, response::getAttachmentIndex, recorder), recorder);
+            if (attachments.isEmpty())
+            {
+                responseCache.put(key, envelope);
+            }
+            return result;
+        }
+        catch (SoapFaultException e)
+        {
+            if (attachments.isEmpty())
+            {
+                responseCache.putFault(key, envelope);
+            }
+            throw e;
         }
+    }
 
-        //XMLStreamReader callsPayload = payload;
-        //// Compose the soap:Body payload
-        //if (callsPayload == null) {
-        //    String soapMethodsCallNamespace = namespace.endsWith("/") ? namespace.substring(0, namespace.length() - 1) : namespace;
-        //    callsPayload = XmlConverterUtils.computeCallsPayloadForMethodWithNoParameter(operationName, soapMethodsCallNamespace);
-        //}
+    private static TransportResponse replay(byte[] envelope, List<InputStream> attachments, ToIntFunction<String> attachmentIndex, CallRecorder recorder)
+    {
+        recorder.setResponseBytes(() -> envelope.length);
+        Closeable released = recorder::released;
+        return new TransportResponse(new ByteArrayInputStream(envelope), attachments, released, released, false, attachmentIndex);
+    }
 
-        /*
-         * We created an enhancement request(DEVKIT-2182) in order for the xsi:type attribute to be added at dataSense. Until then, we will use the ComplexDocumentBuilder to add it
-         * at runtime
-         */
+    /**
+     * @return the counters of the response cache, all zero when it's disabled.
+     */
+    public ResponseCacheStats getResponseCacheStats()
+    {
+        return responseCache.getStats();
+    }
 
-        Document document = docBuilder.createDocument(payload);
-        SOAPBody body = envelope.getBody();
-        body.addDocument(document);
-        result.saveChanges();
+    /**
+     * @return the current concurrency limit and its counters, added up for every endpoint of the service, all zero
+     * when it's disabled.
+     */
+    public ConcurrencyLimitStats getConcurrencyLimitStats()
+    {
+        return loadBalancer.getConcurrencyLimitStats();
+    }
 
-        return result;
+    /**
+     * @return the counters of each endpoint of the service, in the order they were defined.
+     */
+    public List<EndpointStats> getEndpointStats()
+    {
+        return loadBalancer.getStats();
+    }
+
+    /**
+     * @return the counters of the hedged requests, all zero when hedging is disabled.
+     */
+    public HedgingStats getHedgingStats()
+    {
+        return hedging.getStats();
     }
 
+    /**
+     * @return the counters of the retried calls and what is left of the retry budget, all zero when retries are
+     * disabled.
+     */
+    public RetryStats getRetryStats()
+    {
+        return retries.getStats();
+    }
+
+    public List<CallResult> invokeAll(List<SoapCall> calls)
+    {
+        return invokeAll(calls, configuration.getBatchParallelism());
+    }
+
+    /**
+     * Sends every call of the batch, at most {@code parallelism} of them at the same time, and waits for all of them
+     * to complete. Each call is sent from a single worker thread, a virtual one when the client is configured so, and
+     * the readers of a call must not be shared with other calls.
+     * <p>
+     * The results are returned in the same order as the calls. A call that fails, or whose response is a SOAP Fault,
+     * is reported in its result without affecting the rest. Responses are read into memory so they don't hold
+     * pooled connections while the rest of the batch completes.
+     */
+    public List<CallResult> invokeAll(List<SoapCall> calls, int parallelism)
+    {
+        CallResult[] results = new CallResult[calls.size()];
+        Iterator<CallResult> completed = invokeAllAsCompleted(calls, parallelism);
+        while (completed.hasNext())
+        {
+            CallResult result = completed.next();
+            results[result.getIndex()] = result;
+        }
+        return Arrays.asList(results);
+    }
+
+    public Iterator<CallResult> invokeAllAsCompleted(List<SoapCall> calls)
+    {
+        return invokeAllAsCompleted(calls, configuration.getBatchParallelism());
+    }
 
-    static XMLStreamReader soapResponseToXmlStream(SOAPMessage soapResponse)
-            throws SOAPException, XMLStreamException
+    /**
+     * Streaming version of {@link #invokeAll(List, int)}, the returned iterator yields the results as the calls
+     * complete so they can be processed while the rest of the batch is still in flight. {@link CallResult#getIndex()}
+     * tells which call each result belongs to.
+     */
+    public Iterator<CallResult> invokeAllAsCompleted(List<SoapCall> calls, int parallelism)
     {
+        return new CallBatch(calls, call -> invoke(operation(call.getOperation()), call.getPayload(), call.getHeaders(), call.getAttachments(), true))
+                .start(getBatchExecutor(), parallelism);
+    }
 
-        final SOAPBodyElement sourceContent = (SOAPBodyElement) soapResponse.getSOAPBody().getChildElements().next();
+    private ExecutorService getBatchExecutor()
+    {
+        if (callExecutor != null)
+        {
+            return callExecutor;
+        }
+        ExecutorService executor = batchExecutor;
+        if (executor == null)
+        {
+            batchExecutorLock.lock();
+            try
+            {
+                if (batchExecutor == null)
+                {
+                    AtomicInteger threads = new AtomicInteger();
+                    batchExecutor = Executors.newCachedThreadPool(task ->
+                                                                  {
+                                                                      Thread thread = new Thread(task, "soap-client-batch-" + threads.incrementAndGet());
+                                                                      thread.setDaemon(true);
+                                                                      return thread;
+                                                                  });
+                }
+                executor = batchExecutor;
+            }
+            finally
+            {
+                batchExecutorLock.unlock();
+            }
+        }
+        return executor;
+    }
 
-        // Add the namespaces from the response Envelope tag to the result
-        // tag - so it can be parsed successfully by DataMapper
-        final SOAPPart soapPart = soapResponse.getSOAPPart();
-        final SOAPEnvelope soapEnvelope = soapPart.getEnvelope();
+    /**
+     * @param xop package the envelope was written into, {@code null} if it is not sent as an XOP package.
+     */
+    private TransportRequest createRequest(String endpoint, OperationHandle operation, EnvelopeBuffer envelope, boolean fastInfoset, List<InputStream> attachments, XopPackage xop,
+                                           CallRecorder recorder)
+    {
+        return new TransportRequest(endpoint, operation.getName(), operation.getSoapAction(), requestContentType(operation, fastInfoset, xop), acceptedContentTypes,
+                                    envelope::writeTo, xop != null ? xop.getAttachments() : attachments, recorder);
+    }
 
-        final SOAPPart responsePart = soapResponse.getSOAPPart();
-        final NodeList childNodes = responsePart.getChildNodes();
+    private TransportRequest createRequest(String endpoint, OperationHandle operation, XMLStreamReader payload, List<XMLStreamReader> headers, List<InputStream> attachments, CallRecorder recorder)
+    {
+        boolean fastInfoset = loadBalancer.isFastInfosetAccepted();
+        XopPackage xop = xopPackage(attachments, fastInfoset);
+        return new TransportRequest(endpoint, operation.getName(), operation.getSoapAction(), requestContentType(operation, fastInfoset, xop), acceptedContentTypes,
+                                    out -> writeEnvelope(operation, payload, headers, out, fastInfoset, xop, recorder), xop != null ? xop.getAttachments() : attachments, recorder);
+    }
 
-        final NamedNodeMap envelopeAttributes = childNodes.item(0).getAttributes();
-        for (int i = 0; i < envelopeAttributes.getLength(); i++)
+    private String requestContentType(OperationHandle operation, boolean fastInfoset, XopPackage xop)
+    {
+        if (fastInfoset)
         {
-            final org.w3c.dom.Node node = envelopeAttributes.item(i);
-            final String nodeName = node.getNodeName();
-            final Name name = soapEnvelope.createName(nodeName);
-            sourceContent.addAttribute(name, node.getNodeValue());
+            return fastInfosetContentType;
         }
+        return xop != null ? XopPackage.getContentType(operation.getContentType()) : operation.getContentType();
+    }
 
-        // Build XML InputStream
-        final DOMSource source = new DOMSource(sourceContent);
-        final XMLStreamReader reader = inputFactory.createXMLStreamReader(source);
-        final StAXSource stAXSource = new StAXSource(reader);
-        return stAXSource.getXMLStreamReader();
+    /**
+     * @return the package the request is sent as when MTOM is enabled, {@code null} otherwise. Fast Infoset envelopes
+     *         are never packaged.
+     */
+    private XopPackage xopPackage(List<InputStream> attachments, boolean fastInfoset)
+    {
+        MtomConfiguration mtom = configuration.getMtom();
+        return mtom.isEnabled() && !fastInfoset ? new XopPackage(attachments, mtom.getElements(), mtom.getThreshold()) : null;
     }
 
+    /**
+     * Throws a {@link SoapFaultException} if the first body element is a Fault. Otherwise the connection is released
+     * once the body and attachments are consumed or the returned {@link Response} is closed.
+     */
+    private Response toResponse(TransportResponse response, CallRecorder recorder) throws XMLStreamException, IOException
+    {
+        TransportResponse soapResponse = attachmentStore.store(response);
+        boolean handedOver = false;
+        long parseStart = recorder.now();
+        try
+        {
+            InputStream content = soapResponse.getBody();
+            boolean fastInfoset = false;
+            if (configuration.isFastInfoset())
+            {
+                PushbackInputStream sniffed = FastInfoset.sniffable(content);
+                fastInfoset = FastInfoset.isFastInfoset(sniffed);
+                content = sniffed;
+            }
+            XMLStreamReader body = envelopeReader.read(content, soapResponse.getBodyRelease(), fastInfoset);
+            recorder.since(RESPONSE_PARSE, parseStart);
+            handedOver = true;
+            return new Response(body, soapResponse.getAttachments(), soapResponse, soapResponse::getAttachmentIndex);
+        }
+        catch (SoapFaultException e)
+        {
+            recorder.since(FAULT_EXTRACTION, parseStart);
+            recorder.fault();
+            throw e;
+        }
+        finally
+        {
+            if (!handedOver)
+            {
+                closeQuietly(soapResponse);
+            }
+            recorder.handedOver();
+        }
+    }
 
-    private class SoapResponse
+    /**
+     * Reads the whole response into memory and releases it, unless it is signalled as a fault. Attachments go to the
+     * attachment store instead when it is enabled.
+     */
+    private TransportResponse buffer(TransportResponse response) throws IOException
     {
-        private InputStream body;
-        private List<InputStream> attachments;
+        if (response.isFault())
+        {
+            // The response is released as soon as the fault is read, there is no need to copy it first
+            return response;
+        }
+        try (TransportResponse released = response)
+        {
+            InputStream body = new ByteArrayInputStream(IOUtils.toByteArray(released.getBody()));
+            return new TransportResponse(body, readAttachments(released), body, body, false, released::getAttachmentIndex);
+        }
+    }
 
-        public SoapResponse(InputStream body, List<InputStream> attachments)
+    private List<InputStream> readAttachments(TransportResponse response) throws IOException
+    {
+        if (attachmentStore.isEnabled())
         {
-            this.body = body;
-            this.attachments = attachments;
+            return attachmentStore.storeAll(response.getAttachments());
         }
+        List<InputStream> attachments = new ArrayList<>();
+        for (InputStream attachment : response.getAttachments())
+        {
+            attachments.add(new ByteArrayInputStream(IOUtils.toByteArray(attachment)));
+        }
+        return attachments;
+    }
 
-        public InputStream getBody()
+    private void writeEnvelope(OperationHandle operation, XMLStreamReader payload, List<XMLStreamReader> headers, OutputStream out, boolean fastInfoset, XopPackage xop,
+                               CallRecorder recorder) throws IOException
+    {
+        recorder.start(BUILD_REQUEST);
+        try
+        {
+            if (fastInfoset)
+            {
+                operation.getEnvelope().writeFastInfoset(out, headers, payload);
+            }
+            else
+            {
+                operation.getEnvelope().write(out, headers, payload, xop);
+            }
+        }
+        catch (XMLStreamException e)
         {
-            return body;
+            throw new IOException(e);
         }
+        recorder.end(BUILD_REQUEST);
+    }
 
-        public List<InputStream> getAttachments()
+    /**
+     * Closes the transports of this client, releasing the connections they hold. The client can't be used after
+     * closing it.
+     */
+    @Override
+    public void close() throws IOException
+    {
+        try
+        {
+            loadBalancer.close();
+        }
+        finally
         {
-            return attachments;
+            if (batchExecutor != null)
+            {
+                batchExecutor.shutdown();
+            }
+            if (callExecutor != null)
+            {
+                callExecutor.shutdown();
+            }
+            hedging.close();
+            retries.close();
         }
     }
+
+    public void buildSoapRequest(XMLStreamReader payload,
+                                 String operationName,
+                                 List<XMLStreamReader> headers,
+                                 OutputStream out) throws XMLStreamException, IOException
+    {
+        // Request Header
+        //if (soapHeaderBuilder != null) {
+        //    soapHeaderBuilder.build(header, serviceDefinition);
+        //}
+
+        //XMLStreamReader callsPayload = payload;
+        //// Compose the soap:Body payload
+        //if (callsPayload == null) {
+        //    String soapMethodsCallNamespace = namespace.endsWith("/") ? namespace.substring(0, namespace.length() - 1) : namespace;
+        //    callsPayload = XmlConverterUtils.computeCallsPayloadForMethodWithNoParameter(operationName, soapMethodsCallNamespace);
+        //}
+
+        operation(operationName).getEnvelope().write(out, headers, payload);
+    }
+
+    @FunctionalInterface
+    private interface ResponseParser
+    {
+
+        Response parse(TransportResponse response) throws XMLStreamException, IOException;
+    }
 }
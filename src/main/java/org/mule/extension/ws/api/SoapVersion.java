@@ -6,20 +6,31 @@
  */
 package org.mule.extension.ws.api;
 
+import static javax.xml.soap.SOAPConstants.SOAP_1_1_CONTENT_TYPE;
 import static javax.xml.soap.SOAPConstants.SOAP_1_1_PROTOCOL;
+import static javax.xml.soap.SOAPConstants.SOAP_1_2_CONTENT_TYPE;
 import static javax.xml.soap.SOAPConstants.SOAP_1_2_PROTOCOL;
+import static javax.xml.soap.SOAPConstants.URI_NS_SOAP_1_1_ENVELOPE;
+import static javax.xml.soap.SOAPConstants.URI_NS_SOAP_1_2_ENVELOPE;
 
 public enum SoapVersion
 {
-    SOAP_11("1.1", SOAP_1_1_PROTOCOL), SOAP_12("1.2", SOAP_1_2_PROTOCOL);
+    SOAP_11("1.1", SOAP_1_1_PROTOCOL, URI_NS_SOAP_1_1_ENVELOPE, SOAP_1_1_CONTENT_TYPE, "application/fastinfoset"),
+    SOAP_12("1.2", SOAP_1_2_PROTOCOL, URI_NS_SOAP_1_2_ENVELOPE, SOAP_1_2_CONTENT_TYPE, "application/soap+fastinfoset");
 
     private String version;
     private String protocol;
+    private String envelopeNamespace;
+    private String contentType;
+    private String fastInfosetContentType;
 
-    SoapVersion(String version, String protocol)
+    SoapVersion(String version, String protocol, String envelopeNamespace, String contentType, String fastInfosetContentType)
     {
         this.version = version;
         this.protocol = protocol;
+        this.envelopeNamespace = envelopeNamespace;
+        this.contentType = contentType;
+        this.fastInfosetContentType = fastInfosetContentType;
     }
 
     public String getVersion()
@@ -31,4 +42,19 @@ public enum SoapVersion
     {
         return protocol;
     }
+
+    public String getEnvelopeNamespace()
+    {
+        return envelopeNamespace;
+    }
+
+    public String getContentType()
+    {
+        return contentType;
+    }
+
+    public String getFastInfosetContentType()
+    {
+        return fastInfosetContentType;
+    }
 }
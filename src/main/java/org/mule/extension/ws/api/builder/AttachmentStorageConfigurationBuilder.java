@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.ws.api.builder;
+
+import org.mule.extension.ws.api.AttachmentStorageConfiguration;
+
+import java.nio.file.Path;
+
+public class AttachmentStorageConfigurationBuilder
+{
+
+    private long spillThreshold = 64 * 1024;
+    private long maxHeapBytes = 16 * 1024 * 1024;
+    private Path directory;
+
+    public static AttachmentStorageConfigurationBuilder getInstance()
+    {
+        return new AttachmentStorageConfigurationBuilder();
+    }
+
+    private AttachmentStorageConfigurationBuilder()
+    {
+    }
+
+    public AttachmentStorageConfigurationBuilder setSpillThreshold(long spillThreshold)
+    {
+        checkPositive(spillThreshold, "spillThreshold");
+        this.spillThreshold = spillThreshold;
+        return this;
+    }
+
+    public AttachmentStorageConfigurationBuilder setMaxHeapBytes(long maxHeapBytes)
+    {
+        checkPositive(maxHeapBytes, "maxHeapBytes");
+        this.maxHeapBytes = maxHeapBytes;
+        return this;
+    }
+
+    public AttachmentStorageConfigurationBuilder setDirectory(Path directory)
+    {
+        this.directory = directory;
+        return this;
+    }
+
+    public long getSpillThreshold()
+    {
+        return spillThreshold;
+    }
+
+    public long getMaxHeapBytes()
+    {
+        return maxHeapBytes;
+    }
+
+    public Path getDirectory()
+    {
+        return directory;
+    }
+
+    public AttachmentStorageConfiguration build()
+    {
+        if (spillThreshold > Integer.MAX_VALUE - 8)
+        {
+            throw new IllegalArgumentException("spillThreshold can't be greater than " + (Integer.MAX_VALUE - 8) + " but was " + spillThreshold);
+        }
+        return new AttachmentStorageConfiguration(this);
+    }
+
+    private static void checkPositive(long value, String name)
+    {
+        if (value <= 0)
+        {
+            throw new IllegalArgumentException(name + " must be greater than zero but was " + value);
+        }
+    }
+}
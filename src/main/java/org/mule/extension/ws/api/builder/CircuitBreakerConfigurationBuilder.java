@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.ws.api.builder;
+
+import org.mule.extension.ws.api.CircuitBreakerConfiguration;
+
+public class CircuitBreakerConfigurationBuilder
+{
+
+    private int failureRateThreshold = 50;
+    private int windowSize = 20;
+    private int minCalls = 10;
+    private long openTime = 10000;
+    private int trialCalls = 1;
+
+    public static CircuitBreakerConfigurationBuilder getInstance()
+    {
+        return new CircuitBreakerConfigurationBuilder();
+    }
+
+    private CircuitBreakerConfigurationBuilder()
+    {
+    }
+
+    public CircuitBreakerConfigurationBuilder setFailureRateThreshold(int failureRateThreshold)
+    {
+        if (failureRateThreshold <= 0 || failureRateThreshold > 100)
+        {
+            throw new IllegalArgumentException("failureRateThreshold must be greater than zero and up to one hundred but was " + failureRateThreshold);
+        }
+        this.failureRateThreshold = failureRateThreshold;
+        return this;
+    }
+
+    public CircuitBreakerConfigurationBuilder setWindowSize(int windowSize)
+    {
+        checkPositive(windowSize, "windowSize");
+        this.windowSize = windowSize;
+        return this;
+    }
+
+    public CircuitBreakerConfigurationBuilder setMinCalls(int minCalls)
+    {
+        checkPositive(minCalls, "minCalls");
+        this.minCalls = minCalls;
+        return this;
+    }
+
+    public CircuitBreakerConfigurationBuilder setOpenTime(long openTime)
+    {
+        checkPositive(openTime, "openTime");
+        this.openTime = openTime;
+        return this;
+    }
+
+    public CircuitBreakerConfigurationBuilder setTrialCalls(int trialCalls)
+    {
+        checkPositive(trialCalls, "trialCalls");
+        this.trialCalls = trialCalls;
+        return this;
+    }
+
+    public int getFailureRateThreshold()
+    {
+        return failureRateThreshold;
+    }
+
+    public int getWindowSize()
+    {
+        return windowSize;
+    }
+
+    public int getMinCalls()
+    {
+        return minCalls;
+    }
+
+    public long getOpenTime()
+    {
+        return openTime;
+    }
+
+    public int getTrialCalls()
+    {
+        return trialCalls;
+    }
+
+    public CircuitBreakerConfiguration build()
+    {
+        if (minCalls > windowSize)
+        {
+            throw new IllegalArgumentException("minCalls must not be greater than windowSize");
+        }
+        return new CircuitBreakerConfiguration(this);
+    }
+
+    private static void checkPositive(long value, String name)
+    {
+        if (value <= 0)
+        {
+            throw new IllegalArgumentException(name + " must be greater than zero but was " + value);
+        }
+    }
+}
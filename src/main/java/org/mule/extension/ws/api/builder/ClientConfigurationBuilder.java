@@ -0,0 +1,374 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.ws.api.builder;
+
+import org.mule.extension.ws.api.AttachmentStorageConfiguration;
+import org.mule.extension.ws.api.CircuitBreakerConfiguration;
+import org.mule.extension.ws.api.ClientConfiguration;
+import org.mule.extension.ws.api.CompressionConfiguration;
+import org.mule.extension.ws.api.ConcurrencyLimitConfiguration;
+import org.mule.extension.ws.api.HedgingConfiguration;
+import org.mule.extension.ws.api.LoadBalancingConfiguration;
+import org.mule.extension.ws.api.MtomConfiguration;
+import org.mule.extension.ws.api.ResponseCacheConfiguration;
+import org.mule.extension.ws.api.RetryConfiguration;
+import org.mule.extension.ws.api.SoapHeaders;
+import org.mule.extension.ws.api.metrics.SoapClientMetrics;
+
+public class ClientConfigurationBuilder
+{
+
+    private int maxConnectionsPerRoute = 20;
+    private int maxConnectionsTotal = 50;
+    private boolean keepAlive = true;
+    private long keepAliveTimeout = 30000;
+    private long connectionIdleTimeout = 30000;
+    private long connectionTimeToLive = -1;
+    private int ioThreadCount = 2;
+    private int maxInFlightRequests = 1000;
+    private boolean chunkedRequests = true;
+    private SoapClientMetrics metrics = SoapClientMetrics.NONE;
+    private int batchParallelism = 20;
+    private ResponseCacheConfiguration responseCache = ResponseCacheConfiguration.DISABLED;
+    private boolean fastInfoset = false;
+    private CompressionConfiguration compression = CompressionConfiguration.DEFAULT;
+    private SoapHeaders staticHeaders = SoapHeaders.NONE;
+    private boolean virtualThreads = false;
+    private ConcurrencyLimitConfiguration concurrencyLimit = ConcurrencyLimitConfiguration.DISABLED;
+    private HedgingConfiguration hedging = HedgingConfiguration.DISABLED;
+    private LoadBalancingConfiguration loadBalancing = LoadBalancingConfiguration.DEFAULT;
+    private RetryConfiguration retry = RetryConfiguration.DISABLED;
+    private CircuitBreakerConfiguration circuitBreaker = CircuitBreakerConfiguration.DISABLED;
+    private AttachmentStorageConfiguration attachmentStorage = AttachmentStorageConfiguration.DISABLED;
+    private MtomConfiguration mtom = MtomConfiguration.DISABLED;
+
+    public static ClientConfigurationBuilder getInstance()
+    {
+        return new ClientConfigurationBuilder();
+    }
+
+    private ClientConfigurationBuilder()
+    {
+    }
+
+    public ClientConfigurationBuilder setMaxConnectionsPerRoute(int maxConnectionsPerRoute)
+    {
+        checkPositive(maxConnectionsPerRoute, "maxConnectionsPerRoute");
+        this.maxConnectionsPerRoute = maxConnectionsPerRoute;
+        return this;
+    }
+
+    public ClientConfigurationBuilder setMaxConnectionsTotal(int maxConnectionsTotal)
+    {
+        checkPositive(maxConnectionsTotal, "maxConnectionsTotal");
+        this.maxConnectionsTotal = maxConnectionsTotal;
+        return this;
+    }
+
+    public ClientConfigurationBuilder setKeepAlive(boolean keepAlive)
+    {
+        this.keepAlive = keepAlive;
+        return this;
+    }
+
+    public ClientConfigurationBuilder setKeepAliveTimeout(long keepAliveTimeout)
+    {
+        checkPositive(keepAliveTimeout, "keepAliveTimeout");
+        this.keepAliveTimeout = keepAliveTimeout;
+        return this;
+    }
+
+    public ClientConfigurationBuilder setConnectionIdleTimeout(long connectionIdleTimeout)
+    {
+        checkPositive(connectionIdleTimeout, "connectionIdleTimeout");
+        this.connectionIdleTimeout = connectionIdleTimeout;
+        return this;
+    }
+
+    public ClientConfigurationBuilder setConnectionTimeToLive(long connectionTimeToLive)
+    {
+        this.connectionTimeToLive = connectionTimeToLive;
+        return this;
+    }
+
+    public ClientConfigurationBuilder setIoThreadCount(int ioThreadCount)
+    {
+        checkPositive(ioThreadCount, "ioThreadCount");
+        this.ioThreadCount = ioThreadCount;
+        return this;
+    }
+
+    public ClientConfigurationBuilder setMaxInFlightRequests(int maxInFlightRequests)
+    {
+        checkPositive(maxInFlightRequests, "maxInFlightRequests");
+        this.maxInFlightRequests = maxInFlightRequests;
+        return this;
+    }
+
+    public ClientConfigurationBuilder setChunkedRequests(boolean chunkedRequests)
+    {
+        this.chunkedRequests = chunkedRequests;
+        return this;
+    }
+
+    public ClientConfigurationBuilder setMetrics(SoapClientMetrics metrics)
+    {
+        if (metrics == null)
+        {
+            throw new IllegalArgumentException("metrics can't be null, use SoapClientMetrics.NONE instead");
+        }
+        this.metrics = metrics;
+        return this;
+    }
+
+    public ClientConfigurationBuilder setBatchParallelism(int batchParallelism)
+    {
+        checkPositive(batchParallelism, "batchParallelism");
+        this.batchParallelism = batchParallelism;
+        return this;
+    }
+
+    public ClientConfigurationBuilder setResponseCache(ResponseCacheConfiguration responseCache)
+    {
+        if (responseCache == null)
+        {
+            throw new IllegalArgumentException("responseCache can't be null, use ResponseCacheConfiguration.DISABLED instead");
+        }
+        this.responseCache = responseCache;
+        return this;
+    }
+
+    public ClientConfigurationBuilder setFastInfoset(boolean fastInfoset)
+    {
+        this.fastInfoset = fastInfoset;
+        return this;
+    }
+
+    public ClientConfigurationBuilder setCompression(CompressionConfiguration compression)
+    {
+        if (compression == null)
+        {
+            throw new IllegalArgumentException("compression can't be null, use CompressionConfiguration.DEFAULT instead");
+        }
+        this.compression = compression;
+        return this;
+    }
+
+    public ClientConfigurationBuilder setStaticHeaders(SoapHeaders staticHeaders)
+    {
+        if (staticHeaders == null)
+        {
+            throw new IllegalArgumentException("staticHeaders can't be null, use SoapHeaders.NONE instead");
+        }
+        this.staticHeaders = staticHeaders;
+        return this;
+    }
+
+    public ClientConfigurationBuilder setVirtualThreads(boolean virtualThreads)
+    {
+        this.virtualThreads = virtualThreads;
+        return this;
+    }
+
+    public ClientConfigurationBuilder setConcurrencyLimit(ConcurrencyLimitConfiguration concurrencyLimit)
+    {
+        if (concurrencyLimit == null)
+        {
+            throw new IllegalArgumentException("concurrencyLimit can't be null, use ConcurrencyLimitConfiguration.DISABLED instead");
+        }
+        this.concurrencyLimit = concurrencyLimit;
+        return this;
+    }
+
+    public ClientConfigurationBuilder setHedging(HedgingConfiguration hedging)
+    {
+        if (hedging == null)
+        {
+            throw new IllegalArgumentException("hedging can't be null, use HedgingConfiguration.DISABLED instead");
+        }
+        this.hedging = hedging;
+        return this;
+    }
+
+    public ClientConfigurationBuilder setLoadBalancing(LoadBalancingConfiguration loadBalancing)
+    {
+        if (loadBalancing == null)
+        {
+            throw new IllegalArgumentException("loadBalancing can't be null, use LoadBalancingConfiguration.DEFAULT instead");
+        }
+        this.loadBalancing = loadBalancing;
+        return this;
+    }
+
+    public ClientConfigurationBuilder setRetry(RetryConfiguration retry)
+    {
+        if (retry == null)
+        {
+            throw new IllegalArgumentException("retry can't be null, use RetryConfiguration.DISABLED instead");
+        }
+        this.retry = retry;
+        return this;
+    }
+
+    public ClientConfigurationBuilder setCircuitBreaker(CircuitBreakerConfiguration circuitBreaker)
+    {
+        if (circuitBreaker == null)
+        {
+            throw new IllegalArgumentException("circuitBreaker can't be null, use CircuitBreakerConfiguration.DISABLED instead");
+        }
+        this.circuitBreaker = circuitBreaker;
+        return this;
+    }
+
+    public ClientConfigurationBuilder setAttachmentStorage(AttachmentStorageConfiguration attachmentStorage)
+    {
+        if (attachmentStorage == null)
+        {
+            throw new IllegalArgumentException("attachmentStorage can't be null, use AttachmentStorageConfiguration.DISABLED instead");
+        }
+        this.attachmentStorage = attachmentStorage;
+        return this;
+    }
+
+    public ClientConfigurationBuilder setMtom(MtomConfiguration mtom)
+    {
+        if (mtom == null)
+        {
+            throw new IllegalArgumentException("mtom can't be null, use MtomConfiguration.DISABLED instead");
+        }
+        this.mtom = mtom;
+        return this;
+    }
+
+    public int getMaxConnectionsPerRoute()
+    {
+        return maxConnectionsPerRoute;
+    }
+
+    public int getMaxConnectionsTotal()
+    {
+        return maxConnectionsTotal;
+    }
+
+    public boolean isKeepAlive()
+    {
+        return keepAlive;
+    }
+
+    public long getKeepAliveTimeout()
+    {
+        return keepAliveTimeout;
+    }
+
+    public long getConnectionIdleTimeout()
+    {
+        return connectionIdleTimeout;
+    }
+
+    public long getConnectionTimeToLive()
+    {
+        return connectionTimeToLive;
+    }
+
+    public int getIoThreadCount()
+    {
+        return ioThreadCount;
+    }
+
+    public int getMaxInFlightRequests()
+    {
+        return maxInFlightRequests;
+    }
+
+    public boolean isChunkedRequests()
+    {
+        return chunkedRequests;
+    }
+
+    public SoapClientMetrics getMetrics()
+    {
+        return metrics;
+    }
+
+    public int getBatchParallelism()
+    {
+        return batchParallelism;
+    }
+
+    public ResponseCacheConfiguration getResponseCache()
+    {
+        return responseCache;
+    }
+
+    public boolean isFastInfoset()
+    {
+        return fastInfoset;
+    }
+
+    public CompressionConfiguration getCompression()
+    {
+        return compression;
+    }
+
+    public SoapHeaders getStaticHeaders()
+    {
+        return staticHeaders;
+    }
+
+    public boolean isVirtualThreads()
+    {
+        return virtualThreads;
+    }
+
+    public ConcurrencyLimitConfiguration getConcurrencyLimit()
+    {
+        return concurrencyLimit;
+    }
+
+    public HedgingConfiguration getHedging()
+    {
+        return hedging;
+    }
+
+    public LoadBalancingConfiguration getLoadBalancing()
+    {
+        return loadBalancing;
+    }
+
+    public RetryConfiguration getRetry()
+    {
+        return retry;
+    }
+
+    public CircuitBreakerConfiguration getCircuitBreaker()
+    {
+        return circuitBreaker;
+    }
+
+    public AttachmentStorageConfiguration getAttachmentStorage()
+    {
+        return attachmentStorage;
+    }
+
+    public MtomConfiguration getMtom()
+    {
+        return mtom;
+    }
+
+    public ClientConfiguration build()
+    {
+        return new ClientConfiguration(this);
+    }
+
+    private static void checkPositive(long value, String name)
+    {
+        if (value <= 0)
+        {
+            throw new IllegalArgumentException(name + " must be greater than zero but was " + value);
+        }
+    }
+}
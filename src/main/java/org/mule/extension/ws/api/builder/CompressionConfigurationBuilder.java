@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.ws.api.builder;
+
+import org.mule.extension.ws.api.CompressionConfiguration;
+import org.mule.extension.ws.api.ContentEncoding;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+public class CompressionConfigurationBuilder
+{
+
+    private boolean compressRequests = false;
+    private ContentEncoding requestEncoding = ContentEncoding.GZIP;
+    private long threshold = 1024;
+    private final Set<String> compressedOperations = new HashSet<>();
+    private final Set<String> uncompressedOperations = new HashSet<>();
+    private boolean acceptCompressedResponses = true;
+
+    public static CompressionConfigurationBuilder getInstance()
+    {
+        return new CompressionConfigurationBuilder();
+    }
+
+    private CompressionConfigurationBuilder()
+    {
+    }
+
+    public CompressionConfigurationBuilder setCompressRequests(boolean compressRequests)
+    {
+        this.compressRequests = compressRequests;
+        return this;
+    }
+
+    public CompressionConfigurationBuilder setRequestEncoding(ContentEncoding requestEncoding)
+    {
+        if (requestEncoding == null)
+        {
+            throw new IllegalArgumentException("requestEncoding can't be null");
+        }
+        this.requestEncoding = requestEncoding;
+        return this;
+    }
+
+    public CompressionConfigurationBuilder setThreshold(long threshold)
+    {
+        if (threshold < 0)
+        {
+            throw new IllegalArgumentException("threshold can't be negative but was " + threshold);
+        }
+        this.threshold = threshold;
+        return this;
+    }
+
+    public CompressionConfigurationBuilder compressOperations(String... operations)
+    {
+        Collections.addAll(compressedOperations, operations);
+        return this;
+    }
+
+    public CompressionConfigurationBuilder skipOperations(String... operations)
+    {
+        Collections.addAll(uncompressedOperations, operations);
+        return this;
+    }
+
+    public CompressionConfigurationBuilder setAcceptCompressedResponses(boolean acceptCompressedResponses)
+    {
+        this.acceptCompressedResponses = acceptCompressedResponses;
+        return this;
+    }
+
+    public boolean isCompressRequests()
+    {
+        return compressRequests;
+    }
+
+    public ContentEncoding getRequestEncoding()
+    {
+        return requestEncoding;
+    }
+
+    public long getThreshold()
+    {
+        return threshold;
+    }
+
+    public Set<String> getCompressedOperations()
+    {
+        return compressedOperations;
+    }
+
+    public Set<String> getUncompressedOperations()
+    {
+        return uncompressedOperations;
+    }
+
+    public boolean isAcceptCompressedResponses()
+    {
+        return acceptCompressedResponses;
+    }
+
+    public CompressionConfiguration build()
+    {
+        return new CompressionConfiguration(this);
+    }
+}
@@ -0,0 +1,174 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.ws.api.builder;
+
+import org.mule.extension.ws.api.ConcurrencyLimitConfiguration;
+import org.mule.extension.ws.api.LimitAlgorithm;
+
+public class ConcurrencyLimitConfigurationBuilder
+{
+
+    private LimitAlgorithm algorithm = LimitAlgorithm.GRADIENT;
+    private int initialLimit = 20;
+    private int minLimit = 1;
+    private int maxLimit = 1000;
+    private long maxWait = 0;
+    private long latencyThreshold = 1000;
+    private double backoffRatio = 0.9;
+    private double tolerance = 2;
+    private double smoothing = 0.2;
+
+    public static ConcurrencyLimitConfigurationBuilder getInstance()
+    {
+        return new ConcurrencyLimitConfigurationBuilder();
+    }
+
+    private ConcurrencyLimitConfigurationBuilder()
+    {
+    }
+
+    public ConcurrencyLimitConfigurationBuilder setAlgorithm(LimitAlgorithm algorithm)
+    {
+        if (algorithm == null)
+        {
+            throw new IllegalArgumentException("algorithm can't be null");
+        }
+        this.algorithm = algorithm;
+        return this;
+    }
+
+    public ConcurrencyLimitConfigurationBuilder setInitialLimit(int initialLimit)
+    {
+        checkPositive(initialLimit, "initialLimit");
+        this.initialLimit = initialLimit;
+        return this;
+    }
+
+    public ConcurrencyLimitConfigurationBuilder setMinLimit(int minLimit)
+    {
+        checkPositive(minLimit, "minLimit");
+        this.minLimit = minLimit;
+        return this;
+    }
+
+    public ConcurrencyLimitConfigurationBuilder setMaxLimit(int maxLimit)
+    {
+        checkPositive(maxLimit, "maxLimit");
+        this.maxLimit = maxLimit;
+        return this;
+    }
+
+    public ConcurrencyLimitConfigurationBuilder setMaxWait(long maxWait)
+    {
+        if (maxWait < 0)
+        {
+            throw new IllegalArgumentException("maxWait can't be negative but was " + maxWait);
+        }
+        this.maxWait = maxWait;
+        return this;
+    }
+
+    public ConcurrencyLimitConfigurationBuilder setLatencyThreshold(long latencyThreshold)
+    {
+        checkPositive(latencyThreshold, "latencyThreshold");
+        this.latencyThreshold = latencyThreshold;
+        return this;
+    }
+
+    public ConcurrencyLimitConfigurationBuilder setBackoffRatio(double backoffRatio)
+    {
+        if (backoffRatio <= 0 || backoffRatio >= 1)
+        {
+            throw new IllegalArgumentException("backoffRatio must be between zero and one but was " + backoffRatio);
+        }
+        this.backoffRatio = backoffRatio;
+        return this;
+    }
+
+    public ConcurrencyLimitConfigurationBuilder setTolerance(double tolerance)
+    {
+        if (tolerance < 1)
+        {
+            throw new IllegalArgumentException("tolerance can't be less than one but was " + tolerance);
+        }
+        this.tolerance = tolerance;
+        return this;
+    }
+
+    public ConcurrencyLimitConfigurationBuilder setSmoothing(double smoothing)
+    {
+        if (smoothing <= 0 || smoothing > 1)
+        {
+            throw new IllegalArgumentException("smoothing must be greater than zero and up to one but was " + smoothing);
+        }
+        this.smoothing = smoothing;
+        return this;
+    }
+
+    public LimitAlgorithm getAlgorithm()
+    {
+        return algorithm;
+    }
+
+    public int getInitialLimit()
+    {
+        return initialLimit;
+    }
+
+    public int getMinLimit()
+    {
+        return minLimit;
+    }
+
+    public int getMaxLimit()
+    {
+        return maxLimit;
+    }
+
+    public long getMaxWait()
+    {
+        return maxWait;
+    }
+
+    public long getLatencyThreshold()
+    {
+        return latencyThreshold;
+    }
+
+    public double getBackoffRatio()
+    {
+        return backoffRatio;
+    }
+
+    public double getTolerance()
+    {
+        return tolerance;
+    }
+
+    public double getSmoothing()
+    {
+        return smoothing;
+    }
+
+    public ConcurrencyLimitConfiguration build()
+    {
+        if (minLimit > initialLimit || initialLimit > maxLimit)
+        {
+            throw new IllegalArgumentException("initialLimit must be between minLimit and maxLimit but was " + initialLimit
+                                               + " with [" + minLimit + ", " + maxLimit + "]");
+        }
+        return new ConcurrencyLimitConfiguration(this);
+    }
+
+    private static void checkPositive(long value, String name)
+    {
+        if (value <= 0)
+        {
+            throw new IllegalArgumentException(name + " must be greater than zero but was " + value);
+        }
+    }
+}
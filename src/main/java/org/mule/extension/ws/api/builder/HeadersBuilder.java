@@ -6,8 +6,12 @@
  */
 package org.mule.extension.ws.api.builder;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
+import org.mule.extension.ws.api.SoapHeaders;
+
+import java.io.ByteArrayOutputStream;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -15,13 +19,21 @@ import javax.xml.namespace.QName;
 import javax.xml.soap.SOAPElement;
 import javax.xml.soap.SOAPException;
 import javax.xml.soap.SOAPHeader;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
+
+import org.apache.cxf.staxutils.StaxUtils;
 
 public class HeadersBuilder
 {
 
+    private static final String PREFIX = "SOAP_";
+
     private final String namespace;
-    private Map<String, String> headers = new HashMap<>();
+    private Map<String, String> headers = new LinkedHashMap<>();
     private List<SOAPElement> elements = new ArrayList<>();
+    private List<byte[]> serialized = new ArrayList<>();
 
     public static HeadersBuilder getInstance(String namespace)
     {
@@ -51,13 +63,22 @@ public class HeadersBuilder
         return this;
     }
 
+    /**
+     * Adds a header with any structure, the reader is consumed right away.
+     */
+    public HeadersBuilder addHeader(XMLStreamReader header)
+    {
+        serialized.add(serialize(writer -> StaxUtils.copy(header, writer)));
+        return this;
+    }
+
     public SOAPHeader build(SOAPHeader header)
     {
         headers.entrySet().forEach(h ->
                                    {
                                        try
                                        {
-                                           QName qname = new QName(namespace, h.getKey(), "SOAP_");
+                                           QName qname = new QName(namespace, h.getKey(), PREFIX);
                                            SOAPElement soapElement = header.addChildElement(qname);
                                            soapElement.addTextNode(h.getValue());
                                        }
@@ -81,4 +102,46 @@ public class HeadersBuilder
 
         return header;
     }
+
+    /**
+     * Serializes the headers added so far, in the same order {@link #build(SOAPHeader)} adds them with the ones added
+     * as readers last, so they can be set as the static headers of a client.
+     */
+    public SoapHeaders build()
+    {
+        List<byte[]> result = new ArrayList<>();
+        headers.forEach((key, value) -> result.add(serialize(writer ->
+        {
+            writer.writeStartElement(PREFIX, key, namespace);
+            writer.writeNamespace(PREFIX, namespace);
+            writer.writeCharacters(value);
+            writer.writeEndElement();
+        })));
+        elements.forEach(element -> result.add(serialize(writer -> StaxUtils.copy(element, writer))));
+        result.addAll(serialized);
+        return new SoapHeaders(result);
+    }
+
+    private static byte[] serialize(ElementWriter element)
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        XMLStreamWriter writer = StaxUtils.createXMLStreamWriter(out, UTF_8.name());
+        try
+        {
+            element.write(writer);
+            writer.close();
+        }
+        catch (XMLStreamException e)
+        {
+            throw new RuntimeException(e);
+        }
+        return out.toByteArray();
+    }
+
+    @FunctionalInterface
+    private interface ElementWriter
+    {
+
+        void write(XMLStreamWriter writer) throws XMLStreamException;
+    }
 }
@@ -0,0 +1,92 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.ws.api.builder;
+
+import org.mule.extension.ws.api.HedgingConfiguration;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+public class HedgingConfigurationBuilder
+{
+
+    private final Set<String> operations = new HashSet<>();
+    private double percentile = 95;
+    private int budgetPercent = 10;
+    private int minSamples = 20;
+
+    public static HedgingConfigurationBuilder getInstance()
+    {
+        return new HedgingConfigurationBuilder();
+    }
+
+    private HedgingConfigurationBuilder()
+    {
+    }
+
+    public HedgingConfigurationBuilder hedgeOperations(String... operations)
+    {
+        Collections.addAll(this.operations, operations);
+        return this;
+    }
+
+    public HedgingConfigurationBuilder setPercentile(double percentile)
+    {
+        if (percentile <= 0 || percentile >= 100)
+        {
+            throw new IllegalArgumentException("percentile must be between zero and one hundred but was " + percentile);
+        }
+        this.percentile = percentile;
+        return this;
+    }
+
+    public HedgingConfigurationBuilder setBudgetPercent(int budgetPercent)
+    {
+        if (budgetPercent <= 0 || budgetPercent > 100)
+        {
+            throw new IllegalArgumentException("budgetPercent must be greater than zero and up to one hundred but was " + budgetPercent);
+        }
+        this.budgetPercent = budgetPercent;
+        return this;
+    }
+
+    public HedgingConfigurationBuilder setMinSamples(int minSamples)
+    {
+        if (minSamples <= 0)
+        {
+            throw new IllegalArgumentException("minSamples must be greater than zero but was " + minSamples);
+        }
+        this.minSamples = minSamples;
+        return this;
+    }
+
+    public Set<String> getOperations()
+    {
+        return operations;
+    }
+
+    public double getPercentile()
+    {
+        return percentile;
+    }
+
+    public int getBudgetPercent()
+    {
+        return budgetPercent;
+    }
+
+    public int getMinSamples()
+    {
+        return minSamples;
+    }
+
+    public HedgingConfiguration build()
+    {
+        return new HedgingConfiguration(this);
+    }
+}
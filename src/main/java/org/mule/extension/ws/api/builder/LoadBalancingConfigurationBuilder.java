@@ -0,0 +1,109 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.ws.api.builder;
+
+import org.mule.extension.ws.api.BalancingStrategy;
+import org.mule.extension.ws.api.LoadBalancingConfiguration;
+
+public class LoadBalancingConfigurationBuilder
+{
+
+    private BalancingStrategy strategy = BalancingStrategy.PEAK_EWMA;
+    private int failuresToEject = 5;
+    private long ejectionTime = 30000;
+    private long maxEjectionTime = 300000;
+    private long latencyDecay = 10000;
+
+    public static LoadBalancingConfigurationBuilder getInstance()
+    {
+        return new LoadBalancingConfigurationBuilder();
+    }
+
+    private LoadBalancingConfigurationBuilder()
+    {
+    }
+
+    public LoadBalancingConfigurationBuilder setStrategy(BalancingStrategy strategy)
+    {
+        if (strategy == null)
+        {
+            throw new IllegalArgumentException("strategy can't be null");
+        }
+        this.strategy = strategy;
+        return this;
+    }
+
+    public LoadBalancingConfigurationBuilder setFailuresToEject(int failuresToEject)
+    {
+        checkPositive(failuresToEject, "failuresToEject");
+        this.failuresToEject = failuresToEject;
+        return this;
+    }
+
+    public LoadBalancingConfigurationBuilder setEjectionTime(long ejectionTime)
+    {
+        checkPositive(ejectionTime, "ejectionTime");
+        this.ejectionTime = ejectionTime;
+        return this;
+    }
+
+    public LoadBalancingConfigurationBuilder setMaxEjectionTime(long maxEjectionTime)
+    {
+        checkPositive(maxEjectionTime, "maxEjectionTime");
+        this.maxEjectionTime = maxEjectionTime;
+        return this;
+    }
+
+    public LoadBalancingConfigurationBuilder setLatencyDecay(long latencyDecay)
+    {
+        checkPositive(latencyDecay, "latencyDecay");
+        this.latencyDecay = latencyDecay;
+        return this;
+    }
+
+    public BalancingStrategy getStrategy()
+    {
+        return strategy;
+    }
+
+    public int getFailuresToEject()
+    {
+        return failuresToEject;
+    }
+
+    public long getEjectionTime()
+    {
+        return ejectionTime;
+    }
+
+    public long getMaxEjectionTime()
+    {
+        return maxEjectionTime;
+    }
+
+    public long getLatencyDecay()
+    {
+        return latencyDecay;
+    }
+
+    public LoadBalancingConfiguration build()
+    {
+        if (maxEjectionTime < ejectionTime)
+        {
+            throw new IllegalArgumentException("maxEjectionTime must not be lower than ejectionTime");
+        }
+        return new LoadBalancingConfiguration(this);
+    }
+
+    private static void checkPositive(long value, String name)
+    {
+        if (value <= 0)
+        {
+            throw new IllegalArgumentException(name + " must be greater than zero but was " + value);
+        }
+    }
+}
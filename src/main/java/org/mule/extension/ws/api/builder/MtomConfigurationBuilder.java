@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.ws.api.builder;
+
+import org.mule.extension.ws.api.MtomConfiguration;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import javax.xml.namespace.QName;
+
+public class MtomConfigurationBuilder
+{
+
+    private final Set<QName> elements = new HashSet<>();
+    private int threshold = 1024;
+
+    public static MtomConfigurationBuilder getInstance()
+    {
+        return new MtomConfigurationBuilder();
+    }
+
+    private MtomConfigurationBuilder()
+    {
+    }
+
+    /**
+     * @param elements the payload elements of type {@code xs:base64Binary} whose content is moved into MIME parts.
+     */
+    public MtomConfigurationBuilder optimizeElements(QName... elements)
+    {
+        Collections.addAll(this.elements, elements);
+        return this;
+    }
+
+    public MtomConfigurationBuilder setThreshold(int threshold)
+    {
+        checkPositive(threshold, "threshold");
+        this.threshold = threshold;
+        return this;
+    }
+
+    public Set<QName> getElements()
+    {
+        return elements;
+    }
+
+    public int getThreshold()
+    {
+        return threshold;
+    }
+
+    public MtomConfiguration build()
+    {
+        return new MtomConfiguration(this);
+    }
+
+    private static void checkPositive(long value, String name)
+    {
+        if (value <= 0)
+        {
+            throw new IllegalArgumentException(name + " must be greater than zero but was " + value);
+        }
+    }
+}
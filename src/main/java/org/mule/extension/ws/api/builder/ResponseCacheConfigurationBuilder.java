@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.ws.api.builder;
+
+import org.mule.extension.ws.api.ResponseCacheConfiguration;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+public class ResponseCacheConfigurationBuilder
+{
+
+    private final Set<String> operations = new HashSet<>();
+    private long maxBytes = 16 * 1024 * 1024;
+    private long timeToLive = 60000;
+    private boolean cacheFaults = false;
+
+    public static ResponseCacheConfigurationBuilder getInstance()
+    {
+        return new ResponseCacheConfigurationBuilder();
+    }
+
+    private ResponseCacheConfigurationBuilder()
+    {
+    }
+
+    public ResponseCacheConfigurationBuilder cacheOperations(String... operations)
+    {
+        Collections.addAll(this.operations, operations);
+        return this;
+    }
+
+    public ResponseCacheConfigurationBuilder setMaxBytes(long maxBytes)
+    {
+        checkPositive(maxBytes, "maxBytes");
+        this.maxBytes = maxBytes;
+        return this;
+    }
+
+    public ResponseCacheConfigurationBuilder setTimeToLive(long timeToLive)
+    {
+        checkPositive(timeToLive, "timeToLive");
+        this.timeToLive = timeToLive;
+        return this;
+    }
+
+    public ResponseCacheConfigurationBuilder setCacheFaults(boolean cacheFaults)
+    {
+        this.cacheFaults = cacheFaults;
+        return this;
+    }
+
+    public Set<String> getOperations()
+    {
+        return operations;
+    }
+
+    public long getMaxBytes()
+    {
+        return maxBytes;
+    }
+
+    public long getTimeToLive()
+    {
+        return timeToLive;
+    }
+
+    public boolean isCacheFaults()
+    {
+        return cacheFaults;
+    }
+
+    public ResponseCacheConfiguration build()
+    {
+        return new ResponseCacheConfiguration(this);
+    }
+
+    private static void checkPositive(long value, String name)
+    {
+        if (value <= 0)
+        {
+            throw new IllegalArgumentException(name + " must be greater than zero but was " + value);
+        }
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.ws.api.builder;
+
+import org.mule.extension.ws.api.RetryConfiguration;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+public class RetryConfigurationBuilder
+{
+
+    private final Set<String> operations = new HashSet<>();
+    private int maxAttempts = 3;
+    private long initialBackoff = 50;
+    private long maxBackoff = 1000;
+    private int budgetPercent = 10;
+
+    public static RetryConfigurationBuilder getInstance()
+    {
+        return new RetryConfigurationBuilder();
+    }
+
+    private RetryConfigurationBuilder()
+    {
+    }
+
+    public RetryConfigurationBuilder retryOperations(String... operations)
+    {
+        Collections.addAll(this.operations, operations);
+        return this;
+    }
+
+    public RetryConfigurationBuilder setMaxAttempts(int maxAttempts)
+    {
+        if (maxAttempts < 2)
+        {
+            throw new IllegalArgumentException("maxAttempts must be at least two but was " + maxAttempts);
+        }
+        this.maxAttempts = maxAttempts;
+        return this;
+    }
+
+    public RetryConfigurationBuilder setInitialBackoff(long initialBackoff)
+    {
+        checkPositive(initialBackoff, "initialBackoff");
+        this.initialBackoff = initialBackoff;
+        return this;
+    }
+
+    public RetryConfigurationBuilder setMaxBackoff(long maxBackoff)
+    {
+        checkPositive(maxBackoff, "maxBackoff");
+        this.maxBackoff = maxBackoff;
+        return this;
+    }
+
+    public RetryConfigurationBuilder setBudgetPercent(int budgetPercent)
+    {
+        if (budgetPercent <= 0 || budgetPercent > 100)
+        {
+            throw new IllegalArgumentException("budgetPercent must be greater than zero and up to one hundred but was " + budgetPercent);
+        }
+        this.budgetPercent = budgetPercent;
+        return this;
+    }
+
+    public Set<String> getOperations()
+    {
+        return operations;
+    }
+
+    public int getMaxAttempts()
+    {
+        return maxAttempts;
+    }
+
+    public long getInitialBackoff()
+    {
+        return initialBackoff;
+    }
+
+    public long getMaxBackoff()
+    {
+        return maxBackoff;
+    }
+
+    public int getBudgetPercent()
+    {
+        return budgetPercent;
+    }
+
+    public RetryConfiguration build()
+    {
+        if (maxBackoff < initialBackoff)
+        {
+            throw new IllegalArgumentException("maxBackoff must not be lower than initialBackoff");
+        }
+        return new RetryConfiguration(this);
+    }
+
+    private static void checkPositive(long value, String name)
+    {
+        if (value <= 0)
+        {
+            throw new IllegalArgumentException(name + " must be greater than zero but was " + value);
+        }
+    }
+}
@@ -0,0 +1,28 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.ws.api.exception;
+
+/**
+ * The call failed fast because the circuit breaker of every endpoint it could go to is open, it was never sent.
+ */
+public class CircuitOpenException extends SoapTransportException
+{
+
+    public CircuitOpenException(String endpoint, String message)
+    {
+        super(endpoint, message);
+    }
+
+    /**
+     * @return false, retrying right away would defeat the purpose of the open circuit.
+     */
+    @Override
+    public boolean isRetryable()
+    {
+        return false;
+    }
+}
@@ -0,0 +1,28 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.ws.api.exception;
+
+/**
+ * Thrown when a call finds no room within the concurrency limit of its endpoint, the request is not sent.
+ */
+public class ConcurrencyLimitExceededException extends SoapTransportException
+{
+
+    public ConcurrencyLimitExceededException(String endpoint, String message)
+    {
+        super(endpoint, message);
+    }
+
+    /**
+     * @return false, retrying would only add load to an endpoint that is already over its limit.
+     */
+    @Override
+    public boolean isRetryable()
+    {
+        return false;
+    }
+}
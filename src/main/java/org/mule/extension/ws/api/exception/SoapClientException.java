@@ -0,0 +1,32 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.ws.api.exception;
+
+/**
+ * A call that failed in the client itself, such as a payload that can't be written into the envelope or a response
+ * that can't be read, as opposed to a {@link SoapTransportException} or a {@link SoapFaultException}. Sending the call
+ * again is not expected to succeed.
+ */
+public class SoapClientException extends RuntimeException
+{
+
+    private final String operation;
+
+    public SoapClientException(String operation, String message, Throwable cause)
+    {
+        super(message, cause);
+        this.operation = operation;
+    }
+
+    /**
+     * @return the name of the operation of the call.
+     */
+    public String getOperation()
+    {
+        return operation;
+    }
+}
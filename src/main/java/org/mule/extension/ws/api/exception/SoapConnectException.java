@@ -0,0 +1,19 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.ws.api.exception;
+
+/**
+ * The endpoint could not be connected to, the request never reached it.
+ */
+public class SoapConnectException extends SoapTransportException
+{
+
+    public SoapConnectException(String endpoint, Throwable cause)
+    {
+        super(endpoint, "Could not connect to " + endpoint + ": " + cause.getMessage(), cause);
+    }
+}
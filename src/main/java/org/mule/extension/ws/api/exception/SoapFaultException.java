@@ -6,35 +6,58 @@
  */
 package org.mule.extension.ws.api.exception;
 
+import java.io.ByteArrayInputStream;
+
 import javax.xml.namespace.QName;
+import javax.xml.stream.XMLStreamException;
 
+import org.apache.cxf.staxutils.StaxUtils;
 import org.w3c.dom.Element;
 
 public class SoapFaultException extends RuntimeException
 {
     private final QName faultCode;
     private final QName subCode;
-    private final Element detail;
+    private final byte[] serializedDetail;
+    private transient volatile Element detail;
 
     public SoapFaultException(QName faultCode,
                               QName subCode,
                               String message,
                               Element detail)
     {
-        super(message);
-        this.faultCode = faultCode;
-        this.subCode = subCode;
-        this.detail = detail;
+        this(faultCode, subCode, message, null, detail);
     }
 
     public SoapFaultException(QName faultCode,
                               String message,
                               Element detail)
+    {
+        this(faultCode, null, message, null, detail);
+    }
+
+    private SoapFaultException(QName faultCode,
+                               QName subCode,
+                               String message,
+                               byte[] serializedDetail,
+                               Element detail)
     {
         super(message);
         this.faultCode = faultCode;
+        this.subCode = subCode;
+        this.serializedDetail = serializedDetail;
         this.detail = detail;
-        this.subCode = null;
+    }
+
+    /**
+     * Creates a fault whose detail is kept serialized, so it doesn't hold on to the document of the response. It is
+     * only parsed into a DOM element the first time {@link #getDetail()} is called.
+     *
+     * @param detail the UTF-8 encoded detail element, {@code null} if the fault has none.
+     */
+    public static SoapFaultException withSerializedDetail(QName faultCode, QName subCode, String message, byte[] detail)
+    {
+        return new SoapFaultException(faultCode, subCode, message, detail, null);
     }
 
     public QName getFaultCode()
@@ -42,6 +65,9 @@ public class SoapFaultException extends RuntimeException
         return faultCode;
     }
 
+    /**
+     * @return the first Subcode of a SOAP 1.2 fault, {@code null} for SOAP 1.1 faults or if it has none.
+     */
     public QName getSubCode()
     {
         return subCode;
@@ -49,6 +75,19 @@ public class SoapFaultException extends RuntimeException
 
     public Element getDetail()
     {
-        return detail;
+        Element parsed = detail;
+        if (parsed == null && serializedDetail != null)
+        {
+            try
+            {
+                parsed = StaxUtils.read(new ByteArrayInputStream(serializedDetail)).getDocumentElement();
+            }
+            catch (XMLStreamException e)
+            {
+                throw new IllegalStateException("Could not parse the fault detail", e);
+            }
+            detail = parsed;
+        }
+        return parsed;
     }
 }
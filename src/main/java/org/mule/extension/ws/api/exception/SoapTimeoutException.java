@@ -0,0 +1,19 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.ws.api.exception;
+
+/**
+ * No response arrived in time, the endpoint may have processed the request nonetheless.
+ */
+public class SoapTimeoutException extends SoapTransportException
+{
+
+    public SoapTimeoutException(String endpoint, Throwable cause)
+    {
+        super(endpoint, "Timed out waiting for " + endpoint + ": " + cause.getMessage(), cause);
+    }
+}
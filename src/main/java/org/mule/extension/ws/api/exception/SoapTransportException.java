@@ -0,0 +1,45 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.ws.api.exception;
+
+/**
+ * A call that failed without a SOAP response from the endpoint, as opposed to a {@link SoapFaultException}. Unless
+ * stated otherwise by {@link #isRetryable()} it is worth sending the call again.
+ */
+public class SoapTransportException extends RuntimeException
+{
+
+    private final String endpoint;
+
+    public SoapTransportException(String endpoint, String message)
+    {
+        super(message);
+        this.endpoint = endpoint;
+    }
+
+    public SoapTransportException(String endpoint, String message, Throwable cause)
+    {
+        super(message, cause);
+        this.endpoint = endpoint;
+    }
+
+    /**
+     * @return the address of the endpoint the call was sent to, or would have been.
+     */
+    public String getEndpoint()
+    {
+        return endpoint;
+    }
+
+    /**
+     * @return whether the failure is likely to be transient, so sending the call again may succeed.
+     */
+    public boolean isRetryable()
+    {
+        return true;
+    }
+}
@@ -0,0 +1,37 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.ws.api.exception;
+
+/**
+ * The endpoint answered with an HTTP status that carries no SOAP response, neither a success nor the server error
+ * status of a fault.
+ */
+public class UnexpectedStatusException extends SoapTransportException
+{
+
+    private final int statusCode;
+
+    public UnexpectedStatusException(String endpoint, int statusCode, String reason)
+    {
+        super(endpoint, "Unexpected status " + statusCode + (reason != null ? " " + reason : "") + " from " + endpoint);
+        this.statusCode = statusCode;
+    }
+
+    public int getStatusCode()
+    {
+        return statusCode;
+    }
+
+    /**
+     * @return whether the status tells the endpoint is overloaded or unavailable for now: 429, 502, 503 or 504.
+     */
+    @Override
+    public boolean isRetryable()
+    {
+        return statusCode == 429 || statusCode == 502 || statusCode == 503 || statusCode == 504;
+    }
+}
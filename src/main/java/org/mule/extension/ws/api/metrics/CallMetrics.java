@@ -0,0 +1,61 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.ws.api.metrics;
+
+/**
+ * What was measured on a single invocation of a {@link org.mule.extension.ws.api.SoapProxyClient}.
+ */
+public interface CallMetrics
+{
+
+    String getOperation();
+
+    /**
+     * @return the nanoseconds spent in the given phase, or {@code -1} if the phase didn't take place or is not
+     * measured by the transport that performed the call.
+     */
+    long getPhaseNanos(Phase phase);
+
+    /**
+     * @return the size of the request entity, attachments included.
+     */
+    long getRequestBytes();
+
+    /**
+     * @return the size of the response entity, or the bytes read from it when the size was not known in advance.
+     */
+    long getResponseBytes();
+
+    /**
+     * @return the size of the request entity before it was compressed, the same as {@link #getRequestBytes()} when it
+     * wasn't.
+     */
+    long getRequestContentBytes();
+
+    /**
+     * @return the size of the response entity after it was decompressed, the same as {@link #getResponseBytes()} when
+     * it wasn't compressed.
+     */
+    long getResponseContentBytes();
+
+    int getRequestAttachments();
+
+    /**
+     * @return the attachments found in the response before it was released.
+     */
+    int getResponseAttachments();
+
+    /**
+     * @return whether the response was a SOAP Fault.
+     */
+    boolean isFault();
+
+    /**
+     * @return the error that made the call fail before a response could be read, {@code null} if there was none.
+     */
+    Throwable getFailure();
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.ws.api.metrics;
+
+/**
+ * Point in time copy of a {@link LatencyHistogram}.
+ */
+public class HistogramSnapshot
+{
+
+    private final long[] counts;
+    private final long count;
+    private final long total;
+    private final long min;
+    private final long max;
+
+    HistogramSnapshot(long[] counts, long count, long total, long min, long max)
+    {
+        this.counts = counts;
+        this.count = count;
+        this.total = total;
+        this.min = min;
+        this.max = max;
+    }
+
+    public long getCount()
+    {
+        return count;
+    }
+
+    public long getMin()
+    {
+        return min;
+    }
+
+    public long getMax()
+    {
+        return max;
+    }
+
+    public double getMean()
+    {
+        return count > 0 ? (double) total / count : 0;
+    }
+
+    /**
+     * @param percentile between 0 and 100.
+     * @return the value under which the given percentile of the recorded values fall, within the precision of the
+     * histogram.
+     */
+    public long getValueAtPercentile(double percentile)
+    {
+        if (count == 0)
+        {
+            return 0;
+        }
+        long rank = Math.max((long) Math.ceil(Math.min(percentile, 100) / 100 * count), 1);
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++)
+        {
+            seen += counts[i];
+            if (seen >= rank)
+            {
+                return Math.max(Math.min(LatencyHistogram.highestValueOf(i), max), min);
+            }
+        }
+        return max;
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("count=%d, mean=%.0f, p50=%d, p90=%d, p99=%d, max=%d", count, getMean(),
+                             getValueAtPercentile(50), getValueAtPercentile(90), getValueAtPercentile(99), max);
+    }
+}
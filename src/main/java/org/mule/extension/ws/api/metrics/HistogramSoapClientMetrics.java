@@ -0,0 +1,111 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.ws.api.metrics;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * {@link SoapClientMetrics} that keeps a {@link LatencyHistogram} per operation and phase, together with call, fault,
+ * byte and attachment counters. Recording never blocks and {@link #snapshot()} can be called while calls keep being
+ * recorded.
+ */
+public class HistogramSoapClientMetrics implements SoapClientMetrics
+{
+
+    private final ConcurrentMap<String, OperationMetrics> operations = new ConcurrentHashMap<>();
+
+    @Override
+    public void onCall(CallMetrics call)
+    {
+        OperationMetrics metrics = operations.get(call.getOperation());
+        if (metrics == null)
+        {
+            metrics = operations.computeIfAbsent(call.getOperation(), name -> new OperationMetrics());
+        }
+        metrics.record(call);
+    }
+
+    /**
+     * @return the metrics of each operation called so far, sorted by operation name.
+     */
+    public Map<String, OperationSnapshot> snapshot()
+    {
+        Map<String, OperationSnapshot> snapshot = new TreeMap<>();
+        operations.forEach((name, metrics) -> snapshot.put(name, metrics.snapshot()));
+        return snapshot;
+    }
+
+    public OperationSnapshot snapshot(String operation)
+    {
+        OperationMetrics metrics = operations.get(operation);
+        return metrics != null ? metrics.snapshot() : null;
+    }
+
+    private static class OperationMetrics
+    {
+
+        private final LongAdder calls = new LongAdder();
+        private final LongAdder faults = new LongAdder();
+        private final LongAdder failures = new LongAdder();
+        private final LongAdder requestBytes = new LongAdder();
+        private final LongAdder responseBytes = new LongAdder();
+        private final LongAdder requestContentBytes = new LongAdder();
+        private final LongAdder responseContentBytes = new LongAdder();
+        private final LongAdder requestAttachments = new LongAdder();
+        private final LongAdder responseAttachments = new LongAdder();
+        private final Map<Phase, LatencyHistogram> phases = new EnumMap<>(Phase.class);
+
+        OperationMetrics()
+        {
+            for (Phase phase : Phase.values())
+            {
+                phases.put(phase, new LatencyHistogram());
+            }
+        }
+
+        void record(CallMetrics call)
+        {
+            calls.increment();
+            if (call.isFault())
+            {
+                faults.increment();
+            }
+            if (call.getFailure() != null)
+            {
+                failures.increment();
+            }
+            requestBytes.add(call.getRequestBytes());
+            responseBytes.add(call.getResponseBytes());
+            requestContentBytes.add(call.getRequestContentBytes());
+            responseContentBytes.add(call.getResponseContentBytes());
+            requestAttachments.add(call.getRequestAttachments());
+            responseAttachments.add(call.getResponseAttachments());
+
+            for (Map.Entry<Phase, LatencyHistogram> phase : phases.entrySet())
+            {
+                long nanos = call.getPhaseNanos(phase.getKey());
+                if (nanos >= 0)
+                {
+                    phase.getValue().record(nanos);
+                }
+            }
+        }
+
+        OperationSnapshot snapshot()
+        {
+            Map<Phase, HistogramSnapshot> snapshots = new EnumMap<>(Phase.class);
+            phases.forEach((phase, histogram) -> snapshots.put(phase, histogram.snapshot()));
+            return new OperationSnapshot(calls.sum(), faults.sum(), failures.sum(), requestBytes.sum(), responseBytes.sum(),
+                                         requestContentBytes.sum(), responseContentBytes.sum(), requestAttachments.sum(), responseAttachments.sum(), snapshots);
+        }
+    }
+}
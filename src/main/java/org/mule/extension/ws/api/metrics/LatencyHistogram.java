@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.ws.api.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free latency histogram in the style of HdrHistogram: values are counted in buckets whose width grows with the
+ * magnitude of the value, so every recorded value keeps a relative precision of 1/64 (about 1.6%) while the whole
+ * range up to {@link #MAX_VALUE} fits in a fixed array.
+ * <p>
+ * Recording is a single atomic increment, snapshots can be taken at any time while values keep being recorded.
+ */
+public class LatencyHistogram
+{
+
+    private static final int PRECISION_BITS = 6;
+    private static final int SUB_BUCKETS = 1 << PRECISION_BITS;
+
+    /**
+     * Values over this one, about 18 minutes in nanoseconds, are counted as this one.
+     */
+    public static final long MAX_VALUE = (1L << 40) - 1;
+
+    private final AtomicLongArray counts = new AtomicLongArray(indexOf(MAX_VALUE) + 1);
+    private final LongAdder total = new LongAdder();
+    private final AtomicLong min = new AtomicLong(Long.MAX_VALUE);
+    private final AtomicLong max = new AtomicLong(0);
+
+    public void record(long value)
+    {
+        long bounded = Math.min(Math.max(value, 0), MAX_VALUE);
+        counts.incrementAndGet(indexOf(bounded));
+        total.add(bounded);
+        if (bounded < min.get())
+        {
+            min.accumulateAndGet(bounded, Math::min);
+        }
+        if (bounded > max.get())
+        {
+            max.accumulateAndGet(bounded, Math::max);
+        }
+    }
+
+    public HistogramSnapshot snapshot()
+    {
+        long[] copy = new long[counts.length()];
+        long count = 0;
+        for (int i = 0; i < copy.length; i++)
+        {
+            copy[i] = counts.get(i);
+            count += copy[i];
+        }
+        return new HistogramSnapshot(copy, count, total.sum(), count > 0 ? min.get() : 0, max.get());
+    }
+
+    /**
+     * Values under {@code 2 * SUB_BUCKETS} get a bucket each. Over that, a value with its highest bit in position
+     * {@code e} is shifted {@code e - PRECISION_BITS} bits so only its {@code PRECISION_BITS + 1} most significant bits
+     * are kept, and each shift has its own set of {@code SUB_BUCKETS} buckets.
+     */
+    static int indexOf(long value)
+    {
+        int shift = Math.max(63 - Long.numberOfLeadingZeros(value) - PRECISION_BITS, 0);
+        return (shift << PRECISION_BITS) + (int) (value >>> shift);
+    }
+
+    /**
+     * @return the highest value counted in the bucket with the given index.
+     */
+    static long highestValueOf(int index)
+    {
+        int shift = Math.max((index >>> PRECISION_BITS) - 1, 0);
+        long mantissa = index - ((long) shift << PRECISION_BITS);
+        return ((mantissa + 1) << shift) - 1;
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.ws.api.metrics;
+
+import java.util.Map;
+
+/**
+ * Point in time copy of the metrics gathered by a {@link HistogramSoapClientMetrics} for a single operation.
+ */
+public class OperationSnapshot
+{
+
+    private final long calls;
+    private final long faults;
+    private final long failures;
+    private final long requestBytes;
+    private final long responseBytes;
+    private final long requestContentBytes;
+    private final long responseContentBytes;
+    private final long requestAttachments;
+    private final long responseAttachments;
+    private final Map<Phase, HistogramSnapshot> phases;
+
+    OperationSnapshot(long calls, long faults, long failures, long requestBytes, long responseBytes, long requestContentBytes,
+                      long responseContentBytes, long requestAttachments, long responseAttachments, Map<Phase, HistogramSnapshot> phases)
+    {
+        this.calls = calls;
+        this.faults = faults;
+        this.failures = failures;
+        this.requestBytes = requestBytes;
+        this.responseBytes = responseBytes;
+        this.requestContentBytes = requestContentBytes;
+        this.responseContentBytes = responseContentBytes;
+        this.requestAttachments = requestAttachments;
+        this.responseAttachments = responseAttachments;
+        this.phases = phases;
+    }
+
+    public long getCalls()
+    {
+        return calls;
+    }
+
+    public long getFaults()
+    {
+        return faults;
+    }
+
+    public long getFailures()
+    {
+        return failures;
+    }
+
+    public long getRequestBytes()
+    {
+        return requestBytes;
+    }
+
+    public long getResponseBytes()
+    {
+        return responseBytes;
+    }
+
+    /**
+     * @return the size of the request entities before they were compressed.
+     */
+    public long getRequestContentBytes()
+    {
+        return requestContentBytes;
+    }
+
+    /**
+     * @return the size of the response entities after they were decompressed.
+     */
+    public long getResponseContentBytes()
+    {
+        return responseContentBytes;
+    }
+
+    /**
+     * @return how many times larger the request entities are than what was sent, {@code 1} when none was compressed.
+     */
+    public double getRequestCompressionRatio()
+    {
+        return requestBytes > 0 ? (double) requestContentBytes / requestBytes : 1;
+    }
+
+    /**
+     * @return how many times larger the response entities are than what was received, {@code 1} when none was
+     * compressed.
+     */
+    public double getResponseCompressionRatio()
+    {
+        return responseBytes > 0 ? (double) responseContentBytes / responseBytes : 1;
+    }
+
+    public long getRequestAttachments()
+    {
+        return requestAttachments;
+    }
+
+    public long getResponseAttachments()
+    {
+        return responseAttachments;
+    }
+
+    /**
+     * @return the nanoseconds spent in the given phase by the calls where it was measured.
+     */
+    public HistogramSnapshot getPhase(Phase phase)
+    {
+        return phases.get(phase);
+    }
+}
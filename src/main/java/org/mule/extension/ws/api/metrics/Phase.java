@@ -0,0 +1,56 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.ws.api.metrics;
+
+/**
+ * Phases of a SOAP invocation whose duration is reported through {@link CallMetrics}.
+ */
+public enum Phase
+{
+    /**
+     * Serializing the request envelope. When requests are sent chunked the envelope is written while it is
+     * serialized, so this phase overlaps {@link #REQUEST_WRITE}.
+     */
+    BUILD_REQUEST,
+
+    /**
+     * Leasing a pooled connection, or opening a new one when none is available.
+     */
+    CONNECTION_LEASE,
+
+    /**
+     * Writing the request headers and entity into the connection.
+     */
+    REQUEST_WRITE,
+
+    /**
+     * From the request being written until the response headers are received.
+     */
+    TIME_TO_FIRST_BYTE,
+
+    /**
+     * Reading the response envelope up to the body content, which is then streamed to the caller.
+     */
+    RESPONSE_PARSE,
+
+    /**
+     * Reading a SOAP Fault found in the response body.
+     */
+    FAULT_EXTRACTION,
+
+    /**
+     * Compressing the request entity. It is done while the request is written, this phase is the CPU time spent
+     * compressing alone.
+     */
+    COMPRESSION,
+
+    /**
+     * Decompressing the response entity while it is read, not counting the time spent waiting for the compressed
+     * bytes.
+     */
+    DECOMPRESSION
+}
@@ -0,0 +1,27 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.ws.api.metrics;
+
+/**
+ * Listener notified with the {@link CallMetrics} of every invocation of a
+ * {@link org.mule.extension.ws.api.SoapProxyClient} that was configured with it.
+ * <p>
+ * Calls are reported once their response is released, that is when its body was read or the
+ * {@link org.mule.extension.ws.api.Response} was closed, or right away if they failed. Implementations are invoked
+ * from the threads performing the calls so they must be thread safe and fast.
+ */
+public interface SoapClientMetrics
+{
+
+    /**
+     * Metrics that discard every call, used when none are configured.
+     */
+    SoapClientMetrics NONE = call -> {
+    };
+
+    void onCall(CallMetrics call);
+}
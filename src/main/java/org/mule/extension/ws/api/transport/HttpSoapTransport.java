@@ -0,0 +1,483 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.ws.api.transport;
+
+import static java.util.Collections.emptyList;
+import static org.mule.extension.ws.api.metrics.Phase.COMPRESSION;
+import static org.mule.extension.ws.api.metrics.Phase.DECOMPRESSION;
+import static org.mule.extension.ws.api.metrics.Phase.TIME_TO_FIRST_BYTE;
+import org.mule.extension.ws.api.ClientConfiguration;
+import org.mule.extension.ws.api.CompressionConfiguration;
+import org.mule.extension.ws.api.ContentEncoding;
+import org.mule.extension.ws.api.exception.UnexpectedStatusException;
+import org.mule.extension.ws.api.metrics.SoapClientMetrics;
+import org.mule.extension.ws.internal.CompressingEntity;
+import org.mule.extension.ws.internal.DecompressingInputStream;
+import org.mule.extension.ws.internal.EnvelopeBuffer;
+import org.mule.extension.ws.internal.RequestThrottle;
+import org.mule.extension.ws.internal.SoapEnvelopeEntity;
+import org.mule.extension.ws.internal.TimingRequestExecutor;
+import org.mule.extension.ws.internal.mime.MultipartContent;
+import org.mule.extension.ws.internal.mime.MultipartRelatedEntity;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.commons.io.input.CountingInputStream;
+import org.apache.commons.io.output.CountingOutputStream;
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
+import org.apache.http.StatusLine;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.client.protocol.HttpClientContext;
+import org.apache.http.concurrent.FutureCallback;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.HttpEntityWrapper;
+import org.apache.http.impl.NoConnectionReuseStrategy;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.impl.nio.client.HttpAsyncClientBuilder;
+import org.apache.http.impl.nio.client.HttpAsyncClients;
+import org.apache.http.impl.nio.reactor.IOReactorConfig;
+import org.apache.http.nio.entity.NByteArrayEntity;
+
+/**
+ * {@link SoapTransport} that POSTs the requests over HTTP. Requests with attachments are sent as multipart/related
+ * and multipart responses are split into the envelope and its attachments while they are read.
+ * <p>
+ * Blocking requests go through a pool of keep-alive connections, non-blocking ones through a separate client that
+ * multiplexes them on a few I/O threads and is only created when first needed.
+ * <p>
+ * Request entities are compressed while they are written and responses decompressed while they are read, as set in
+ * the {@link CompressionConfiguration}.
+ */
+public class HttpSoapTransport implements SoapTransport
+{
+
+    private static final String ACCEPT_ENCODING = ContentEncoding.GZIP.getName() + ", " + ContentEncoding.DEFLATE.getName();
+
+    private final ClientConfiguration configuration;
+    private final ConcurrentMap<String, Long> envelopeSizes = new ConcurrentHashMap<>();
+    private final CloseableHttpClient httpClient;
+    private final RequestThrottle asyncThrottle;
+    private final Lock asyncClientLock = new ReentrantLock();
+    private volatile CloseableHttpAsyncClient asyncClient;
+
+    public HttpSoapTransport(ClientConfiguration configuration)
+    {
+        this.configuration = configuration;
+        httpClient = createHttpClient(configuration);
+        asyncThrottle = new RequestThrottle(configuration.getMaxInFlightRequests());
+    }
+
+    /**
+     * Creates the http client used by every blocking request. Connections are pooled and kept alive between calls so
+     * subsequent requests against the same endpoint don't pay for a new TCP connection.
+     */
+    private static CloseableHttpClient createHttpClient(ClientConfiguration configuration)
+    {
+        PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager(configuration.getConnectionTimeToLive(), TimeUnit.MILLISECONDS);
+        connectionManager.setMaxTotal(configuration.getMaxConnectionsTotal());
+        connectionManager.setDefaultMaxPerRoute(configuration.getMaxConnectionsPerRoute());
+
+        HttpClientBuilder builder = HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .evictExpiredConnections()
+                .evictIdleConnections(configuration.getConnectionIdleTimeout(), TimeUnit.MILLISECONDS)
+                // Responses are decompressed by the transport so both the wire and the decompressed sizes are known
+                .disableContentCompression();
+
+        if (configuration.getMetrics() != SoapClientMetrics.NONE)
+        {
+            builder.setRequestExecutor(new TimingRequestExecutor()).addInterceptorLast(TimingRequestExecutor.LEASE_START);
+        }
+
+        if (configuration.isKeepAlive())
+        {
+            builder.setKeepAliveStrategy(keepAliveStrategy(configuration.getKeepAliveTimeout()));
+        }
+        else
+        {
+            builder.setConnectionReuseStrategy(NoConnectionReuseStrategy.INSTANCE);
+        }
+
+        return builder.build();
+    }
+
+    /**
+     * Creates the non-blocking http client used by asynchronous requests, a small fixed number of I/O threads
+     * multiplex all the in-flight requests.
+     */
+    private static CloseableHttpAsyncClient createAsyncHttpClient(ClientConfiguration configuration)
+    {
+        HttpAsyncClientBuilder builder = HttpAsyncClients.custom()
+                .setDefaultIOReactorConfig(IOReactorConfig.custom().setIoThreadCount(configuration.getIoThreadCount()).build())
+                .setMaxConnTotal(configuration.getMaxConnectionsTotal())
+                .setMaxConnPerRoute(configuration.getMaxConnectionsPerRoute());
+
+        if (configuration.isKeepAlive())
+        {
+            builder.setKeepAliveStrategy(keepAliveStrategy(configuration.getKeepAliveTimeout()));
+        }
+        else
+        {
+            builder.setConnectionReuseStrategy(NoConnectionReuseStrategy.INSTANCE);
+        }
+
+        return builder.build();
+    }
+
+    private CloseableHttpAsyncClient getAsyncClient()
+    {
+        CloseableHttpAsyncClient client = asyncClient;
+        if (client == null)
+        {
+            asyncClientLock.lock();
+            try
+            {
+                if (asyncClient == null)
+                {
+                    CloseableHttpAsyncClient created = createAsyncHttpClient(configuration);
+                    created.start();
+                    asyncClient = created;
+                }
+                client = asyncClient;
+            }
+            finally
+            {
+                asyncClientLock.unlock();
+            }
+        }
+        return client;
+    }
+
+    private static ConnectionKeepAliveStrategy keepAliveStrategy(long defaultTimeout)
+    {
+        return (response, context) ->
+        {
+            long keepAlive = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+            return keepAlive > 0 ? keepAlive : defaultTimeout;
+        };
+    }
+
+    @Override
+    public TransportResponse send(TransportRequest request) throws IOException
+    {
+        TransportMetrics metrics = request.getMetrics();
+        HttpPost post = createPost(request);
+        CloseableHttpResponse response;
+        if (metrics.isEnabled())
+        {
+            post.setEntity(new HttpEntityWrapper(post.getEntity())
+            {
+                @Override
+                public void writeTo(OutputStream out) throws IOException
+                {
+                    CountingOutputStream counting = new CountingOutputStream(out);
+                    wrappedEntity.writeTo(counting);
+                    metrics.setRequestBytes(counting.getByteCount());
+                }
+            });
+            HttpClientContext context = HttpClientContext.create();
+            context.setAttribute(TimingRequestExecutor.METRICS_ATTRIBUTE, metrics);
+            response = httpClient.execute(post, context);
+        }
+        else
+        {
+            response = httpClient.execute(post);
+        }
+        InputStream content = response.getEntity().getContent();
+
+        // Closing the content stream consumes what is left of it and returns the connection to the pool
+        return toTransportResponse(request, response, () ->
+        {
+            try
+            {
+                content.close();
+            }
+            finally
+            {
+                response.close();
+            }
+        }, metrics);
+    }
+
+    /**
+     * The request is buffered in the calling thread and sent through a non-blocking client, so no thread is held while
+     * waiting for the response. Requests over the configured max in-flight requests are queued until a previous one
+     * completes.
+     */
+    @Override
+    public CompletableFuture<TransportResponse> sendAsync(TransportRequest request)
+    {
+        CompletableFuture<TransportResponse> result = new CompletableFuture<>();
+        TransportMetrics metrics = request.getMetrics();
+        HttpPost post;
+        try
+        {
+            // The readers can't be consumed from the I/O threads so the request is buffered before sending it
+            post = createPost(request);
+            HttpEntity entity = post.getEntity();
+            EnvelopeBuffer buffer = EnvelopeBuffer.borrow();
+            try
+            {
+                entity.writeTo(buffer);
+                metrics.setRequestBytes(buffer.size());
+                NByteArrayEntity buffered = new NByteArrayEntity(buffer.toByteArray(), ContentType.parse(entity.getContentType().getValue()));
+                buffered.setContentEncoding(entity.getContentEncoding());
+                post.setEntity(buffered);
+            }
+            finally
+            {
+                buffer.release();
+            }
+        }
+        catch (IOException | RuntimeException e)
+        {
+            result.completeExceptionally(e);
+            return result;
+        }
+
+        CloseableHttpAsyncClient client = getAsyncClient();
+        asyncThrottle.submit(result, () ->
+                             {
+                                 // Lease and write can't be told apart from the wait on a non-blocking exchange
+                                 metrics.start(TIME_TO_FIRST_BYTE);
+                                 Future<HttpResponse> exchange = client.execute(post, new FutureCallback<HttpResponse>()
+                                 {
+                                     @Override
+                                     public void completed(HttpResponse response)
+                                     {
+                                         metrics.end(TIME_TO_FIRST_BYTE);
+                                         try
+                                         {
+                                             result.complete(toTransportResponse(request, response, response.getEntity().getContent()::close, metrics));
+                                         }
+                                         catch (IOException | RuntimeException e)
+                                         {
+                                             result.completeExceptionally(e);
+                                         }
+                                         finally
+                                         {
+                                             asyncThrottle.release();
+                                         }
+                                     }
+
+                                     @Override
+                                     public void failed(Exception e)
+                                     {
+                                         asyncThrottle.release();
+                                         result.completeExceptionally(e);
+                                     }
+
+                                     @Override
+                                     public void cancelled()
+                                     {
+                                         asyncThrottle.release();
+                                         result.cancel(false);
+                                     }
+                                 });
+                                 result.whenComplete((response, e) ->
+                                                     {
+                                                         if (result.isCancelled())
+                                                         {
+                                                             exchange.cancel(true);
+                                                         }
+                                                     });
+                             });
+        return result;
+    }
+
+    private HttpPost createPost(TransportRequest request)
+    {
+        HttpPost httpPost = new HttpPost(request.getAddress());
+        httpPost.addHeader("SOAPAction", request.getSoapAction());
+        if (request.getAccept() != null)
+        {
+            httpPost.addHeader("Accept", request.getAccept());
+        }
+        if (configuration.getCompression().isAcceptCompressedResponses())
+        {
+            httpPost.addHeader("Accept-Encoding", ACCEPT_ENCODING);
+        }
+        HttpEntity entity;
+        if (request.isXopPackage() || !request.getAttachments().isEmpty())
+        {
+            entity = new MultipartRelatedEntity(request::writeEnvelope, ContentType.parse(request.getContentType()), request.getAttachments());
+        }
+        else
+        {
+            entity = new SoapEnvelopeEntity(request::writeEnvelope, request.getContentType(), configuration.isChunkedRequests());
+        }
+
+        httpPost.setEntity(compress(request, entity));
+        return httpPost;
+    }
+
+    /**
+     * The entity is compressed while it is written, so whether it is compressed must be decided before. The size of
+     * the entity is used when it is known in advance, otherwise the size of the last request of the same operation is.
+     */
+    private HttpEntity compress(TransportRequest request, HttpEntity entity)
+    {
+        CompressionConfiguration compression = configuration.getCompression();
+        String operation = request.getOperation();
+        long size = entity.getContentLength();
+        if (size < 0)
+        {
+            size = envelopeSizes.getOrDefault(operation, -1L);
+        }
+
+        if (compression.isCompressed(operation, size))
+        {
+            TransportMetrics metrics = request.getMetrics();
+            return new CompressingEntity(entity, compression.getRequestEncoding(), (contentBytes, nanos) ->
+            {
+                envelopeSizes.put(operation, contentBytes);
+                metrics.setRequestContentBytes(contentBytes);
+                metrics.record(COMPRESSION, nanos);
+            });
+        }
+        else if (compression.isCompressRequests() && entity.getContentLength() < 0)
+        {
+            return new HttpEntityWrapper(entity)
+            {
+                @Override
+                public void writeTo(OutputStream out) throws IOException
+                {
+                    CountingOutputStream counting = new CountingOutputStream(out);
+                    wrappedEntity.writeTo(counting);
+                    envelopeSizes.put(operation, counting.getByteCount());
+                }
+            };
+        }
+        return entity;
+    }
+
+    /**
+     * @throws UnexpectedStatusException if the status is neither a success nor the server error of a fault, the
+     * connection is released first.
+     */
+    private TransportResponse toTransportResponse(TransportRequest request, HttpResponse response, Closeable release, TransportMetrics metrics) throws IOException
+    {
+        StatusLine status = response.getStatusLine();
+        if ((status.getStatusCode() < 200 || status.getStatusCode() >= 300) && status.getStatusCode() != HttpStatus.SC_INTERNAL_SERVER_ERROR)
+        {
+            release.close();
+            throw new UnexpectedStatusException(request.getAddress(), status.getStatusCode(), status.getReasonPhrase());
+        }
+        HttpEntity result = response.getEntity();
+        InputStream content = result.getContent();
+        ContentEncoding encoding = getContentEncoding(result);
+
+        if (metrics.isEnabled())
+        {
+            CountingInputStream counting = new CountingInputStream(content);
+            long length = result.getContentLength();
+            metrics.setResponseBytes(length >= 0 ? () -> length : counting::getByteCount);
+            content = counting;
+            DecompressingInputStream decompressing = encoding != null ? new DecompressingInputStream(content, encoding) : null;
+            if (decompressing != null)
+            {
+                metrics.setResponseContentBytes(decompressing::getContentBytes);
+                content = decompressing;
+            }
+            Closeable connectionRelease = release;
+            release = () ->
+            {
+                try
+                {
+                    connectionRelease.close();
+                }
+                finally
+                {
+                    if (decompressing != null)
+                    {
+                        metrics.record(DECOMPRESSION, decompressing.getNanos());
+                    }
+                    metrics.released();
+                }
+            };
+        }
+        else if (encoding != null)
+        {
+            content = new DecompressingInputStream(content, encoding);
+        }
+
+        ContentType contentType = ContentType.get(result);
+        // SOAP over HTTP answers faults with a server error status
+        boolean fault = response.getStatusLine().getStatusCode() == HttpStatus.SC_INTERNAL_SERVER_ERROR;
+
+        if (contentType != null && contentType.getMimeType().startsWith("multipart/"))
+        {
+            // Parts are parsed as they are read from the connection, which is released after the closing delimiter
+            MultipartContent multipart = new MultipartContent(content, contentType.getParameter("boundary"), release);
+            metrics.setResponseAttachments(multipart::getAttachmentCount);
+            InputStream root = multipart.getRoot();
+            return new TransportResponse(root, multipart.getAttachments(), root, multipart, fault, multipart::indexOf);
+        }
+        else
+        {
+            return new TransportResponse(content, emptyList(), release, release, fault);
+        }
+    }
+
+    /**
+     * @return the coding the entity must be decompressed with, {@code null} if it is not compressed.
+     */
+    private static ContentEncoding getContentEncoding(HttpEntity entity) throws IOException
+    {
+        Header header = entity.getContentEncoding();
+        if (header == null || header.getValue().trim().isEmpty() || "identity".equalsIgnoreCase(header.getValue().trim()))
+        {
+            return null;
+        }
+        ContentEncoding encoding = ContentEncoding.fromName(header.getValue().trim());
+        if (encoding == null)
+        {
+            throw new IOException("Unsupported response content encoding: " + header.getValue());
+        }
+        return encoding;
+    }
+
+    /**
+     * Releases the pooled connections held by this transport.
+     */
+    @Override
+    public void close() throws IOException
+    {
+        asyncThrottle.close();
+        try
+        {
+            httpClient.close();
+        }
+        finally
+        {
+            if (asyncClient != null)
+            {
+                asyncClient.close();
+            }
+        }
+    }
+}
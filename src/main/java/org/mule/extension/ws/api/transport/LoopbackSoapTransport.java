@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.ws.api.transport;
+
+import static org.mule.extension.ws.api.metrics.Phase.REQUEST_WRITE;
+import static org.mule.extension.ws.api.metrics.Phase.TIME_TO_FIRST_BYTE;
+import org.mule.extension.ws.internal.EnvelopeBuffer;
+
+import java.io.IOException;
+
+import org.apache.commons.io.input.CountingInputStream;
+
+/**
+ * {@link SoapTransport} that hands every request to a {@link SoapHandler} in the same process, with no sockets nor
+ * threads involved. The envelope is still serialized into bytes so it costs the same as in a real transport, which
+ * makes it useful to measure the client alone or to test it without a server.
+ */
+public class LoopbackSoapTransport implements SoapTransport
+{
+
+    private final SoapHandler handler;
+
+    public LoopbackSoapTransport(SoapHandler handler)
+    {
+        this.handler = handler;
+    }
+
+    @Override
+    public TransportResponse send(TransportRequest request) throws IOException
+    {
+        TransportMetrics metrics = request.getMetrics();
+        EnvelopeBuffer envelope = EnvelopeBuffer.borrow();
+        TransportResponse response;
+        try
+        {
+            metrics.start(REQUEST_WRITE);
+            request.writeEnvelope(envelope);
+            metrics.end(REQUEST_WRITE);
+            metrics.setRequestBytes(envelope.size());
+
+            metrics.start(TIME_TO_FIRST_BYTE);
+            response = handler.handle(request.getSoapAction(), envelope.toInputStream(), request.getAttachments());
+            metrics.end(TIME_TO_FIRST_BYTE);
+        }
+        finally
+        {
+            envelope.release();
+        }
+
+        if (!metrics.isEnabled())
+        {
+            return response;
+        }
+
+        CountingInputStream body = new CountingInputStream(response.getBody());
+        metrics.setResponseBytes(body::getByteCount);
+        metrics.setResponseAttachments(() -> response.getAttachments().size());
+        return new TransportResponse(body, response.getAttachments(), () ->
+        {
+            try
+            {
+                response.getBodyRelease().close();
+            }
+            finally
+            {
+                metrics.released();
+            }
+        }, () ->
+        {
+            try
+            {
+                response.close();
+            }
+            finally
+            {
+                metrics.released();
+            }
+        }, response.isFault());
+    }
+
+    @Override
+    public void close()
+    {
+    }
+}
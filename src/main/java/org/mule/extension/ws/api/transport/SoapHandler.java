@@ -0,0 +1,27 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.ws.api.transport;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+
+/**
+ * Local service that answers the requests of a {@link LoopbackSoapTransport}.
+ */
+@FunctionalInterface
+public interface SoapHandler
+{
+
+    /**
+     * @param soapAction  the SOAPAction of the request.
+     * @param envelope    the serialized request envelope, only readable until this method returns.
+     * @param attachments the request attachments.
+     * @return the response envelope and its attachments.
+     */
+    TransportResponse handle(String soapAction, InputStream envelope, List<InputStream> attachments) throws IOException;
+}
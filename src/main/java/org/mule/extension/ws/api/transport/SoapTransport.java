@@ -0,0 +1,49 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.ws.api.transport;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Carries serialized SOAP requests to a service and brings back their responses. The
+ * {@link org.mule.extension.ws.api.SoapProxyClient} builds the envelope and parses the response envelope, a transport
+ * only moves bytes and attachments around.
+ * <p>
+ * Transports are shared by every invocation of a client so they must be thread safe. They are closed together with
+ * the client that uses them.
+ */
+public interface SoapTransport extends Closeable
+{
+
+    /**
+     * Sends the request and waits for its response. The response body must be readable from the returned stream
+     * until it is released, so it doesn't need to be fully received when this method returns.
+     */
+    TransportResponse send(TransportRequest request) throws IOException;
+
+    /**
+     * Non-blocking version of {@link #send(TransportRequest)}. The request readers can only be consumed in the
+     * calling thread, so implementations must serialize the envelope before returning.
+     * <p>
+     * By default the request is sent synchronously and the returned future is already completed.
+     */
+    default CompletableFuture<TransportResponse> sendAsync(TransportRequest request)
+    {
+        CompletableFuture<TransportResponse> result = new CompletableFuture<>();
+        try
+        {
+            result.complete(send(request));
+        }
+        catch (IOException | RuntimeException e)
+        {
+            result.completeExceptionally(e);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.ws.api.transport;
+
+import org.mule.extension.ws.api.metrics.Phase;
+
+import java.util.function.IntSupplier;
+import java.util.function.LongSupplier;
+
+/**
+ * Receives what a {@link SoapTransport} measured on a single request, it feeds the
+ * {@link org.mule.extension.ws.api.metrics.CallMetrics} of the call. Transports can skip the measurements when
+ * {@link #isEnabled()} is {@code false}.
+ */
+public interface TransportMetrics
+{
+
+    boolean isEnabled();
+
+    void start(Phase phase);
+
+    void end(Phase phase);
+
+    void setRequestBytes(long requestBytes);
+
+    /**
+     * @param requestContentBytes the size of the request entity before it was compressed.
+     */
+    void setRequestContentBytes(long requestContentBytes);
+
+    /**
+     * Records a phase the transport measured itself, such as one that is spread over several writes.
+     */
+    void record(Phase phase, long nanos);
+
+    /**
+     * @param responseBytes evaluated when the call is reported.
+     */
+    void setResponseBytes(LongSupplier responseBytes);
+
+    /**
+     * @param responseContentBytes the size of the response entity after it was decompressed, evaluated when the call
+     *                             is reported.
+     */
+    void setResponseContentBytes(LongSupplier responseContentBytes);
+
+    /**
+     * @param responseAttachments evaluated when the call is reported.
+     */
+    void setResponseAttachments(IntSupplier responseAttachments);
+
+    /**
+     * Must be called by the transport once the resources held by the response are released, it can be called more
+     * than once.
+     */
+    void released();
+}
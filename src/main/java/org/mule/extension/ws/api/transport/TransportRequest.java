@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.ws.api.transport;
+
+import static org.mule.extension.ws.internal.mime.XopPackage.XOP_CONTENT_TYPE;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.List;
+
+/**
+ * A SOAP request ready to be sent by a {@link SoapTransport}. The envelope is not serialized until
+ * {@link #writeEnvelope(OutputStream)} is called, and it can only be written once.
+ */
+public class TransportRequest
+{
+
+    private final String address;
+    private final String operation;
+    private final String soapAction;
+    private final String contentType;
+    private final String accept;
+    private final EnvelopeWriter envelope;
+    private final List<InputStream> attachments;
+    private final TransportMetrics metrics;
+
+    public TransportRequest(String address, String operation, String soapAction, String contentType, EnvelopeWriter envelope,
+                            List<InputStream> attachments, TransportMetrics metrics)
+    {
+        this(address, operation, soapAction, contentType, null, envelope, attachments, metrics);
+    }
+
+    public TransportRequest(String address, String operation, String soapAction, String contentType, String accept,
+                            EnvelopeWriter envelope, List<InputStream> attachments, TransportMetrics metrics)
+    {
+        this.address = address;
+        this.operation = operation;
+        this.soapAction = soapAction;
+        this.contentType = contentType;
+        this.accept = accept;
+        this.envelope = envelope;
+        this.attachments = attachments;
+        this.metrics = metrics;
+    }
+
+    /**
+     * @return the endpoint the request is sent to.
+     */
+    public String getAddress()
+    {
+        return address;
+    }
+
+    /**
+     * @return the name of the operation being invoked.
+     */
+    public String getOperation()
+    {
+        return operation;
+    }
+
+    public String getSoapAction()
+    {
+        return soapAction;
+    }
+
+    /**
+     * @return the content type of the envelope, charset included.
+     */
+    public String getContentType()
+    {
+        return contentType;
+    }
+
+    /**
+     * @return the media types the response envelope may be encoded with, {@code null} if only the request one.
+     */
+    public String getAccept()
+    {
+        return accept;
+    }
+
+    /**
+     * @return whether the request is an MTOM/XOP package, which is sent as multipart even when it has no attachments
+     *         as its binary parts are only known once the envelope is written.
+     */
+    public boolean isXopPackage()
+    {
+        return contentType.startsWith(XOP_CONTENT_TYPE);
+    }
+
+    public void writeEnvelope(OutputStream out) throws IOException
+    {
+        envelope.writeTo(out);
+    }
+
+    public List<InputStream> getAttachments()
+    {
+        return attachments;
+    }
+
+    /**
+     * @return where the transport reports what it measured on this request.
+     */
+    public TransportMetrics getMetrics()
+    {
+        return metrics;
+    }
+
+    @FunctionalInterface
+    public interface EnvelopeWriter
+    {
+
+        void writeTo(OutputStream out) throws IOException;
+    }
+}
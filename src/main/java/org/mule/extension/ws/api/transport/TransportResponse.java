@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.ws.api.transport;
+
+import static java.util.Collections.emptyList;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.function.ToIntFunction;
+
+/**
+ * Response of a {@link SoapTransport}: the response envelope stream and its attachments, which may still be being
+ * received from the service while they are read.
+ */
+public class TransportResponse implements Closeable
+{
+
+    private final InputStream body;
+    private final List<InputStream> attachments;
+    private final Closeable bodyRelease;
+    private final Closeable release;
+    private final boolean fault;
+    private final ToIntFunction<String> attachmentIndex;
+
+    public TransportResponse(InputStream body)
+    {
+        this(body, emptyList(), body, body);
+    }
+
+    /**
+     * @param bodyRelease invoked once the body is consumed.
+     * @param release     invoked when the whole response is discarded.
+     */
+    public TransportResponse(InputStream body, List<InputStream> attachments, Closeable bodyRelease, Closeable release)
+    {
+        this(body, attachments, bodyRelease, release, false);
+    }
+
+    /**
+     * @param fault whether the transport signalled that the response is a SOAP Fault.
+     */
+    public TransportResponse(InputStream body, List<InputStream> attachments, Closeable bodyRelease, Closeable release, boolean fault)
+    {
+        this(body, attachments, bodyRelease, release, fault, contentId -> -1);
+    }
+
+    /**
+     * @param attachmentIndex finds the position of an attachment from its Content-ID, -1 if there is none with it.
+     */
+    public TransportResponse(InputStream body, List<InputStream> attachments, Closeable bodyRelease, Closeable release, boolean fault,
+                             ToIntFunction<String> attachmentIndex)
+    {
+        this.body = body;
+        this.attachments = attachments;
+        this.bodyRelease = bodyRelease;
+        this.release = release;
+        this.fault = fault;
+        this.attachmentIndex = attachmentIndex;
+    }
+
+    public InputStream getBody()
+    {
+        return body;
+    }
+
+    public List<InputStream> getAttachments()
+    {
+        return attachments;
+    }
+
+    /**
+     * @return the position among {@link #getAttachments()} of the attachment with the given Content-ID, -1 if there is
+     *         none with it.
+     */
+    public int getAttachmentIndex(String contentId)
+    {
+        return attachmentIndex.applyAsInt(contentId);
+    }
+
+    public Closeable getBodyRelease()
+    {
+        return bodyRelease;
+    }
+
+    /**
+     * @return whether the transport signalled that the response is a SOAP Fault, such as with an HTTP 500 status. It
+     * is only a hint so the response is not read into memory on its way to be parsed, the envelope is what tells if
+     * it is a fault.
+     */
+    public boolean isFault()
+    {
+        return fault;
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        release.close();
+    }
+}
@@ -0,0 +1,231 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.ws.internal;
+
+import static javax.xml.stream.XMLStreamConstants.CHARACTERS;
+import static javax.xml.stream.XMLStreamConstants.COMMENT;
+import static javax.xml.stream.XMLStreamConstants.END_DOCUMENT;
+import static javax.xml.stream.XMLStreamConstants.END_ELEMENT;
+import static javax.xml.stream.XMLStreamConstants.PROCESSING_INSTRUCTION;
+import static javax.xml.stream.XMLStreamConstants.SPACE;
+import static javax.xml.stream.XMLStreamConstants.START_DOCUMENT;
+import static javax.xml.stream.XMLStreamConstants.START_ELEMENT;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.util.StreamReaderDelegate;
+
+/**
+ * {@link XMLStreamReader} that exposes the first child of a {@code soap:Body} as a standalone document while it is
+ * being read from the underlying stream.
+ * <p>
+ * The namespaces declared in the Envelope and Body elements are re-declared in the root element so the content
+ * can be serialized on its own, but for the default namespace when the root is not in it. Once the root element is fully read, or the reader is closed, the {@code release}
+ * callback is invoked so the underlying connection can be reused.
+ */
+public class BodyStreamReader extends StreamReaderDelegate
+{
+
+    private final List<String[]> inheritedNamespaces = new ArrayList<>();
+    private final Closeable release;
+
+    private int event = START_DOCUMENT;
+    private int depth = 0;
+    private boolean released = false;
+
+    /**
+     * @param reader              reader positioned on the first child of the {@code soap:Body}, or on the body
+     *                            {@code END_ELEMENT} if it has no content.
+     * @param inheritedNamespaces namespaces in scope for the body content.
+     * @param release             called once the body content was consumed or discarded.
+     */
+    public BodyStreamReader(XMLStreamReader reader, Map<String, String> inheritedNamespaces, Closeable release)
+    {
+        super(reader);
+        this.release = release;
+        if (reader.getEventType() == START_ELEMENT)
+        {
+            for (Map.Entry<String, String> namespace : inheritedNamespaces.entrySet())
+            {
+                // The default namespace is only kept if the root is in it, an unqualified root must stay unqualified
+                if (namespace.getKey().isEmpty() && !isInDefaultNamespace(reader, namespace.getValue()))
+                {
+                    continue;
+                }
+                if (!isDeclared(reader, namespace.getKey()))
+                {
+                    this.inheritedNamespaces.add(new String[] {namespace.getKey(), namespace.getValue()});
+                }
+            }
+        }
+    }
+
+    @Override
+    public int next() throws XMLStreamException
+    {
+        if (event == END_DOCUMENT)
+        {
+            throw new IllegalStateException("End of the body content reached");
+        }
+
+        if (event == START_DOCUMENT)
+        {
+            event = getParent().getEventType() == START_ELEMENT ? START_ELEMENT : END_DOCUMENT;
+        }
+        else if (event == END_ELEMENT && depth == 0)
+        {
+            event = END_DOCUMENT;
+        }
+        else
+        {
+            event = getParent().next();
+        }
+
+        if (event == START_ELEMENT)
+        {
+            depth++;
+        }
+        else if (event == END_ELEMENT)
+        {
+            depth--;
+        }
+
+        if (event == END_DOCUMENT)
+        {
+            release();
+        }
+        return event;
+    }
+
+    @Override
+    public int nextTag() throws XMLStreamException
+    {
+        int next = next();
+        while ((next == CHARACTERS && isWhiteSpace()) || next == SPACE || next == COMMENT || next == PROCESSING_INSTRUCTION)
+        {
+            next = next();
+        }
+        if (next != START_ELEMENT && next != END_ELEMENT)
+        {
+            throw new XMLStreamException("Expected start or end tag", getLocation());
+        }
+        return next;
+    }
+
+    @Override
+    public String getElementText() throws XMLStreamException
+    {
+        String text = getParent().getElementText();
+        event = END_ELEMENT;
+        depth--;
+        return text;
+    }
+
+    @Override
+    public boolean hasNext() throws XMLStreamException
+    {
+        return event != END_DOCUMENT;
+    }
+
+    @Override
+    public int getEventType()
+    {
+        return event;
+    }
+
+    @Override
+    public boolean isStartElement()
+    {
+        return event == START_ELEMENT;
+    }
+
+    @Override
+    public boolean isEndElement()
+    {
+        return event == END_ELEMENT;
+    }
+
+    @Override
+    public boolean isCharacters()
+    {
+        return event == CHARACTERS;
+    }
+
+    @Override
+    public int getNamespaceCount()
+    {
+        return super.getNamespaceCount() + (isRoot() ? inheritedNamespaces.size() : 0);
+    }
+
+    @Override
+    public String getNamespacePrefix(int index)
+    {
+        int declared = super.getNamespaceCount();
+        return index < declared ? super.getNamespacePrefix(index) : inheritedNamespaces.get(index - declared)[0];
+    }
+
+    @Override
+    public String getNamespaceURI(int index)
+    {
+        int declared = super.getNamespaceCount();
+        return index < declared ? super.getNamespaceURI(index) : inheritedNamespaces.get(index - declared)[1];
+    }
+
+    @Override
+    public void close() throws XMLStreamException
+    {
+        event = END_DOCUMENT;
+        release();
+    }
+
+    private boolean isRoot()
+    {
+        return depth == 1 && event == START_ELEMENT;
+    }
+
+    private void release() throws XMLStreamException
+    {
+        if (!released)
+        {
+            released = true;
+            try
+            {
+                getParent().close();
+                release.close();
+            }
+            catch (IOException e)
+            {
+                throw new XMLStreamException("Could not release the response stream", e);
+            }
+        }
+    }
+
+    private static boolean isInDefaultNamespace(XMLStreamReader reader, String namespace)
+    {
+        String prefix = reader.getPrefix();
+        return (prefix == null || prefix.isEmpty()) && namespace.equals(reader.getNamespaceURI());
+    }
+
+    private static boolean isDeclared(XMLStreamReader reader, String prefix)
+    {
+        for (int i = 0; i < reader.getNamespaceCount(); i++)
+        {
+            String declared = reader.getNamespacePrefix(i);
+            if (prefix.equals(declared == null ? "" : declared))
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.ws.internal;
+
+import org.mule.extension.ws.api.CallResult;
+import org.mule.extension.ws.api.Response;
+import org.mule.extension.ws.api.SoapCall;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Runs the calls of a batch with at most a fixed number of them in flight, and yields their results as they
+ * complete.
+ * <p>
+ * Instead of one task per call, as many workers as the parallelism allows are started and each of them takes the
+ * next pending call once it's done with the previous one, so a large batch never floods the executor.
+ */
+public class CallBatch implements Iterator<CallResult>
+{
+
+    private final List<SoapCall> calls;
+    private final Function<SoapCall, Response> invoker;
+    private final AtomicInteger next = new AtomicInteger();
+    private final BlockingQueue<CallResult> completed = new LinkedBlockingQueue<>();
+    private volatile boolean cancelled = false;
+    private int returned = 0;
+
+    public CallBatch(List<SoapCall> calls, Function<SoapCall, Response> invoker)
+    {
+        this.calls = calls;
+        this.invoker = invoker;
+    }
+
+    public CallBatch start(Executor executor, int parallelism)
+    {
+        if (parallelism <= 0)
+        {
+            throw new IllegalArgumentException("parallelism must be greater than zero but was " + parallelism);
+        }
+        for (int i = Math.min(parallelism, calls.size()); i > 0; i--)
+        {
+            executor.execute(this::work);
+        }
+        return this;
+    }
+
+    private void work()
+    {
+        int index;
+        while (!cancelled && (index = next.getAndIncrement()) < calls.size())
+        {
+            SoapCall call = calls.get(index);
+            CallResult result;
+            try
+            {
+                result = new CallResult(index, call, invoker.apply(call), null);
+            }
+            catch (Throwable t)
+            {
+                result = new CallResult(index, call, null, t);
+            }
+            completed.add(result);
+        }
+    }
+
+    @Override
+    public boolean hasNext()
+    {
+        return returned < calls.size();
+    }
+
+    /**
+     * Waits for the next call to complete. If the waiting thread is interrupted the calls that didn't start yet are
+     * abandoned, each of them yields a result failed with a {@link CancellationException}. Results already available
+     * are returned without waiting, so they can still be taken while the thread is interrupted.
+     */
+    @Override
+    public CallResult next()
+    {
+        if (!hasNext())
+        {
+            throw new NoSuchElementException();
+        }
+        try
+        {
+            CallResult result = completed.poll();
+            if (result == null)
+            {
+                result = completed.take();
+            }
+            returned++;
+            return result;
+        }
+        catch (InterruptedException e)
+        {
+            cancel();
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Interrupted while waiting for the batch to complete");
+        }
+    }
+
+    /**
+     * Stops the workers and completes the calls no worker took, those in flight complete as usual.
+     */
+    private void cancel()
+    {
+        cancelled = true;
+        int index;
+        while ((index = next.getAndIncrement()) < calls.size())
+        {
+            completed.add(new CallResult(index, calls.get(index), null, new CancellationException("Abandoned as the batch was interrupted")));
+        }
+    }
+}
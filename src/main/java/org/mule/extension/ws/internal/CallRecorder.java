@@ -0,0 +1,243 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.ws.internal;
+
+import org.mule.extension.ws.api.metrics.CallMetrics;
+import org.mule.extension.ws.api.metrics.Phase;
+import org.mule.extension.ws.api.metrics.SoapClientMetrics;
+import org.mule.extension.ws.api.transport.TransportMetrics;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntSupplier;
+import java.util.function.LongSupplier;
+
+/**
+ * Gathers the {@link CallMetrics} of a single invocation and reports them once both the response was handed over to
+ * the caller (or a fault was found) and its connection was released, or as soon as the call fails.
+ * <p>
+ * A recorder created for a client without metrics ignores everything so callers don't need to check.
+ */
+public class CallRecorder implements CallMetrics, TransportMetrics
+{
+
+    private static final Phase[] PHASES = Phase.values();
+    private static final int HANDED_OVER = 1;
+    private static final int RELEASED = 2;
+    private static final int DONE = HANDED_OVER | RELEASED;
+    private static final CallRecorder DISABLED = new CallRecorder(null, null);
+
+    private final SoapClientMetrics metrics;
+    private final String operation;
+    private final long[] started = new long[PHASES.length];
+    private final long[] nanos = new long[PHASES.length];
+    private final AtomicInteger arrived = new AtomicInteger();
+
+    private long requestBytes;
+    private LongSupplier responseBytes = () -> 0;
+    private long requestContentBytes = -1;
+    private LongSupplier responseContentBytes;
+    private int requestAttachments;
+    private IntSupplier responseAttachments = () -> 0;
+    private boolean fault;
+    private Throwable failure;
+
+    private CallRecorder(SoapClientMetrics metrics, String operation)
+    {
+        this.metrics = metrics;
+        this.operation = operation;
+        Arrays.fill(nanos, -1);
+    }
+
+    public static CallRecorder create(SoapClientMetrics metrics, String operation)
+    {
+        return metrics == SoapClientMetrics.NONE ? DISABLED : new CallRecorder(metrics, operation);
+    }
+
+    @Override
+    public boolean isEnabled()
+    {
+        return metrics != null;
+    }
+
+    @Override
+    public void start(Phase phase)
+    {
+        if (isEnabled())
+        {
+            started[phase.ordinal()] = System.nanoTime();
+        }
+    }
+
+    @Override
+    public void end(Phase phase)
+    {
+        if (isEnabled() && started[phase.ordinal()] != 0)
+        {
+            nanos[phase.ordinal()] = System.nanoTime() - started[phase.ordinal()];
+        }
+    }
+
+    /**
+     * @return a timestamp to measure a phase whose outcome is not known in advance with {@link #since(Phase, long)}.
+     */
+    public long now()
+    {
+        return isEnabled() ? System.nanoTime() : 0;
+    }
+
+    public void since(Phase phase, long start)
+    {
+        if (isEnabled())
+        {
+            nanos[phase.ordinal()] = System.nanoTime() - start;
+        }
+    }
+
+    @Override
+    public void record(Phase phase, long nanos)
+    {
+        if (isEnabled())
+        {
+            this.nanos[phase.ordinal()] = nanos;
+        }
+    }
+
+    @Override
+    public void setRequestBytes(long requestBytes)
+    {
+        this.requestBytes = requestBytes;
+    }
+
+    @Override
+    public void setRequestContentBytes(long requestContentBytes)
+    {
+        this.requestContentBytes = requestContentBytes;
+    }
+
+    public void setRequestAttachments(int requestAttachments)
+    {
+        this.requestAttachments = requestAttachments;
+    }
+
+    @Override
+    public void setResponseBytes(LongSupplier responseBytes)
+    {
+        this.responseBytes = responseBytes;
+    }
+
+    @Override
+    public void setResponseContentBytes(LongSupplier responseContentBytes)
+    {
+        this.responseContentBytes = responseContentBytes;
+    }
+
+    @Override
+    public void setResponseAttachments(IntSupplier responseAttachments)
+    {
+        this.responseAttachments = responseAttachments;
+    }
+
+    public void fault()
+    {
+        fault = true;
+    }
+
+    /**
+     * The response was handed over to the caller or turned into a fault.
+     */
+    public void handedOver()
+    {
+        arrive(HANDED_OVER);
+    }
+
+    @Override
+    public void released()
+    {
+        arrive(RELEASED);
+    }
+
+    public void failed(Throwable failure)
+    {
+        if (isEnabled())
+        {
+            this.failure = failure;
+            if (arrived.getAndSet(DONE) != DONE)
+            {
+                metrics.onCall(this);
+            }
+        }
+    }
+
+    private void arrive(int event)
+    {
+        if (isEnabled() && arrived.getAndAccumulate(event, (current, added) -> current | added) == (DONE & ~event))
+        {
+            metrics.onCall(this);
+        }
+    }
+
+    @Override
+    public String getOperation()
+    {
+        return operation;
+    }
+
+    @Override
+    public long getPhaseNanos(Phase phase)
+    {
+        return nanos[phase.ordinal()];
+    }
+
+    @Override
+    public long getRequestBytes()
+    {
+        return requestBytes;
+    }
+
+    @Override
+    public long getResponseBytes()
+    {
+        return responseBytes.getAsLong();
+    }
+
+    @Override
+    public long getRequestContentBytes()
+    {
+        return requestContentBytes >= 0 ? requestContentBytes : requestBytes;
+    }
+
+    @Override
+    public long getResponseContentBytes()
+    {
+        return responseContentBytes != null ? responseContentBytes.getAsLong() : getResponseBytes();
+    }
+
+    @Override
+    public int getRequestAttachments()
+    {
+        return requestAttachments;
+    }
+
+    @Override
+    public int getResponseAttachments()
+    {
+        return responseAttachments.getAsInt();
+    }
+
+    @Override
+    public boolean isFault()
+    {
+        return fault;
+    }
+
+    @Override
+    public Throwable getFailure()
+    {
+        return failure;
+    }
+}
@@ -0,0 +1,177 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.ws.internal;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.util.StreamReaderDelegate;
+
+/**
+ * SHA-256 digest of the XML read from a set of readers, computed while they are consumed so the request is not read
+ * twice.
+ * <p>
+ * Only what changes the meaning of the document is digested: elements by namespace and local name, attributes
+ * sorted by name, and text that is not just whitespace. Prefixes, attribute order, comments and whitespace between
+ * elements don't change the digest.
+ */
+public class CanonicalDigest
+{
+
+    private static final byte START_MARK = 1;
+    private static final byte END_MARK = 2;
+    private static final byte TEXT_MARK = 3;
+    private static final byte ATTRIBUTE_MARK = 4;
+    private static final byte READER_MARK = 5;
+
+    private final MessageDigest digest;
+    // Text may be reported in several chunks, it's digested as a whole once the next tag is found
+    private final StringBuilder text = new StringBuilder();
+
+    public CanonicalDigest()
+    {
+        try
+        {
+            digest = MessageDigest.getInstance("SHA-256");
+        }
+        catch (NoSuchAlgorithmException e)
+        {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    public List<XMLStreamReader> wrap(List<XMLStreamReader> readers)
+    {
+        List<XMLStreamReader> wrapped = new ArrayList<>(readers.size());
+        for (XMLStreamReader reader : readers)
+        {
+            wrapped.add(wrap(reader));
+        }
+        return wrapped;
+    }
+
+    /**
+     * @return a reader that digests the events of the given one as they are read.
+     */
+    public XMLStreamReader wrap(XMLStreamReader reader)
+    {
+        DigestingReader digesting = new DigestingReader(reader);
+        flushText();
+        digest.update(READER_MARK);
+        digesting.digestEvent();
+        return digesting;
+    }
+
+    /**
+     * @return the digest of everything read so far, the instance can't be used afterwards.
+     */
+    public byte[] digest()
+    {
+        flushText();
+        return digest.digest();
+    }
+
+    private void flushText()
+    {
+        if (text.length() > 0)
+        {
+            for (int i = 0; i < text.length(); i++)
+            {
+                if (!Character.isWhitespace(text.charAt(i)))
+                {
+                    update(TEXT_MARK, text.toString());
+                    break;
+                }
+            }
+            text.setLength(0);
+        }
+    }
+
+    private void update(byte type, String value)
+    {
+        digest.update(type);
+        if (value != null)
+        {
+            byte[] bytes = value.getBytes(UTF_8);
+            digest.update((byte) (bytes.length >>> 24));
+            digest.update((byte) (bytes.length >>> 16));
+            digest.update((byte) (bytes.length >>> 8));
+            digest.update((byte) bytes.length);
+            digest.update(bytes);
+        }
+    }
+
+    private class DigestingReader extends StreamReaderDelegate
+    {
+
+        DigestingReader(XMLStreamReader reader)
+        {
+            super(reader);
+        }
+
+        @Override
+        public int next() throws XMLStreamException
+        {
+            int event = super.next();
+            digestEvent();
+            return event;
+        }
+
+        @Override
+        public int nextTag() throws XMLStreamException
+        {
+            int event = super.nextTag();
+            digestEvent();
+            return event;
+        }
+
+        void digestEvent()
+        {
+            switch (getEventType())
+            {
+                case XMLStreamConstants.START_ELEMENT:
+                    flushText();
+                    update(START_MARK, getNamespaceURI());
+                    update(START_MARK, getLocalName());
+                    if (getAttributeCount() > 0)
+                    {
+                        TreeMap<String, String> attributes = new TreeMap<>();
+                        for (int i = 0; i < getAttributeCount(); i++)
+                        {
+                            String namespace = getAttributeNamespace(i);
+                            attributes.put((namespace != null ? "{" + namespace + "}" : "") + getAttributeLocalName(i), getAttributeValue(i));
+                        }
+                        attributes.forEach((name, value) ->
+                                           {
+                                               update(ATTRIBUTE_MARK, name);
+                                               update(ATTRIBUTE_MARK, value);
+                                           });
+                    }
+                    break;
+                case XMLStreamConstants.END_ELEMENT:
+                    flushText();
+                    update(END_MARK, null);
+                    break;
+                case XMLStreamConstants.CHARACTERS:
+                case XMLStreamConstants.CDATA:
+                case XMLStreamConstants.SPACE:
+                    text.append(getTextCharacters(), getTextStart(), getTextLength());
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+}
@@ -0,0 +1,214 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.ws.internal;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import org.mule.extension.ws.api.CircuitBreakerConfiguration;
+import org.mule.extension.ws.api.CircuitBreakerStats;
+import org.mule.extension.ws.api.CircuitState;
+
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Circuit breaker of an endpoint, see {@link CircuitState}. The outcome of the most recent calls is kept in a ring,
+ * the circuit opens when the share of failures in it reaches the threshold. Each call is let through with the
+ * generation of the circuit, which changes with the state, so late outcomes of calls let through in an earlier state
+ * are told apart.
+ */
+public class CircuitBreaker
+{
+
+    public static final long REJECTED = -1;
+
+    private final boolean enabled;
+    private final int failureRateThreshold;
+    private final int minCalls;
+    private final long openTime;
+    private final int trialCalls;
+    private final Lock lock = new ReentrantLock();
+    private final boolean[] outcomes;
+    private final LongAdder openings = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private volatile CircuitState state = CircuitState.CLOSED;
+    // Bumped on every change of state, outcomes of calls let through in an earlier one are ignored
+    private volatile long generation = 0;
+    private int next = 0;
+    private int recorded = 0;
+    private int failures = 0;
+    private volatile long openedAt;
+    private volatile int trialsInFlight = 0;
+    private int trialsSucceeded = 0;
+
+    public CircuitBreaker(CircuitBreakerConfiguration configuration)
+    {
+        enabled = configuration.isEnabled();
+        failureRateThreshold = configuration.getFailureRateThreshold();
+        minCalls = configuration.getMinCalls();
+        openTime = MILLISECONDS.toNanos(configuration.getOpenTime());
+        trialCalls = configuration.getTrialCalls();
+        outcomes = new boolean[enabled ? configuration.getWindowSize() : 0];
+    }
+
+    /**
+     * @return whether a call could go through now, without taking a trial.
+     */
+    public boolean isAllowing(long now)
+    {
+        CircuitState current = state;
+        return current == CircuitState.CLOSED || (current == CircuitState.OPEN ? now - openedAt >= openTime : trialsInFlight < trialCalls);
+    }
+
+    /**
+     * @return the generation of the circuit the call goes through in, to be given back along with its outcome, or
+     *         {@link #REJECTED} if it can't go through. When half-open the call takes one of the trials.
+     */
+    public long tryAcquire(long now)
+    {
+        // The generation is read before the state as transitions update it after the state
+        long current = generation;
+        if (state == CircuitState.CLOSED)
+        {
+            return current;
+        }
+        lock.lock();
+        try
+        {
+            if (state == CircuitState.OPEN && now - openedAt >= openTime)
+            {
+                transition(CircuitState.HALF_OPEN);
+                trialsInFlight = 0;
+                trialsSucceeded = 0;
+            }
+            if (state == CircuitState.CLOSED)
+            {
+                return generation;
+            }
+            if (state == CircuitState.HALF_OPEN && trialsInFlight < trialCalls)
+            {
+                trialsInFlight++;
+                return generation;
+            }
+            return REJECTED;
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    public void rejected()
+    {
+        rejected.increment();
+    }
+
+    /**
+     * Gives back the trial taken by a call that completed without telling whether the endpoint works.
+     *
+     * @param permit the generation the call was let through in.
+     */
+    public void release(long permit)
+    {
+        if (state != CircuitState.HALF_OPEN)
+        {
+            return;
+        }
+        lock.lock();
+        try
+        {
+            if (state == CircuitState.HALF_OPEN && permit == generation && trialsInFlight > 0)
+            {
+                trialsInFlight--;
+            }
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @param permit the generation the call was let through in. Calls let through before the last transition tell
+     *               nothing about the current state: those sent before the circuit opened aren't trials once it is
+     *               half-open, nor do those sent while it was half-open count once it closed again.
+     */
+    public void record(long permit, boolean failed)
+    {
+        if (!enabled)
+        {
+            return;
+        }
+        lock.lock();
+        try
+        {
+            if (permit != generation)
+            {
+                return;
+            }
+            if (state == CircuitState.HALF_OPEN)
+            {
+                if (failed)
+                {
+                    open();
+                }
+                else if (++trialsSucceeded >= trialCalls)
+                {
+                    close();
+                }
+                else
+                {
+                    trialsInFlight--;
+                }
+            }
+            else if (state == CircuitState.CLOSED)
+            {
+                if (recorded == outcomes.length && outcomes[next])
+                {
+                    failures--;
+                }
+                outcomes[next] = failed;
+                next = (next + 1) % outcomes.length;
+                recorded = Math.min(recorded + 1, outcomes.length);
+                if (failed && ++failures * 100 >= failureRateThreshold * recorded && recorded >= minCalls)
+                {
+                    open();
+                }
+            }
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    private void open()
+    {
+        openedAt = System.nanoTime();
+        transition(CircuitState.OPEN);
+        openings.increment();
+    }
+
+    private void close()
+    {
+        transition(CircuitState.CLOSED);
+        next = 0;
+        recorded = 0;
+        failures = 0;
+    }
+
+    private void transition(CircuitState target)
+    {
+        state = target;
+        generation++;
+    }
+
+    public CircuitBreakerStats getStats()
+    {
+        return enabled ? new CircuitBreakerStats(state, openings.sum(), rejected.sum()) : CircuitBreakerStats.EMPTY;
+    }
+}
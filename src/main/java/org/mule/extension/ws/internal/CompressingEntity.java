@@ -0,0 +1,75 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.ws.internal;
+
+import org.mule.extension.ws.api.ContentEncoding;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.entity.HttpEntityWrapper;
+import org.apache.http.message.BasicHeader;
+
+/**
+ * Compresses the wrapped entity while it is written. As the compressed size is not known until then, it is always
+ * sent chunked.
+ */
+public class CompressingEntity extends HttpEntityWrapper
+{
+
+    private final ContentEncoding encoding;
+    private final CompressionListener listener;
+
+    public CompressingEntity(HttpEntity entity, ContentEncoding encoding, CompressionListener listener)
+    {
+        super(entity);
+        this.encoding = encoding;
+        this.listener = listener;
+    }
+
+    @Override
+    public Header getContentEncoding()
+    {
+        return new BasicHeader("Content-Encoding", encoding.getName());
+    }
+
+    @Override
+    public long getContentLength()
+    {
+        return -1;
+    }
+
+    @Override
+    public boolean isChunked()
+    {
+        return true;
+    }
+
+    @Override
+    public void writeTo(OutputStream out) throws IOException
+    {
+        CompressingOutputStream compressing = new CompressingOutputStream(out, encoding);
+        try
+        {
+            wrappedEntity.writeTo(compressing);
+        }
+        finally
+        {
+            compressing.close();
+        }
+        listener.compressed(compressing.getContentBytes(), compressing.getNanos());
+    }
+
+    @FunctionalInterface
+    public interface CompressionListener
+    {
+
+        void compressed(long contentBytes, long nanos);
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.ws.internal;
+
+import org.mule.extension.ws.api.ContentEncoding;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Compresses what is written into it as it goes. It keeps track of the bytes written and of the time spent
+ * compressing them, which leaves out the time spent writing the compressed bytes into the underlying stream.
+ * <p>
+ * Closing it finishes the compressed stream but leaves the underlying one open.
+ */
+public class CompressingOutputStream extends OutputStream
+{
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private final TimedOutputStream sink;
+    private final Deflater deflater;
+    private final DeflaterOutputStream compressor;
+    private long contentBytes;
+    private long nanos;
+    private boolean closed;
+
+    public CompressingOutputStream(OutputStream out, ContentEncoding encoding) throws IOException
+    {
+        sink = new TimedOutputStream(out);
+        if (encoding == ContentEncoding.GZIP)
+        {
+            deflater = null;
+            compressor = new GZIPOutputStream(sink, BUFFER_SIZE);
+        }
+        else
+        {
+            deflater = new Deflater();
+            compressor = new DeflaterOutputStream(sink, deflater, BUFFER_SIZE);
+        }
+    }
+
+    @Override
+    public void write(int b) throws IOException
+    {
+        write(new byte[] {(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException
+    {
+        long start = System.nanoTime();
+        long written = sink.nanos;
+        compressor.write(b, off, len);
+        nanos += System.nanoTime() - start - (sink.nanos - written);
+        contentBytes += len;
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        if (closed)
+        {
+            return;
+        }
+        closed = true;
+        long start = System.nanoTime();
+        long written = sink.nanos;
+        try
+        {
+            compressor.close();
+        }
+        finally
+        {
+            if (deflater != null)
+            {
+                deflater.end();
+            }
+            nanos += System.nanoTime() - start - (sink.nanos - written);
+        }
+    }
+
+    /**
+     * @return the bytes written before they were compressed.
+     */
+    public long getContentBytes()
+    {
+        return contentBytes;
+    }
+
+    /**
+     * @return the nanoseconds spent compressing.
+     */
+    public long getNanos()
+    {
+        return nanos;
+    }
+
+    private static class TimedOutputStream extends FilterOutputStream
+    {
+
+        private long nanos;
+
+        TimedOutputStream(OutputStream out)
+        {
+            super(out);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException
+        {
+            long start = System.nanoTime();
+            out.write(b, off, len);
+            nanos += System.nanoTime() - start;
+        }
+
+        @Override
+        public void close() throws IOException
+        {
+            flush();
+        }
+    }
+}
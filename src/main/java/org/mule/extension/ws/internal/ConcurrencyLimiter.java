@@ -0,0 +1,307 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.ws.internal;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import org.mule.extension.ws.api.ConcurrencyLimitConfiguration;
+import org.mule.extension.ws.api.ConcurrencyLimitStats;
+import org.mule.extension.ws.api.LimitAlgorithm;
+import org.mule.extension.ws.api.exception.ConcurrencyLimitExceededException;
+
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bounds the calls in flight to an endpoint by a limit that adapts to the round-trip latency of the calls, see
+ * {@link LimitAlgorithm}. Each call takes a {@link Permit} before it is sent and completes it once the response
+ * arrives, its latency is then used to update the limit.
+ */
+public class ConcurrencyLimiter
+{
+
+    private static final Permit UNLIMITED = new Permit(null, 0, 0);
+
+    private final String endpoint;
+    private final ConcurrencyLimitConfiguration configuration;
+    private final Lock lock = new ReentrantLock();
+    private final Condition released = lock.newCondition();
+    private final AdaptiveLimit limit;
+    private final LongAdder rejected = new LongAdder();
+    private int inFlight = 0;
+
+    public ConcurrencyLimiter(String endpoint, ConcurrencyLimitConfiguration configuration)
+    {
+        this.endpoint = endpoint;
+        this.configuration = configuration;
+        if (!configuration.isEnabled())
+        {
+            limit = null;
+        }
+        else if (configuration.getAlgorithm() == LimitAlgorithm.AIMD)
+        {
+            limit = new AimdLimit(configuration);
+        }
+        else
+        {
+            limit = new GradientLimit(configuration);
+        }
+    }
+
+    /**
+     * Waits up to the configured time for room within the limit.
+     *
+     * @throws ConcurrencyLimitExceededException if there was none.
+     */
+    public Permit acquire()
+    {
+        return acquire(MILLISECONDS.toNanos(configuration.getMaxWait()));
+    }
+
+    /**
+     * Takes room within the limit without waiting for it, for the callers that must not block such as the async
+     * calls and the timers that retry or hedge them.
+     *
+     * @throws ConcurrencyLimitExceededException if there was none.
+     */
+    public Permit tryAcquire()
+    {
+        return acquire(0);
+    }
+
+    private Permit acquire(long maxWait)
+    {
+        if (limit == null)
+        {
+            return UNLIMITED;
+        }
+        lock.lock();
+        try
+        {
+            long remaining = maxWait;
+            while (inFlight >= limit.get())
+            {
+                if (remaining <= 0)
+                {
+                    throw reject();
+                }
+                try
+                {
+                    remaining = released.awaitNanos(remaining);
+                }
+                catch (InterruptedException e)
+                {
+                    Thread.currentThread().interrupt();
+                    throw reject();
+                }
+            }
+            inFlight++;
+            return new Permit(this, System.nanoTime(), inFlight);
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    public ConcurrencyLimitStats getStats()
+    {
+        if (limit == null)
+        {
+            return ConcurrencyLimitStats.EMPTY;
+        }
+        lock.lock();
+        try
+        {
+            return new ConcurrencyLimitStats(limit.get(), inFlight, rejected.sum());
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    private ConcurrencyLimitExceededException reject()
+    {
+        rejected.increment();
+        return new ConcurrencyLimitExceededException(endpoint, "Concurrency limit of " + limit.get() + " calls reached for " + endpoint);
+    }
+
+    private void complete(long start, int inFlightAtStart, boolean dropped)
+    {
+        long end = System.nanoTime();
+        lock.lock();
+        try
+        {
+            inFlight--;
+            int before = limit.get();
+            limit.update(start, end - start, inFlightAtStart, dropped);
+            if (limit.get() > before)
+            {
+                released.signalAll();
+            }
+            else
+            {
+                released.signal();
+            }
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Room taken by a call, it must be completed exactly once, either with {@link #succeeded()} when the response
+     * arrives or with {@link #dropped()} when the call fails without one.
+     */
+    public static class Permit
+    {
+
+        private final ConcurrencyLimiter limiter;
+        private final long start;
+        private final int inFlight;
+
+        private Permit(ConcurrencyLimiter limiter, long start, int inFlight)
+        {
+            this.limiter = limiter;
+            this.start = start;
+            this.inFlight = inFlight;
+        }
+
+        public void succeeded()
+        {
+            if (limiter != null)
+            {
+                limiter.complete(start, inFlight, false);
+            }
+        }
+
+        public void dropped()
+        {
+            if (limiter != null)
+            {
+                limiter.complete(start, inFlight, true);
+            }
+        }
+    }
+
+    /**
+     * Limit updated with the latency of every completed call, always called holding the lock of the limiter.
+     */
+    private abstract static class AdaptiveLimit
+    {
+
+        protected final int minLimit;
+        protected final int maxLimit;
+        protected double limit;
+
+        AdaptiveLimit(ConcurrencyLimitConfiguration configuration)
+        {
+            minLimit = configuration.getMinLimit();
+            maxLimit = configuration.getMaxLimit();
+            limit = configuration.getInitialLimit();
+        }
+
+        int get()
+        {
+            return (int) limit;
+        }
+
+        void update(long start, long rtt, int inFlight, boolean dropped)
+        {
+            limit = Math.max(minLimit, Math.min(maxLimit, next(start, rtt, inFlight, dropped)));
+        }
+
+        /**
+         * @param start when the call was sent, in {@link System#nanoTime()}.
+         */
+        abstract double next(long start, long rtt, int inFlight, boolean dropped);
+    }
+
+    private static class AimdLimit extends AdaptiveLimit
+    {
+
+        private final long latencyThreshold;
+        private final double backoffRatio;
+
+        AimdLimit(ConcurrencyLimitConfiguration configuration)
+        {
+            super(configuration);
+            latencyThreshold = MILLISECONDS.toNanos(configuration.getLatencyThreshold());
+            backoffRatio = configuration.getBackoffRatio();
+        }
+
+        @Override
+        double next(long start, long rtt, int inFlight, boolean dropped)
+        {
+            if (dropped || rtt > latencyThreshold)
+            {
+                return limit * backoffRatio;
+            }
+            // Only grow when the limit is actually being used, otherwise it would grow unbounded on a light load
+            return inFlight * 2 >= limit ? limit + 1 : limit;
+        }
+    }
+
+    private static class GradientLimit extends AdaptiveLimit
+    {
+
+        // Samples between probes of the latency without load, in case the endpoint got faster or slower
+        private static final int PROBE_INTERVAL = 1000;
+
+        private final double tolerance;
+        private final double smoothing;
+        private long minRtt = Long.MAX_VALUE;
+        private long probeStart = Long.MIN_VALUE;
+        // Probes right away, the latency of the first calls may already be the one of a loaded endpoint
+        private int samples = PROBE_INTERVAL;
+
+        GradientLimit(ConcurrencyLimitConfiguration configuration)
+        {
+            super(configuration);
+            tolerance = configuration.getTolerance();
+            smoothing = configuration.getSmoothing();
+        }
+
+        @Override
+        double next(long start, long rtt, int inFlight, boolean dropped)
+        {
+            if (++samples > PROBE_INTERVAL)
+            {
+                // Shrinks the limit so the calls sent from now on measure the latency of a lightly loaded endpoint
+                samples = 0;
+                minRtt = Long.MAX_VALUE;
+                probeStart = System.nanoTime();
+                return Math.sqrt(limit);
+            }
+            if (start - probeStart < 0)
+            {
+                // Sent before the probe, its latency is the one of the previous limit
+                return limit;
+            }
+            double gradient;
+            if (dropped)
+            {
+                // A failed call tells nothing about the latency, it's taken as the endpoint being overloaded
+                gradient = 0.5;
+            }
+            else
+            {
+                minRtt = Math.min(minRtt, rtt);
+                if (inFlight * 2 < limit)
+                {
+                    return limit;
+                }
+                gradient = Math.max(0.5, Math.min(1.0, tolerance * minRtt / rtt));
+            }
+            double next = limit * gradient + Math.sqrt(limit);
+            return limit * (1 - smoothing) + next * smoothing;
+        }
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.ws.internal;
+
+import org.mule.extension.ws.api.ContentEncoding;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.GZIPInputStream;
+
+import org.apache.http.client.entity.DeflateInputStream;
+
+/**
+ * Decompresses a stream as it is read. It keeps track of the bytes read and of the time spent decompressing them,
+ * which leaves out the time spent waiting for the compressed bytes.
+ * <p>
+ * The compressed stream header is not read until the first read, so creating it never blocks.
+ */
+public class DecompressingInputStream extends InputStream
+{
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private final TimedInputStream source;
+    private final ContentEncoding encoding;
+    private InputStream decompressor;
+    private long contentBytes;
+    private long nanos;
+
+    public DecompressingInputStream(InputStream in, ContentEncoding encoding)
+    {
+        this.source = new TimedInputStream(in);
+        this.encoding = encoding;
+    }
+
+    @Override
+    public int read() throws IOException
+    {
+        byte[] b = new byte[1];
+        int read = read(b, 0, 1);
+        return read == -1 ? -1 : b[0] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException
+    {
+        long start = System.nanoTime();
+        long waited = source.nanos;
+        try
+        {
+            if (decompressor == null)
+            {
+                // Deflate streams may come with or without the zlib wrapper, the http client stream takes both
+                decompressor = encoding == ContentEncoding.GZIP ? new GZIPInputStream(source, BUFFER_SIZE) : new DeflateInputStream(source);
+            }
+            int read = decompressor.read(b, off, len);
+            if (read > 0)
+            {
+                contentBytes += read;
+            }
+            return read;
+        }
+        finally
+        {
+            nanos += System.nanoTime() - start - (source.nanos - waited);
+        }
+    }
+
+    @Override
+    public int available() throws IOException
+    {
+        return decompressor != null ? decompressor.available() : 0;
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        if (decompressor != null)
+        {
+            decompressor.close();
+        }
+        else
+        {
+            source.close();
+        }
+    }
+
+    /**
+     * @return the bytes read after they were decompressed.
+     */
+    public long getContentBytes()
+    {
+        return contentBytes;
+    }
+
+    /**
+     * @return the nanoseconds spent decompressing.
+     */
+    public long getNanos()
+    {
+        return nanos;
+    }
+
+    private static class TimedInputStream extends FilterInputStream
+    {
+
+        private long nanos;
+
+        TimedInputStream(InputStream in)
+        {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException
+        {
+            long start = System.nanoTime();
+            try
+            {
+                return in.read();
+            }
+            finally
+            {
+                nanos += System.nanoTime() - start;
+            }
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException
+        {
+            long start = System.nanoTime();
+            try
+            {
+                return in.read(b, off, len);
+            }
+            finally
+            {
+                nanos += System.nanoTime() - start;
+            }
+        }
+    }
+}
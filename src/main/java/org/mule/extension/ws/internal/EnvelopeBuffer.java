@@ -0,0 +1,136 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.ws.internal;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+
+/**
+ * Growable byte buffer reused by the requests sent from the same thread, so serializing an envelope doesn't allocate
+ * a new array on every call.
+ * <p>
+ * A buffer is taken with {@link #borrow()} and must be given back with {@link #release()} once its content was
+ * written. Buffers that were never released are simply left to the garbage collector.
+ * <p>
+ * Virtual threads are created for a single call, so the buffers they use are kept in a shared pool instead.
+ */
+public class EnvelopeBuffer extends OutputStream
+{
+
+    private static final int INITIAL_SIZE = 8192;
+    private static final int MAX_RETAINED_SIZE = 1024 * 1024;
+    private static final ThreadLocal<EnvelopeBuffer> BUFFERS = new ThreadLocal<>();
+    private static final Queue<EnvelopeBuffer> SHARED_BUFFERS = new ArrayBlockingQueue<>(256);
+
+    private byte[] bytes = new byte[INITIAL_SIZE];
+    private int count;
+
+    private EnvelopeBuffer()
+    {
+    }
+
+    /**
+     * @return the buffer of the current thread, or a new one if it is already in use.
+     */
+    public static EnvelopeBuffer borrow()
+    {
+        if (VirtualThreads.isCurrent())
+        {
+            EnvelopeBuffer buffer = SHARED_BUFFERS.poll();
+            return buffer != null ? buffer : new EnvelopeBuffer();
+        }
+        EnvelopeBuffer buffer = BUFFERS.get();
+        if (buffer == null)
+        {
+            return new EnvelopeBuffer();
+        }
+        BUFFERS.set(null);
+        return buffer;
+    }
+
+    /**
+     * Gives the buffer back to the current thread, or to the shared pool from a virtual thread. Buffers that grew too large are discarded instead of being retained.
+     */
+    public void release()
+    {
+        count = 0;
+        if (bytes.length > MAX_RETAINED_SIZE)
+        {
+            return;
+        }
+        if (VirtualThreads.isCurrent())
+        {
+            SHARED_BUFFERS.offer(this);
+        }
+        else
+        {
+            BUFFERS.set(this);
+        }
+    }
+
+    @Override
+    public void write(int b)
+    {
+        ensureCapacity(count + 1);
+        bytes[count++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len)
+    {
+        ensureCapacity(count + len);
+        System.arraycopy(b, off, bytes, count, len);
+        count += len;
+    }
+
+    public int size()
+    {
+        return count;
+    }
+
+    public int capacity()
+    {
+        return bytes.length;
+    }
+
+    public void reset()
+    {
+        count = 0;
+    }
+
+    public void writeTo(OutputStream out) throws IOException
+    {
+        out.write(bytes, 0, count);
+    }
+
+    /**
+     * @return a stream over the current content of the buffer, without copying it. It must be consumed before the
+     * buffer is released.
+     */
+    public InputStream toInputStream()
+    {
+        return new ByteArrayInputStream(bytes, 0, count);
+    }
+
+    public byte[] toByteArray()
+    {
+        return Arrays.copyOf(bytes, count);
+    }
+
+    private void ensureCapacity(int capacity)
+    {
+        if (capacity > bytes.length)
+        {
+            bytes = Arrays.copyOf(bytes, Math.max(bytes.length << 1, capacity));
+        }
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.ws.internal;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import org.mule.extension.ws.api.SoapHeaders;
+import org.mule.extension.ws.internal.mime.XopPackage;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
+
+import org.apache.cxf.staxutils.StaxUtils;
+
+/**
+ * Pre-serialized envelope of a single operation. The markup around the headers and the payload is encoded into
+ * UTF-8 bytes once, so each request only serializes its own headers and payload between those byte ranges. The
+ * static headers of the client are part of that markup.
+ */
+public class EnvelopeTemplate
+{
+
+    // Woodstox property, the headers are written as sibling fragments instead of a single document root
+    private static final String VALIDATE_STRUCTURE = "com.ctc.wstx.outputValidateStructure";
+    private static final XMLOutputFactory OUTPUT_FACTORY = createOutputFactory();
+
+    private final String envelopePrefix;
+    private final String envelopeNamespace;
+    private final String bodyNamespace;
+    private final String headerNamespace;
+    private final String encodingStyle;
+    private final SoapHeaders staticHeaders;
+    private final byte[] prefix;
+    private final byte[] middle;
+    private final byte[] suffix;
+
+    EnvelopeTemplate(String envelopePrefix, String envelopeNamespace, String bodyNamespace, String headerNamespace, String encodingStyle,
+                     SoapHeaders staticHeaders)
+    {
+        this.envelopePrefix = envelopePrefix;
+        this.envelopeNamespace = envelopeNamespace;
+        this.bodyNamespace = bodyNamespace;
+        this.headerNamespace = headerNamespace;
+        this.encodingStyle = encodingStyle;
+        this.staticHeaders = staticHeaders;
+        String header = envelopePrefix + ":Header";
+        String body = envelopePrefix + ":Body";
+        byte[] start = ("<?xml version=\"1.0\" encoding=\"UTF-8\"?>"
+                  + "<" + envelopePrefix + ":Envelope"
+                  + " xmlns:" + envelopePrefix + "=\"" + escape(envelopeNamespace) + "\""
+                  + " xmlns:body=\"" + escape(bodyNamespace) + "\""
+                  + " xmlns:header=\"" + escape(headerNamespace) + "\""
+                  + " " + envelopePrefix + ":encodingStyle=\"" + escape(encodingStyle) + "\">"
+                  + "<" + header + ">").getBytes(UTF_8);
+        // The static headers are spliced right after the Header start tag
+        byte[] staticBytes = staticHeaders.getSerialized();
+        prefix = Arrays.copyOf(start, start.length + staticBytes.length);
+        System.arraycopy(staticBytes, 0, prefix, start.length, staticBytes.length);
+        middle = ("</" + header + "><" + body + ">").getBytes(UTF_8);
+        suffix = ("</" + body + "></" + envelopePrefix + ":Envelope>").getBytes(UTF_8);
+    }
+
+    public void write(OutputStream out, List<XMLStreamReader> headers, XMLStreamReader payload) throws XMLStreamException, IOException
+    {
+        write(out, headers, payload, null);
+    }
+
+    /**
+     * @param xop package the binary content of the payload is moved into, {@code null} to write it inlined.
+     */
+    public void write(OutputStream out, List<XMLStreamReader> headers, XMLStreamReader payload, XopPackage xop) throws XMLStreamException, IOException
+    {
+        out.write(prefix);
+        XMLStreamWriter writer = OUTPUT_FACTORY.createXMLStreamWriter(out, UTF_8.name());
+        try
+        {
+            for (XMLStreamReader header : headers)
+            {
+                StaxUtils.copy(header, writer);
+            }
+            writer.flush();
+            out.write(middle);
+            XMLStreamWriter payloadWriter = xop != null ? xop.wrap(writer) : writer;
+            StaxUtils.copy(payload, payloadWriter);
+            payloadWriter.flush();
+        }
+        finally
+        {
+            writer.close();
+        }
+        out.write(suffix);
+    }
+
+    /**
+     * Writes the same envelope encoded as Fast Infoset. The binary encoding can't be spliced from pre-encoded byte
+     * ranges so the whole envelope goes through the writer, static headers included.
+     */
+    public void writeFastInfoset(OutputStream out, List<XMLStreamReader> headers, XMLStreamReader payload) throws XMLStreamException
+    {
+        XMLStreamWriter writer = FastInfoset.createWriter(out);
+        writer.writeStartDocument();
+        writer.writeStartElement(envelopePrefix, "Envelope", envelopeNamespace);
+        writer.writeNamespace(envelopePrefix, envelopeNamespace);
+        writer.writeNamespace("body", bodyNamespace);
+        writer.writeNamespace("header", headerNamespace);
+        writer.writeAttribute(envelopePrefix, envelopeNamespace, "encodingStyle", encodingStyle);
+        writer.writeStartElement(envelopePrefix, "Header", envelopeNamespace);
+        for (byte[] header : staticHeaders.getElements())
+        {
+            XMLStreamReader reader = XmlReaders.createReader(new ByteArrayInputStream(header));
+            try
+            {
+                StaxUtils.copy(reader, writer);
+            }
+            finally
+            {
+                reader.close();
+            }
+        }
+        for (XMLStreamReader header : headers)
+        {
+            StaxUtils.copy(header, writer);
+        }
+        writer.writeEndElement();
+        writer.writeStartElement(envelopePrefix, "Body", envelopeNamespace);
+        StaxUtils.copy(payload, writer);
+        writer.writeEndElement();
+        writer.writeEndElement();
+        writer.writeEndDocument();
+        writer.close();
+    }
+
+    private static XMLOutputFactory createOutputFactory()
+    {
+        XMLOutputFactory factory = XMLOutputFactory.newInstance();
+        if (factory.isPropertySupported(VALIDATE_STRUCTURE))
+        {
+            factory.setProperty(VALIDATE_STRUCTURE, false);
+        }
+        return factory;
+    }
+
+    private static String escape(String value)
+    {
+        return value.replace("&", "&amp;").replace("<", "&lt;").replace("\"", "&quot;");
+    }
+}
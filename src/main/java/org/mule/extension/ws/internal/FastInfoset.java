@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.ws.internal;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PushbackInputStream;
+
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
+
+import com.sun.xml.fastinfoset.stax.StAXDocumentParser;
+import com.sun.xml.fastinfoset.stax.StAXDocumentSerializer;
+
+/**
+ * Fast Infoset (ITU-T X.891) binary encoding of XML documents. A document is told apart from textual XML by its
+ * first two bytes, so the encoding of a response is known without relying on its content type.
+ */
+public class FastInfoset
+{
+
+    // Identification bits followed by the version of the format, a textual document can't start with them
+    private static final int MAGIC_FIRST = 0xE0;
+    private static final int MAGIC_SECOND = 0x00;
+    private static final ThreadLocal<StAXDocumentSerializer> SERIALIZERS = ThreadLocal.withInitial(StAXDocumentSerializer::new);
+
+    private FastInfoset()
+    {
+    }
+
+    /**
+     * @return the given stream wrapped so it can be checked with {@link #isFastInfoset(PushbackInputStream)}.
+     */
+    public static PushbackInputStream sniffable(InputStream in)
+    {
+        return new PushbackInputStream(in, 2);
+    }
+
+    /**
+     * Peeks the first bytes of the stream, they are pushed back so they can still be read afterwards.
+     */
+    public static boolean isFastInfoset(PushbackInputStream in) throws IOException
+    {
+        int first = in.read();
+        if (first == -1)
+        {
+            return false;
+        }
+        int second = in.read();
+        if (second != -1)
+        {
+            in.unread(second);
+        }
+        in.unread(first);
+        return first == MAGIC_FIRST && second == MAGIC_SECOND;
+    }
+
+    public static XMLStreamReader createReader(InputStream in)
+    {
+        return new StAXDocumentParser(in);
+    }
+
+    /**
+     * @return the writer of the current thread, its tables are kept between documents so they don't need to grow
+     * again on every request. It must be closed before writing another document from the same thread.
+     */
+    public static XMLStreamWriter createWriter(OutputStream out)
+    {
+        StAXDocumentSerializer serializer = SERIALIZERS.get();
+        serializer.reset();
+        serializer.setOutputStream(out);
+        return serializer;
+    }
+}
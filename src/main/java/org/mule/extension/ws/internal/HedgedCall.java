@@ -0,0 +1,135 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.ws.internal;
+
+import static org.apache.commons.io.IOUtils.closeQuietly;
+import org.mule.extension.ws.api.transport.TransportResponse;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A request that is sent again if its response takes longer than the hedging delay of its operation. The first
+ * response that arrives completes the call and the other request is cancelled, or released if it arrived as well.
+ * The call only fails when every request that was sent failed.
+ */
+public class HedgedCall
+{
+
+    private final RequestHedging hedging;
+    private final String operation;
+    private final Sender sender;
+    private final CompletableFuture<TransportResponse> result = new CompletableFuture<>();
+    // Requests without a response yet, no hedge is sent once it drops to zero
+    private final AtomicInteger pending = new AtomicInteger(1);
+    private volatile CompletableFuture<TransportResponse> primary;
+    private volatile CompletableFuture<TransportResponse> hedge;
+    private volatile ScheduledFuture<?> timer;
+
+    private HedgedCall(RequestHedging hedging, String operation, Sender sender)
+    {
+        this.hedging = hedging;
+        this.operation = operation;
+        this.sender = sender;
+    }
+
+    public static CompletableFuture<TransportResponse> start(RequestHedging hedging, String operation, Sender sender)
+    {
+        HedgedCall call = new HedgedCall(hedging, operation, sender);
+        long delay = hedging.requested(operation);
+        call.primary = call.send(false);
+        if (delay >= 0 && !call.result.isDone())
+        {
+            call.timer = hedging.schedule(call::hedge, delay);
+        }
+        call.result.whenComplete((response, failure) -> call.finish());
+        return call.result;
+    }
+
+    private CompletableFuture<TransportResponse> send(boolean hedged)
+    {
+        long start = System.nanoTime();
+        CompletableFuture<TransportResponse> sent = sender.send(hedged);
+        sent.whenComplete((response, failure) -> completed(response, failure, hedged, System.nanoTime() - start));
+        return sent;
+    }
+
+    private void hedge()
+    {
+        if (result.isDone() || !hedging.tryHedge())
+        {
+            return;
+        }
+        if (pending.getAndUpdate(requests -> requests > 0 ? requests + 1 : requests) == 0)
+        {
+            // The first request completed meanwhile
+            hedging.refund();
+            return;
+        }
+        hedging.hedgeSent();
+        hedge = send(true);
+        if (result.isDone())
+        {
+            hedge.cancel(true);
+        }
+    }
+
+    private void completed(TransportResponse response, Throwable failure, boolean hedged, long latency)
+    {
+        int left = pending.decrementAndGet();
+        if (failure == null)
+        {
+            hedging.record(operation, latency);
+            if (result.complete(response))
+            {
+                if (hedged)
+                {
+                    hedging.hedgeWon();
+                }
+            }
+            else
+            {
+                // Lost the race, or the call was cancelled meanwhile
+                closeQuietly(response);
+            }
+        }
+        else if (left == 0)
+        {
+            result.completeExceptionally(failure);
+        }
+    }
+
+    private void finish()
+    {
+        if (timer != null)
+        {
+            timer.cancel(false);
+        }
+        // Completed requests ignore the cancellation, so only the one still waiting is aborted
+        cancel(primary);
+        cancel(hedge);
+    }
+
+    private static void cancel(CompletableFuture<TransportResponse> request)
+    {
+        if (request != null)
+        {
+            request.cancel(true);
+        }
+    }
+
+    @FunctionalInterface
+    public interface Sender
+    {
+
+        /**
+         * @param hedged whether it's the hedge of a request that is still waiting for its response.
+         */
+        CompletableFuture<TransportResponse> send(boolean hedged);
+    }
+}
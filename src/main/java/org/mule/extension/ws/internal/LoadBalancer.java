@@ -0,0 +1,536 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.ws.internal;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import org.mule.extension.ws.api.BalancingStrategy;
+import org.mule.extension.ws.api.ClientConfiguration;
+import org.mule.extension.ws.api.ConcurrencyLimitStats;
+import org.mule.extension.ws.api.EndpointStats;
+import org.mule.extension.ws.api.LoadBalancingConfiguration;
+import org.mule.extension.ws.api.exception.CircuitOpenException;
+import org.mule.extension.ws.api.transport.SoapTransport;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * Picks the endpoint each call is sent to among the ones of a service, using the power of two choices on the load
+ * given by the {@link BalancingStrategy}. Each endpoint has its own transport and concurrency limit.
+ * <p>
+ * An endpoint that fails several calls in a row is ejected until its ejection time elapses, then a single call is
+ * sent to it as a probe: if it succeeds the endpoint is back, otherwise it is ejected again for twice as long. When
+ * every endpoint is ejected calls are sent to them anyway, failing them all upfront would help nobody.
+ * <p>
+ * Calls never go to an endpoint whose circuit breaker is open though, they fail fast when every circuit is.
+ */
+public class LoadBalancer implements Closeable
+{
+
+    private static final long NO_PROBE = 0;
+
+    private final List<Endpoint> endpoints = new ArrayList<>();
+    private final BalancingStrategy strategy;
+
+    public LoadBalancer(List<String> addresses, ClientConfiguration configuration, Function<String, SoapTransport> transports)
+    {
+        strategy = configuration.getLoadBalancing().getStrategy();
+        for (String address : addresses)
+        {
+            endpoints.add(new Endpoint(address, transports.apply(address), configuration));
+        }
+    }
+
+    /**
+     * The returned call must be told how it went, see {@link Call}.
+     *
+     * @throws CircuitOpenException if the circuit of every endpoint is open.
+     */
+    public Call choose()
+    {
+        long now = System.nanoTime();
+        if (endpoints.size() == 1)
+        {
+            Endpoint only = endpoints.get(0);
+            long circuit = only.breaker.tryAcquire(now);
+            if (circuit != CircuitBreaker.REJECTED)
+            {
+                return new Call(only, circuit, NO_PROBE);
+            }
+            throw circuitOpen();
+        }
+        List<Endpoint> available = new ArrayList<>(endpoints.size());
+        for (Endpoint endpoint : endpoints)
+        {
+            if (endpoint.isAvailable(now))
+            {
+                available.add(endpoint);
+            }
+        }
+        while (!available.isEmpty())
+        {
+            Endpoint chosen = pickTwo(available, now);
+            Call call = chosen.claim(now);
+            if (call != null)
+            {
+                return call;
+            }
+            // Another call took the probe or the last trial of the circuit meanwhile
+            available.remove(chosen);
+        }
+
+        for (Endpoint endpoint : endpoints)
+        {
+            if (endpoint.breaker.isAllowing(now))
+            {
+                available.add(endpoint);
+            }
+        }
+        while (!available.isEmpty())
+        {
+            Endpoint chosen = pickTwo(available, now);
+            long circuit = chosen.breaker.tryAcquire(now);
+            if (circuit != CircuitBreaker.REJECTED)
+            {
+                return new Call(chosen, circuit, NO_PROBE);
+            }
+            available.remove(chosen);
+        }
+        throw circuitOpen();
+    }
+
+    private CircuitOpenException circuitOpen()
+    {
+        for (Endpoint endpoint : endpoints)
+        {
+            endpoint.breaker.rejected();
+        }
+        String addresses = endpoints.size() == 1 ? endpoints.get(0).address : "every endpoint";
+        return new CircuitOpenException(endpoints.get(0).address, "Circuit breaker open for " + addresses);
+    }
+
+    private Endpoint pickTwo(List<Endpoint> candidates, long now)
+    {
+        int size = candidates.size();
+        if (size == 1)
+        {
+            return candidates.get(0);
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int first = random.nextInt(size);
+        int second = random.nextInt(size - 1);
+        if (second >= first)
+        {
+            second++;
+        }
+        Endpoint a = candidates.get(first);
+        Endpoint b = candidates.get(second);
+        return a.load(strategy, now) <= b.load(strategy, now) ? a : b;
+    }
+
+    /**
+     * @return whether every endpoint negotiated Fast Infoset. Requests are encoded before the endpoint they go to is
+     * chosen, and retried or hedged to others, so they are only encoded with it when any endpoint would accept it.
+     */
+    public boolean isFastInfosetAccepted()
+    {
+        for (Endpoint endpoint : endpoints)
+        {
+            if (!endpoint.isFastInfosetAccepted())
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public List<EndpointStats> getStats()
+    {
+        List<EndpointStats> stats = new ArrayList<>(endpoints.size());
+        for (Endpoint endpoint : endpoints)
+        {
+            stats.add(endpoint.getStats());
+        }
+        return stats;
+    }
+
+    /**
+     * @return the concurrency limits of every endpoint added up.
+     */
+    public ConcurrencyLimitStats getConcurrencyLimitStats()
+    {
+        if (endpoints.size() == 1)
+        {
+            return endpoints.get(0).limiter.getStats();
+        }
+        int limit = 0;
+        int inFlight = 0;
+        long rejected = 0;
+        for (Endpoint endpoint : endpoints)
+        {
+            ConcurrencyLimitStats stats = endpoint.limiter.getStats();
+            limit += stats.getLimit();
+            inFlight += stats.getInFlight();
+            rejected += stats.getRejected();
+        }
+        return new ConcurrencyLimitStats(limit, inFlight, rejected);
+    }
+
+    /**
+     * Closes the transport of every endpoint, once even if they share it.
+     */
+    @Override
+    public void close() throws IOException
+    {
+        Set<SoapTransport> closed = Collections.newSetFromMap(new IdentityHashMap<>());
+        IOException failure = null;
+        for (Endpoint endpoint : endpoints)
+        {
+            if (closed.add(endpoint.transport))
+            {
+                try
+                {
+                    endpoint.transport.close();
+                }
+                catch (IOException e)
+                {
+                    failure = e;
+                }
+            }
+        }
+        if (failure != null)
+        {
+            throw failure;
+        }
+    }
+
+    /**
+     * A call chosen to go to an endpoint. It is either {@link #started()} once it is sent and then completed with
+     * {@link #succeeded(long)}, {@link #failed(long)} or {@link #abandoned()}, or {@link #skipped()} if it is not sent.
+     */
+    public static class Call
+    {
+
+        private final Endpoint endpoint;
+        // Generation of the circuit breaker the call was let through in
+        private final long circuit;
+        // Token of the probe of the ejected endpoint the call is, NO_PROBE if it isn't one
+        private final long probe;
+
+        private Call(Endpoint endpoint, long circuit, long probe)
+        {
+            this.endpoint = endpoint;
+            this.circuit = circuit;
+            this.probe = probe;
+        }
+
+        public Endpoint getEndpoint()
+        {
+            return endpoint;
+        }
+
+        /**
+         * @return the start time of the call, to be given back when it completes.
+         */
+        public long started()
+        {
+            return endpoint.started();
+        }
+
+        public void succeeded(long start)
+        {
+            endpoint.succeeded(start, circuit, probe);
+        }
+
+        public void failed(long start)
+        {
+            endpoint.failed(start, circuit, probe);
+        }
+
+        /**
+         * The call completed without telling whether the endpoint works, because it was cancelled or failed before
+         * reaching it.
+         */
+        public void abandoned()
+        {
+            endpoint.abandoned(circuit, probe);
+        }
+
+        public void skipped()
+        {
+            endpoint.skipped(circuit, probe);
+        }
+    }
+
+    /**
+     * A node of the service, the calls sent to it are tracked through their {@link Call}.
+     */
+    public static class Endpoint
+    {
+
+        private final String address;
+        private final SoapTransport transport;
+        private final ConcurrencyLimiter limiter;
+        private final CircuitBreaker breaker;
+        private final int failuresToEject;
+        private final long ejectionTime;
+        private final long maxEjectionTime;
+        private final double latencyDecay;
+        private final AtomicInteger outstanding = new AtomicInteger();
+        private final LongAdder requests = new LongAdder();
+        private final LongAdder failures = new LongAdder();
+        private final LongAdder ejections = new LongAdder();
+        private final Lock lock = new ReentrantLock();
+        // Peak EWMA of the latency in nanos, along with when it was last updated
+        private double latency = 0;
+        private long lastSample = System.nanoTime();
+        private int consecutiveFailures = 0;
+        private int failedProbes = 0;
+        private volatile boolean ejected = false;
+        private volatile long ejectedUntil;
+        // Token of the probe in flight, NO_PROBE if there is none
+        private volatile long probe = NO_PROBE;
+        private long probes = 0;
+        // Whether the endpoint answered with Fast Infoset, until it rejects a request encoded with it
+        private volatile boolean fastInfosetAccepted = false;
+
+        Endpoint(String address, SoapTransport transport, ClientConfiguration configuration)
+        {
+            LoadBalancingConfiguration loadBalancing = configuration.getLoadBalancing();
+            this.address = address;
+            this.transport = transport;
+            limiter = new ConcurrencyLimiter(address, configuration.getConcurrencyLimit());
+            breaker = new CircuitBreaker(configuration.getCircuitBreaker());
+            failuresToEject = loadBalancing.getFailuresToEject();
+            ejectionTime = MILLISECONDS.toNanos(loadBalancing.getEjectionTime());
+            maxEjectionTime = MILLISECONDS.toNanos(loadBalancing.getMaxEjectionTime());
+            latencyDecay = MILLISECONDS.toNanos(loadBalancing.getLatencyDecay());
+        }
+
+        public String getAddress()
+        {
+            return address;
+        }
+
+        public SoapTransport getTransport()
+        {
+            return transport;
+        }
+
+        public ConcurrencyLimiter getLimiter()
+        {
+            return limiter;
+        }
+
+        public boolean isFastInfosetAccepted()
+        {
+            return fastInfosetAccepted;
+        }
+
+        public void setFastInfosetAccepted(boolean fastInfosetAccepted)
+        {
+            this.fastInfosetAccepted = fastInfosetAccepted;
+        }
+
+        private long started()
+        {
+            outstanding.incrementAndGet();
+            requests.increment();
+            return System.nanoTime();
+        }
+
+        private void succeeded(long start, long circuit, long probe)
+        {
+            long now = System.nanoTime();
+            outstanding.decrementAndGet();
+            breaker.record(circuit, false);
+            lock.lock();
+            try
+            {
+                long rtt = now - start;
+                double weight = Math.exp(-(now - lastSample) / latencyDecay);
+                lastSample = now;
+                latency = rtt > latency ? rtt : latency * weight + rtt * (1 - weight);
+                consecutiveFailures = 0;
+                if (ejected)
+                {
+                    ejected = false;
+                    this.probe = NO_PROBE;
+                    failedProbes = 0;
+                }
+            }
+            finally
+            {
+                lock.unlock();
+            }
+        }
+
+        private void failed(long start, long circuit, long probe)
+        {
+            long now = System.nanoTime();
+            outstanding.decrementAndGet();
+            failures.increment();
+            breaker.record(circuit, true);
+            lock.lock();
+            try
+            {
+                if (ejected)
+                {
+                    // Calls sent before the ejection don't extend it, only the probe does
+                    if (probe != NO_PROBE && probe == this.probe)
+                    {
+                        failedProbes++;
+                        eject(now);
+                    }
+                }
+                else if (++consecutiveFailures >= failuresToEject)
+                {
+                    eject(now);
+                }
+            }
+            finally
+            {
+                lock.unlock();
+            }
+        }
+
+        private void abandoned(long circuit, long probe)
+        {
+            outstanding.decrementAndGet();
+            skipped(circuit, probe);
+        }
+
+        private void skipped(long circuit, long probe)
+        {
+            if (probe != NO_PROBE)
+            {
+                giveUpProbe(probe);
+            }
+            breaker.release(circuit);
+        }
+
+        /**
+         * Lets another call probe the endpoint, unless the given probe is not the one in flight anymore.
+         */
+        private void giveUpProbe(long probe)
+        {
+            lock.lock();
+            try
+            {
+                if (this.probe == probe)
+                {
+                    this.probe = NO_PROBE;
+                }
+            }
+            finally
+            {
+                lock.unlock();
+            }
+        }
+
+        private void eject(long now)
+        {
+            long time = failedProbes < 32 ? ejectionTime << failedProbes : maxEjectionTime;
+            ejectedUntil = now + (time > 0 ? Math.min(time, maxEjectionTime) : maxEjectionTime);
+            consecutiveFailures = 0;
+            probe = NO_PROBE;
+            ejected = true;
+            ejections.increment();
+        }
+
+        boolean isAvailable(long now)
+        {
+            return (!ejected || (now - ejectedUntil >= 0 && probe == NO_PROBE)) && breaker.isAllowing(now);
+        }
+
+        /**
+         * @return the call let through to the endpoint, or {@code null} if it can't be sent to it. When it's ejected
+         * only the first call after the ejection time can, as a probe. It takes a trial of the circuit breaker when
+         * half-open.
+         */
+        Call claim(long now)
+        {
+            long token = NO_PROBE;
+            if (ejected)
+            {
+                lock.lock();
+                try
+                {
+                    if (ejected)
+                    {
+                        if (probe != NO_PROBE || now - ejectedUntil < 0)
+                        {
+                            return null;
+                        }
+                        token = ++probes;
+                        probe = token;
+                    }
+                }
+                finally
+                {
+                    lock.unlock();
+                }
+            }
+            long circuit = breaker.tryAcquire(now);
+            if (circuit == CircuitBreaker.REJECTED)
+            {
+                if (token != NO_PROBE)
+                {
+                    giveUpProbe(token);
+                }
+                return null;
+            }
+            return new Call(this, circuit, token);
+        }
+
+        double load(BalancingStrategy strategy, long now)
+        {
+            int pending = outstanding.get();
+            if (strategy == BalancingStrategy.LEAST_OUTSTANDING)
+            {
+                return pending;
+            }
+            return decayedLatency(now) * (pending + 1);
+        }
+
+        /**
+         * The latency keeps decaying while no calls complete, so an endpoint that was slow gets calls again after a
+         * while and its latency is measured anew.
+         */
+        private double decayedLatency(long now)
+        {
+            lock.lock();
+            try
+            {
+                return latency * Math.exp(-Math.max(0, now - lastSample) / latencyDecay);
+            }
+            finally
+            {
+                lock.unlock();
+            }
+        }
+
+        EndpointStats getStats()
+        {
+            double millis = decayedLatency(System.nanoTime()) / NANOSECONDS.convert(1, MILLISECONDS);
+            return new EndpointStats(address, requests.sum(), failures.sum(), outstanding.get(), millis, ejected, ejections.sum(), limiter.getStats(),
+                                     breaker.getStats());
+        }
+    }
+}
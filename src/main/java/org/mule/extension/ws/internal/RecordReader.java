@@ -0,0 +1,133 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.ws.internal;
+
+import static javax.xml.stream.XMLStreamConstants.END_DOCUMENT;
+import static javax.xml.stream.XMLStreamConstants.END_ELEMENT;
+import static javax.xml.stream.XMLStreamConstants.START_ELEMENT;
+import static org.mule.extension.ws.internal.SoapEnvelopeReader.collectNamespaces;
+import static org.mule.extension.ws.internal.SoapEnvelopeReader.copyElement;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * Splits the result element of a response body into its children, the records, as they are read from the stream.
+ * <p>
+ * Each record is copied into a standalone document that declares the namespaces in scope for it, so only one record
+ * is held in memory at a time no matter how many of them the response has. Once the result element is fully read the
+ * body is closed, which releases the connection.
+ */
+public class RecordReader implements Iterator<byte[]>
+{
+
+    private final XMLStreamReader body;
+    private final Map<String, String> namespaces = new LinkedHashMap<>();
+
+    private boolean started = false;
+    private boolean complete = false;
+    private byte[] next;
+
+    /**
+     * @param body reader over the body content, either on its start or on the start of the result element.
+     */
+    public RecordReader(XMLStreamReader body)
+    {
+        this.body = body;
+    }
+
+    @Override
+    public boolean hasNext()
+    {
+        if (next == null && !complete)
+        {
+            try
+            {
+                next = readNext();
+            }
+            catch (XMLStreamException e)
+            {
+                complete = true;
+                throw new UncheckedIOException(new IOException("Could not read the next record of the response", e));
+            }
+        }
+        return next != null;
+    }
+
+    @Override
+    public byte[] next()
+    {
+        if (!hasNext())
+        {
+            throw new NoSuchElementException();
+        }
+        byte[] record = next;
+        next = null;
+        return record;
+    }
+
+    /**
+     * @return a reader over a record returned by this iterator.
+     */
+    public static XMLStreamReader parse(byte[] record)
+    {
+        try
+        {
+            return XmlReaders.createReader(new ByteArrayInputStream(record));
+        }
+        catch (XMLStreamException e)
+        {
+            throw new UncheckedIOException(new IOException("Could not parse the record", e));
+        }
+    }
+
+    private byte[] readNext() throws XMLStreamException
+    {
+        if (!started)
+        {
+            started = true;
+            int event = body.getEventType();
+            while (event != START_ELEMENT && event != END_DOCUMENT)
+            {
+                event = body.next();
+            }
+            if (event == END_DOCUMENT)
+            {
+                return finish();
+            }
+            collectNamespaces(body, namespaces);
+        }
+
+        while (true)
+        {
+            int event = body.next();
+            if (event == START_ELEMENT)
+            {
+                return copyElement(body, namespaces);
+            }
+            if (event == END_ELEMENT || event == END_DOCUMENT)
+            {
+                return finish();
+            }
+        }
+    }
+
+    private byte[] finish() throws XMLStreamException
+    {
+        complete = true;
+        body.close();
+        return null;
+    }
+}
@@ -0,0 +1,216 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.ws.internal;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import org.mule.extension.ws.api.HedgingConfiguration;
+import org.mule.extension.ws.api.HedgingStats;
+import org.mule.extension.ws.api.metrics.HistogramSnapshot;
+import org.mule.extension.ws.api.metrics.LatencyHistogram;
+
+import java.io.Closeable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Decides when the requests of the hedged operations are sent again. The delay is the configured percentile of the
+ * recent latencies of the operation, and hedges are paid from a budget every request adds a fraction of a hedge to.
+ */
+public class RequestHedging implements Closeable
+{
+
+    // A hedge costs this many tokens and every request adds the budget percentage, bursts are capped to a few hedges
+    private static final long HEDGE_COST = 100;
+    private static final long MAX_TOKENS = 10 * HEDGE_COST;
+
+    private final HedgingConfiguration configuration;
+    private final ConcurrentMap<String, LatencyWindow> latencies = new ConcurrentHashMap<>();
+    private final AtomicLong tokens = new AtomicLong();
+    private final LongAdder sent = new LongAdder();
+    private final LongAdder won = new LongAdder();
+    private final LongAdder throttled = new LongAdder();
+    private final Lock timerLock = new ReentrantLock();
+    private volatile ScheduledThreadPoolExecutor timer;
+
+    public RequestHedging(HedgingConfiguration configuration)
+    {
+        this.configuration = configuration;
+    }
+
+    public boolean isHedged(String operation)
+    {
+        return configuration.getOperations().contains(operation);
+    }
+
+    /**
+     * Adds the share of a hedge the request pays for to the budget.
+     *
+     * @return the nanoseconds after which the request is hedged, or -1 while there are not enough latencies recorded.
+     */
+    public long requested(String operation)
+    {
+        tokens.accumulateAndGet(configuration.getBudgetPercent(), (current, added) -> Math.min(current + added, MAX_TOKENS));
+        return window(operation).getDelay();
+    }
+
+    public void record(String operation, long latency)
+    {
+        window(operation).record(latency);
+    }
+
+    /**
+     * Takes a hedge from the budget.
+     *
+     * @return whether there was one left.
+     */
+    public boolean tryHedge()
+    {
+        long current;
+        do
+        {
+            current = tokens.get();
+            if (current < HEDGE_COST)
+            {
+                throttled.increment();
+                return false;
+            }
+        }
+        while (!tokens.compareAndSet(current, current - HEDGE_COST));
+        return true;
+    }
+
+    /**
+     * Gives back a hedge taken from the budget that wasn't sent after all.
+     */
+    public void refund()
+    {
+        tokens.accumulateAndGet(HEDGE_COST, (current, added) -> Math.min(current + added, MAX_TOKENS));
+    }
+
+    public void hedgeSent()
+    {
+        sent.increment();
+    }
+
+    public void hedgeWon()
+    {
+        won.increment();
+    }
+
+    public ScheduledFuture<?> schedule(Runnable hedge, long delay)
+    {
+        return getTimer().schedule(hedge, delay, NANOSECONDS);
+    }
+
+    public HedgingStats getStats()
+    {
+        return configuration.isEnabled() ? new HedgingStats(sent.sum(), won.sum(), throttled.sum()) : HedgingStats.EMPTY;
+    }
+
+    @Override
+    public void close()
+    {
+        if (timer != null)
+        {
+            timer.shutdownNow();
+        }
+    }
+
+    private LatencyWindow window(String operation)
+    {
+        LatencyWindow window = latencies.get(operation);
+        return window != null ? window : latencies.computeIfAbsent(operation, name -> new LatencyWindow(configuration));
+    }
+
+    private ScheduledThreadPoolExecutor getTimer()
+    {
+        ScheduledThreadPoolExecutor executor = timer;
+        if (executor == null)
+        {
+            timerLock.lock();
+            try
+            {
+                if (timer == null)
+                {
+                    timer = new ScheduledThreadPoolExecutor(1, task ->
+                    {
+                        Thread thread = new Thread(task, "soap-client-hedging");
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+                    // Most hedges are cancelled because the response arrived in time
+                    timer.setRemoveOnCancelPolicy(true);
+                }
+                executor = timer;
+            }
+            finally
+            {
+                timerLock.unlock();
+            }
+        }
+        return executor;
+    }
+
+    /**
+     * Latencies of the last requests of an operation, the histogram is replaced once it holds a window worth of them
+     * so the delay follows the changes of the endpoint. The delay is only computed every few latencies.
+     */
+    private static class LatencyWindow
+    {
+
+        private static final int WINDOW_SIZE = 1000;
+        private static final int UPDATE_INTERVAL = 16;
+
+        private final double percentile;
+        private final int minSamples;
+        private final AtomicLong recorded = new AtomicLong();
+        private volatile LatencyHistogram current = new LatencyHistogram();
+        private volatile HistogramSnapshot previous;
+        private volatile long delay = -1;
+
+        LatencyWindow(HedgingConfiguration configuration)
+        {
+            percentile = configuration.getPercentile();
+            minSamples = configuration.getMinSamples();
+        }
+
+        long getDelay()
+        {
+            return delay;
+        }
+
+        void record(long latency)
+        {
+            current.record(latency);
+            long count = recorded.incrementAndGet();
+            if (count % WINDOW_SIZE == 0)
+            {
+                previous = current.snapshot();
+                current = new LatencyHistogram();
+                delay = previous.getValueAtPercentile(percentile);
+            }
+            else if (count % UPDATE_INTERVAL == 0 || count == minSamples)
+            {
+                HistogramSnapshot snapshot = current.snapshot();
+                if (snapshot.getCount() >= minSamples)
+                {
+                    delay = snapshot.getValueAtPercentile(percentile);
+                }
+                else if (previous != null)
+                {
+                    delay = previous.getValueAtPercentile(percentile);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.ws.internal;
+
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bounds the number of requests in flight without blocking the caller. Requests submitted over the limit are
+ * queued and dispatched, in order, as soon as a running one calls {@link #release()}. Queued requests are dispatched
+ * from a thread of the throttle, {@link #release()} is usually called from an I/O thread that must not send them.
+ */
+public class RequestThrottle
+{
+
+    private final Semaphore permits;
+    private final Queue<PendingRequest> pending = new ConcurrentLinkedQueue<>();
+    private final Lock dispatcherLock = new ReentrantLock();
+    private volatile ExecutorService dispatcher;
+    private volatile boolean closed;
+
+    public RequestThrottle(int maxInFlight)
+    {
+        permits = new Semaphore(maxInFlight);
+    }
+
+    /**
+     * Runs the request now if there is room for it, otherwise queues it. Every dispatched request must call
+     * {@link #release()} exactly once when it completes. The request is skipped if the result is completed, for
+     * instance cancelled, before it is dispatched, and the result is completed exceptionally if dispatching throws.
+     *
+     * @param result future completed by the request.
+     */
+    public void submit(CompletableFuture<?> result, Runnable request)
+    {
+        pending.add(new PendingRequest(result, request));
+        drain();
+    }
+
+    public void release()
+    {
+        permits.release();
+        if (!pending.isEmpty() && !closed)
+        {
+            try
+            {
+                getDispatcher().execute(this::drain);
+            }
+            catch (RejectedExecutionException e)
+            {
+                // Closed meanwhile, the queued requests were cancelled
+            }
+        }
+    }
+
+    public int getQueued()
+    {
+        return pending.size();
+    }
+
+    /**
+     * Cancels the queued requests and stops the dispatching thread.
+     */
+    public void close()
+    {
+        closed = true;
+        for (PendingRequest next = pending.poll(); next != null; next = pending.poll())
+        {
+            next.result.cancel(false);
+        }
+        dispatcherLock.lock();
+        try
+        {
+            if (dispatcher != null)
+            {
+                dispatcher.shutdown();
+            }
+        }
+        finally
+        {
+            dispatcherLock.unlock();
+        }
+    }
+
+    private void drain()
+    {
+        while (!pending.isEmpty() && permits.tryAcquire())
+        {
+            PendingRequest next = pending.poll();
+            if (next == null || next.result.isDone())
+            {
+                permits.release();
+                continue;
+            }
+            try
+            {
+                next.request.run();
+            }
+            catch (RuntimeException | Error e)
+            {
+                // The request never got to call release, so its permit is given back here
+                permits.release();
+                next.result.completeExceptionally(e);
+            }
+        }
+    }
+
+    private ExecutorService getDispatcher()
+    {
+        ExecutorService executor = dispatcher;
+        if (executor == null)
+        {
+            dispatcherLock.lock();
+            try
+            {
+                if (dispatcher == null)
+                {
+                    if (closed)
+                    {
+                        throw new RejectedExecutionException("Throttle closed");
+                    }
+                    dispatcher = Executors.newSingleThreadExecutor(task ->
+                                                                   {
+                                                                       Thread thread = new Thread(task, "soap-client-dispatch");
+                                                                       thread.setDaemon(true);
+                                                                       return thread;
+                                                                   });
+                }
+                executor = dispatcher;
+            }
+            finally
+            {
+                dispatcherLock.unlock();
+            }
+        }
+        return executor;
+    }
+
+    private static class PendingRequest
+    {
+
+        private final CompletableFuture<?> result;
+        private final Runnable request;
+
+        PendingRequest(CompletableFuture<?> result, Runnable request)
+        {
+            this.result = result;
+            this.request = request;
+        }
+    }
+}
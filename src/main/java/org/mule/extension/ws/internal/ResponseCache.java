@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.ws.internal;
+
+import org.mule.extension.ws.api.ResponseCacheConfiguration;
+import org.mule.extension.ws.api.ResponseCacheStats;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+
+/**
+ * Serialized response envelopes of the cacheable operations, keyed by the operation and the {@link CanonicalDigest}
+ * of the request. Entries are bounded by their size in bytes with a W-TinyLFU policy and expire a fixed time after
+ * they were stored.
+ */
+public class ResponseCache
+{
+
+    // Rough footprint of an entry besides the envelope bytes: key, digest array and the cache node
+    private static final int ENTRY_OVERHEAD = 128;
+
+    private final ResponseCacheConfiguration configuration;
+    private final Cache<Key, byte[]> cache;
+
+    public ResponseCache(ResponseCacheConfiguration configuration)
+    {
+        this.configuration = configuration;
+        cache = configuration.isEnabled() ? Caffeine.newBuilder()
+                .maximumWeight(configuration.getMaxBytes())
+                .<Key, byte[]>weigher((key, envelope) -> ENTRY_OVERHEAD + envelope.length)
+                .expireAfterWrite(configuration.getTimeToLive(), TimeUnit.MILLISECONDS)
+                .recordStats()
+                .build() : null;
+    }
+
+    public boolean isCached(String operation)
+    {
+        return cache != null && configuration.getOperations().contains(operation);
+    }
+
+    public Key key(String operation, byte[] requestDigest)
+    {
+        return new Key(operation, requestDigest);
+    }
+
+    /**
+     * @return the envelope of the response to the request, {@code null} if it isn't cached.
+     */
+    public byte[] get(Key key)
+    {
+        return cache.getIfPresent(key);
+    }
+
+    public void put(Key key, byte[] envelope)
+    {
+        cache.put(key, envelope);
+    }
+
+    public void putFault(Key key, byte[] envelope)
+    {
+        if (configuration.isCacheFaults())
+        {
+            cache.put(key, envelope);
+        }
+    }
+
+    public ResponseCacheStats getStats()
+    {
+        if (cache == null)
+        {
+            return ResponseCacheStats.EMPTY;
+        }
+        CacheStats stats = cache.stats();
+        long bytes = cache.policy().eviction().map(eviction -> eviction.weightedSize().orElse(0)).orElse(0L);
+        return new ResponseCacheStats(stats.hitCount(), stats.missCount(), stats.evictionCount(), cache.estimatedSize(), bytes);
+    }
+
+    public static final class Key
+    {
+
+        private final String operation;
+        private final byte[] digest;
+        private final int hash;
+
+        private Key(String operation, byte[] digest)
+        {
+            this.operation = operation;
+            this.digest = digest;
+            this.hash = 31 * operation.hashCode() + Arrays.hashCode(digest);
+        }
+
+        @Override
+        public boolean equals(Object other)
+        {
+            if (this == other)
+            {
+                return true;
+            }
+            if (!(other instanceof Key))
+            {
+                return false;
+            }
+            Key key = (Key) other;
+            return hash == key.hash && operation.equals(key.operation) && Arrays.equals(digest, key.digest);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return hash;
+        }
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.ws.internal;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import org.mule.extension.ws.api.RetryConfiguration;
+import org.mule.extension.ws.api.RetryStats;
+import org.mule.extension.ws.api.exception.SoapTransportException;
+
+import java.io.Closeable;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Decides whether a failed call is sent again and after how long, see {@link RetryConfiguration}. The budget works as
+ * the one of {@link RequestHedging}: every call adds its share of a retry and every retry takes a whole one.
+ */
+public class RetryPolicy implements Closeable
+{
+
+    // A retry costs this many tokens and every call adds the budget percentage, bursts are capped to a few retries
+    private static final long RETRY_COST = 100;
+    private static final long MAX_TOKENS = 10 * RETRY_COST;
+
+    private final RetryConfiguration configuration;
+    private final long initialBackoff;
+    private final long maxBackoff;
+    // Starts full, a new client has no calls to pay for the retries of its first failures yet
+    private final AtomicLong tokens = new AtomicLong(MAX_TOKENS);
+    private final LongAdder retries = new LongAdder();
+    private final LongAdder throttled = new LongAdder();
+    private final Lock timerLock = new ReentrantLock();
+    private volatile ScheduledThreadPoolExecutor timer;
+
+    public RetryPolicy(RetryConfiguration configuration)
+    {
+        this.configuration = configuration;
+        initialBackoff = MILLISECONDS.toNanos(configuration.getInitialBackoff());
+        maxBackoff = MILLISECONDS.toNanos(configuration.getMaxBackoff());
+    }
+
+    public boolean isRetried(String operation)
+    {
+        return configuration.getOperations().contains(operation);
+    }
+
+    /**
+     * Adds the share of a retry the call pays for to the budget.
+     */
+    public void requested()
+    {
+        tokens.accumulateAndGet(configuration.getBudgetPercent(), (current, added) -> Math.min(current + added, MAX_TOKENS));
+    }
+
+    /**
+     * Takes a retry from the budget if the failure is worth retrying and the call has attempts left.
+     *
+     * @param attempt the number of times the call was already sent.
+     * @return the nanoseconds to wait before sending the call again, or -1 if it must not be retried.
+     */
+    public long retry(SoapTransportException failure, int attempt)
+    {
+        if (!failure.isRetryable() || attempt >= configuration.getMaxAttempts())
+        {
+            return -1;
+        }
+        long current;
+        do
+        {
+            current = tokens.get();
+            if (current < RETRY_COST)
+            {
+                throttled.increment();
+                return -1;
+            }
+        }
+        while (!tokens.compareAndSet(current, current - RETRY_COST));
+        retries.increment();
+        return backoff(attempt);
+    }
+
+    /**
+     * Full jitter, a random wait up to a cap that doubles with every attempt, so retries of calls that failed at the
+     * same time don't hit the endpoint at the same time again.
+     */
+    private long backoff(int attempt)
+    {
+        long cap = attempt < 32 ? initialBackoff << (attempt - 1) : maxBackoff;
+        cap = cap > 0 ? Math.min(cap, maxBackoff) : maxBackoff;
+        return ThreadLocalRandom.current().nextLong(cap + 1);
+    }
+
+    public ScheduledFuture<?> schedule(Runnable retry, long delay)
+    {
+        return getTimer().schedule(retry, delay, NANOSECONDS);
+    }
+
+    public RetryStats getStats()
+    {
+        return configuration.isEnabled() ? new RetryStats(retries.sum(), throttled.sum(), (int) (tokens.get() / RETRY_COST)) : RetryStats.EMPTY;
+    }
+
+    @Override
+    public void close()
+    {
+        if (timer != null)
+        {
+            timer.shutdownNow();
+        }
+    }
+
+    private ScheduledThreadPoolExecutor getTimer()
+    {
+        ScheduledThreadPoolExecutor executor = timer;
+        if (executor == null)
+        {
+            timerLock.lock();
+            try
+            {
+                if (timer == null)
+                {
+                    timer = new ScheduledThreadPoolExecutor(1, task ->
+                    {
+                        Thread thread = new Thread(task, "soap-client-retry");
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+                }
+                executor = timer;
+            }
+            finally
+            {
+                timerLock.unlock();
+            }
+        }
+        return executor;
+    }
+}
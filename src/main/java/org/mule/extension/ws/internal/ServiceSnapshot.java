@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.ws.internal;
+
+import org.mule.extension.ws.api.OperationModel;
+import org.mule.extension.ws.api.OperationStyle;
+import org.mule.extension.ws.api.ServiceDefinition;
+import org.mule.extension.ws.api.SoapVersion;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.xml.namespace.QName;
+
+/**
+ * Compact binary form of a {@link ServiceDefinition} and its operation model, so it can be loaded again without
+ * parsing its WSDL.
+ */
+public class ServiceSnapshot
+{
+
+    // "SDEF" followed by the format version, snapshots of another version are rejected
+    private static final int MAGIC = 0x53444546;
+    private static final int FORMAT_VERSION = 1;
+
+    private ServiceSnapshot()
+    {
+    }
+
+    public static void write(ServiceDefinition service, OutputStream out) throws IOException
+    {
+        DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out));
+        data.writeInt(MAGIC);
+        data.writeByte(FORMAT_VERSION);
+        data.writeUTF(service.getBaseEndpoint());
+        data.writeUTF(service.getNamespace());
+        data.writeUTF(service.getServiceName());
+        data.writeUTF(service.getPortName());
+        data.writeByte(service.getVersion().ordinal());
+        data.writeInt(service.getOperations().size());
+        for (OperationModel operation : service.getOperations().values())
+        {
+            data.writeUTF(operation.getName());
+            data.writeUTF(operation.getSoapAction());
+            data.writeByte(operation.getStyle().ordinal());
+            writeQName(data, operation.getInputElement());
+            writeQName(data, operation.getOutputElement());
+        }
+        data.flush();
+    }
+
+    public static ServiceDefinition read(InputStream in) throws IOException
+    {
+        DataInputStream data = new DataInputStream(new BufferedInputStream(in));
+        if (data.readInt() != MAGIC)
+        {
+            throw new IOException("Not a service definition snapshot");
+        }
+        int formatVersion = data.readUnsignedByte();
+        if (formatVersion != FORMAT_VERSION)
+        {
+            throw new IOException("Unsupported service definition snapshot version " + formatVersion);
+        }
+        String baseEndpoint = data.readUTF();
+        String namespace = data.readUTF();
+        String serviceName = data.readUTF();
+        String portName = data.readUTF();
+        SoapVersion version = SoapVersion.values()[data.readUnsignedByte()];
+        int count = data.readInt();
+        List<OperationModel> operations = new ArrayList<>(count);
+        for (int i = 0; i < count; i++)
+        {
+            String name = data.readUTF();
+            String soapAction = data.readUTF();
+            OperationStyle style = OperationStyle.values()[data.readUnsignedByte()];
+            operations.add(new OperationModel(name, soapAction, style, readQName(data), readQName(data)));
+        }
+        return new ServiceDefinition(baseEndpoint, namespace, serviceName, portName, version, operations);
+    }
+
+    private static void writeQName(DataOutputStream data, QName name) throws IOException
+    {
+        data.writeBoolean(name != null);
+        if (name != null)
+        {
+            data.writeUTF(name.getNamespaceURI());
+            data.writeUTF(name.getLocalPart());
+        }
+    }
+
+    private static QName readQName(DataInputStream data) throws IOException
+    {
+        return data.readBoolean() ? new QName(data.readUTF(), data.readUTF()) : null;
+    }
+}
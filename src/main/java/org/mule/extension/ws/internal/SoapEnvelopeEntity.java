@@ -0,0 +1,174 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.ws.internal;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import org.apache.http.entity.AbstractHttpEntity;
+import org.apache.http.entity.ContentProducer;
+
+/**
+ * Entity that serializes a SOAP envelope straight into the connection output stream as UTF-8 bytes, the envelope is
+ * never turned into a {@code String} nor copied into intermediate arrays.
+ * <p>
+ * In chunked mode the envelope is written while it is produced, going through a per-thread {@link EnvelopeBuffer} so
+ * the connection receives a few large writes instead of many small ones. In known-length mode the envelope is
+ * produced into the per-thread buffer the first time its length is requested and that same buffer is then written
+ * to the connection.
+ */
+public class SoapEnvelopeEntity extends AbstractHttpEntity
+{
+
+    private static final int FLUSH_THRESHOLD = 8192;
+
+    private final ContentProducer envelope;
+    private EnvelopeBuffer serialized;
+    private boolean consumed;
+
+    public SoapEnvelopeEntity(ContentProducer envelope, String contentType, boolean chunked)
+    {
+        this.envelope = envelope;
+        setContentType(contentType);
+        setChunked(chunked);
+    }
+
+    @Override
+    public long getContentLength()
+    {
+        if (isChunked())
+        {
+            return -1;
+        }
+        try
+        {
+            return serialize().size();
+        }
+        catch (IOException e)
+        {
+            throw new IllegalStateException("Could not serialize the SOAP envelope", e);
+        }
+    }
+
+    @Override
+    public void writeTo(OutputStream out) throws IOException
+    {
+        if (isChunked())
+        {
+            writeChunked(out);
+        }
+        else
+        {
+            EnvelopeBuffer buffer = serialize();
+            try
+            {
+                buffer.writeTo(out);
+                out.flush();
+            }
+            finally
+            {
+                serialized = null;
+                buffer.release();
+            }
+        }
+    }
+
+    private void writeChunked(OutputStream out) throws IOException
+    {
+        checkNotConsumed();
+        if (out instanceof EnvelopeBuffer)
+        {
+            // Already buffered, no need to buffer twice
+            envelope.writeTo(out);
+            return;
+        }
+
+        EnvelopeBuffer buffer = EnvelopeBuffer.borrow();
+        try
+        {
+            envelope.writeTo(new OutputStream()
+            {
+                @Override
+                public void write(int b) throws IOException
+                {
+                    buffer.write(b);
+                    flushIfFull();
+                }
+
+                @Override
+                public void write(byte[] b, int off, int len) throws IOException
+                {
+                    buffer.write(b, off, len);
+                    flushIfFull();
+                }
+
+                private void flushIfFull() throws IOException
+                {
+                    if (buffer.size() >= FLUSH_THRESHOLD)
+                    {
+                        buffer.writeTo(out);
+                        buffer.reset();
+                    }
+                }
+            });
+            buffer.writeTo(out);
+            out.flush();
+        }
+        finally
+        {
+            buffer.release();
+        }
+    }
+
+    private EnvelopeBuffer serialize() throws IOException
+    {
+        if (serialized == null)
+        {
+            checkNotConsumed();
+            EnvelopeBuffer buffer = EnvelopeBuffer.borrow();
+            try
+            {
+                envelope.writeTo(buffer);
+            }
+            catch (IOException | RuntimeException e)
+            {
+                buffer.release();
+                throw e;
+            }
+            serialized = buffer;
+        }
+        return serialized;
+    }
+
+    private void checkNotConsumed()
+    {
+        if (consumed)
+        {
+            throw new IllegalStateException("The SOAP envelope can only be written once");
+        }
+        consumed = true;
+    }
+
+    @Override
+    public boolean isRepeatable()
+    {
+        return false;
+    }
+
+    @Override
+    public InputStream getContent()
+    {
+        throw new UnsupportedOperationException("SOAP envelope entity is only streamed, use writeTo");
+    }
+
+    @Override
+    public boolean isStreaming()
+    {
+        return !consumed;
+    }
+}
@@ -0,0 +1,317 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.ws.internal;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Collections.emptyMap;
+import static javax.xml.stream.XMLStreamConstants.CDATA;
+import static javax.xml.stream.XMLStreamConstants.CHARACTERS;
+import static javax.xml.stream.XMLStreamConstants.END_ELEMENT;
+import static javax.xml.stream.XMLStreamConstants.SPACE;
+import static javax.xml.stream.XMLStreamConstants.START_ELEMENT;
+import org.mule.extension.ws.api.exception.SoapFaultException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
+
+import org.apache.cxf.staxutils.StaxUtils;
+
+/**
+ * Reads a SOAP response envelope from a stream without building a SAAJ or DOM representation of it.
+ * <p>
+ * The Envelope and Header elements are skipped and the reader is positioned on the first child of the Body. If that
+ * child is a Fault a {@link SoapFaultException} is thrown, otherwise a {@link BodyStreamReader} that keeps reading
+ * from the stream is returned.
+ */
+public class SoapEnvelopeReader
+{
+
+    /**
+     * @param content stream with the response envelope.
+     * @param release called once the body was read, closed, or a fault was found.
+     */
+    public XMLStreamReader read(InputStream content, Closeable release) throws XMLStreamException, IOException
+    {
+        return read(content, release, false);
+    }
+
+    /**
+     * @param fastInfoset whether the envelope is encoded as Fast Infoset instead of textual XML.
+     */
+    public XMLStreamReader read(InputStream content, Closeable release, boolean fastInfoset) throws XMLStreamException, IOException
+    {
+        XMLStreamReader reader = fastInfoset ? FastInfoset.createReader(content) : XmlReaders.createReader(content);
+        boolean handedOver = false;
+        try
+        {
+            Map<String, String> namespaces = new LinkedHashMap<>();
+
+            reader.nextTag();
+            String envelopeNamespace = reader.getNamespaceURI();
+            expect(reader, envelopeNamespace, "Envelope");
+            collectNamespaces(reader, namespaces);
+
+            reader.nextTag();
+            if (isElement(reader, envelopeNamespace, "Header"))
+            {
+                skipElement(reader);
+                reader.nextTag();
+            }
+            expect(reader, envelopeNamespace, "Body");
+            collectNamespaces(reader, namespaces);
+
+            reader.nextTag();
+            if (isElement(reader, envelopeNamespace, "Fault"))
+            {
+                collectNamespaces(reader, namespaces);
+                throw readFault(reader, namespaces);
+            }
+
+            handedOver = true;
+            return new BodyStreamReader(reader, namespaces, release);
+        }
+        finally
+        {
+            if (!handedOver)
+            {
+                reader.close();
+                release.close();
+            }
+        }
+    }
+
+    /**
+     * Only the code, subcode and reason are read, the detail is copied as it is into a byte array so it can be parsed
+     * later if it is ever needed.
+     *
+     * @param namespaces the namespaces declared by the envelope, body and fault, which the detail may be using.
+     */
+    private SoapFaultException readFault(XMLStreamReader reader, Map<String, String> namespaces) throws XMLStreamException
+    {
+        QName code = null;
+        QName subCode = null;
+        String reason = null;
+        byte[] detail = null;
+
+        while (reader.nextTag() == START_ELEMENT)
+        {
+            switch (reader.getLocalName())
+            {
+                // SOAP 1.1
+                case "faultcode":
+                    code = readQName(reader);
+                    break;
+                case "faultstring":
+                    reason = reader.getElementText().trim();
+                    break;
+                case "detail":
+                    detail = copyElement(reader, namespaces);
+                    break;
+                // SOAP 1.2
+                case "Code":
+                    while (reader.nextTag() == START_ELEMENT)
+                    {
+                        if ("Value".equals(reader.getLocalName()))
+                        {
+                            code = readQName(reader);
+                        }
+                        else if ("Subcode".equals(reader.getLocalName()))
+                        {
+                            subCode = readSubCode(reader);
+                        }
+                        else
+                        {
+                            skipElement(reader);
+                        }
+                    }
+                    break;
+                case "Reason":
+                    while (reader.nextTag() == START_ELEMENT)
+                    {
+                        if (reason == null && "Text".equals(reader.getLocalName()))
+                        {
+                            reason = reader.getElementText().trim();
+                        }
+                        else
+                        {
+                            skipElement(reader);
+                        }
+                    }
+                    break;
+                case "Detail":
+                    detail = copyElement(reader, namespaces);
+                    break;
+                default:
+                    skipElement(reader);
+            }
+        }
+
+        return SoapFaultException.withSerializedDetail(code, subCode, reason, detail);
+    }
+
+    private QName readSubCode(XMLStreamReader reader) throws XMLStreamException
+    {
+        QName subCode = null;
+        while (reader.nextTag() == START_ELEMENT)
+        {
+            if (subCode == null && "Value".equals(reader.getLocalName()))
+            {
+                subCode = readQName(reader);
+            }
+            else
+            {
+                skipElement(reader);
+            }
+        }
+        return subCode;
+    }
+
+    /**
+     * Copies the current element into a standalone document, the namespaces declared by its ancestors are declared
+     * on it so prefixed values in its content can still be resolved.
+     */
+    static byte[] copyElement(XMLStreamReader reader, Map<String, String> namespaces) throws XMLStreamException
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(256);
+        XMLStreamWriter writer = StaxUtils.createXMLStreamWriter(out, UTF_8.name());
+        try
+        {
+            Map<String, String> inherited = new LinkedHashMap<>(namespaces);
+            // An unqualified detail must stay out of the default namespace of its ancestors
+            inherited.remove("");
+            writeStartElement(reader, writer, inherited);
+
+            int depth = 1;
+            while (depth > 0)
+            {
+                switch (reader.next())
+                {
+                    case START_ELEMENT:
+                        depth++;
+                        writeStartElement(reader, writer, emptyMap());
+                        break;
+                    case END_ELEMENT:
+                        depth--;
+                        writer.writeEndElement();
+                        break;
+                    case CHARACTERS:
+                    case CDATA:
+                    case SPACE:
+                        writer.writeCharacters(reader.getText());
+                        break;
+                    default:
+                        break;
+                }
+            }
+            writer.flush();
+        }
+        finally
+        {
+            writer.close();
+        }
+        return out.toByteArray();
+    }
+
+    private static void writeStartElement(XMLStreamReader reader, XMLStreamWriter writer, Map<String, String> inherited) throws XMLStreamException
+    {
+        String prefix = reader.getPrefix() != null ? reader.getPrefix() : "";
+        String namespace = reader.getNamespaceURI() != null ? reader.getNamespaceURI() : "";
+        writer.writeStartElement(prefix, reader.getLocalName(), namespace);
+
+        Map<String, String> declared = new LinkedHashMap<>(inherited);
+        collectNamespaces(reader, declared);
+        if (!namespace.isEmpty() && !namespace.equals(writer.getNamespaceContext().getNamespaceURI(prefix)))
+        {
+            declared.putIfAbsent(prefix, namespace);
+        }
+        for (Map.Entry<String, String> entry : declared.entrySet())
+        {
+            if (entry.getKey().isEmpty())
+            {
+                writer.writeDefaultNamespace(entry.getValue());
+            }
+            else
+            {
+                writer.writeNamespace(entry.getKey(), entry.getValue());
+            }
+        }
+
+        for (int i = 0; i < reader.getAttributeCount(); i++)
+        {
+            String attributeNamespace = reader.getAttributeNamespace(i);
+            if (attributeNamespace == null || attributeNamespace.isEmpty())
+            {
+                writer.writeAttribute(reader.getAttributeLocalName(i), reader.getAttributeValue(i));
+            }
+            else
+            {
+                String attributePrefix = reader.getAttributePrefix(i) != null ? reader.getAttributePrefix(i) : "";
+                writer.writeAttribute(attributePrefix, attributeNamespace, reader.getAttributeLocalName(i), reader.getAttributeValue(i));
+            }
+        }
+    }
+
+    private static QName readQName(XMLStreamReader reader) throws XMLStreamException
+    {
+        String value = reader.getElementText().trim();
+        int colon = value.indexOf(':');
+        String prefix = colon > 0 ? value.substring(0, colon) : "";
+        String namespace = reader.getNamespaceContext().getNamespaceURI(prefix);
+        return new QName(namespace != null ? namespace : "", value.substring(colon + 1), prefix);
+    }
+
+    private static void skipElement(XMLStreamReader reader) throws XMLStreamException
+    {
+        int depth = 1;
+        while (depth > 0)
+        {
+            int event = reader.next();
+            if (event == START_ELEMENT)
+            {
+                depth++;
+            }
+            else if (event == END_ELEMENT)
+            {
+                depth--;
+            }
+        }
+    }
+
+    static void collectNamespaces(XMLStreamReader reader, Map<String, String> namespaces)
+    {
+        for (int i = 0; i < reader.getNamespaceCount(); i++)
+        {
+            String prefix = reader.getNamespacePrefix(i);
+            namespaces.put(prefix != null ? prefix : "", reader.getNamespaceURI(i));
+        }
+    }
+
+    private static boolean isElement(XMLStreamReader reader, String namespace, String localName)
+    {
+        return reader.getEventType() == START_ELEMENT
+               && localName.equals(reader.getLocalName())
+               && namespace.equals(reader.getNamespaceURI());
+    }
+
+    private static void expect(XMLStreamReader reader, String namespace, String localName) throws XMLStreamException
+    {
+        if (!isElement(reader, namespace, localName))
+        {
+            String found = reader.getEventType() == END_ELEMENT ? "end of " + reader.getName() : String.valueOf(reader.getName());
+            throw new XMLStreamException("Expected {" + namespace + "}" + localName + " but found " + found, reader.getLocation());
+        }
+    }
+}
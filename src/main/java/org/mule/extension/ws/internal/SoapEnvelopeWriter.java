@@ -0,0 +1,43 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.ws.internal;
+
+import org.mule.extension.ws.api.SoapHeaders;
+import org.mule.extension.ws.api.SoapVersion;
+
+/**
+ * Creates the {@link EnvelopeTemplate}s used to write SOAP envelopes straight into an output stream. The header and
+ * payload readers are copied as StAX events, no intermediate DOM or SAAJ representation of the message is ever built.
+ */
+public class SoapEnvelopeWriter
+{
+
+    private static final String ENVELOPE_PREFIX = "soap";
+    private static final String SOAP_ENCODING_NAMESPACE = "http://schemas.xmlsoap.org/soap/encoding/";
+
+    private final SoapVersion version;
+    private final SoapHeaders staticHeaders;
+
+    public SoapEnvelopeWriter(SoapVersion version)
+    {
+        this(version, SoapHeaders.NONE);
+    }
+
+    /**
+     * @param staticHeaders headers added to every envelope before the ones of each request.
+     */
+    public SoapEnvelopeWriter(SoapVersion version, SoapHeaders staticHeaders)
+    {
+        this.version = version;
+        this.staticHeaders = staticHeaders;
+    }
+
+    public EnvelopeTemplate createTemplate(String bodyNamespace, String headerNamespace)
+    {
+        return new EnvelopeTemplate(ENVELOPE_PREFIX, version.getEnvelopeNamespace(), bodyNamespace, headerNamespace, SOAP_ENCODING_NAMESPACE, staticHeaders);
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.ws.internal;
+
+import static org.mule.extension.ws.api.metrics.Phase.CONNECTION_LEASE;
+import static org.mule.extension.ws.api.metrics.Phase.REQUEST_WRITE;
+import static org.mule.extension.ws.api.metrics.Phase.TIME_TO_FIRST_BYTE;
+import org.mule.extension.ws.api.transport.TransportMetrics;
+
+import java.io.IOException;
+
+import org.apache.http.HttpClientConnection;
+import org.apache.http.HttpException;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpRequestInterceptor;
+import org.apache.http.HttpResponse;
+import org.apache.http.protocol.HttpContext;
+import org.apache.http.protocol.HttpRequestExecutor;
+
+/**
+ * Request executor that times the phases of the calls that carry {@link TransportMetrics} in their context. The lease
+ * of the connection starts with {@link #LEASE_START}, which must run after every other request interceptor, and
+ * ends when the request starts being written.
+ */
+public class TimingRequestExecutor extends HttpRequestExecutor
+{
+
+    public static final String METRICS_ATTRIBUTE = TransportMetrics.class.getName();
+
+    public static final HttpRequestInterceptor LEASE_START = (request, context) ->
+    {
+        TransportMetrics metrics = metrics(context);
+        if (metrics != null)
+        {
+            metrics.start(CONNECTION_LEASE);
+        }
+    };
+
+    @Override
+    protected HttpResponse doSendRequest(HttpRequest request, HttpClientConnection conn, HttpContext context) throws IOException, HttpException
+    {
+        TransportMetrics metrics = metrics(context);
+        if (metrics == null)
+        {
+            return super.doSendRequest(request, conn, context);
+        }
+
+        metrics.end(CONNECTION_LEASE);
+        metrics.start(REQUEST_WRITE);
+        HttpResponse response = super.doSendRequest(request, conn, context);
+        metrics.end(REQUEST_WRITE);
+        metrics.start(TIME_TO_FIRST_BYTE);
+        return response;
+    }
+
+    @Override
+    protected HttpResponse doReceiveResponse(HttpRequest request, HttpClientConnection conn, HttpContext context) throws HttpException, IOException
+    {
+        HttpResponse response = super.doReceiveResponse(request, conn, context);
+        TransportMetrics metrics = metrics(context);
+        if (metrics != null)
+        {
+            metrics.end(TIME_TO_FIRST_BYTE);
+        }
+        return response;
+    }
+
+    private static TransportMetrics metrics(HttpContext context)
+    {
+        return (TransportMetrics) context.getAttribute(METRICS_ATTRIBUTE);
+    }
+}
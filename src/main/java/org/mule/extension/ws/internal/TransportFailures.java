@@ -0,0 +1,61 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.ws.internal;
+
+import org.mule.extension.ws.api.exception.SoapConnectException;
+import org.mule.extension.ws.api.exception.SoapTimeoutException;
+import org.mule.extension.ws.api.exception.SoapTransportException;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.NoRouteToHostException;
+import java.net.SocketTimeoutException;
+import java.net.UnknownHostException;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+
+import javax.xml.stream.XMLStreamException;
+
+import org.apache.http.conn.ConnectTimeoutException;
+
+/**
+ * Turns the failures of a transport into {@link SoapTransportException}s, so callers can tell them apart from the
+ * rest. Transports report them as {@link IOException}s, except for the ones that already throw typed exceptions.
+ */
+public class TransportFailures
+{
+
+    private TransportFailures()
+    {
+    }
+
+    /**
+     * @return the typed exception for the failure, or the same failure if it wasn't caused by the transport, like an
+     * envelope that couldn't be written.
+     */
+    public static Throwable translate(Throwable failure, String endpoint)
+    {
+        while ((failure instanceof CompletionException || failure instanceof ExecutionException) && failure.getCause() != null)
+        {
+            failure = failure.getCause();
+        }
+        if (failure instanceof SoapTransportException || !(failure instanceof IOException) || failure.getCause() instanceof XMLStreamException)
+        {
+            return failure;
+        }
+        if (failure instanceof ConnectException || failure instanceof ConnectTimeoutException
+            || failure instanceof NoRouteToHostException || failure instanceof UnknownHostException)
+        {
+            return new SoapConnectException(endpoint, failure);
+        }
+        if (failure instanceof SocketTimeoutException)
+        {
+            return new SoapTimeoutException(endpoint, failure);
+        }
+        return new SoapTransportException(endpoint, "Call to " + endpoint + " failed: " + failure, failure);
+    }
+}
@@ -0,0 +1,44 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.ws.internal;
+
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Access to virtual threads, which are not available on this Java version. The module is released as a
+ * multi-release JAR and the variant of this class under {@code META-INF/versions/21} is the one that creates them.
+ */
+public class VirtualThreads
+{
+
+    private VirtualThreads()
+    {
+    }
+
+    public static boolean isSupported()
+    {
+        return false;
+    }
+
+    /**
+     * @return whether the current thread is a virtual one.
+     */
+    public static boolean isCurrent()
+    {
+        return false;
+    }
+
+    /**
+     * @return an executor that starts a new virtual thread for each task, named with the given prefix, or nothing when
+     * virtual threads are not supported.
+     */
+    public static Optional<ExecutorService> newThreadPerTaskExecutor(String prefix)
+    {
+        return Optional.empty();
+    }
+}
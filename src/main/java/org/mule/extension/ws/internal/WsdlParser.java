@@ -0,0 +1,265 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.ws.internal;
+
+import org.mule.extension.ws.api.OperationModel;
+import org.mule.extension.ws.api.OperationStyle;
+import org.mule.extension.ws.api.ServiceDefinition;
+import org.mule.extension.ws.api.SoapVersion;
+
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.wsdl.Binding;
+import javax.wsdl.BindingInput;
+import javax.wsdl.BindingOperation;
+import javax.wsdl.BindingOutput;
+import javax.wsdl.Definition;
+import javax.wsdl.Message;
+import javax.wsdl.Part;
+import javax.wsdl.Port;
+import javax.wsdl.Service;
+import javax.wsdl.WSDLException;
+import javax.wsdl.extensions.soap.SOAPAddress;
+import javax.wsdl.extensions.soap.SOAPBinding;
+import javax.wsdl.extensions.soap.SOAPBody;
+import javax.wsdl.extensions.soap.SOAPHeader;
+import javax.wsdl.extensions.soap.SOAPOperation;
+import javax.wsdl.extensions.soap12.SOAP12Address;
+import javax.wsdl.extensions.soap12.SOAP12Binding;
+import javax.wsdl.extensions.soap12.SOAP12Body;
+import javax.wsdl.extensions.soap12.SOAP12Header;
+import javax.wsdl.extensions.soap12.SOAP12Operation;
+import javax.wsdl.factory.WSDLFactory;
+import javax.wsdl.xml.WSDLReader;
+import javax.xml.namespace.QName;
+
+/**
+ * Reads the {@link ServiceDefinition} of a single port out of a WSDL, along with the model of the operations of its
+ * binding. Imported WSDL documents are followed, schemas are not looked into since the body elements are named by
+ * the message parts.
+ */
+public class WsdlParser
+{
+
+    private WsdlParser()
+    {
+    }
+
+    /**
+     * @param serviceName the local name of the service, {@code null} to take the first one.
+     * @param portName    the name of the port, {@code null} to take the first SOAP one of the service.
+     */
+    public static ServiceDefinition parse(URL wsdl, String serviceName, String portName)
+    {
+        Definition definition;
+        try
+        {
+            WSDLReader reader = WSDLFactory.newInstance().newWSDLReader();
+            reader.setFeature("javax.wsdl.verbose", false);
+            reader.setFeature("javax.wsdl.importDocuments", true);
+            definition = reader.readWSDL(wsdl.toString());
+        }
+        catch (WSDLException e)
+        {
+            throw new IllegalArgumentException("Could not read WSDL " + wsdl, e);
+        }
+
+        Service service = findService(definition, serviceName, wsdl);
+        Port port = findPort(service, portName, wsdl);
+        Binding binding = port.getBinding();
+
+        SoapVersion version = SoapVersion.SOAP_11;
+        String address = null;
+        for (Object element : port.getExtensibilityElements())
+        {
+            if (element instanceof SOAPAddress)
+            {
+                address = ((SOAPAddress) element).getLocationURI();
+            }
+            else if (element instanceof SOAP12Address)
+            {
+                address = ((SOAP12Address) element).getLocationURI();
+                version = SoapVersion.SOAP_12;
+            }
+        }
+
+        OperationStyle defaultStyle = OperationStyle.DOCUMENT;
+        for (Object element : binding.getExtensibilityElements())
+        {
+            if (element instanceof SOAPBinding)
+            {
+                defaultStyle = toStyle(((SOAPBinding) element).getStyle(), defaultStyle);
+            }
+            else if (element instanceof SOAP12Binding)
+            {
+                defaultStyle = toStyle(((SOAP12Binding) element).getStyle(), defaultStyle);
+            }
+        }
+
+        List<OperationModel> operations = new ArrayList<>();
+        for (Object bindingOperation : binding.getBindingOperations())
+        {
+            operations.add(toOperation((BindingOperation) bindingOperation, defaultStyle));
+        }
+
+        return new ServiceDefinition(address, definition.getTargetNamespace(), service.getQName().getLocalPart(), port.getName(),
+                                     version, operations);
+    }
+
+    private static Service findService(Definition definition, String serviceName, URL wsdl)
+    {
+        for (Object service : definition.getAllServices().values())
+        {
+            if (serviceName == null || serviceName.equals(((Service) service).getQName().getLocalPart()))
+            {
+                return (Service) service;
+            }
+        }
+        throw new IllegalArgumentException(serviceName == null ? "No service found in WSDL " + wsdl
+                                                               : "Service " + serviceName + " not found in WSDL " + wsdl);
+    }
+
+    private static Port findPort(Service service, String portName, URL wsdl)
+    {
+        if (portName != null)
+        {
+            Port port = service.getPort(portName);
+            if (port == null)
+            {
+                throw new IllegalArgumentException("Port " + portName + " not found in service " + service.getQName().getLocalPart() + " of WSDL " + wsdl);
+            }
+            return port;
+        }
+        for (Object port : ((Map<?, ?>) service.getPorts()).values())
+        {
+            for (Object element : ((Port) port).getExtensibilityElements())
+            {
+                if (element instanceof SOAPAddress || element instanceof SOAP12Address)
+                {
+                    return (Port) port;
+                }
+            }
+        }
+        throw new IllegalArgumentException("No SOAP port found in service " + service.getQName().getLocalPart() + " of WSDL " + wsdl);
+    }
+
+    private static OperationModel toOperation(BindingOperation operation, OperationStyle defaultStyle)
+    {
+        String soapAction = "";
+        OperationStyle style = defaultStyle;
+        for (Object element : operation.getExtensibilityElements())
+        {
+            if (element instanceof SOAPOperation)
+            {
+                soapAction = ((SOAPOperation) element).getSoapActionURI();
+                style = toStyle(((SOAPOperation) element).getStyle(), style);
+            }
+            else if (element instanceof SOAP12Operation)
+            {
+                soapAction = ((SOAP12Operation) element).getSoapActionURI();
+                style = toStyle(((SOAP12Operation) element).getStyle(), style);
+            }
+        }
+
+        String name = operation.getName();
+        BindingInput input = operation.getBindingInput();
+        BindingOutput output = operation.getBindingOutput();
+        QName inputElement = null;
+        QName outputElement = null;
+        if (style == OperationStyle.RPC)
+        {
+            // The parts are wrapped by an element named after the operation, in the namespace given by the body
+            inputElement = new QName(bodyNamespace(input != null ? input.getExtensibilityElements() : null), name);
+            if (output != null)
+            {
+                outputElement = new QName(bodyNamespace(output.getExtensibilityElements()), name + "Response");
+            }
+        }
+        else
+        {
+            if (input != null && operation.getOperation().getInput() != null)
+            {
+                inputElement = firstBodyPart(operation.getOperation().getInput().getMessage(), input.getExtensibilityElements());
+            }
+            if (output != null && operation.getOperation().getOutput() != null)
+            {
+                outputElement = firstBodyPart(operation.getOperation().getOutput().getMessage(), output.getExtensibilityElements());
+            }
+        }
+
+        return new OperationModel(name, soapAction != null ? soapAction : "", style, inputElement, outputElement);
+    }
+
+    private static OperationStyle toStyle(String style, OperationStyle defaultStyle)
+    {
+        return style == null ? defaultStyle : "rpc".equalsIgnoreCase(style) ? OperationStyle.RPC : OperationStyle.DOCUMENT;
+    }
+
+    private static String bodyNamespace(List<?> elements)
+    {
+        if (elements != null)
+        {
+            for (Object element : elements)
+            {
+                if (element instanceof SOAPBody && ((SOAPBody) element).getNamespaceURI() != null)
+                {
+                    return ((SOAPBody) element).getNamespaceURI();
+                }
+                if (element instanceof SOAP12Body && ((SOAP12Body) element).getNamespaceURI() != null)
+                {
+                    return ((SOAP12Body) element).getNamespaceURI();
+                }
+            }
+        }
+        return "";
+    }
+
+    /**
+     * @return the element of the first part that goes in the body, either one of those listed by the body or, when
+     * it lists none, one that is not bound to a header.
+     */
+    private static QName firstBodyPart(Message message, List<?> elements)
+    {
+        List<?> bodyParts = null;
+        Set<String> headerParts = new HashSet<>();
+        for (Object element : elements)
+        {
+            if (element instanceof SOAPBody)
+            {
+                bodyParts = ((SOAPBody) element).getParts();
+            }
+            else if (element instanceof SOAP12Body)
+            {
+                bodyParts = ((SOAP12Body) element).getParts();
+            }
+            else if (element instanceof SOAPHeader && message.getQName().equals(((SOAPHeader) element).getMessage()))
+            {
+                headerParts.add(((SOAPHeader) element).getPart());
+            }
+            else if (element instanceof SOAP12Header && message.getQName().equals(((SOAP12Header) element).getMessage()))
+            {
+                headerParts.add(((SOAP12Header) element).getPart());
+            }
+        }
+
+        for (Object candidate : message.getOrderedParts(null))
+        {
+            Part part = (Part) candidate;
+            boolean inBody = bodyParts != null && !bodyParts.isEmpty() ? bodyParts.contains(part.getName()) : !headerParts.contains(part.getName());
+            if (inBody)
+            {
+                return part.getElementName() != null ? part.getElementName() : new QName(part.getName());
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,42 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.ws.internal;
+
+import java.io.InputStream;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * Readers of textual XML documents. Unlike the ones created through CXF's {@code StaxUtils}, they don't enforce
+ * CXF's limits on the size of the document, such as at most 50000 children per element, so a response is never
+ * rejected for carrying too many records. DTDs are still not supported, so entities can't be expanded.
+ */
+public class XmlReaders
+{
+
+    private static final XMLInputFactory FACTORY = createFactory();
+
+    private XmlReaders()
+    {
+    }
+
+    public static XMLStreamReader createReader(InputStream in) throws XMLStreamException
+    {
+        return FACTORY.createXMLStreamReader(in);
+    }
+
+    private static XMLInputFactory createFactory()
+    {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, true);
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        return factory;
+    }
+}
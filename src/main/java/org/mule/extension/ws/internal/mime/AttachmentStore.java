@@ -0,0 +1,183 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.ws.internal.mime;
+
+import static java.nio.channels.FileChannel.MapMode.READ_ONLY;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+import org.mule.extension.ws.api.AttachmentStorageConfiguration;
+import org.mule.extension.ws.api.transport.TransportResponse;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Stores the attachments of the responses of a client as they are read from the connection, so they can be read as
+ * many times as needed once the connection is released.
+ * <p>
+ * Attachments up to the spill threshold are kept in memory as long as the memory taken by the attachments of all the
+ * responses not closed yet, of every client in the process, stays under the configured cap. The rest are copied into temporary files, which are
+ * memory mapped to be read and deleted when the response is closed.
+ */
+public class AttachmentStore
+{
+
+    private static final String FILE_PREFIX = "soap-attachment-";
+    private static final int CHUNK_SIZE = 8192;
+    private static final long MAX_SEGMENT_SIZE = Integer.MAX_VALUE;
+
+    // Shared by the stores of all the clients, so the cap bounds the memory the process spends on attachments
+    private static final AtomicLong HEAP_BYTES = new AtomicLong();
+
+    private final AttachmentStorageConfiguration configuration;
+
+    public AttachmentStore(AttachmentStorageConfiguration configuration)
+    {
+        this.configuration = configuration;
+    }
+
+    /**
+     * @return the response with its attachments stored as they are requested, they are discarded along with it. The
+     *         response is returned as it is when the storage is disabled.
+     */
+    public TransportResponse store(TransportResponse response)
+    {
+        if (!configuration.isEnabled())
+        {
+            return response;
+        }
+        StoredAttachments attachments = store(response.getAttachments());
+        return new TransportResponse(response.getBody(), attachments, response.getBodyRelease(), () ->
+        {
+            try
+            {
+                attachments.close();
+            }
+            finally
+            {
+                response.close();
+            }
+        }, response.isFault(), response::getAttachmentIndex);
+    }
+
+    public boolean isEnabled()
+    {
+        return configuration.isEnabled();
+    }
+
+    /**
+     * Reads and stores all the attachments right away, those already stored are discarded if any of them fails.
+     */
+    public List<InputStream> storeAll(List<InputStream> attachments) throws IOException
+    {
+        StoredAttachments stored = store(attachments);
+        try
+        {
+            stored.storeAll();
+            return stored;
+        }
+        catch (IOException | RuntimeException e)
+        {
+            stored.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @return the bytes of the stored attachments of all the clients that are kept in memory right now.
+     */
+    public long getHeapBytes()
+    {
+        return HEAP_BYTES.get();
+    }
+
+    private StoredAttachments store(List<InputStream> attachments)
+    {
+        return attachments instanceof StoredAttachments ? (StoredAttachments) attachments : new StoredAttachments(attachments, this);
+    }
+
+    StoredAttachment store(InputStream content) throws IOException
+    {
+        long threshold = configuration.getSpillThreshold();
+        ByteArrayOutputStream head = new ByteArrayOutputStream((int) Math.min(threshold + 1, CHUNK_SIZE));
+        byte[] chunk = new byte[CHUNK_SIZE];
+        int read = 0;
+        while (head.size() <= threshold && (read = content.read(chunk, 0, (int) Math.min(chunk.length, threshold + 1 - head.size()))) != -1)
+        {
+            head.write(chunk, 0, read);
+        }
+
+        if (read == -1 && reserve(head.size()))
+        {
+            return new StoredAttachment(new ByteBuffer[] {ByteBuffer.wrap(head.toByteArray())}, head.size(), null, this);
+        }
+        return spill(head, content, chunk);
+    }
+
+    void release(long bytes)
+    {
+        HEAP_BYTES.addAndGet(-bytes);
+    }
+
+    private boolean reserve(long bytes)
+    {
+        long current;
+        do
+        {
+            current = HEAP_BYTES.get();
+            if (current + bytes > configuration.getMaxHeapBytes())
+            {
+                return false;
+            }
+        }
+        while (!HEAP_BYTES.compareAndSet(current, current + bytes));
+        return true;
+    }
+
+    /**
+     * Copies what was read of the attachment and the rest of it into a temporary file and maps it into memory, in
+     * several segments when it is too big for a single buffer.
+     */
+    private StoredAttachment spill(ByteArrayOutputStream head, InputStream content, byte[] chunk) throws IOException
+    {
+        Path directory = configuration.getDirectory();
+        Path file = directory != null ? Files.createTempFile(directory, FILE_PREFIX, null) : Files.createTempFile(FILE_PREFIX, null);
+        try (FileChannel channel = FileChannel.open(file, READ, WRITE))
+        {
+            OutputStream out = Channels.newOutputStream(channel);
+            head.writeTo(out);
+            int read;
+            while ((read = content.read(chunk)) != -1)
+            {
+                out.write(chunk, 0, read);
+            }
+
+            long size = channel.size();
+            List<ByteBuffer> segments = new ArrayList<>();
+            for (long position = 0; position < size; position += MAX_SEGMENT_SIZE)
+            {
+                segments.add(channel.map(READ_ONLY, position, Math.min(MAX_SEGMENT_SIZE, size - position)));
+            }
+            return new StoredAttachment(segments.toArray(new ByteBuffer[0]), 0, file, this);
+        }
+        catch (IOException | RuntimeException e)
+        {
+            StoredAttachment.delete(file);
+            throw e;
+        }
+    }
+}
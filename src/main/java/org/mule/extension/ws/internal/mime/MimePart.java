@@ -0,0 +1,56 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.ws.internal.mime;
+
+import java.io.InputStream;
+import java.util.Map;
+
+import org.apache.commons.codec.binary.Base64InputStream;
+
+/**
+ * A part of a MIME multipart stream, its content is read straight from the stream it belongs to.
+ */
+public class MimePart
+{
+
+    private final Map<String, String> headers;
+    private final InputStream content;
+
+    MimePart(Map<String, String> headers, InputStream content)
+    {
+        this.headers = headers;
+        this.content = "base64".equalsIgnoreCase(headers.get("Content-Transfer-Encoding")) ? new Base64InputStream(content) : content;
+    }
+
+    public String getHeader(String name)
+    {
+        return headers.get(name);
+    }
+
+    public String getContentType()
+    {
+        return headers.get("Content-Type");
+    }
+
+    /**
+     * @return the Content-ID header without the enclosing angle brackets.
+     */
+    public String getContentId()
+    {
+        String id = headers.get("Content-ID");
+        if (id != null && id.startsWith("<") && id.endsWith(">"))
+        {
+            id = id.substring(1, id.length() - 1);
+        }
+        return id;
+    }
+
+    public InputStream getContent()
+    {
+        return content;
+    }
+}
@@ -0,0 +1,290 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.ws.internal.mime;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * multipart/related content whose parts are discovered lazily as they are requested. The first part is the root
+ * one, the rest are attachments.
+ * <p>
+ * Parts must be read in order to stay streamed from the source, when a part is requested before the previous ones
+ * were consumed, what is left of those is buffered so they can still be read afterwards. Small remainders are kept in
+ * memory, larger ones are copied into temporary files that are deleted when the content is closed, so counting the
+ * attachments of a response before reading them doesn't take its whole size from the heap.
+ */
+public class MultipartContent implements Closeable
+{
+
+    private static final int SPILL_THRESHOLD = 64 * 1024;
+    private static final int CHUNK_SIZE = 8192;
+    private static final String FILE_PREFIX = "soap-part-";
+
+    private final MultipartReader reader;
+    private final List<DeferredPart> parts = new ArrayList<>();
+    private boolean complete = false;
+
+    public MultipartContent(InputStream in, String boundary, Closeable release)
+    {
+        reader = new MultipartReader(in, boundary, release);
+    }
+
+    public InputStream getRoot() throws IOException
+    {
+        DeferredPart root = part(0);
+        if (root == null)
+        {
+            throw new IOException("Multipart content has no parts");
+        }
+        return root;
+    }
+
+    /**
+     * @return a lazy view of the parts that follow the root one. Its size reads every part that is left, prefer
+     * iterating it when the attachments are going to be read anyway.
+     */
+    public List<InputStream> getAttachments()
+    {
+        return new AbstractList<InputStream>()
+        {
+            @Override
+            public InputStream get(int index)
+            {
+                DeferredPart part = index >= 0 ? uncheckedPart(index + 1) : null;
+                if (part == null)
+                {
+                    throw new IndexOutOfBoundsException("Index: " + index);
+                }
+                return part;
+            }
+
+            @Override
+            public int size()
+            {
+                uncheckedPart(Integer.MAX_VALUE);
+                return Math.max(parts.size() - 1, 0);
+            }
+
+            @Override
+            public boolean isEmpty()
+            {
+                return uncheckedPart(1) == null;
+            }
+
+            @Override
+            public Iterator<InputStream> iterator()
+            {
+                return new Iterator<InputStream>()
+                {
+                    private int next = 0;
+
+                    @Override
+                    public boolean hasNext()
+                    {
+                        return uncheckedPart(next + 1) != null;
+                    }
+
+                    @Override
+                    public InputStream next()
+                    {
+                        if (!hasNext())
+                        {
+                            throw new NoSuchElementException();
+                        }
+                        return get(next++);
+                    }
+                };
+            }
+        };
+    }
+
+    /**
+     * Reads as far as the attachment with the given Content-ID, as XOP references do.
+     *
+     * @return the position of the attachment among {@link #getAttachments()}, -1 if there is none with that ID.
+     */
+    public int indexOf(String contentId)
+    {
+        for (int i = 1; uncheckedPart(i) != null; i++)
+        {
+            if (contentId.equals(parts.get(i).contentId))
+            {
+                return i - 1;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return the number of attachments found so far, without reading any further.
+     */
+    public int getAttachmentCount()
+    {
+        return Math.max(parts.size() - 1, 0);
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        try
+        {
+            reader.close();
+        }
+        finally
+        {
+            for (DeferredPart part : parts)
+            {
+                part.discard();
+            }
+        }
+    }
+
+    private DeferredPart uncheckedPart(int index)
+    {
+        try
+        {
+            return part(index);
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private DeferredPart part(int index) throws IOException
+    {
+        while (parts.size() <= index && !complete)
+        {
+            if (!parts.isEmpty())
+            {
+                parts.get(parts.size() - 1).detach();
+            }
+            MimePart next = reader.nextPart();
+            if (next == null)
+            {
+                complete = true;
+            }
+            else
+            {
+                parts.add(new DeferredPart(next.getContent(), next.getContentId()));
+            }
+        }
+        return index < parts.size() ? parts.get(index) : null;
+    }
+
+    /**
+     * Reads a part from the multipart stream until the reader moves past it, from then on it reads whatever was
+     * left of it from a buffer.
+     */
+    private static class DeferredPart extends InputStream
+    {
+
+        private final String contentId;
+        private InputStream delegate;
+        private boolean detached = false;
+        private Path spilled;
+
+        DeferredPart(InputStream delegate, String contentId)
+        {
+            this.delegate = delegate;
+            this.contentId = contentId;
+        }
+
+        void detach() throws IOException
+        {
+            if (!detached)
+            {
+                detached = true;
+                ByteArrayOutputStream head = new ByteArrayOutputStream();
+                byte[] chunk = new byte[CHUNK_SIZE];
+                int read = 0;
+                while (head.size() < SPILL_THRESHOLD && (read = delegate.read(chunk)) != -1)
+                {
+                    head.write(chunk, 0, read);
+                }
+                delegate = read == -1 ? new ByteArrayInputStream(head.toByteArray()) : spill(head, chunk);
+            }
+        }
+
+        /**
+         * Deletes the file the part was spilled into, if any.
+         */
+        void discard()
+        {
+            if (spilled != null)
+            {
+                try
+                {
+                    delegate.close();
+                    Files.deleteIfExists(spilled);
+                }
+                catch (IOException e)
+                {
+                    spilled.toFile().deleteOnExit();
+                }
+            }
+        }
+
+        private InputStream spill(ByteArrayOutputStream head, byte[] chunk) throws IOException
+        {
+            spilled = Files.createTempFile(FILE_PREFIX, null);
+            try (OutputStream out = Files.newOutputStream(spilled))
+            {
+                head.writeTo(out);
+                int read;
+                while ((read = delegate.read(chunk)) != -1)
+                {
+                    out.write(chunk, 0, read);
+                }
+            }
+            catch (IOException | RuntimeException e)
+            {
+                Files.deleteIfExists(spilled);
+                throw e;
+            }
+            return new BufferedInputStream(Files.newInputStream(spilled), CHUNK_SIZE);
+        }
+
+        @Override
+        public int read() throws IOException
+        {
+            return delegate.read();
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException
+        {
+            return delegate.read(b, off, len);
+        }
+
+        @Override
+        public int available() throws IOException
+        {
+            return delegate.available();
+        }
+
+        @Override
+        public void close() throws IOException
+        {
+            delegate.close();
+        }
+    }
+}
@@ -0,0 +1,289 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.ws.internal.mime;
+
+import static java.nio.charset.StandardCharsets.ISO_8859_1;
+import static java.nio.charset.StandardCharsets.US_ASCII;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Incremental parser of a MIME multipart stream. Parts are read one after the other straight from the underlying
+ * stream, looking for the boundary delimiter as the content of each part is consumed, so no part is ever buffered
+ * as a whole.
+ * <p>
+ * Instances are not thread safe.
+ */
+public class MultipartReader implements Closeable
+{
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private final InputStream in;
+    private final byte[] delimiter;
+    private final byte[] buffer;
+    private final Closeable release;
+
+    private int position = 0;
+    private int limit = 0;
+    private boolean eof = false;
+    private boolean finished = false;
+    private PartInputStream current;
+
+    /**
+     * @param in       the multipart content.
+     * @param boundary the boundary parameter of the multipart content type.
+     * @param release  invoked once the closing delimiter is found or this reader is closed.
+     */
+    public MultipartReader(InputStream in, String boundary, Closeable release)
+    {
+        this.in = in;
+        this.release = release;
+        this.delimiter = ("\r\n--" + boundary).getBytes(US_ASCII);
+        this.buffer = new byte[Math.max(BUFFER_SIZE, delimiter.length * 2)];
+
+        // The first delimiter is not preceded by a line break, adding it lets the preamble be read as any other part
+        buffer[limit++] = '\r';
+        buffer[limit++] = '\n';
+        current = new PartInputStream();
+    }
+
+    /**
+     * Moves to the next part, discarding whatever is left of the current one.
+     *
+     * @return the next part or {@code null} if there are no more parts.
+     */
+    public MimePart nextPart() throws IOException
+    {
+        current.close();
+        if (finished)
+        {
+            return null;
+        }
+        Map<String, String> headers = readHeaders();
+        current = new PartInputStream();
+        return new MimePart(headers, current);
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        if (!finished)
+        {
+            finished = true;
+            release.close();
+        }
+    }
+
+    private int readContent(byte[] b, int off, int len) throws IOException
+    {
+        fill(delimiter.length);
+        int found = indexOfDelimiter();
+        if (found == position)
+        {
+            position += delimiter.length;
+            readDelimiterEnd();
+            return -1;
+        }
+
+        int available;
+        if (found != -1)
+        {
+            available = found - position;
+        }
+        else if (eof)
+        {
+            if (position == limit)
+            {
+                throw new EOFException("Multipart stream ended before the closing delimiter");
+            }
+            available = limit - position;
+        }
+        else
+        {
+            // The tail of the buffer could be the beginning of a delimiter
+            available = limit - position - delimiter.length + 1;
+        }
+
+        int read = Math.min(len, available);
+        System.arraycopy(buffer, position, b, off, read);
+        position += read;
+        return read;
+    }
+
+    /**
+     * Consumes what follows a delimiter: {@code --} for the closing one or the line break before the part headers.
+     */
+    private void readDelimiterEnd() throws IOException
+    {
+        fill(2);
+        if (limit - position >= 2 && buffer[position] == '-' && buffer[position + 1] == '-')
+        {
+            position += 2;
+            close();
+            return;
+        }
+        if (readLine() == null)
+        {
+            close();
+        }
+    }
+
+    private Map<String, String> readHeaders() throws IOException
+    {
+        Map<String, String> headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        String name = null;
+        String line;
+        while ((line = readLine()) != null && !line.isEmpty())
+        {
+            if (name != null && (line.charAt(0) == ' ' || line.charAt(0) == '\t'))
+            {
+                headers.put(name, headers.get(name) + " " + line.trim());
+                continue;
+            }
+            int colon = line.indexOf(':');
+            if (colon > 0)
+            {
+                name = line.substring(0, colon).trim();
+                headers.put(name, line.substring(colon + 1).trim());
+            }
+        }
+        return headers;
+    }
+
+    private String readLine() throws IOException
+    {
+        StringBuilder line = new StringBuilder();
+        while (true)
+        {
+            fill(1);
+            if (position == limit)
+            {
+                return line.length() > 0 ? line.toString() : null;
+            }
+            for (int i = position; i < limit; i++)
+            {
+                if (buffer[i] == '\n')
+                {
+                    int end = i > position && buffer[i - 1] == '\r' ? i - 1 : i;
+                    line.append(new String(buffer, position, end - position, ISO_8859_1));
+                    position = i + 1;
+                    return line.toString();
+                }
+            }
+            // Keep a trailing CR in the buffer, it could belong to the line break
+            int end = buffer[limit - 1] == '\r' ? limit - 1 : limit;
+            line.append(new String(buffer, position, end - position, ISO_8859_1));
+            position = end;
+            if (end == limit - 1)
+            {
+                fill(2);
+                if (limit - position < 2)
+                {
+                    position = limit;
+                    return line.toString();
+                }
+            }
+        }
+    }
+
+    private int indexOfDelimiter()
+    {
+        int last = limit - delimiter.length;
+        for (int i = position; i <= last; i++)
+        {
+            int j = 0;
+            while (j < delimiter.length && buffer[i + j] == delimiter[j])
+            {
+                j++;
+            }
+            if (j == delimiter.length)
+            {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Makes sure at least {@code min} bytes are buffered, unless the end of the stream is reached.
+     */
+    private void fill(int min) throws IOException
+    {
+        if (limit - position >= min || eof)
+        {
+            return;
+        }
+        if (position > 0)
+        {
+            System.arraycopy(buffer, position, buffer, 0, limit - position);
+            limit -= position;
+            position = 0;
+        }
+        while (limit < min)
+        {
+            int read = in.read(buffer, limit, buffer.length - limit);
+            if (read == -1)
+            {
+                eof = true;
+                return;
+            }
+            limit += read;
+        }
+    }
+
+    private class PartInputStream extends InputStream
+    {
+
+        private boolean ended = false;
+
+        @Override
+        public int read() throws IOException
+        {
+            byte[] single = new byte[1];
+            int read = read(single, 0, 1);
+            return read == -1 ? -1 : single[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException
+        {
+            if (ended || finished || current != this)
+            {
+                return -1;
+            }
+            if (len == 0)
+            {
+                return 0;
+            }
+            int read = readContent(b, off, len);
+            if (read == -1)
+            {
+                ended = true;
+            }
+            return read;
+        }
+
+        /**
+         * Discards the rest of the part so the reader can move on to the next one.
+         */
+        @Override
+        public void close() throws IOException
+        {
+            byte[] skip = new byte[BUFFER_SIZE];
+            while (read(skip, 0, skip.length) != -1)
+            {
+                // discard
+            }
+        }
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.ws.internal.mime;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.UUID;
+
+import org.apache.http.entity.AbstractHttpEntity;
+import org.apache.http.entity.ContentProducer;
+import org.apache.http.entity.ContentType;
+
+/**
+ * multipart/related entity that streams its parts as it is written: the root part is produced on the fly and each
+ * attachment is copied from its {@link InputStream}, so nothing is buffered. The length is unknown so the entity is
+ * sent chunked.
+ * <p>
+ * The attachment in position {@code i} is identified with the Content-ID {@code attachment-i}.
+ */
+public class MultipartRelatedEntity extends AbstractHttpEntity
+{
+
+    public static final String ROOT_CONTENT_ID = "root.message";
+    private static final String ATTACHMENT_CONTENT_TYPE = "application/octet-stream";
+
+    private final ContentProducer root;
+    private final ContentType rootContentType;
+    private final List<InputStream> attachments;
+    private final String boundary;
+
+    public MultipartRelatedEntity(ContentProducer root, ContentType rootContentType, List<InputStream> attachments)
+    {
+        this.root = root;
+        this.rootContentType = rootContentType;
+        this.attachments = attachments;
+        this.boundary = "uuid:" + UUID.randomUUID();
+        setChunked(true);
+        // An XOP package carries the content type of the envelope as the start-info
+        String startInfo = rootContentType.getParameter("type");
+        setContentType("multipart/related; type=\"" + rootContentType.getMimeType() + "\"; boundary=\"" + boundary
+                       + "\"; start=\"<" + ROOT_CONTENT_ID + ">\"" + (startInfo != null ? "; start-info=\"" + startInfo + "\"" : ""));
+    }
+
+    public static String getAttachmentId(int index)
+    {
+        return "attachment-" + index;
+    }
+
+    @Override
+    public void writeTo(OutputStream out) throws IOException
+    {
+        writePartHeaders(out, rootContentType.toString(), ROOT_CONTENT_ID);
+        root.writeTo(out);
+
+        byte[] buffer = new byte[8192];
+        for (int i = 0; i < attachments.size(); i++)
+        {
+            writePartHeaders(out, ATTACHMENT_CONTENT_TYPE, getAttachmentId(i));
+            try (InputStream attachment = attachments.get(i))
+            {
+                int read;
+                while ((read = attachment.read(buffer)) != -1)
+                {
+                    out.write(buffer, 0, read);
+                }
+            }
+        }
+
+        write(out, "\r\n--" + boundary + "--\r\n");
+        out.flush();
+    }
+
+    private void writePartHeaders(OutputStream out, String contentType, String contentId) throws IOException
+    {
+        write(out, "\r\n--" + boundary + "\r\n"
+                   + "Content-Type: " + contentType + "\r\n"
+                   + "Content-Transfer-Encoding: binary\r\n"
+                   + "Content-ID: <" + contentId + ">\r\n\r\n");
+    }
+
+    private static void write(OutputStream out, String value) throws IOException
+    {
+        out.write(value.getBytes(US_ASCII));
+    }
+
+    @Override
+    public boolean isRepeatable()
+    {
+        return false;
+    }
+
+    @Override
+    public long getContentLength()
+    {
+        return -1;
+    }
+
+    @Override
+    public InputStream getContent()
+    {
+        throw new UnsupportedOperationException("Multipart entity is only streamed, use writeTo");
+    }
+
+    @Override
+    public boolean isStreaming()
+    {
+        return true;
+    }
+}
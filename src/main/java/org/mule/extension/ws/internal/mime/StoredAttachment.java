@@ -0,0 +1,176 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.ws.internal.mime;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Content of an attachment either in memory or in a memory mapped temporary file.
+ */
+class StoredAttachment
+{
+
+    private final ByteBuffer[] segments;
+    private final long heapBytes;
+    private final Path file;
+    private final AttachmentStore store;
+
+    /**
+     * @param heapBytes bytes reserved from the store for the content, given back when it is discarded.
+     * @param file      temporary file the segments are mapped from, {@code null} if they are in memory.
+     */
+    StoredAttachment(ByteBuffer[] segments, long heapBytes, Path file, AttachmentStore store)
+    {
+        this.segments = segments;
+        this.heapBytes = heapBytes;
+        this.file = file;
+        this.store = store;
+    }
+
+    InputStream open()
+    {
+        ByteBuffer[] views = new ByteBuffer[segments.length];
+        for (int i = 0; i < segments.length; i++)
+        {
+            views[i] = segments[i].duplicate();
+        }
+        return new SegmentsInputStream(views);
+    }
+
+    void discard()
+    {
+        store.release(heapBytes);
+        if (file != null)
+        {
+            delete(file);
+        }
+    }
+
+    /**
+     * Mapped buffers can't be unmapped before they are collected, where the platform does not allow deleting a file
+     * that is still mapped it is deleted on exit instead.
+     */
+    static void delete(Path file)
+    {
+        try
+        {
+            Files.deleteIfExists(file);
+        }
+        catch (IOException e)
+        {
+            file.toFile().deleteOnExit();
+        }
+    }
+
+    /**
+     * Reads a sequence of buffers, supports marks so the content can be read again without requesting it once more.
+     */
+    private static class SegmentsInputStream extends InputStream
+    {
+
+        private final ByteBuffer[] segments;
+        private int current = 0;
+        private int markedSegment = 0;
+
+        SegmentsInputStream(ByteBuffer[] segments)
+        {
+            this.segments = segments;
+            for (ByteBuffer segment : segments)
+            {
+                segment.mark();
+            }
+        }
+
+        @Override
+        public int read()
+        {
+            ByteBuffer segment = nextSegment();
+            return segment != null ? segment.get() & 0xff : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len)
+        {
+            if (len == 0)
+            {
+                return 0;
+            }
+            ByteBuffer segment = nextSegment();
+            if (segment == null)
+            {
+                return -1;
+            }
+            int read = Math.min(len, segment.remaining());
+            segment.get(b, off, read);
+            return read;
+        }
+
+        @Override
+        public long skip(long n)
+        {
+            long skipped = 0;
+            ByteBuffer segment;
+            while (skipped < n && (segment = nextSegment()) != null)
+            {
+                int step = (int) Math.min(n - skipped, segment.remaining());
+                segment.position(segment.position() + step);
+                skipped += step;
+            }
+            return skipped;
+        }
+
+        @Override
+        public int available()
+        {
+            long available = 0;
+            for (int i = current; i < segments.length; i++)
+            {
+                available += segments[i].remaining();
+            }
+            return (int) Math.min(available, Integer.MAX_VALUE);
+        }
+
+        @Override
+        public boolean markSupported()
+        {
+            return true;
+        }
+
+        @Override
+        public synchronized void mark(int readLimit)
+        {
+            markedSegment = current;
+            for (int i = current; i < segments.length; i++)
+            {
+                segments[i].mark();
+            }
+        }
+
+        @Override
+        public synchronized void reset()
+        {
+            for (int i = markedSegment; i <= Math.min(current, segments.length - 1); i++)
+            {
+                segments[i].reset();
+            }
+            current = markedSegment;
+        }
+
+        private ByteBuffer nextSegment()
+        {
+            while (current < segments.length && !segments[current].hasRemaining())
+            {
+                current++;
+            }
+            return current < segments.length ? segments[current] : null;
+        }
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.ws.internal.mime;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Attachments that are stored by an {@link AttachmentStore} as they are requested, in order. Every time an attachment
+ * is requested a new stream over its stored content is returned, so it can be read again.
+ */
+class StoredAttachments extends AbstractList<InputStream> implements Closeable
+{
+
+    private final Iterator<InputStream> source;
+    private final AttachmentStore store;
+    private final List<StoredAttachment> stored = new ArrayList<>();
+    private boolean closed = false;
+
+    StoredAttachments(List<InputStream> source, AttachmentStore store)
+    {
+        this.source = source.iterator();
+        this.store = store;
+    }
+
+    @Override
+    public InputStream get(int index)
+    {
+        StoredAttachment attachment = index >= 0 ? uncheckedAttachment(index) : null;
+        if (attachment == null)
+        {
+            throw new IndexOutOfBoundsException("Index: " + index);
+        }
+        return attachment.open();
+    }
+
+    @Override
+    public int size()
+    {
+        uncheckedAttachment(Integer.MAX_VALUE);
+        return stored.size();
+    }
+
+    @Override
+    public Iterator<InputStream> iterator()
+    {
+        return new Iterator<InputStream>()
+        {
+            private int next = 0;
+
+            @Override
+            public boolean hasNext()
+            {
+                return uncheckedAttachment(next) != null;
+            }
+
+            @Override
+            public InputStream next()
+            {
+                if (!hasNext())
+                {
+                    throw new NoSuchElementException();
+                }
+                return get(next++);
+            }
+        };
+    }
+
+    void storeAll() throws IOException
+    {
+        attachment(Integer.MAX_VALUE);
+    }
+
+    /**
+     * Deletes the temporary files of the attachments and gives back the memory they took to the store.
+     */
+    @Override
+    public void close()
+    {
+        if (!closed)
+        {
+            closed = true;
+            for (StoredAttachment attachment : stored)
+            {
+                attachment.discard();
+            }
+        }
+    }
+
+    private StoredAttachment uncheckedAttachment(int index)
+    {
+        try
+        {
+            return attachment(index);
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private StoredAttachment attachment(int index) throws IOException
+    {
+        if (closed)
+        {
+            throw new IllegalStateException("The attachments were discarded along with their response");
+        }
+        while (stored.size() <= index && source.hasNext())
+        {
+            stored.add(store.store(source.next()));
+        }
+        return index < stored.size() ? stored.get(index) : null;
+    }
+}
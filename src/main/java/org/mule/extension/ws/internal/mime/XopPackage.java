@@ -0,0 +1,135 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.ws.internal.mime;
+
+import static org.mule.extension.ws.internal.mime.MultipartRelatedEntity.getAttachmentId;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.AbstractList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLStreamWriter;
+
+/**
+ * MIME parts of a request sent as an XOP package: the attachments given along with the request followed by the
+ * binary content the envelope writer moved out of the payload while the envelope was being written. Only the content
+ * of the given elements, known to be of type {@code xs:base64Binary}, is moved out of the payload.
+ * <p>
+ * Parts are numbered as the attachments of a {@link MultipartRelatedEntity}, so the binary content moved out of the
+ * payload is referenced as {@code cid:attachment-i} where {@code i} follows the attachments of the request.
+ */
+public class XopPackage
+{
+
+    public static final String XOP_NAMESPACE = "http://www.w3.org/2004/08/xop/include";
+    public static final String XOP_CONTENT_TYPE = "application/xop+xml";
+
+    private final List<InputStream> attachments;
+    private final Set<QName> elements;
+    private final int threshold;
+    private final List<byte[]> parts = new CopyOnWriteArrayList<>();
+
+    /**
+     * @param threshold size in bytes of the decoded binary content from which it is moved into a part.
+     */
+    public XopPackage(List<InputStream> attachments, Set<QName> elements, int threshold)
+    {
+        this.attachments = attachments;
+        this.elements = elements;
+        this.threshold = threshold;
+    }
+
+    /**
+     * @return the content type of the root part for an envelope of the given content type.
+     */
+    public static String getContentType(String envelopeContentType)
+    {
+        String[] parameters = envelopeContentType.split(";");
+        StringBuilder contentType = new StringBuilder(XOP_CONTENT_TYPE).append("; charset=UTF-8; type=\"").append(parameters[0].trim()).append('"');
+        for (int i = 1; i < parameters.length; i++)
+        {
+            if (!parameters[i].trim().toLowerCase().startsWith("charset="))
+            {
+                contentType.append(';').append(parameters[i]);
+            }
+        }
+        return contentType.toString();
+    }
+
+    /**
+     * @return a writer that moves binary content into parts of this package while the payload is written through
+     *         it. The parts of a previous write are dropped.
+     */
+    public XMLStreamWriter wrap(XMLStreamWriter writer)
+    {
+        parts.clear();
+        return new XopPackagingWriter(writer, this);
+    }
+
+    /**
+     * @return a live view of the parts that follow the root one. Each time a part moved out of the payload is requested
+     *         a new stream over it is returned, so the package can be sent again.
+     */
+    public List<InputStream> getAttachments()
+    {
+        return new AbstractList<InputStream>()
+        {
+            @Override
+            public InputStream get(int index)
+            {
+                return index < attachments.size() ? attachments.get(index) : new ByteArrayInputStream(parts.get(index - attachments.size()));
+            }
+
+            @Override
+            public int size()
+            {
+                return attachments.size() + parts.size();
+            }
+        };
+    }
+
+    /**
+     * @return whether the content of the given element is base64 binary that may be moved into a part.
+     */
+    boolean isOptimized(QName element)
+    {
+        return elements.contains(element);
+    }
+
+    int getThreshold()
+    {
+        return threshold;
+    }
+
+    /**
+     * @return whether the given Content-ID belongs to one of the attachments given along with the request.
+     */
+    boolean isAttachment(String contentId)
+    {
+        for (int i = 0; i < attachments.size(); i++)
+        {
+            if (getAttachmentId(i).equals(contentId))
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the Content-ID of the part the content was added as.
+     */
+    String addPart(byte[] content)
+    {
+        parts.add(content);
+        return getAttachmentId(attachments.size() + parts.size() - 1);
+    }
+}
@@ -0,0 +1,334 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.ws.internal.mime;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static javax.xml.XMLConstants.DEFAULT_NS_PREFIX;
+import static javax.xml.XMLConstants.NULL_NS_URI;
+import static org.mule.extension.ws.internal.mime.XopPackage.XOP_NAMESPACE;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.util.Base64;
+
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
+import org.apache.cxf.staxutils.DelegatingXMLStreamWriter;
+
+/**
+ * Moves the content of the elements the {@link XopPackage} optimizes into parts of the package. The base64 text of
+ * those elements is decoded as it is written, so only the decoded content is kept until the end tag. If it is over the
+ * threshold at that point it is added to the package and the element gets an {@code xop:Include} that references it
+ * instead, otherwise it is written inlined. The short text at the start of the element is kept as it is, so a
+ * {@code cid:} reference to an attachment of the request can be replaced by an {@code xop:Include} as well.
+ * <p>
+ * The content of any other element is written straight through.
+ */
+class XopPackagingWriter extends DelegatingXMLStreamWriter
+{
+
+    private static final String XOP_PREFIX = "xop";
+    private static final String CID_SCHEME = "cid:";
+    // Text up to this length is held back as it is, it may be a cid: reference
+    private static final int REFERENCE_MAX_LENGTH = 64;
+    // Multiple of 4, so every full chunk of base64 text is decoded on its own
+    private static final int ENCODED_CHUNK_SIZE = 4096;
+
+    private final XopPackage xop;
+    private final StringBuilder head = new StringBuilder();
+    private final byte[] encoded = new byte[ENCODED_CHUNK_SIZE];
+    private final ByteArrayOutputStream decoded = new ByteArrayOutputStream();
+    private QName element;
+    private boolean holding = false;
+    private boolean decoding = false;
+    private boolean padded = false;
+    private int encodedLength = 0;
+
+    XopPackagingWriter(XMLStreamWriter writer, XopPackage xop)
+    {
+        super(writer);
+        this.xop = xop;
+    }
+
+    @Override
+    public void writeStartElement(String localName) throws XMLStreamException
+    {
+        release();
+        String namespaceURI = getNamespaceContext().getNamespaceURI(DEFAULT_NS_PREFIX);
+        super.writeStartElement(localName);
+        hold(new QName(namespaceURI != null ? namespaceURI : NULL_NS_URI, localName));
+    }
+
+    @Override
+    public void writeStartElement(String namespaceURI, String localName) throws XMLStreamException
+    {
+        release();
+        super.writeStartElement(namespaceURI, localName);
+        hold(new QName(namespaceURI, localName));
+    }
+
+    @Override
+    public void writeStartElement(String prefix, String localName, String namespaceURI) throws XMLStreamException
+    {
+        release();
+        super.writeStartElement(prefix, localName, namespaceURI);
+        hold(new QName(namespaceURI, localName));
+    }
+
+    @Override
+    public void writeEmptyElement(String localName) throws XMLStreamException
+    {
+        release();
+        super.writeEmptyElement(localName);
+    }
+
+    @Override
+    public void writeEmptyElement(String namespaceURI, String localName) throws XMLStreamException
+    {
+        release();
+        super.writeEmptyElement(namespaceURI, localName);
+    }
+
+    @Override
+    public void writeEmptyElement(String prefix, String localName, String namespaceURI) throws XMLStreamException
+    {
+        release();
+        super.writeEmptyElement(prefix, localName, namespaceURI);
+    }
+
+    @Override
+    public void writeCharacters(String text) throws XMLStreamException
+    {
+        if (holding)
+        {
+            append(text);
+        }
+        else
+        {
+            super.writeCharacters(text);
+        }
+    }
+
+    @Override
+    public void writeCharacters(char[] text, int start, int len) throws XMLStreamException
+    {
+        if (holding)
+        {
+            append(CharBuffer.wrap(text, start, len));
+        }
+        else
+        {
+            super.writeCharacters(text, start, len);
+        }
+    }
+
+    @Override
+    public void writeCData(String data) throws XMLStreamException
+    {
+        release();
+        super.writeCData(data);
+    }
+
+    @Override
+    public void writeComment(String data) throws XMLStreamException
+    {
+        release();
+        super.writeComment(data);
+    }
+
+    @Override
+    public void writeProcessingInstruction(String target) throws XMLStreamException
+    {
+        release();
+        super.writeProcessingInstruction(target);
+    }
+
+    @Override
+    public void writeProcessingInstruction(String target, String data) throws XMLStreamException
+    {
+        release();
+        super.writeProcessingInstruction(target, data);
+    }
+
+    @Override
+    public void writeEntityRef(String name) throws XMLStreamException
+    {
+        release();
+        super.writeEntityRef(name);
+    }
+
+    @Override
+    public void writeEndElement() throws XMLStreamException
+    {
+        if (holding)
+        {
+            holding = false;
+            String href = decoding ? includeDecoded() : includeHead();
+            if (href != null)
+            {
+                super.writeStartElement(XOP_PREFIX, "Include", XOP_NAMESPACE);
+                super.writeNamespace(XOP_PREFIX, XOP_NAMESPACE);
+                super.writeAttribute("href", href);
+                super.writeEndElement();
+            }
+        }
+        super.writeEndElement();
+    }
+
+    private void hold(QName element)
+    {
+        holding = xop.isOptimized(element);
+        if (holding)
+        {
+            this.element = element;
+            decoding = false;
+            padded = false;
+            encodedLength = 0;
+            head.setLength(0);
+            decoded.reset();
+        }
+    }
+
+    /**
+     * Writes the content held back, the element it belongs to can no longer be packaged.
+     */
+    private void release() throws XMLStreamException
+    {
+        if (holding)
+        {
+            holding = false;
+            if (decoding)
+            {
+                super.writeCharacters(Base64.getEncoder().encodeToString(decoded.toByteArray()));
+                super.writeCharacters(new String(encoded, 0, encodedLength, US_ASCII));
+            }
+            else
+            {
+                super.writeCharacters(head.toString());
+            }
+        }
+    }
+
+    /**
+     * Keeps the start of the text as it is, from there on the text is decoded as it comes.
+     */
+    private void append(CharSequence text) throws XMLStreamException
+    {
+        if (decoding)
+        {
+            decode(text);
+        }
+        else
+        {
+            head.append(text);
+            if (head.length() > REFERENCE_MAX_LENGTH)
+            {
+                decoding = true;
+                decode(head);
+                head.setLength(0);
+            }
+        }
+    }
+
+    private void decode(CharSequence text) throws XMLStreamException
+    {
+        for (int i = 0; i < text.length(); i++)
+        {
+            char c = text.charAt(i);
+            if (Character.isWhitespace(c))
+            {
+                continue;
+            }
+            if (!isBase64(c) || (padded && c != '='))
+            {
+                throw notBase64(null);
+            }
+            padded = c == '=';
+            encoded[encodedLength++] = (byte) c;
+            if (encodedLength == encoded.length)
+            {
+                decodeChunk();
+            }
+        }
+    }
+
+    private void decodeChunk() throws XMLStreamException
+    {
+        try
+        {
+            ByteBuffer chunk = Base64.getDecoder().decode(ByteBuffer.wrap(encoded, 0, encodedLength));
+            decoded.write(chunk.array(), chunk.arrayOffset() + chunk.position(), chunk.remaining());
+            encodedLength = 0;
+        }
+        catch (IllegalArgumentException e)
+        {
+            throw notBase64(e);
+        }
+    }
+
+    /**
+     * @return the reference the short text held back is replaced with, {@code null} if it was written as it is.
+     */
+    private String includeHead() throws XMLStreamException
+    {
+        String text = head.toString();
+        String reference = text.trim();
+        if (reference.startsWith(CID_SCHEME) && xop.isAttachment(reference.substring(CID_SCHEME.length())))
+        {
+            return reference;
+        }
+        try
+        {
+            decode(head);
+            decodeChunk();
+        }
+        catch (XMLStreamException e)
+        {
+            // Not binary content, such as a reference to something else
+            super.writeCharacters(text);
+            return null;
+        }
+        if (decoded.size() < xop.getThreshold())
+        {
+            super.writeCharacters(text);
+            return null;
+        }
+        return CID_SCHEME + xop.addPart(decoded.toByteArray());
+    }
+
+    /**
+     * @return the reference the decoded content is replaced with, {@code null} if it was written inlined.
+     */
+    private String includeDecoded() throws XMLStreamException
+    {
+        decodeChunk();
+        if (decoded.size() < xop.getThreshold())
+        {
+            super.writeCharacters(Base64.getEncoder().encodeToString(decoded.toByteArray()));
+            return null;
+        }
+        return CID_SCHEME + xop.addPart(decoded.toByteArray());
+    }
+
+    private XMLStreamException notBase64(IllegalArgumentException cause)
+    {
+        XMLStreamException e = new XMLStreamException("Content of element " + element + " is not base64 binary");
+        if (cause != null)
+        {
+            e.initCause(cause);
+        }
+        return e;
+    }
+
+    private static boolean isBase64(char c)
+    {
+        return (c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9') || c == '+' || c == '/' || c == '=';
+    }
+}
@@ -0,0 +1,44 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.ws.internal;
+
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Java 21 variant of the class, loaded from {@code META-INF/versions/21} of the multi-release JAR.
+ */
+public class VirtualThreads
+{
+
+    private VirtualThreads()
+    {
+    }
+
+    public static boolean isSupported()
+    {
+        return true;
+    }
+
+    /**
+     * @return whether the current thread is a virtual one.
+     */
+    public static boolean isCurrent()
+    {
+        return Thread.currentThread().isVirtual();
+    }
+
+    /**
+     * @return an executor that starts a new virtual thread for each task, named with the given prefix, or nothing when
+     * virtual threads are not supported.
+     */
+    public static Optional<ExecutorService> newThreadPerTaskExecutor(String prefix)
+    {
+        return Optional.of(Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(prefix, 1).factory()));
+    }
+}
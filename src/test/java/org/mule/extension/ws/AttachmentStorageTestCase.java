@@ -0,0 +1,211 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.ws;
+
+import static java.util.Collections.singletonList;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.mule.extension.ws.SoapClientTestUtils.readXml;
+import org.mule.extension.ws.api.AttachmentStorageConfiguration;
+import org.mule.extension.ws.api.Response;
+import org.mule.extension.ws.api.ServiceDefinition;
+import org.mule.extension.ws.api.SoapCall;
+import org.mule.extension.ws.api.SoapProxyClient;
+import org.mule.extension.ws.api.builder.AttachmentStorageConfigurationBuilder;
+import org.mule.extension.ws.api.builder.ClientConfigurationBuilder;
+import org.mule.extension.ws.api.transport.SoapTransport;
+import org.mule.extension.ws.api.transport.TransportRequest;
+import org.mule.extension.ws.api.transport.TransportResponse;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class AttachmentStorageTestCase
+{
+
+    private static final String NAMESPACE = "http://consumer.ws.extension.mule.org/";
+    private static final ServiceDefinition TEST_SERVICE_DEFINITION = new ServiceDefinition("test://attachments", NAMESPACE, "TestService", "TestPort");
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private AttachmentStorageConfiguration storage;
+
+    @Before
+    public void setUp()
+    {
+        storage = AttachmentStorageConfigurationBuilder.getInstance()
+                .setSpillThreshold(1024)
+                .setMaxHeapBytes(1536)
+                .setDirectory(folder.getRoot().toPath())
+                .build();
+    }
+
+    @Test
+    public void bigAttachmentsAreSpilledToDisk() throws Exception
+    {
+        AttachmentsTransport transport = new AttachmentsTransport(100, 200000);
+        try (SoapProxyClient client = SoapProxyClient.create(TEST_SERVICE_DEFINITION, ClientConfigurationBuilder.getInstance().setAttachmentStorage(storage).build(), transport))
+        {
+            Response response = client.invoke("echo", readXml("request/echo.xml"));
+            assertThat(spilledFiles(), is(0));
+
+            assertArrayEquals(content(100), IOUtils.toByteArray(response.getAtt().get(0)));
+            assertThat(spilledFiles(), is(0));
+            assertArrayEquals(content(200000), IOUtils.toByteArray(response.getAtt().get(1)));
+            assertThat(spilledFiles(), is(1));
+
+            // Attachments can be read again, either requesting them once more or resetting their stream
+            assertArrayEquals(content(200000), IOUtils.toByteArray(response.getAtt().get(1)));
+            InputStream attachment = response.getAtt().get(0);
+            assertTrue(attachment.markSupported());
+            IOUtils.toByteArray(attachment);
+            attachment.reset();
+            assertArrayEquals(content(100), IOUtils.toByteArray(attachment));
+
+            response.close();
+            assertThat(spilledFiles(), is(0));
+        }
+    }
+
+    @Test
+    public void heapIsCappedAcrossResponses() throws Exception
+    {
+        AttachmentsTransport transport = new AttachmentsTransport(1000);
+        try (SoapProxyClient client = SoapProxyClient.create(TEST_SERVICE_DEFINITION, ClientConfigurationBuilder.getInstance().setAttachmentStorage(storage).build(), transport))
+        {
+            Response first = client.invoke("echo", readXml("request/echo.xml"));
+            Response second = client.invoke("echo", readXml("request/echo.xml"));
+            assertThat(first.getAtt().size(), is(1));
+            assertThat(spilledFiles(), is(0));
+            // The first attachment takes most of the memory allowed, so this one goes to disk
+            assertThat(second.getAtt().size(), is(1));
+            assertThat(spilledFiles(), is(1));
+            assertArrayEquals(content(1000), IOUtils.toByteArray(second.getAtt().get(0)));
+
+            first.close();
+            Response third = client.invoke("echo", readXml("request/echo.xml"));
+            assertThat(third.getAtt().size(), is(1));
+            assertThat(spilledFiles(), is(1));
+
+            second.close();
+            third.close();
+            assertThat(spilledFiles(), is(0));
+        }
+    }
+
+    @Test
+    public void heapIsCappedAcrossClients() throws Exception
+    {
+        AttachmentsTransport transport = new AttachmentsTransport(1000);
+        try (SoapProxyClient client = SoapProxyClient.create(TEST_SERVICE_DEFINITION, ClientConfigurationBuilder.getInstance().setAttachmentStorage(storage).build(), transport);
+             SoapProxyClient other = SoapProxyClient.create(TEST_SERVICE_DEFINITION, ClientConfigurationBuilder.getInstance().setAttachmentStorage(storage).build(), transport))
+        {
+            Response first = client.invoke("echo", readXml("request/echo.xml"));
+            assertThat(first.getAtt().size(), is(1));
+            // The memory taken by the attachments of the other client counts as well
+            Response second = other.invoke("echo", readXml("request/echo.xml"));
+            assertThat(second.getAtt().size(), is(1));
+            assertThat(spilledFiles(), is(1));
+
+            first.close();
+            second.close();
+            assertThat(spilledFiles(), is(0));
+        }
+    }
+
+    @Test
+    public void bufferedResponsesStoreTheirAttachments() throws Exception
+    {
+        AttachmentsTransport transport = new AttachmentsTransport(10, 5000);
+        try (SoapProxyClient client = SoapProxyClient.create(TEST_SERVICE_DEFINITION, ClientConfigurationBuilder.getInstance().setAttachmentStorage(storage).build(), transport))
+        {
+            // Batched calls read their responses before returning them
+            Response response = client.invokeAll(singletonList(new SoapCall("echo", readXml("request/echo.xml")))).get(0).getResponse();
+            assertThat(response.getAtt().size(), is(2));
+            assertArrayEquals(content(5000), IOUtils.toByteArray(response.getAtt().get(1)));
+            response.close();
+            assertThat(spilledFiles(), is(0));
+        }
+    }
+
+    private int spilledFiles()
+    {
+        return folder.getRoot().list().length;
+    }
+
+    private static byte[] content(int size)
+    {
+        byte[] content = new byte[size];
+        for (int i = 0; i < size; i++)
+        {
+            content[i] = (byte) (i % 251);
+        }
+        return content;
+    }
+
+    /**
+     * Echoes the request envelope along with attachments of the given sizes.
+     */
+    private static class AttachmentsTransport implements SoapTransport
+    {
+
+        private final int[] sizes;
+
+        AttachmentsTransport(int... sizes)
+        {
+            this.sizes = sizes;
+        }
+
+        @Override
+        public TransportResponse send(TransportRequest request) throws IOException
+        {
+            ByteArrayOutputStream envelope = new ByteArrayOutputStream();
+            request.writeEnvelope(envelope);
+            ByteArrayInputStream body = new ByteArrayInputStream(envelope.toByteArray());
+            List<InputStream> attachments = new ArrayList<>();
+            for (int size : sizes)
+            {
+                attachments.add(new ByteArrayInputStream(content(size)));
+            }
+            return new TransportResponse(body, attachments, body, body);
+        }
+
+        @Override
+        public CompletableFuture<TransportResponse> sendAsync(TransportRequest request)
+        {
+            CompletableFuture<TransportResponse> result = new CompletableFuture<>();
+            try
+            {
+                result.complete(send(request));
+            }
+            catch (IOException e)
+            {
+                result.completeExceptionally(e);
+            }
+            return result;
+        }
+
+        @Override
+        public void close()
+        {
+        }
+    }
+}
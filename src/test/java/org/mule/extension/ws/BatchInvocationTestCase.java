@@ -0,0 +1,133 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.ws;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static javax.xml.ws.Endpoint.publish;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.StringContains.containsString;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.mule.extension.ws.SoapClientTestUtils.readXml;
+import static org.mule.extension.ws.SoapClientTestUtils.xmlStreamToString;
+import org.mule.extension.ws.api.CallResult;
+import org.mule.extension.ws.api.Response;
+import org.mule.extension.ws.api.ServiceDefinition;
+import org.mule.extension.ws.api.SoapCall;
+import org.mule.extension.ws.api.SoapProxyClient;
+import org.mule.extension.ws.api.builder.ClientConfigurationBuilder;
+import org.mule.extension.ws.consumer.TestService;
+
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.List;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.ws.Endpoint;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class BatchInvocationTestCase
+{
+
+    private static final String SERVICE_URL = "http://localhost:6046/batchService";
+    private static final String NAMESPACE = "http://consumer.ws.extension.mule.org/";
+    private static final ServiceDefinition TEST_SERVICE_DEFINITION = new ServiceDefinition(SERVICE_URL, NAMESPACE, "TestService", "TestPort");
+    private static final int CALLS = 50;
+
+    private static Endpoint service;
+    private static SoapProxyClient soapClient;
+
+    @BeforeClass
+    public static void setup()
+    {
+        service = publish(SERVICE_URL, new TestService());
+        assertTrue(service.isPublished());
+        // Fewer connections than calls in flight, unconsumed responses must not hold them
+        soapClient = SoapProxyClient.create(TEST_SERVICE_DEFINITION, ClientConfigurationBuilder.getInstance()
+                .setMaxConnectionsPerRoute(2)
+                .setBatchParallelism(8)
+                .build());
+    }
+
+    @AfterClass
+    public static void tearDown() throws Exception
+    {
+        soapClient.close();
+        service.stop();
+    }
+
+    @Test
+    public void resultsInInputOrder() throws Exception
+    {
+        List<CallResult> results = soapClient.invokeAll(calls());
+
+        assertThat(results.size(), is(CALLS));
+        for (int i = 0; i < CALLS; i++)
+        {
+            CallResult result = results.get(i);
+            assertThat(result.getIndex(), is(i));
+            if (i % 10 == 9)
+            {
+                assertTrue(result.isFault());
+                assertThat(result.getResponse() == null, is(true));
+            }
+            else
+            {
+                assertTrue(result.isSuccess());
+                try (Response response = result.getResponse())
+                {
+                    assertThat(xmlStreamToString(response.getBody()), containsString("<text>test " + i + " response</text>"));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void resultsInCompletionOrder() throws Exception
+    {
+        BitSet seen = new BitSet();
+        int faults = 0;
+        Iterator<CallResult> results = soapClient.invokeAllAsCompleted(calls(), 4);
+        while (results.hasNext())
+        {
+            CallResult result = results.next();
+            seen.set(result.getIndex());
+            if (result.isFault())
+            {
+                faults++;
+            }
+            else
+            {
+                result.getResponse().close();
+            }
+        }
+        assertThat(seen.cardinality(), is(CALLS));
+        assertThat(faults, is(CALLS / 10));
+    }
+
+    private static List<SoapCall> calls() throws Exception
+    {
+        List<SoapCall> calls = new ArrayList<>();
+        for (int i = 0; i < CALLS; i++)
+        {
+            calls.add(i % 10 == 9 ? new SoapCall("fail", readXml("request/fail.xml")) : new SoapCall("echo", echo("test " + i)));
+        }
+        return calls;
+    }
+
+    private static XMLStreamReader echo(String text) throws Exception
+    {
+        String payload = "<con:echo xmlns:con=\"" + NAMESPACE + "\"><text>" + text + "</text></con:echo>";
+        return XMLInputFactory.newInstance().createXMLStreamReader(new ByteArrayInputStream(payload.getBytes(UTF_8)));
+    }
+}
@@ -0,0 +1,184 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.ws;
+
+import static java.util.Arrays.asList;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.StringContains.containsString;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.mule.extension.ws.SoapClientTestUtils.readXml;
+import static org.mule.extension.ws.SoapClientTestUtils.xmlStreamToString;
+import org.mule.extension.ws.api.ClientConfiguration;
+import org.mule.extension.ws.api.Response;
+import org.mule.extension.ws.api.ServiceDefinition;
+import org.mule.extension.ws.api.SoapProxyClient;
+import org.mule.extension.ws.api.builder.ClientConfigurationBuilder;
+import org.mule.extension.ws.api.builder.CompressionConfigurationBuilder;
+import org.mule.extension.ws.api.metrics.HistogramSoapClientMetrics;
+import org.mule.extension.ws.api.metrics.OperationSnapshot;
+import org.mule.extension.ws.consumer.TestService;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.apache.cxf.endpoint.Server;
+import org.apache.cxf.interceptor.Fault;
+import org.apache.cxf.jaxws.JaxWsServerFactoryBean;
+import org.apache.cxf.message.Message;
+import org.apache.cxf.phase.AbstractPhaseInterceptor;
+import org.apache.cxf.phase.Phase;
+import org.apache.cxf.transport.common.gzip.GZIPFeature;
+import org.apache.cxf.transport.common.gzip.GZIPInInterceptor;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class CompressionTestCase
+{
+
+    private static final String URL = "http://localhost:6053/compressedService";
+    private static final String NAMESPACE = "http://consumer.ws.extension.mule.org/";
+
+    private static final List<String> received = new CopyOnWriteArrayList<>();
+    private static Server service;
+
+    @BeforeClass
+    public static void setup()
+    {
+        GZIPFeature gzip = new GZIPFeature();
+        gzip.setThreshold(0);
+
+        JaxWsServerFactoryBean factory = new JaxWsServerFactoryBean();
+        factory.setServiceBean(new TestService());
+        factory.setAddress(URL);
+        factory.getFeatures().add(gzip);
+        factory.getInInterceptors().add(new AbstractPhaseInterceptor<Message>(Phase.RECEIVE)
+        {
+            {
+                // The header is gone once the gzip interceptor decompressed the request
+                addBefore(GZIPInInterceptor.class.getName());
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public void handleMessage(Message message) throws Fault
+            {
+                List<String> encoding = ((Map<String, List<String>>) message.get(Message.PROTOCOL_HEADERS)).get("Content-Encoding");
+                received.add(encoding != null ? encoding.get(0) : "identity");
+            }
+        });
+        service = factory.create();
+    }
+
+    @AfterClass
+    public static void tearDown()
+    {
+        service.destroy();
+    }
+
+    @Before
+    public void clear()
+    {
+        received.clear();
+    }
+
+    @Test
+    public void compressedBothWays() throws Exception
+    {
+        HistogramSoapClientMetrics metrics = new HistogramSoapClientMetrics();
+        try (SoapProxyClient client = create(ClientConfigurationBuilder.getInstance()
+                                                     .setMetrics(metrics)
+                                                     .setCompression(CompressionConfigurationBuilder.getInstance()
+                                                                             .setCompressRequests(true)
+                                                                             .setThreshold(0)
+                                                                             .build())
+                                                     .build()))
+        {
+            assertAccount(client.invoke("echoAccount", readXml("request/echoAccount.xml")));
+            assertAccount(client.invokeAsync("echoAccount", readXml("request/echoAccount.xml")).get());
+        }
+
+        assertThat(received, is(asList("gzip", "gzip")));
+        OperationSnapshot snapshot = metrics.snapshot("echoAccount");
+        assertTrue(snapshot.getRequestContentBytes() > snapshot.getRequestBytes());
+        assertTrue(snapshot.getResponseContentBytes() > snapshot.getResponseBytes());
+        assertThat(snapshot.getPhase(org.mule.extension.ws.api.metrics.Phase.COMPRESSION).getCount(), is(2L));
+        assertThat(snapshot.getPhase(org.mule.extension.ws.api.metrics.Phase.DECOMPRESSION).getCount(), is(2L));
+    }
+
+    @Test
+    public void thresholdLearnedFromPreviousRequests() throws Exception
+    {
+        try (SoapProxyClient client = create(ClientConfigurationBuilder.getInstance()
+                                                     .setCompression(CompressionConfigurationBuilder.getInstance()
+                                                                             .setCompressRequests(true)
+                                                                             .setThreshold(100)
+                                                                             .build())
+                                                     .build()))
+        {
+            for (int i = 0; i < 3; i++)
+            {
+                assertAccount(client.invoke("echoAccount", readXml("request/echoAccount.xml")));
+            }
+        }
+
+        // Chunked requests aren't sized until written, the first one tells how large the following ones are
+        assertThat(received, is(asList("identity", "gzip", "gzip")));
+    }
+
+    @Test
+    public void operationOverrides() throws Exception
+    {
+        try (SoapProxyClient client = create(ClientConfigurationBuilder.getInstance()
+                                                     .setChunkedRequests(false)
+                                                     .setCompression(CompressionConfigurationBuilder.getInstance()
+                                                                             .setCompressRequests(true)
+                                                                             .setThreshold(0)
+                                                                             .skipOperations("echoAccount")
+                                                                             .build())
+                                                     .build()))
+        {
+            assertAccount(client.invoke("echoAccount", readXml("request/echoAccount.xml")));
+            assertEcho(client.invoke("echo", readXml("request/echo.xml")));
+        }
+        try (SoapProxyClient client = create(ClientConfigurationBuilder.getInstance()
+                                                     .setCompression(CompressionConfigurationBuilder.getInstance()
+                                                                             .compressOperations("echo")
+                                                                             .build())
+                                                     .build()))
+        {
+            assertAccount(client.invoke("echoAccount", readXml("request/echoAccount.xml")));
+            assertEcho(client.invoke("echo", readXml("request/echo.xml")));
+        }
+
+        assertThat(received, is(asList("identity", "gzip", "identity", "gzip")));
+    }
+
+    private static SoapProxyClient create(ClientConfiguration configuration)
+    {
+        return SoapProxyClient.create(new ServiceDefinition(URL, NAMESPACE, "TestService", "TestPort"), configuration);
+    }
+
+    private static void assertAccount(Response response) throws Exception
+    {
+        try (Response closed = response)
+        {
+            assertThat(xmlStreamToString(closed.getBody()), containsString("<clientName>Juan</clientName>"));
+        }
+    }
+
+    private static void assertEcho(Response response) throws Exception
+    {
+        try (Response closed = response)
+        {
+            assertThat(xmlStreamToString(closed.getBody()), containsString("<text>test response</text>"));
+        }
+    }
+}
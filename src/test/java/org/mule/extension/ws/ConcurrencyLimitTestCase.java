@@ -0,0 +1,222 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.ws;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mule.extension.ws.SoapClientTestUtils.readXml;
+import org.mule.extension.ws.api.ConcurrencyLimitConfiguration;
+import org.mule.extension.ws.api.ConcurrencyLimitStats;
+import org.mule.extension.ws.api.LimitAlgorithm;
+import org.mule.extension.ws.api.Response;
+import org.mule.extension.ws.api.ServiceDefinition;
+import org.mule.extension.ws.api.SoapProxyClient;
+import org.mule.extension.ws.api.builder.ClientConfigurationBuilder;
+import org.mule.extension.ws.api.builder.ConcurrencyLimitConfigurationBuilder;
+import org.mule.extension.ws.api.exception.ConcurrencyLimitExceededException;
+import org.mule.extension.ws.api.transport.LoopbackSoapTransport;
+import org.mule.extension.ws.api.transport.TransportResponse;
+
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ConcurrencyLimitTestCase
+{
+
+    private static final String NAMESPACE = "http://consumer.ws.extension.mule.org/";
+    private static final ServiceDefinition TEST_SERVICE_DEFINITION = new ServiceDefinition("loopback://test", NAMESPACE, "TestService", "TestPort");
+    private static final int CALLERS = 64;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private LoopbackSoapTransport transport;
+
+    @Before
+    public void setup()
+    {
+        // Each call takes longer the more calls the stub is handling, like a saturated back-end
+        transport = new LoopbackSoapTransport((soapAction, envelope, attachments) ->
+                                              {
+                                                  byte[] response = IOUtils.toByteArray(envelope);
+                                                  int concurrent = inFlight.incrementAndGet();
+                                                  try
+                                                  {
+                                                      Thread.sleep(2 + concurrent / 2);
+                                                  }
+                                                  catch (InterruptedException e)
+                                                  {
+                                                      Thread.currentThread().interrupt();
+                                                  }
+                                                  finally
+                                                  {
+                                                      inFlight.decrementAndGet();
+                                                  }
+                                                  return new TransportResponse(new ByteArrayInputStream(response), attachments, () -> {}, () -> {});
+                                              });
+    }
+
+    @Test
+    public void gradientConverges() throws Exception
+    {
+        ConcurrencyLimitConfiguration limit = ConcurrencyLimitConfigurationBuilder.getInstance()
+                .setAlgorithm(LimitAlgorithm.GRADIENT)
+                .setInitialLimit(50)
+                .build();
+        assertConverges(limit);
+    }
+
+    @Test
+    public void aimdConverges() throws Exception
+    {
+        ConcurrencyLimitConfiguration limit = ConcurrencyLimitConfigurationBuilder.getInstance()
+                .setAlgorithm(LimitAlgorithm.AIMD)
+                .setInitialLimit(50)
+                .setLatencyThreshold(10)
+                .build();
+        assertConverges(limit);
+    }
+
+    /**
+     * The limit starts over what the stub can serve with a reasonable latency and must settle well under it, so
+     * most of the callers are rejected instead of piling up.
+     */
+    private void assertConverges(ConcurrencyLimitConfiguration limit) throws Exception
+    {
+        try (SoapProxyClient client = SoapProxyClient.create(TEST_SERVICE_DEFINITION, ClientConfigurationBuilder.getInstance().setConcurrencyLimit(limit).build(), transport))
+        {
+            // Warms up the client so the first calls of the load don't take longer than the stub makes them
+            client.invoke("echo", readXml("request/echo.xml")).close();
+
+            List<ConcurrencyLimitStats> samples = load(client, 3000);
+            List<ConcurrencyLimitStats> settled = samples.subList(samples.size() / 2, samples.size());
+            long sum = 0;
+            for (ConcurrencyLimitStats sample : settled)
+            {
+                assertTrue(sample.toString(), sample.getLimit() < 40);
+                sum += sample.getLimit();
+            }
+            double average = (double) sum / settled.size();
+            assertTrue("Average limit " + average, average >= 2 && average <= 25);
+
+            ConcurrencyLimitStats stats = client.getConcurrencyLimitStats();
+            assertThat(stats.getInFlight(), is(0));
+            assertTrue(stats.getRejected() > 0);
+        }
+    }
+
+    @Test
+    public void asyncCallsAreRejected() throws Exception
+    {
+        ConcurrencyLimitConfiguration limit = ConcurrencyLimitConfigurationBuilder.getInstance()
+                .setInitialLimit(1)
+                .setMaxLimit(1)
+                // Only synchronous calls wait, the async one must not block the caller this long
+                .setMaxWait(60000)
+                .build();
+        try (SoapProxyClient client = SoapProxyClient.create(TEST_SERVICE_DEFINITION, ClientConfigurationBuilder.getInstance().setConcurrencyLimit(limit).build(), transport))
+        {
+            // The loopback transport sends from the calling thread, so the limit is taken from another one meanwhile
+            Thread holder = new Thread(() ->
+                                       {
+                                           try
+                                           {
+                                               client.invoke("echo", readXml("request/echo.xml")).close();
+                                           }
+                                           catch (Exception e)
+                                           {
+                                               throw new RuntimeException(e);
+                                           }
+                                       });
+            // Makes the stub as slow as if it was handling 200 calls
+            inFlight.set(200);
+            holder.start();
+            while (client.getConcurrencyLimitStats().getInFlight() == 0)
+            {
+                Thread.sleep(1);
+            }
+            try
+            {
+                CompletableFuture<Response> response = client.invokeAsync("echo", readXml("request/echo.xml"));
+                assertTrue(response.isDone());
+                response.get();
+                fail();
+            }
+            catch (ExecutionException e)
+            {
+                assertTrue(e.getCause() instanceof ConcurrencyLimitExceededException);
+            }
+            holder.join();
+            assertThat(client.getConcurrencyLimitStats().getRejected(), is(1L));
+        }
+    }
+
+    /**
+     * Keeps more callers than the stub can serve invoking it, sampling the limit every 50 milliseconds.
+     */
+    private static List<ConcurrencyLimitStats> load(SoapProxyClient client, long millis) throws Exception
+    {
+        AtomicBoolean running = new AtomicBoolean(true);
+        List<Thread> callers = new ArrayList<>();
+        for (int i = 0; i < CALLERS; i++)
+        {
+            Thread caller = new Thread(() ->
+                                       {
+                                           while (running.get())
+                                           {
+                                               try
+                                               {
+                                                   client.invoke("echo", readXml("request/echo.xml")).close();
+                                               }
+                                               catch (ConcurrencyLimitExceededException e)
+                                               {
+                                                   pause();
+                                               }
+                                               catch (Exception e)
+                                               {
+                                                   throw new RuntimeException(e);
+                                               }
+                                           }
+                                       });
+            caller.start();
+            callers.add(caller);
+        }
+        List<ConcurrencyLimitStats> samples = new ArrayList<>();
+        for (long end = System.currentTimeMillis() + millis; System.currentTimeMillis() < end; )
+        {
+            Thread.sleep(50);
+            samples.add(client.getConcurrencyLimitStats());
+        }
+        running.set(false);
+        for (Thread caller : callers)
+        {
+            caller.join();
+        }
+        return samples;
+    }
+
+    private static void pause()
+    {
+        try
+        {
+            Thread.sleep(1);
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
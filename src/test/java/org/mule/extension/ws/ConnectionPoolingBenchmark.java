@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.ws;
+
+import static javax.xml.ws.Endpoint.publish;
+import static org.mule.extension.ws.SoapClientTestUtils.readXml;
+import org.mule.extension.ws.api.ClientConfiguration;
+import org.mule.extension.ws.api.ServiceDefinition;
+import org.mule.extension.ws.api.SoapProxyClient;
+import org.mule.extension.ws.api.builder.ClientConfigurationBuilder;
+import org.mule.extension.ws.consumer.TestService;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.xml.ws.Endpoint;
+
+import org.apache.cxf.BusFactory;
+
+/**
+ * Compares the calls/sec of a client that opens a new connection for each call against one that reuses pooled
+ * keep-alive connections, both invoking the locally published {@link TestService}.
+ * <p>
+ * Run it from the IDE, it is not executed as part of the test suite.
+ */
+public class ConnectionPoolingBenchmark
+{
+
+    private static final String SERVICE_URL = "http://localhost:6047/benchmarkService";
+    private static final String NAMESPACE = "http://consumer.ws.extension.mule.org/";
+    private static final ServiceDefinition TEST_SERVICE_DEFINITION = new ServiceDefinition(SERVICE_URL, NAMESPACE, "TestService", "TestPort");
+
+    private static final int THREADS = 8;
+    private static final long WARM_UP_MILLIS = 5000;
+    private static final long MEASURE_MILLIS = 15000;
+
+    public static void main(String[] args) throws Exception
+    {
+        Endpoint service = publish(SERVICE_URL, new TestService());
+        try
+        {
+            ClientConfiguration noReuse = ClientConfigurationBuilder.getInstance().setKeepAlive(false).build();
+            ClientConfiguration pooled = ClientConfigurationBuilder.getInstance().setMaxConnectionsPerRoute(THREADS).build();
+
+            System.out.println(String.format("new connection per call: %.1f calls/sec", run(noReuse)));
+            System.out.println(String.format("pooled keep-alive connections: %.1f calls/sec", run(pooled)));
+        }
+        finally
+        {
+            service.stop();
+            BusFactory.getDefaultBus().shutdown(true);
+        }
+    }
+
+    private static double run(ClientConfiguration configuration) throws Exception
+    {
+        try (SoapProxyClient client = SoapProxyClient.create(TEST_SERVICE_DEFINITION, configuration))
+        {
+            measure(client, WARM_UP_MILLIS);
+            return measure(client, MEASURE_MILLIS) * 1000d / MEASURE_MILLIS;
+        }
+    }
+
+    private static long measure(SoapProxyClient client, long millis) throws Exception
+    {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        AtomicLong calls = new AtomicLong();
+        long deadline = System.currentTimeMillis() + millis;
+        List<Future<?>> workers = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++)
+        {
+            workers.add(executor.submit(() ->
+                                        {
+                                            while (System.currentTimeMillis() < deadline)
+                                            {
+                                                client.invoke("echo", readXml("request/echo.xml"));
+                                                calls.incrementAndGet();
+                                            }
+                                            return null;
+                                        }));
+        }
+        for (Future<?> worker : workers)
+        {
+            worker.get();
+        }
+        executor.shutdown();
+        executor.awaitTermination(1, TimeUnit.SECONDS);
+        return calls.get();
+    }
+}
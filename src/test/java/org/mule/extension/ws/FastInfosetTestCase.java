@@ -0,0 +1,206 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.ws;
+
+import static java.util.Arrays.asList;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.StringContains.containsString;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mule.extension.ws.SoapClientTestUtils.readXml;
+import static org.mule.extension.ws.SoapClientTestUtils.xmlStreamToString;
+import org.mule.extension.ws.api.Response;
+import org.mule.extension.ws.api.ServiceDefinition;
+import org.mule.extension.ws.api.SoapProxyClient;
+import org.mule.extension.ws.api.builder.ClientConfigurationBuilder;
+import org.mule.extension.ws.api.builder.HeadersBuilder;
+import org.mule.extension.ws.api.exception.SoapFaultException;
+import org.mule.extension.ws.consumer.TestService;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.apache.cxf.endpoint.Server;
+import org.apache.cxf.feature.FastInfosetFeature;
+import org.apache.cxf.interceptor.Fault;
+import org.apache.cxf.jaxws.JaxWsServerFactoryBean;
+import org.apache.cxf.message.Message;
+import org.apache.cxf.phase.AbstractPhaseInterceptor;
+import org.apache.cxf.phase.Phase;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class FastInfosetTestCase
+{
+
+    private static final String FAST_INFOSET_URL = "http://localhost:6048/fastInfosetService";
+    private static final String TEXT_URL = "http://localhost:6052/textService";
+    private static final String NAMESPACE = "http://consumer.ws.extension.mule.org/";
+
+    private static final List<String> received = new CopyOnWriteArrayList<>();
+    private static final List<String> receivedAsText = new CopyOnWriteArrayList<>();
+    private static Server fastInfosetService;
+    private static Server textService;
+    private static SoapProxyClient fastInfosetClient;
+    private static SoapProxyClient textClient;
+
+    @BeforeClass
+    public static void setup()
+    {
+        fastInfosetService = publish(FAST_INFOSET_URL, true);
+        textService = publish(TEXT_URL, false);
+        fastInfosetClient = SoapProxyClient.create(new ServiceDefinition(FAST_INFOSET_URL, NAMESPACE, "TestService", "TestPort"),
+                                                   ClientConfigurationBuilder.getInstance().setFastInfoset(true).build());
+        textClient = SoapProxyClient.create(new ServiceDefinition(TEXT_URL, NAMESPACE, "TestService", "TestPort"),
+                                            ClientConfigurationBuilder.getInstance().setFastInfoset(true).build());
+    }
+
+    @AfterClass
+    public static void tearDown() throws Exception
+    {
+        fastInfosetClient.close();
+        textClient.close();
+        fastInfosetService.destroy();
+        textService.destroy();
+    }
+
+    @Before
+    public void clear()
+    {
+        received.clear();
+        receivedAsText.clear();
+    }
+
+    @Test
+    public void negotiatedWithService() throws Exception
+    {
+        try (SoapProxyClient client = SoapProxyClient.create(new ServiceDefinition(FAST_INFOSET_URL, NAMESPACE, "TestService", "TestPort"),
+                                                             ClientConfigurationBuilder.getInstance().setFastInfoset(true).build()))
+        {
+            for (int i = 0; i < 3; i++)
+            {
+                assertEcho(client.invoke("echo", readXml("request/echo.xml")));
+            }
+            try (Response response = client.invoke("echoAccount", readXml("request/echoAccount.xml")))
+            {
+                assertThat(xmlStreamToString(response.getBody()), containsString("<clientName>Juan</clientName>"));
+            }
+        }
+
+        // The first request advertises Fast Infoset, the service answers with it and from then on it's used both ways
+        assertThat(received.get(0), containsString("text/xml"));
+        for (String contentType : received.subList(received.size() - 3, received.size()))
+        {
+            assertThat(contentType, is("application/fastinfoset"));
+        }
+    }
+
+    @Test
+    public void faultsAreRead() throws Exception
+    {
+        assertEcho(fastInfosetClient.invoke("echo", readXml("request/echo.xml")));
+        try
+        {
+            fastInfosetClient.invoke("fail", readXml("request/fail.xml"));
+            fail();
+        }
+        catch (SoapFaultException e)
+        {
+            assertThat(e.getMessage(), is("test"));
+        }
+    }
+
+    @Test
+    public void fallsBackToText() throws Exception
+    {
+        for (int i = 0; i < 3; i++)
+        {
+            assertEcho(textClient.invoke("echo", readXml("request/echo.xml")));
+        }
+        for (String contentType : received)
+        {
+            assertThat(contentType, containsString("text/xml"));
+        }
+    }
+
+    @Test
+    public void negotiatedWithEachEndpoint() throws Exception
+    {
+        try (SoapProxyClient client = SoapProxyClient.create(new ServiceDefinition(asList(FAST_INFOSET_URL, TEXT_URL), NAMESPACE, "TestService", "TestPort"),
+                                                             ClientConfigurationBuilder.getInstance().setFastInfoset(true).build()))
+        {
+            for (int i = 0; i < 20; i++)
+            {
+                assertEcho(client.invoke("echo", readXml("request/echo.xml")));
+            }
+        }
+
+        // The endpoint that answers with Fast Infoset never makes the client send it to the one that doesn't
+        assertTrue(!receivedAsText.isEmpty());
+        for (String contentType : receivedAsText)
+        {
+            assertThat(contentType, containsString("text/xml"));
+        }
+    }
+
+    @Test
+    public void staticHeaders() throws Exception
+    {
+        try (SoapProxyClient client = SoapProxyClient.create(new ServiceDefinition(FAST_INFOSET_URL, NAMESPACE, "TestService", "TestPort"),
+                                                             ClientConfigurationBuilder.getInstance()
+                                                                     .setFastInfoset(true)
+                                                                     .setStaticHeaders(HeadersBuilder.getInstance(NAMESPACE)
+                                                                                               .addHeader(readXml("request/headerIn.xml"))
+                                                                                               .build())
+                                                                     .build()))
+        {
+            for (int i = 0; i < 3; i++)
+            {
+                try (Response response = client.invoke("noParams", readXml("request/noParamsWithHeader.xml")))
+                {
+                    assertThat(xmlStreamToString(response.getBody()), containsString("<text>Header In Value</text>"));
+                }
+            }
+        }
+        assertThat(received.get(received.size() - 1), is("application/fastinfoset"));
+    }
+
+    private static void assertEcho(Response response) throws Exception
+    {
+        try (Response closed = response)
+        {
+            assertThat(xmlStreamToString(closed.getBody()), containsString("<text>test response</text>"));
+        }
+    }
+
+    private static Server publish(String address, boolean fastInfoset)
+    {
+        JaxWsServerFactoryBean factory = new JaxWsServerFactoryBean();
+        factory.setServiceBean(new TestService());
+        factory.setAddress(address);
+        if (fastInfoset)
+        {
+            factory.getFeatures().add(new FastInfosetFeature());
+        }
+        factory.getInInterceptors().add(new AbstractPhaseInterceptor<Message>(Phase.RECEIVE)
+        {
+            @Override
+            public void handleMessage(Message message) throws Fault
+            {
+                received.add((String) message.get(Message.CONTENT_TYPE));
+                if (!fastInfoset)
+                {
+                    receivedAsText.add((String) message.get(Message.CONTENT_TYPE));
+                }
+            }
+        });
+        return factory.create();
+    }
+}
@@ -0,0 +1,206 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.ws;
+
+import static java.util.Collections.emptyList;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.mule.extension.ws.SoapClientTestUtils.readXml;
+import static org.mule.extension.ws.SoapClientTestUtils.xmlStreamToString;
+import org.mule.extension.ws.api.HedgingConfiguration;
+import org.mule.extension.ws.api.HedgingStats;
+import org.mule.extension.ws.api.Response;
+import org.mule.extension.ws.api.ServiceDefinition;
+import org.mule.extension.ws.api.SoapProxyClient;
+import org.mule.extension.ws.api.builder.ClientConfigurationBuilder;
+import org.mule.extension.ws.api.builder.HedgingConfigurationBuilder;
+import org.mule.extension.ws.api.transport.SoapTransport;
+import org.mule.extension.ws.api.transport.TransportRequest;
+import org.mule.extension.ws.api.transport.TransportResponse;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntPredicate;
+
+import org.junit.Test;
+
+public class HedgingTestCase
+{
+
+    private static final String NAMESPACE = "http://consumer.ws.extension.mule.org/";
+    private static final ServiceDefinition TEST_SERVICE_DEFINITION = new ServiceDefinition("test://slow-replicas", NAMESPACE, "TestService", "TestPort");
+    private static final long FAST = 2;
+    private static final long SLOW = 300;
+
+    @Test
+    public void slowRequestsAreHedged() throws Exception
+    {
+        // One in twenty requests hits a slow replica, the hedge of a request is a new one so it's most likely fast
+        ReplicasTransport transport = new ReplicasTransport(request -> request % 20 == 19);
+        HedgingConfiguration hedging = HedgingConfigurationBuilder.getInstance()
+                .hedgeOperations("echo")
+                .setPercentile(95)
+                .setBudgetPercent(20)
+                .build();
+        try (SoapProxyClient client = SoapProxyClient.create(TEST_SERVICE_DEFINITION, ClientConfigurationBuilder.getInstance().setHedging(hedging).build(), transport))
+        {
+            long slowest = 0;
+            for (int i = 0; i < 200; i++)
+            {
+                long start = System.nanoTime();
+                try (Response response = client.invoke("echo", readXml("request/echo.xml")))
+                {
+                    assertTrue(xmlStreamToString(response.getBody()).contains("<text>test</text>"));
+                }
+                if (i >= hedging.getMinSamples())
+                {
+                    slowest = Math.max(slowest, NANOSECONDS.toMillis(System.nanoTime() - start));
+                }
+            }
+            assertTrue("Slowest call took " + slowest + "ms", slowest < SLOW / 2);
+
+            // The hedge of the last call may still be on its way
+            for (int i = 0; i < 100 && transport.released.get() + transport.cancelled.get() < transport.requests.get(); i++)
+            {
+                Thread.sleep(10);
+            }
+            HedgingStats stats = client.getHedgingStats();
+            assertTrue(stats.toString(), stats.getWon() > 0);
+            assertTrue(stats.toString(), stats.getWon() <= stats.getSent());
+            // Each hedged call has at most one request still waiting when the other wins, it's cancelled and every
+            // other one was released
+            assertTrue(transport.cancelled.get() >= stats.getWon());
+            assertTrue(transport.cancelled.get() <= stats.getSent());
+            assertThat(transport.released.get() + transport.cancelled.get(), is(transport.requests.get()));
+            assertThat(transport.requests.get(), is(200 + (int) stats.getSent()));
+        }
+    }
+
+    @Test
+    public void hedgesAreBoundedByTheBudget() throws Exception
+    {
+        // Half of the requests are slow, so half of the calls would be hedged without a budget
+        ReplicasTransport transport = new ReplicasTransport(request -> request % 2 == 1);
+        HedgingConfiguration hedging = HedgingConfigurationBuilder.getInstance()
+                .hedgeOperations("echo")
+                .setPercentile(50)
+                .setBudgetPercent(10)
+                .setMinSamples(5)
+                .build();
+        try (SoapProxyClient client = SoapProxyClient.create(TEST_SERVICE_DEFINITION, ClientConfigurationBuilder.getInstance().setHedging(hedging).build(), transport))
+        {
+            CompletableFuture<?>[] calls = new CompletableFuture<?>[100];
+            for (int i = 0; i < calls.length; i++)
+            {
+                calls[i] = client.invokeAsync("echo", readXml("request/echo.xml")).thenAccept(response ->
+                                                                                               {
+                                                                                                   try
+                                                                                                   {
+                                                                                                       response.close();
+                                                                                                   }
+                                                                                                   catch (IOException e)
+                                                                                                   {
+                                                                                                       throw new RuntimeException(e);
+                                                                                                   }
+                                                                                               });
+                if (i % 10 == 9)
+                {
+                    // Lets a few calls complete so the operation has latencies to hedge after
+                    calls[i].get();
+                }
+            }
+            CompletableFuture.allOf(calls).get();
+
+            HedgingStats stats = client.getHedgingStats();
+            assertTrue(stats.toString(), stats.getSent() > 0);
+            assertTrue(stats.toString(), stats.getSent() <= calls.length / 10);
+            assertTrue(stats.toString(), stats.getThrottled() > 0);
+        }
+    }
+
+    /**
+     * Answers each request with its own envelope after a delay, from a scheduler so no thread waits for it.
+     */
+    private static class ReplicasTransport implements SoapTransport
+    {
+
+        private final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(2);
+        private final IntPredicate slow;
+        private final AtomicInteger requests = new AtomicInteger();
+        private final AtomicInteger cancelled = new AtomicInteger();
+        private final AtomicInteger released = new AtomicInteger();
+
+        ReplicasTransport(IntPredicate slow)
+        {
+            this.slow = slow;
+        }
+
+        @Override
+        public TransportResponse send(TransportRequest request)
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public CompletableFuture<TransportResponse> sendAsync(TransportRequest request)
+        {
+            CompletableFuture<TransportResponse> result = new CompletableFuture<>();
+            ByteArrayOutputStream envelope = new ByteArrayOutputStream();
+            try
+            {
+                request.writeEnvelope(envelope);
+            }
+            catch (IOException e)
+            {
+                result.completeExceptionally(e);
+                return result;
+            }
+            long delay = slow.test(requests.getAndIncrement()) ? SLOW : FAST;
+            ScheduledFuture<?> response = scheduler.schedule(() ->
+                                                             {
+                                                                 AtomicBoolean once = new AtomicBoolean();
+                                                                 Runnable release = () ->
+                                                                 {
+                                                                     if (once.compareAndSet(false, true))
+                                                                     {
+                                                                         released.incrementAndGet();
+                                                                     }
+                                                                 };
+                                                                 if (!result.complete(new TransportResponse(new ByteArrayInputStream(envelope.toByteArray()), emptyList(),
+                                                                                                            release::run, release::run)))
+                                                                 {
+                                                                     // Cancelled while answering, the response is discarded
+                                                                     release.run();
+                                                                 }
+                                                             }, delay, MILLISECONDS);
+            result.whenComplete((r, e) ->
+                                {
+                                    if (result.isCancelled() && response.cancel(false))
+                                    {
+                                        cancelled.incrementAndGet();
+                                    }
+                                });
+            return result;
+        }
+
+        @Override
+        public void close()
+        {
+            scheduler.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,244 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.ws;
+
+import static java.util.Arrays.asList;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.mule.extension.ws.SoapClientTestUtils.readXml;
+import static org.mule.extension.ws.SoapClientTestUtils.xmlStreamToString;
+import org.mule.extension.ws.api.BalancingStrategy;
+import org.mule.extension.ws.api.EndpointStats;
+import org.mule.extension.ws.api.Response;
+import org.mule.extension.ws.api.ServiceDefinition;
+import org.mule.extension.ws.api.SoapProxyClient;
+import org.mule.extension.ws.api.builder.ClientConfigurationBuilder;
+import org.mule.extension.ws.api.builder.LoadBalancingConfigurationBuilder;
+import org.mule.extension.ws.api.exception.SoapConnectException;
+import org.mule.extension.ws.consumer.TestService;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.cxf.endpoint.Server;
+import org.apache.cxf.interceptor.Fault;
+import org.apache.cxf.jaxws.JaxWsServerFactoryBean;
+import org.apache.cxf.message.Message;
+import org.apache.cxf.phase.AbstractPhaseInterceptor;
+import org.apache.cxf.phase.Phase;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class LoadBalancingTestCase
+{
+
+    private static final String FAST_URL = "http://localhost:6056/balancedService";
+    private static final String OTHER_FAST_URL = "http://localhost:6057/balancedService";
+    private static final String SLOW_URL = "http://localhost:6058/balancedService";
+    // Nothing listens here until the test that ejects it starts a service
+    private static final String DOWN_URL = "http://localhost:6059/balancedService";
+    private static final String NAMESPACE = "http://consumer.ws.extension.mule.org/";
+    private static final long SLOW_DELAY = 300;
+    private static final int CALLERS = 4;
+
+    private static final AtomicInteger fastCalls = new AtomicInteger();
+    private static final AtomicInteger otherFastCalls = new AtomicInteger();
+    private static final AtomicInteger slowCalls = new AtomicInteger();
+    private static final List<Server> services = new ArrayList<>();
+
+    @BeforeClass
+    public static void setup() throws Exception
+    {
+        services.add(publish(FAST_URL, fastCalls, 0));
+        services.add(publish(OTHER_FAST_URL, otherFastCalls, 0));
+        services.add(publish(SLOW_URL, slowCalls, SLOW_DELAY));
+
+        // The first calls to a service are way slower than the rest, they would skew the latency of the fast ones
+        for (String url : asList(FAST_URL, OTHER_FAST_URL, SLOW_URL))
+        {
+            try (SoapProxyClient client = SoapProxyClient.create(new ServiceDefinition(url, NAMESPACE, "TestService", "TestPort")))
+            {
+                for (int i = 0; i < 5; i++)
+                {
+                    assertEcho(client);
+                }
+            }
+        }
+    }
+
+    @AfterClass
+    public static void tearDown()
+    {
+        services.forEach(Server::destroy);
+    }
+
+    @Before
+    public void clear()
+    {
+        fastCalls.set(0);
+        otherFastCalls.set(0);
+        slowCalls.set(0);
+    }
+
+    @Test
+    public void slowEndpointGetsFewerCallsByLatency() throws Exception
+    {
+        invokeConcurrently(BalancingStrategy.PEAK_EWMA);
+
+        int total = fastCalls.get() + otherFastCalls.get() + slowCalls.get();
+        assertTrue("Slow endpoint got " + slowCalls.get() + " of " + total + " calls", slowCalls.get() * 10 < total);
+        assertTrue(fastCalls.get() > total / 4);
+        assertTrue(otherFastCalls.get() > total / 4);
+    }
+
+    @Test
+    public void slowEndpointGetsFewerCallsByOutstanding() throws Exception
+    {
+        invokeConcurrently(BalancingStrategy.LEAST_OUTSTANDING);
+
+        String calls = "Slow endpoint got " + slowCalls.get() + " calls, the fast ones " + fastCalls.get() + " and " + otherFastCalls.get();
+        assertTrue(calls, slowCalls.get() * 4 < fastCalls.get());
+        assertTrue(calls, slowCalls.get() * 4 < otherFastCalls.get());
+    }
+
+    @Test
+    public void failingEndpointIsEjectedAndProbedBack() throws Exception
+    {
+        ClientConfigurationBuilder configuration = ClientConfigurationBuilder.getInstance()
+                .setLoadBalancing(LoadBalancingConfigurationBuilder.getInstance()
+                                          .setStrategy(BalancingStrategy.LEAST_OUTSTANDING)
+                                          .setFailuresToEject(2)
+                                          .setEjectionTime(500)
+                                          .build());
+        ServiceDefinition service = new ServiceDefinition(asList(FAST_URL, OTHER_FAST_URL, DOWN_URL), NAMESPACE, "TestService", "TestPort");
+        try (SoapProxyClient client = SoapProxyClient.create(service, configuration.build()))
+        {
+            int failures = 0;
+            for (int i = 0; i < 50; i++)
+            {
+                try
+                {
+                    assertEcho(client);
+                }
+                catch (SoapConnectException e)
+                {
+                    failures++;
+                }
+            }
+            EndpointStats down = client.getEndpointStats().get(2);
+            assertThat(failures, is(2));
+            assertThat(down.getFailures(), is(2L));
+            assertTrue(down.isEjected());
+            assertThat(down.getEjections(), is(1L));
+
+            AtomicInteger recoveredCalls = new AtomicInteger();
+            Server recovered = publish(DOWN_URL, recoveredCalls, 0);
+            try
+            {
+                Thread.sleep(600);
+                for (int i = 0; i < 50 && client.getEndpointStats().get(2).isEjected(); i++)
+                {
+                    assertEcho(client);
+                }
+                assertTrue(!client.getEndpointStats().get(2).isEjected());
+                assertThat(recoveredCalls.get(), is(1));
+
+                for (int i = 0; i < 50; i++)
+                {
+                    assertEcho(client);
+                }
+                assertTrue(recoveredCalls.get() > 1);
+            }
+            finally
+            {
+                recovered.destroy();
+            }
+        }
+    }
+
+    private void invokeConcurrently(BalancingStrategy strategy) throws Exception
+    {
+        ClientConfigurationBuilder configuration = ClientConfigurationBuilder.getInstance()
+                .setLoadBalancing(LoadBalancingConfigurationBuilder.getInstance()
+                                          .setStrategy(strategy)
+                                          .setLatencyDecay(2000)
+                                          .build());
+        ServiceDefinition service = new ServiceDefinition(asList(FAST_URL, OTHER_FAST_URL, SLOW_URL), NAMESPACE, "TestService", "TestPort");
+        ExecutorService executor = Executors.newFixedThreadPool(CALLERS);
+        try (SoapProxyClient client = SoapProxyClient.create(service, configuration.build()))
+        {
+            List<Future<?>> callers = new ArrayList<>();
+            for (int i = 0; i < CALLERS; i++)
+            {
+                callers.add(executor.submit(() ->
+                                            {
+                                                for (int j = 0; j < 100; j++)
+                                                {
+                                                    assertEcho(client);
+                                                }
+                                                return null;
+                                            }));
+            }
+            for (Future<?> caller : callers)
+            {
+                caller.get();
+            }
+
+            for (EndpointStats endpoint : client.getEndpointStats())
+            {
+                assertThat(endpoint.getFailures(), is(0L));
+                assertThat(endpoint.getOutstanding(), is(0));
+            }
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+    }
+
+    private static void assertEcho(SoapProxyClient client) throws Exception
+    {
+        try (Response response = client.invoke("echo", readXml("request/echo.xml")))
+        {
+            assertTrue(xmlStreamToString(response.getBody()).contains("<text>test response</text>"));
+        }
+    }
+
+    private static Server publish(String url, AtomicInteger calls, long delay)
+    {
+        JaxWsServerFactoryBean factory = new JaxWsServerFactoryBean();
+        factory.setServiceBean(new TestService());
+        factory.setAddress(url);
+        factory.getInInterceptors().add(new AbstractPhaseInterceptor<Message>(Phase.RECEIVE)
+        {
+            @Override
+            public void handleMessage(Message message) throws Fault
+            {
+                calls.incrementAndGet();
+                if (delay > 0)
+                {
+                    try
+                    {
+                        Thread.sleep(delay);
+                    }
+                    catch (InterruptedException e)
+                    {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            }
+        });
+        return factory.create();
+    }
+}
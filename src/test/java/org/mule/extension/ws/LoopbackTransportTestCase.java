@@ -0,0 +1,117 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.ws;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mule.extension.ws.SoapClientTestUtils.readXml;
+import static org.mule.extension.ws.SoapClientTestUtils.xmlStreamToString;
+import org.mule.extension.ws.api.Response;
+import org.mule.extension.ws.api.ServiceDefinition;
+import org.mule.extension.ws.api.SoapProxyClient;
+import org.mule.extension.ws.api.builder.ClientConfigurationBuilder;
+import org.mule.extension.ws.api.exception.SoapFaultException;
+import org.mule.extension.ws.api.metrics.HistogramSoapClientMetrics;
+import org.mule.extension.ws.api.metrics.OperationSnapshot;
+import org.mule.extension.ws.api.transport.LoopbackSoapTransport;
+import org.mule.extension.ws.api.transport.TransportResponse;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class LoopbackTransportTestCase
+{
+
+    private static final String NAMESPACE = "http://consumer.ws.extension.mule.org/";
+    private static final ServiceDefinition TEST_SERVICE_DEFINITION = new ServiceDefinition("loopback://test", NAMESPACE, "TestService", "TestPort");
+    private static final String FAULT = "<soap:Envelope xmlns:soap=\"http://schemas.xmlsoap.org/soap/envelope/\"><soap:Body>"
+                                        + "<soap:Fault><faultcode>soap:Server</faultcode><faultstring>Fail Message</faultstring></soap:Fault>"
+                                        + "</soap:Body></soap:Envelope>";
+
+    private static final AtomicInteger released = new AtomicInteger();
+    private static HistogramSoapClientMetrics metrics = new HistogramSoapClientMetrics();
+    private static SoapProxyClient soapClient;
+
+    @BeforeClass
+    public static void setup()
+    {
+        // Echoes the request envelope back, except for the fail operation which answers a fault
+        LoopbackSoapTransport transport = new LoopbackSoapTransport((soapAction, envelope, attachments) ->
+                                                                    {
+                                                                        byte[] response = soapAction.equals("fail") ? FAULT.getBytes(UTF_8) : IOUtils.toByteArray(envelope);
+                                                                        return new TransportResponse(new ByteArrayInputStream(response), attachments, () -> {}, released::incrementAndGet);
+                                                                    });
+        soapClient = SoapProxyClient.create(TEST_SERVICE_DEFINITION, ClientConfigurationBuilder.getInstance().setMetrics(metrics).build(), transport);
+    }
+
+    @AfterClass
+    public static void tearDown() throws IOException
+    {
+        soapClient.close();
+    }
+
+    @Test
+    public void echoOperation() throws Exception
+    {
+        int before = released.get();
+        try (Response response = soapClient.invoke("echo", readXml("request/echo.xml")))
+        {
+            String body = xmlStreamToString(response.getBody());
+            assertTrue(body, body.contains("<text>test</text>"));
+        }
+        assertThat(released.get(), is(before + 1));
+
+        OperationSnapshot echo = metrics.snapshot("echo");
+        assertTrue(echo.getRequestBytes() > 0);
+        assertThat(echo.getRequestBytes(), is(echo.getResponseBytes()));
+    }
+
+    @Test
+    public void asyncEchoOperation() throws Exception
+    {
+        try (Response response = soapClient.invokeAsync("echo", readXml("request/echo.xml")).get())
+        {
+            String body = xmlStreamToString(response.getBody());
+            assertTrue(body, body.contains("<text>test</text>"));
+        }
+    }
+
+    @Test
+    public void faultOperation() throws Exception
+    {
+        try
+        {
+            soapClient.invoke("fail", readXml("request/fail.xml"));
+            fail();
+        }
+        catch (SoapFaultException e)
+        {
+            assertThat(e.getMessage(), is("Fail Message"));
+        }
+
+        try
+        {
+            soapClient.invokeAsync("fail", readXml("request/fail.xml")).get();
+            fail();
+        }
+        catch (ExecutionException e)
+        {
+            assertTrue(e.getCause() instanceof SoapFaultException);
+        }
+        assertThat(metrics.snapshot("fail").getFaults(), is(2L));
+    }
+}
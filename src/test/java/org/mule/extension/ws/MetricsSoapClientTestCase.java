@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.ws;
+
+import static javax.xml.ws.Endpoint.publish;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.mule.extension.ws.SoapClientTestUtils.readXml;
+import static org.mule.extension.ws.SoapClientTestUtils.xmlStreamToString;
+import static org.mule.extension.ws.api.metrics.Phase.BUILD_REQUEST;
+import static org.mule.extension.ws.api.metrics.Phase.CONNECTION_LEASE;
+import static org.mule.extension.ws.api.metrics.Phase.FAULT_EXTRACTION;
+import static org.mule.extension.ws.api.metrics.Phase.REQUEST_WRITE;
+import static org.mule.extension.ws.api.metrics.Phase.RESPONSE_PARSE;
+import static org.mule.extension.ws.api.metrics.Phase.TIME_TO_FIRST_BYTE;
+import org.mule.extension.ws.api.Response;
+import org.mule.extension.ws.api.ServiceDefinition;
+import org.mule.extension.ws.api.SoapProxyClient;
+import org.mule.extension.ws.api.builder.ClientConfigurationBuilder;
+import org.mule.extension.ws.api.exception.SoapFaultException;
+import org.mule.extension.ws.api.metrics.HistogramSoapClientMetrics;
+import org.mule.extension.ws.api.metrics.OperationSnapshot;
+import org.mule.extension.ws.api.metrics.Phase;
+import org.mule.extension.ws.consumer.TestService;
+
+import javax.xml.ws.Endpoint;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class MetricsSoapClientTestCase
+{
+
+    private static final String SERVICE_URL = "http://localhost:6044/metricsService";
+    private static final String NAMESPACE = "http://consumer.ws.extension.mule.org/";
+    private static final ServiceDefinition TEST_SERVICE_DEFINITION = new ServiceDefinition(SERVICE_URL, NAMESPACE, "TestService", "TestPort");
+
+    private static Endpoint service;
+    private static HistogramSoapClientMetrics metrics = new HistogramSoapClientMetrics();
+    private static SoapProxyClient soapClient;
+
+    @BeforeClass
+    public static void setup()
+    {
+        service = publish(SERVICE_URL, new TestService());
+        assertTrue(service.isPublished());
+        soapClient = SoapProxyClient.create(TEST_SERVICE_DEFINITION, ClientConfigurationBuilder.getInstance().setMetrics(metrics).build());
+    }
+
+    @AfterClass
+    public static void tearDown() throws Exception
+    {
+        soapClient.close();
+        service.stop();
+    }
+
+    @Test
+    public void phasesOfSuccessfulCalls() throws Exception
+    {
+        for (int i = 0; i < 5; i++)
+        {
+            try (Response response = soapClient.invoke("echo", readXml("request/echo.xml")))
+            {
+                xmlStreamToString(response.getBody());
+            }
+        }
+
+        OperationSnapshot echo = metrics.snapshot("echo");
+        assertThat(echo.getCalls(), is(5L));
+        assertThat(echo.getFaults(), is(0L));
+        assertTrue(echo.getRequestBytes() > 0);
+        assertTrue(echo.getResponseBytes() > 0);
+        for (Phase phase : new Phase[] {BUILD_REQUEST, CONNECTION_LEASE, REQUEST_WRITE, TIME_TO_FIRST_BYTE, RESPONSE_PARSE})
+        {
+            assertThat(phase.name(), echo.getPhase(phase).getCount(), is(5L));
+        }
+        assertThat(echo.getPhase(FAULT_EXTRACTION).getCount(), is(0L));
+    }
+
+    @Test
+    public void faultsAreCounted() throws Exception
+    {
+        try
+        {
+            soapClient.invoke("fail", readXml("request/fail.xml"));
+        }
+        catch (SoapFaultException e)
+        {
+            // expected
+        }
+
+        OperationSnapshot fail = metrics.snapshot("fail");
+        assertThat(fail.getCalls(), is(1L));
+        assertThat(fail.getFaults(), is(1L));
+        assertThat(fail.getPhase(FAULT_EXTRACTION).getCount(), is(1L));
+        assertThat(fail.getPhase(RESPONSE_PARSE).getCount(), is(0L));
+    }
+}
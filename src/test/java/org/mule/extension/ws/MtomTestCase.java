@@ -0,0 +1,237 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.ws;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
+import static javax.xml.stream.XMLStreamConstants.START_ELEMENT;
+import static javax.xml.ws.Endpoint.publish;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.mule.extension.ws.SoapClientTestUtils.readXml;
+import org.mule.extension.ws.api.MtomConfiguration;
+import org.mule.extension.ws.api.Response;
+import org.mule.extension.ws.api.ServiceDefinition;
+import org.mule.extension.ws.api.SoapProxyClient;
+import org.mule.extension.ws.api.builder.ClientConfigurationBuilder;
+import org.mule.extension.ws.api.builder.MtomConfigurationBuilder;
+import org.mule.extension.ws.api.transport.SoapTransport;
+import org.mule.extension.ws.api.transport.TransportRequest;
+import org.mule.extension.ws.api.transport.TransportResponse;
+import org.mule.extension.ws.consumer.TestAttachments;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.ws.Endpoint;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class MtomTestCase
+{
+
+    private static final String SERVICE_URL = "http://localhost:6061/mtomService";
+    private static final String NAMESPACE = "http://consumer.ws.extension.mule.org/";
+    private static final String XOP_NAMESPACE = "http://www.w3.org/2004/08/xop/include";
+    private static final ServiceDefinition TEST_SERVICE_DEFINITION = new ServiceDefinition(SERVICE_URL, NAMESPACE, "TestService", "TestPort");
+    private static final MtomConfiguration MTOM = MtomConfigurationBuilder.getInstance().optimizeElements(new QName("attachment")).setThreshold(1024).build();
+
+    private static Endpoint service;
+
+    @BeforeClass
+    public static void setup()
+    {
+        service = publish(SERVICE_URL, new TestAttachments());
+        assertTrue(service.isPublished());
+    }
+
+    @AfterClass
+    public static void tearDown()
+    {
+        service.stop();
+    }
+
+    @Test
+    public void bigBinaryContentIsMovedIntoParts() throws Exception
+    {
+        CapturingTransport transport = new CapturingTransport();
+        try (SoapProxyClient client = SoapProxyClient.create(new ServiceDefinition("test://mtom", NAMESPACE, "TestService", "TestPort"),
+                                                             ClientConfigurationBuilder.getInstance().setMtom(MTOM).build(), transport))
+        {
+            byte[] big = content(100000);
+            client.invoke("uploadAttachment", upload(big)).close();
+            assertTrue(transport.contentType.startsWith("application/xop+xml"));
+            assertTrue(transport.contentType.contains("type=\"text/xml\""));
+            assertThat(transport.parts.size(), is(1));
+            assertArrayEquals(big, transport.parts.get(0));
+            assertTrue(transport.envelope.contains("<xop:Include xmlns:xop=\"" + XOP_NAMESPACE + "\" href=\"cid:attachment-0\""));
+            assertFalse(transport.envelope.contains(Base64.getEncoder().encodeToString(big)));
+
+            // Under the threshold it stays inlined
+            byte[] small = content(512);
+            client.invoke("uploadAttachment", upload(small)).close();
+            assertThat(transport.parts.size(), is(0));
+            assertTrue(transport.envelope.replaceAll("\\s", "").contains(Base64.getEncoder().encodeToString(small)));
+        }
+    }
+
+    @Test
+    public void onlyListedElementsAreMovedIntoParts() throws Exception
+    {
+        CapturingTransport transport = new CapturingTransport();
+        MtomConfiguration mtom = MtomConfigurationBuilder.getInstance().optimizeElements(new QName(NAMESPACE, "attachment")).build();
+        try (SoapProxyClient client = SoapProxyClient.create(new ServiceDefinition("test://mtom", NAMESPACE, "TestService", "TestPort"),
+                                                             ClientConfigurationBuilder.getInstance().setMtom(mtom).build(), transport))
+        {
+            byte[] big = content(4096);
+            client.invoke("uploadAttachment", upload(big)).close();
+            assertThat(transport.parts.size(), is(0));
+            assertTrue(transport.envelope.replaceAll("\\s", "").contains(Base64.getEncoder().encodeToString(big)));
+        }
+    }
+
+    @Test
+    public void uploadsToMtomService() throws Exception
+    {
+        try (SoapProxyClient client = SoapProxyClient.create(TEST_SERVICE_DEFINITION, ClientConfigurationBuilder.getInstance().setMtom(MTOM).build()))
+        {
+            Response response = client.invoke("uploadAttachment", upload(content(8192)));
+            XMLStreamReader body = response.getBody();
+            body.nextTag();
+            body.nextTag();
+            assertThat(body.getElementText(), is("OK"));
+        }
+    }
+
+    @Test
+    public void attachmentReferencesAreSentAsXopIncludes() throws Exception
+    {
+        try (SoapProxyClient client = SoapProxyClient.create(TEST_SERVICE_DEFINITION, ClientConfigurationBuilder.getInstance().setMtom(MTOM).build()))
+        {
+            String payload = "<con:uploadAttachment xmlns:con=\"" + NAMESPACE + "\">"
+                             + "<fileName>attachment_file.txt</fileName>"
+                             + "<attachment>cid:attachment-0</attachment>"
+                             + "</con:uploadAttachment>";
+            Response response = client.invoke("uploadAttachment", XMLInputFactory.newInstance().createXMLStreamReader(new StringReader(payload)),
+                                               emptyList(), singletonList(new ByteArrayInputStream(content(100))));
+            XMLStreamReader body = response.getBody();
+            body.nextTag();
+            body.nextTag();
+            assertThat(body.getElementText(), is("OK"));
+            response.close();
+        }
+    }
+
+    @Test
+    public void xopReferencesAreResolvedToStreams() throws Exception
+    {
+        try (SoapProxyClient client = SoapProxyClient.create(TEST_SERVICE_DEFINITION, ClientConfigurationBuilder.getInstance().setMtom(MTOM).build()))
+        {
+            Response response = client.invoke("downloadAttachment", readXml("request/attachment/downloadAttachment.xml"));
+            XMLStreamReader body = response.getBody();
+            String href = null;
+            while (href == null && body.hasNext())
+            {
+                if (body.next() == START_ELEMENT && XOP_NAMESPACE.equals(body.getNamespaceURI()))
+                {
+                    href = body.getAttributeValue(null, "href");
+                }
+            }
+            assertNotNull(href);
+            assertThat(IOUtils.toString(response.getAttachment(href), UTF_8), is("some content."));
+            response.close();
+        }
+    }
+
+    /**
+     * Repeats "some content." up to the given size.
+     */
+    private static byte[] content(int size)
+    {
+        byte[] pattern = "some content.".getBytes(UTF_8);
+        byte[] content = new byte[size];
+        for (int i = 0; i < size; i++)
+        {
+            content[i] = pattern[i % pattern.length];
+        }
+        return content;
+    }
+
+    private static XMLStreamReader upload(byte[] content) throws XMLStreamException
+    {
+        String payload = "<con:uploadAttachment xmlns:con=\"" + NAMESPACE + "\">"
+                         + "<fileName>attachment_file.txt</fileName>"
+                         + "<attachment>" + Base64.getMimeEncoder().encodeToString(content) + "</attachment>"
+                         + "</con:uploadAttachment>";
+        return XMLInputFactory.newInstance().createXMLStreamReader(new StringReader(payload));
+    }
+
+    /**
+     * Keeps the envelope and the parts of the last request, answers with the same envelope.
+     */
+    private static class CapturingTransport implements SoapTransport
+    {
+
+        private String contentType;
+        private String envelope;
+        private List<byte[]> parts;
+
+        @Override
+        public TransportResponse send(TransportRequest request) throws IOException
+        {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            request.writeEnvelope(out);
+            contentType = request.getContentType();
+            envelope = new String(out.toByteArray(), UTF_8);
+            parts = new ArrayList<>();
+            for (int i = 0; i < request.getAttachments().size(); i++)
+            {
+                parts.add(IOUtils.toByteArray(request.getAttachments().get(i)));
+            }
+            ByteArrayInputStream body = new ByteArrayInputStream(out.toByteArray());
+            return new TransportResponse(body, emptyList(), body, body);
+        }
+
+        @Override
+        public CompletableFuture<TransportResponse> sendAsync(TransportRequest request)
+        {
+            CompletableFuture<TransportResponse> result = new CompletableFuture<>();
+            try
+            {
+                result.complete(send(request));
+            }
+            catch (IOException e)
+            {
+                result.completeExceptionally(e);
+            }
+            return result;
+        }
+
+        @Override
+        public void close()
+        {
+        }
+    }
+}
@@ -0,0 +1,208 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.ws;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Collections.emptyList;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.mule.extension.ws.SoapClientTestUtils.readXml;
+import org.mule.extension.ws.api.Response;
+import org.mule.extension.ws.api.ServiceDefinition;
+import org.mule.extension.ws.api.SoapProxyClient;
+import org.mule.extension.ws.api.builder.ClientConfigurationBuilder;
+import org.mule.extension.ws.api.transport.SoapTransport;
+import org.mule.extension.ws.api.transport.TransportRequest;
+import org.mule.extension.ws.api.transport.TransportResponse;
+import org.mule.extension.ws.internal.RecordReader;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.Spliterator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.junit.Test;
+
+public class RecordStreamingTestCase
+{
+
+    private static final String NAMESPACE = "http://consumer.ws.extension.mule.org/";
+    private static final ServiceDefinition TEST_SERVICE_DEFINITION = new ServiceDefinition("test://accounts", NAMESPACE, "TestService", "TestPort");
+    // Well above the 50000 children per element CXF's readers allow
+    private static final int RECORDS = 200000;
+
+    @Test
+    public void recordsAreReadLazily() throws Exception
+    {
+        AccountsTransport transport = new AccountsTransport(RECORDS);
+        try (SoapProxyClient client = SoapProxyClient.create(TEST_SERVICE_DEFINITION, ClientConfigurationBuilder.getInstance().build(), transport))
+        {
+            Response response = client.invoke("echo", readXml("request/echo.xml"));
+            Iterator<XMLStreamReader> records = response.getRecords();
+
+            assertThat(readId(records.next()), is(0));
+            // Only what the parser buffered ahead was generated so far
+            assertTrue(transport.content.generated < RECORDS / 10);
+
+            int count = 1;
+            while (records.hasNext())
+            {
+                assertThat(readId(records.next()), is(count++));
+            }
+            assertThat(count, is(RECORDS));
+            assertThat(transport.content.generated, is(RECORDS));
+            assertTrue(transport.released.get());
+        }
+    }
+
+    @Test
+    public void recordsAreProcessedInParallel() throws Exception
+    {
+        AccountsTransport transport = new AccountsTransport(RECORDS);
+        try (SoapProxyClient client = SoapProxyClient.create(TEST_SERVICE_DEFINITION, ClientConfigurationBuilder.getInstance().build(), transport))
+        {
+            try (Stream<XMLStreamReader> records = client.invoke("echo", readXml("request/echo.xml")).streamRecords(true))
+            {
+                long sum = records.mapToLong(RecordStreamingTestCase::readId).sum();
+                assertThat(sum, is((long) RECORDS * (RECORDS - 1) / 2));
+            }
+            assertTrue(transport.released.get());
+
+            Spliterator<byte[]> spliterator = client.invoke("echo", readXml("request/echo.xml")).getRecordSpliterator();
+            Spliterator<byte[]> batch = spliterator.trySplit();
+            assertNotNull(batch);
+            assertTrue(batch.estimateSize() > 1);
+            assertTrue(batch.tryAdvance(record -> assertThat(readId(RecordReader.parse(record)), is(0))));
+        }
+    }
+
+    @Test
+    public void emptyResultHasNoRecords() throws Exception
+    {
+        AccountsTransport transport = new AccountsTransport(0);
+        try (SoapProxyClient client = SoapProxyClient.create(TEST_SERVICE_DEFINITION, ClientConfigurationBuilder.getInstance().build(), transport))
+        {
+            assertFalse(client.invoke("echo", readXml("request/echo.xml")).getRecords().hasNext());
+            assertTrue(transport.released.get());
+        }
+    }
+
+    /**
+     * Reads the id of an account record, the record uses a prefix that is only declared on the envelope.
+     */
+    private static int readId(XMLStreamReader record)
+    {
+        try
+        {
+            record.nextTag();
+            assertThat(record.getNamespaceURI(), is(NAMESPACE));
+            assertThat(record.getLocalName(), is("account"));
+            record.nextTag();
+            return Integer.parseInt(record.getElementText());
+        }
+        catch (XMLStreamException e)
+        {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Generates the response envelope as it is read, so the records are never held in memory all together.
+     */
+    private static class AccountsContent extends InputStream
+    {
+
+        private final int records;
+        private InputStream current;
+        private int generated = -1;
+
+        AccountsContent(int records)
+        {
+            this.records = records;
+            this.current = bytes("<soap:Envelope xmlns:soap=\"http://schemas.xmlsoap.org/soap/envelope/\" xmlns:ns2=\"" + NAMESPACE + "\">"
+                                 + "<soap:Body><ns2:listAccountsResponse>");
+        }
+
+        @Override
+        public int read() throws IOException
+        {
+            byte[] b = new byte[1];
+            return read(b, 0, 1) == -1 ? -1 : b[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException
+        {
+            int read = current.read(b, off, len);
+            while (read == -1 && generated < records)
+            {
+                generated++;
+                current = generated < records
+                          ? bytes("<ns2:account><id>" + generated + "</id><name>Account " + generated + "</name></ns2:account>")
+                          : bytes("</ns2:listAccountsResponse></soap:Body></soap:Envelope>");
+                read = current.read(b, off, len);
+            }
+            return read;
+        }
+
+        private static InputStream bytes(String content)
+        {
+            return new ByteArrayInputStream(content.getBytes(UTF_8));
+        }
+    }
+
+    private static class AccountsTransport implements SoapTransport
+    {
+
+        private final int records;
+        private final AtomicBoolean released = new AtomicBoolean();
+        private AccountsContent content;
+
+        AccountsTransport(int records)
+        {
+            this.records = records;
+        }
+
+        @Override
+        public TransportResponse send(TransportRequest request) throws IOException
+        {
+            released.set(false);
+            content = new AccountsContent(records);
+            return new TransportResponse(content, emptyList(), () -> released.set(true), () -> released.set(true));
+        }
+
+        @Override
+        public CompletableFuture<TransportResponse> sendAsync(TransportRequest request)
+        {
+            CompletableFuture<TransportResponse> result = new CompletableFuture<>();
+            try
+            {
+                result.complete(send(request));
+            }
+            catch (IOException e)
+            {
+                result.completeExceptionally(e);
+            }
+            return result;
+        }
+
+        @Override
+        public void close()
+        {
+        }
+    }
+}
@@ -0,0 +1,330 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.ws;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Collections.emptyList;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mule.extension.ws.SoapClientTestUtils.readXml;
+import static org.mule.extension.ws.SoapClientTestUtils.xmlStreamToString;
+import org.mule.extension.ws.api.CircuitBreakerConfiguration;
+import org.mule.extension.ws.api.CircuitBreakerStats;
+import org.mule.extension.ws.api.CircuitState;
+import org.mule.extension.ws.api.Response;
+import org.mule.extension.ws.api.RetryConfiguration;
+import org.mule.extension.ws.api.RetryStats;
+import org.mule.extension.ws.api.ServiceDefinition;
+import org.mule.extension.ws.api.SoapProxyClient;
+import org.mule.extension.ws.api.builder.CircuitBreakerConfigurationBuilder;
+import org.mule.extension.ws.api.builder.ClientConfigurationBuilder;
+import org.mule.extension.ws.api.builder.RetryConfigurationBuilder;
+import org.mule.extension.ws.api.exception.CircuitOpenException;
+import org.mule.extension.ws.api.exception.SoapClientException;
+import org.mule.extension.ws.api.exception.SoapConnectException;
+import org.mule.extension.ws.api.exception.SoapTimeoutException;
+import org.mule.extension.ws.api.exception.SoapTransportException;
+import org.mule.extension.ws.api.exception.UnexpectedStatusException;
+import org.mule.extension.ws.api.transport.LoopbackSoapTransport;
+import org.mule.extension.ws.api.transport.SoapTransport;
+import org.mule.extension.ws.api.transport.TransportRequest;
+import org.mule.extension.ws.api.transport.TransportResponse;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.Test;
+
+public class ResilienceTestCase
+{
+
+    private static final String NAMESPACE = "http://consumer.ws.extension.mule.org/";
+    private static final ServiceDefinition TEST_SERVICE_DEFINITION = new ServiceDefinition("test://flaky", NAMESPACE, "TestService", "TestPort");
+
+    @Test
+    public void transportFailuresAreTyped() throws Exception
+    {
+        FlakyTransport transport = new FlakyTransport(attempt -> attempt == 0 ? new ConnectException("Connection refused") : new SocketTimeoutException("Read timed out"));
+        try (SoapProxyClient client = SoapProxyClient.create(TEST_SERVICE_DEFINITION, ClientConfigurationBuilder.getInstance().build(), transport))
+        {
+            try
+            {
+                client.invoke("echo", readXml("request/echo.xml"));
+                fail();
+            }
+            catch (SoapConnectException e)
+            {
+                assertThat(e.getEndpoint(), is(TEST_SERVICE_DEFINITION.getBaseEndpoint()));
+                assertTrue(e.isRetryable());
+            }
+            try
+            {
+                client.invokeAsync("echo", readXml("request/echo.xml")).get();
+                fail();
+            }
+            catch (ExecutionException e)
+            {
+                assertTrue(e.getCause() instanceof SoapTimeoutException);
+            }
+        }
+    }
+
+    @Test
+    public void unexpectedStatusIsTyped() throws Exception
+    {
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 6060), 0);
+        server.createContext("/", exchange ->
+        {
+            exchange.sendResponseHeaders(503, -1);
+            exchange.close();
+        });
+        server.start();
+        try (SoapProxyClient client = SoapProxyClient.create(new ServiceDefinition("http://localhost:6060/overloaded", NAMESPACE, "TestService", "TestPort")))
+        {
+            client.invoke("echo", readXml("request/echo.xml"));
+            fail();
+        }
+        catch (UnexpectedStatusException e)
+        {
+            assertThat(e.getStatusCode(), is(503));
+            assertTrue(e.isRetryable());
+        }
+        finally
+        {
+            server.stop(0);
+        }
+    }
+
+    @Test
+    public void clientFailuresAreTyped() throws Exception
+    {
+        // Answers with something that isn't an envelope
+        LoopbackSoapTransport transport = new LoopbackSoapTransport((soapAction, envelope, attachments) -> new TransportResponse(new ByteArrayInputStream("not xml".getBytes(UTF_8))));
+        try (SoapProxyClient client = SoapProxyClient.create(TEST_SERVICE_DEFINITION, ClientConfigurationBuilder.getInstance().build(), transport))
+        {
+            try
+            {
+                client.invoke("echo", readXml("request/echo.xml"));
+                fail();
+            }
+            catch (SoapClientException e)
+            {
+                assertThat(e.getOperation(), is("echo"));
+            }
+            try
+            {
+                client.invokeAsync("echo", readXml("request/echo.xml")).get();
+                fail();
+            }
+            catch (ExecutionException e)
+            {
+                assertTrue(e.getCause() instanceof SoapClientException);
+            }
+        }
+    }
+
+    @Test
+    public void idempotentCallsAreRetried() throws Exception
+    {
+        // Every call fails twice before succeeding
+        FlakyTransport transport = new FlakyTransport(attempt -> attempt % 3 < 2 ? new IOException("Connection reset") : null);
+        RetryConfiguration retry = RetryConfigurationBuilder.getInstance()
+                .retryOperations("echo")
+                .setMaxAttempts(3)
+                .setInitialBackoff(1)
+                .setMaxBackoff(5)
+                .build();
+        try (SoapProxyClient client = SoapProxyClient.create(TEST_SERVICE_DEFINITION, ClientConfigurationBuilder.getInstance().setRetry(retry).build(), transport))
+        {
+            assertEcho(client.invoke("echo", readXml("request/echo.xml")));
+            assertThat(transport.attempts.get(), is(3));
+            assertEcho(client.invokeAsync("echo", readXml("request/echo.xml")).get());
+            assertThat(transport.attempts.get(), is(6));
+
+            // Not idempotent, it's sent once
+            try
+            {
+                client.invoke("echoAccount", readXml("request/echoAccount.xml"));
+                fail();
+            }
+            catch (SoapTransportException e)
+            {
+                assertThat(transport.attempts.get(), is(7));
+            }
+
+            RetryStats stats = client.getRetryStats();
+            assertThat(stats.getRetries(), is(4L));
+            assertThat(stats.getThrottled(), is(0L));
+        }
+    }
+
+    @Test
+    public void retriesAreBoundedByTheBudget() throws Exception
+    {
+        FlakyTransport transport = new FlakyTransport(attempt -> new IOException("Connection reset"));
+        RetryConfiguration retry = RetryConfigurationBuilder.getInstance()
+                .retryOperations("echo")
+                .setInitialBackoff(1)
+                .setMaxBackoff(1)
+                .setBudgetPercent(10)
+                .build();
+        int calls = 200;
+        try (SoapProxyClient client = SoapProxyClient.create(TEST_SERVICE_DEFINITION, ClientConfigurationBuilder.getInstance().setRetry(retry).build(), transport))
+        {
+            for (int i = 0; i < calls; i++)
+            {
+                try
+                {
+                    client.invoke("echo", readXml("request/echo.xml"));
+                    fail();
+                }
+                catch (SoapTransportException e)
+                {
+                    // Expected
+                }
+            }
+
+            RetryStats stats = client.getRetryStats();
+            assertTrue(stats.toString(), stats.getRetries() > 0);
+            // What the calls paid for, plus the few retries the budget starts with
+            assertTrue(stats.toString(), stats.getRetries() <= calls / 10 + 10);
+            assertTrue(stats.toString(), stats.getThrottled() > 0);
+            assertThat(transport.attempts.get(), is(calls + (int) stats.getRetries()));
+        }
+    }
+
+    @Test
+    public void circuitOpensAndFailsFast() throws Exception
+    {
+        AtomicInteger failing = new AtomicInteger(1);
+        FlakyTransport transport = new FlakyTransport(attempt -> failing.get() == 1 ? new IOException("Connection reset") : null);
+        CircuitBreakerConfiguration circuitBreaker = CircuitBreakerConfigurationBuilder.getInstance()
+                .setWindowSize(10)
+                .setMinCalls(10)
+                .setFailureRateThreshold(50)
+                .setOpenTime(200)
+                .build();
+        try (SoapProxyClient client = SoapProxyClient.create(TEST_SERVICE_DEFINITION, ClientConfigurationBuilder.getInstance().setCircuitBreaker(circuitBreaker).build(), transport))
+        {
+            for (int i = 0; i < 10; i++)
+            {
+                try
+                {
+                    client.invoke("echo", readXml("request/echo.xml"));
+                    fail();
+                }
+                catch (SoapTransportException e)
+                {
+                    assertTrue(!(e instanceof CircuitOpenException));
+                }
+            }
+            assertThat(circuitBreaker(client).getState(), is(CircuitState.OPEN));
+
+            try
+            {
+                client.invoke("echo", readXml("request/echo.xml"));
+                fail();
+            }
+            catch (CircuitOpenException e)
+            {
+                assertTrue(!e.isRetryable());
+            }
+            try
+            {
+                client.invokeAsync("echo", readXml("request/echo.xml")).get();
+                fail();
+            }
+            catch (ExecutionException e)
+            {
+                assertTrue(e.getCause() instanceof CircuitOpenException);
+            }
+            assertThat(transport.attempts.get(), is(10));
+            assertThat(circuitBreaker(client).getRejected(), is(2L));
+
+            // The trial call after the open time finds the endpoint back
+            failing.set(0);
+            Thread.sleep(250);
+            assertEcho(client.invoke("echo", readXml("request/echo.xml")));
+            CircuitBreakerStats stats = circuitBreaker(client);
+            assertThat(stats.getState(), is(CircuitState.CLOSED));
+            assertThat(stats.getOpenings(), is(1L));
+        }
+    }
+
+    private static CircuitBreakerStats circuitBreaker(SoapProxyClient client)
+    {
+        return client.getEndpointStats().get(0).getCircuitBreaker();
+    }
+
+    private static void assertEcho(Response response) throws Exception
+    {
+        try (Response echo = response)
+        {
+            assertTrue(xmlStreamToString(echo.getBody()).contains("<text>test</text>"));
+        }
+    }
+
+    /**
+     * Fails each attempt with the given exception, or answers the request with its own envelope if there is none.
+     */
+    private static class FlakyTransport implements SoapTransport
+    {
+
+        private final IntFunction<IOException> failures;
+        private final AtomicInteger attempts = new AtomicInteger();
+
+        FlakyTransport(IntFunction<IOException> failures)
+        {
+            this.failures = failures;
+        }
+
+        @Override
+        public TransportResponse send(TransportRequest request) throws IOException
+        {
+            IOException failure = failures.apply(attempts.getAndIncrement());
+            if (failure != null)
+            {
+                throw failure;
+            }
+            ByteArrayOutputStream envelope = new ByteArrayOutputStream();
+            request.writeEnvelope(envelope);
+            ByteArrayInputStream body = new ByteArrayInputStream(envelope.toByteArray());
+            return new TransportResponse(body, emptyList(), body, body);
+        }
+
+        @Override
+        public CompletableFuture<TransportResponse> sendAsync(TransportRequest request)
+        {
+            CompletableFuture<TransportResponse> result = new CompletableFuture<>();
+            try
+            {
+                result.complete(send(request));
+            }
+            catch (IOException e)
+            {
+                result.completeExceptionally(e);
+            }
+            return result;
+        }
+
+        @Override
+        public void close()
+        {
+        }
+    }
+}
@@ -0,0 +1,203 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.ws;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.StringContains.containsString;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mule.extension.ws.SoapClientTestUtils.xmlStreamToString;
+import org.mule.extension.ws.api.Response;
+import org.mule.extension.ws.api.ResponseCacheStats;
+import org.mule.extension.ws.api.ServiceDefinition;
+import org.mule.extension.ws.api.SoapProxyClient;
+import org.mule.extension.ws.api.builder.ClientConfigurationBuilder;
+import org.mule.extension.ws.api.builder.ResponseCacheConfigurationBuilder;
+import org.mule.extension.ws.api.exception.SoapFaultException;
+import org.mule.extension.ws.api.transport.LoopbackSoapTransport;
+import org.mule.extension.ws.api.transport.TransportResponse;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamReader;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.After;
+import org.junit.Test;
+
+public class ResponseCacheTestCase
+{
+
+    private static final String NAMESPACE = "http://consumer.ws.extension.mule.org/";
+    private static final ServiceDefinition TEST_SERVICE_DEFINITION = new ServiceDefinition("loopback://test", NAMESPACE, "TestService", "TestPort");
+    private static final String FAULT = "<soap:Envelope xmlns:soap=\"http://schemas.xmlsoap.org/soap/envelope/\"><soap:Body>"
+                                        + "<soap:Fault><faultcode>soap:Server</faultcode><faultstring>Fail Message</faultstring></soap:Fault>"
+                                        + "</soap:Body></soap:Envelope>";
+
+    private final AtomicInteger sent = new AtomicInteger();
+    private SoapProxyClient soapClient;
+
+    @After
+    public void tearDown() throws Exception
+    {
+        soapClient.close();
+    }
+
+    @Test
+    public void identicalRequestsAreServedFromCache() throws Exception
+    {
+        soapClient = client(ResponseCacheConfigurationBuilder.getInstance().cacheOperations("echo"));
+
+        assertEcho(soapClient.invoke("echo", reader("<con:echo xmlns:con=\"" + NAMESPACE + "\"><text>test</text></con:echo>")));
+        // Same content, different prefix and whitespace
+        assertEcho(soapClient.invoke("echo", reader("<x:echo xmlns:x=\"" + NAMESPACE + "\">\n    <text>test</text>\n</x:echo>")));
+        assertEcho(soapClient.invokeAsync("echo", reader("<con:echo xmlns:con=\"" + NAMESPACE + "\"><text>test</text></con:echo>")).get());
+        assertThat(sent.get(), is(1));
+
+        soapClient.invoke("echo", reader("<con:echo xmlns:con=\"" + NAMESPACE + "\"><text>other</text></con:echo>")).close();
+        assertThat(sent.get(), is(2));
+
+        ResponseCacheStats stats = soapClient.getResponseCacheStats();
+        assertThat(stats.getHits(), is(2L));
+        assertThat(stats.getMisses(), is(2L));
+        assertThat(stats.getEntries(), is(2L));
+        assertTrue(stats.getBytes() > 0);
+    }
+
+    @Test
+    public void onlyConfiguredOperationsAreCached() throws Exception
+    {
+        soapClient = client(ResponseCacheConfigurationBuilder.getInstance().cacheOperations("echoAccount"));
+
+        soapClient.invoke("echo", echo()).close();
+        soapClient.invoke("echo", echo()).close();
+        assertThat(sent.get(), is(2));
+        assertThat(soapClient.getResponseCacheStats().getMisses(), is(0L));
+    }
+
+    @Test
+    public void requestsWithAttachmentsAreNotCached() throws Exception
+    {
+        soapClient = client(ResponseCacheConfigurationBuilder.getInstance().cacheOperations("echo"));
+
+        soapClient.invoke("echo", echo(), emptyList(), singletonList(attachment("first"))).close();
+        soapClient.invoke("echo", echo(), emptyList(), singletonList(attachment("second"))).close();
+        soapClient.invokeAsync("echo", echo(), emptyList(), singletonList(attachment("second"))).get().close();
+        assertThat(sent.get(), is(3));
+        assertThat(soapClient.getResponseCacheStats().getEntries(), is(0L));
+    }
+
+    @Test
+    public void faultsAreNotCachedByDefault() throws Exception
+    {
+        soapClient = client(ResponseCacheConfigurationBuilder.getInstance().cacheOperations("fail"));
+
+        assertFault();
+        assertFault();
+        assertThat(sent.get(), is(2));
+    }
+
+    @Test
+    public void faultsAreCachedIfConfigured() throws Exception
+    {
+        soapClient = client(ResponseCacheConfigurationBuilder.getInstance().cacheOperations("fail").setCacheFaults(true));
+
+        assertFault();
+        assertFault();
+        try
+        {
+            soapClient.invokeAsync("fail", echo()).get();
+            fail();
+        }
+        catch (ExecutionException e)
+        {
+            assertTrue(e.getCause() instanceof SoapFaultException);
+        }
+        assertThat(sent.get(), is(1));
+    }
+
+    @Test
+    public void entriesExpire() throws Exception
+    {
+        soapClient = client(ResponseCacheConfigurationBuilder.getInstance().cacheOperations("echo").setTimeToLive(50));
+
+        soapClient.invoke("echo", echo()).close();
+        Thread.sleep(100);
+        soapClient.invoke("echo", echo()).close();
+        assertThat(sent.get(), is(2));
+    }
+
+    @Test
+    public void sizeIsBounded() throws Exception
+    {
+        soapClient = client(ResponseCacheConfigurationBuilder.getInstance().cacheOperations("echo").setMaxBytes(4096));
+
+        for (int i = 0; i < 100; i++)
+        {
+            soapClient.invoke("echo", reader("<con:echo xmlns:con=\"" + NAMESPACE + "\"><text>test " + i + "</text></con:echo>")).close();
+        }
+        ResponseCacheStats stats = soapClient.getResponseCacheStats();
+        assertTrue(stats.toString(), stats.getBytes() <= 4096);
+        assertTrue(stats.toString(), stats.getEvictions() > 0);
+    }
+
+    private SoapProxyClient client(ResponseCacheConfigurationBuilder cache)
+    {
+        // Echoes the request envelope back, except for the fail operation which answers a fault
+        LoopbackSoapTransport transport = new LoopbackSoapTransport((soapAction, envelope, attachments) ->
+                                                                    {
+                                                                        sent.incrementAndGet();
+                                                                        byte[] response = soapAction.equals("fail") ? FAULT.getBytes(UTF_8) : IOUtils.toByteArray(envelope);
+                                                                        return new TransportResponse(new ByteArrayInputStream(response));
+                                                                    });
+        return SoapProxyClient.create(TEST_SERVICE_DEFINITION, ClientConfigurationBuilder.getInstance().setResponseCache(cache.build()).build(), transport);
+    }
+
+    private void assertFault() throws Exception
+    {
+        try
+        {
+            soapClient.invoke("fail", echo());
+            fail();
+        }
+        catch (SoapFaultException e)
+        {
+            assertThat(e.getMessage(), is("Fail Message"));
+        }
+    }
+
+    private static void assertEcho(Response response) throws Exception
+    {
+        try (Response closed = response)
+        {
+            assertThat(xmlStreamToString(closed.getBody()), containsString("<text>test</text>"));
+        }
+    }
+
+    private static InputStream attachment(String content)
+    {
+        return new ByteArrayInputStream(content.getBytes(UTF_8));
+    }
+
+    private static XMLStreamReader echo() throws Exception
+    {
+        return reader("<con:echo xmlns:con=\"" + NAMESPACE + "\"><text>test</text></con:echo>");
+    }
+
+    private static XMLStreamReader reader(String xml) throws Exception
+    {
+        return XMLInputFactory.newInstance().createXMLStreamReader(new ByteArrayInputStream(xml.getBytes(UTF_8)));
+    }
+}
@@ -12,21 +12,31 @@ import static javax.xml.ws.Endpoint.publish;
 import static junit.framework.TestCase.assertNotNull;
 import static org.custommonkey.xmlunit.XMLUnit.compareXML;
 import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsInstanceOf.instanceOf;
+import static org.hamcrest.core.IsSame.sameInstance;
 import static org.hamcrest.core.StringContains.containsString;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
 import static org.mule.extension.ws.SoapClientTestUtils.readXml;
 import static org.mule.extension.ws.SoapClientTestUtils.xmlStreamToString;
+import org.mule.extension.ws.api.ClientConfiguration;
+import org.mule.extension.ws.api.OperationHandle;
+import org.mule.extension.ws.api.Response;
 import org.mule.extension.ws.api.ServiceDefinition;
 import org.mule.extension.ws.api.SoapProxyClient;
+import org.mule.extension.ws.api.builder.ClientConfigurationBuilder;
+import org.mule.extension.ws.api.builder.HeadersBuilder;
 import org.mule.extension.ws.api.exception.SoapFaultException;
 import org.mule.extension.ws.consumer.TestService;
 
 import java.io.IOException;
 import java.io.StringReader;
 import java.io.StringWriter;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
@@ -105,6 +115,25 @@ public class SimpleSoapClientTestCase
         assertSimilarXml(readXml("response/noParamsWithHeader.xml"), output);
     }
 
+    @Test
+    public void staticHeaders() throws Exception
+    {
+        ClientConfiguration configuration = ClientConfigurationBuilder.getInstance()
+                .setStaticHeaders(HeadersBuilder.getInstance(NAMESPACE).addHeader("headerIn", "Header In Value").build())
+                .build();
+        try (SoapProxyClient client = SoapProxyClient.create(TEST_SERVICE_DEFINITION, configuration))
+        {
+            for (int i = 0; i < 3; i++)
+            {
+                XMLStreamReader output = client.invoke("noParams", readXml("request/noParamsWithHeader.xml")).getBody();
+                assertSimilarXml(readXml("response/noParamsWithHeader.xml"), output);
+            }
+            // Static headers go along with the ones of the call
+            List<XMLStreamReader> headers = singletonList(readXml("request/headerInOut.xml"));
+            XMLStreamReader output = client.invoke("echoWithHeaders", readXml("request/echoWithHeaders.xml"), headers, emptyList()).getBody();
+            assertSimilarXml(readXml("response/echoWithHeaders.xml"), output);
+        }
+    }
 
     @Test
     public void failOperation() throws Exception
@@ -123,6 +152,53 @@ public class SimpleSoapClientTestCase
         assertSimilarXml(readXml("response/echoWithHeaders.xml"), output);
     }
 
+    @Test
+    public void operationHandle() throws Exception
+    {
+        OperationHandle echo = soapClient.operation("echo");
+        assertThat(soapClient.operation("echo"), sameInstance(echo));
+        for (int i = 0; i < 3; i++)
+        {
+            assertSimilarXml(readXml("response/echo.xml"), echo.invoke(readXml("request/echo.xml")).getBody());
+        }
+    }
+
+    @Test
+    public void knownLengthRequestOperation() throws Exception
+    {
+        ClientConfiguration configuration = ClientConfigurationBuilder.getInstance().setChunkedRequests(false).build();
+        try (SoapProxyClient client = SoapProxyClient.create(TEST_SERVICE_DEFINITION, configuration))
+        {
+            List<XMLStreamReader> headers = Arrays.asList(readXml("request/headerInOut.xml"), readXml("request/headerIn.xml"));
+            XMLStreamReader output = client.invoke("echoWithHeaders", readXml("request/echoWithHeaders.xml"), headers, emptyList()).getBody();
+            assertSimilarXml(readXml("response/echoWithHeaders.xml"), output);
+        }
+    }
+
+    @Test
+    public void asyncOperation() throws Exception
+    {
+        List<CompletableFuture<Response>> responses = new ArrayList<>();
+        for (int i = 0; i < 10; i++)
+        {
+            responses.add(soapClient.invokeAsync("echoAccount", readXml("request/echoAccount.xml")));
+        }
+
+        for (CompletableFuture<Response> response : responses)
+        {
+            assertSimilarXml(readXml("response/echoAccount.xml"), response.get().getBody());
+        }
+    }
+
+    @Test
+    public void asyncFailOperation() throws Exception
+    {
+        expectedException.expect(ExecutionException.class);
+        expectedException.expectCause(instanceOf(SoapFaultException.class));
+        expectedException.expectMessage(containsString("test"));
+        soapClient.invokeAsync("fail", readXml("request/fail.xml")).get();
+    }
+
     private void assertSimilarXml(XMLStreamReader expected, XMLStreamReader output) throws Exception
     {
         String outputString = xmlStreamToString(output);
@@ -0,0 +1,142 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.ws;
+
+import static javax.xml.ws.Endpoint.publish;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNull.nullValue;
+import static org.hamcrest.core.IsSame.sameInstance;
+import static org.hamcrest.core.StringContains.containsString;
+import static org.junit.Assert.assertThat;
+import static org.mule.extension.ws.SoapClientTestUtils.readXml;
+import static org.mule.extension.ws.SoapClientTestUtils.xmlStreamToString;
+import org.mule.extension.ws.api.OperationModel;
+import org.mule.extension.ws.api.OperationStyle;
+import org.mule.extension.ws.api.Response;
+import org.mule.extension.ws.api.ServiceDefinition;
+import org.mule.extension.ws.api.SoapProxyClient;
+import org.mule.extension.ws.api.SoapVersion;
+import org.mule.extension.ws.consumer.TestService;
+
+import java.nio.file.Path;
+
+import javax.xml.namespace.QName;
+import javax.xml.ws.Endpoint;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class WsdlServiceDefinitionTestCase
+{
+
+    private static final String NAMESPACE = "http://consumer.ws.extension.mule.org/";
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private static Endpoint service;
+
+    @BeforeClass
+    public static void setup()
+    {
+        service = publish("http://localhost:6054/testService", new TestService());
+    }
+
+    @AfterClass
+    public static void tearDown()
+    {
+        service.stop();
+    }
+
+    @Test
+    public void documentLiteralModel()
+    {
+        ServiceDefinition definition = ServiceDefinition.fromWsdl("wsdl/TestService.wsdl");
+
+        assertThat(definition.getBaseEndpoint(), is("http://localhost:6054/testService"));
+        assertThat(definition.getServiceName(), is("TestService"));
+        assertThat(definition.getPortName(), is("TestPort"));
+        assertThat(definition.getVersion(), is(SoapVersion.SOAP_11));
+        assertThat(definition.getOperations().size(), is(6));
+
+        OperationModel echo = definition.getOperation("echo");
+        assertThat(echo.getSoapAction(), is("echo"));
+        assertThat(echo.getStyle(), is(OperationStyle.DOCUMENT));
+        assertThat(echo.getInputElement(), is(new QName(NAMESPACE, "echo")));
+        assertThat(echo.getOutputElement(), is(new QName(NAMESPACE, "echoResponse")));
+
+        // Header parts are left out of the body
+        OperationModel echoWithHeaders = definition.getOperation("echoWithHeaders");
+        assertThat(echoWithHeaders.getInputElement(), is(new QName(NAMESPACE, "echoWithHeaders")));
+        assertThat(echoWithHeaders.getOutputElement(), is(new QName(NAMESPACE, "echoWithHeadersResponse")));
+        assertThat(definition.getOperation("noParamsWithHeader").getSoapAction(), is("noParams"));
+    }
+
+    @Test
+    public void rpcSoap12Model()
+    {
+        ServiceDefinition definition = ServiceDefinition.fromWsdl("wsdl/Calculator12.wsdl", "Calculator", "CalculatorPort");
+
+        assertThat(definition.getVersion(), is(SoapVersion.SOAP_12));
+        assertThat(definition.getBaseEndpoint(), is("http://localhost:6055/calculator"));
+        OperationModel add = definition.getOperation("add");
+        assertThat(add.getSoapAction(), is("urn:add"));
+        assertThat(add.getStyle(), is(OperationStyle.RPC));
+        assertThat(add.getInputElement(), is(new QName("http://calculator.example.org/rpc", "add")));
+        assertThat(add.getOutputElement(), is(new QName("http://calculator.example.org/rpc", "addResponse")));
+        assertThat(definition.getOperation("reset").getOutputElement(), is(nullValue()));
+    }
+
+    @Test
+    public void parsedOnce()
+    {
+        assertThat(ServiceDefinition.fromWsdl("wsdl/TestService.wsdl"), sameInstance(ServiceDefinition.fromWsdl("wsdl/TestService.wsdl")));
+    }
+
+    @Test
+    public void snapshotRoundTrip() throws Exception
+    {
+        ServiceDefinition definition = ServiceDefinition.fromWsdl("wsdl/TestService.wsdl");
+        Path snapshot = temporaryFolder.newFile("TestService.snapshot").toPath();
+        definition.writeSnapshot(snapshot);
+
+        ServiceDefinition loaded = ServiceDefinition.fromSnapshot(snapshot);
+        assertThat(loaded.getBaseEndpoint(), is(definition.getBaseEndpoint()));
+        assertThat(loaded.getNamespace(), is(definition.getNamespace()));
+        assertThat(loaded.getVersion(), is(definition.getVersion()));
+        assertThat(loaded.getOperations().keySet(), is(definition.getOperations().keySet()));
+        for (OperationModel operation : definition.getOperations().values())
+        {
+            assertThat(loaded.getOperation(operation.getName()).toString(), is(operation.toString()));
+        }
+    }
+
+    @Test
+    public void invokeFromWsdl() throws Exception
+    {
+        try (SoapProxyClient client = SoapProxyClient.create(ServiceDefinition.fromWsdl("wsdl/TestService.wsdl")))
+        {
+            assertThat(client.operation("noParamsWithHeader").getSoapAction(), is("noParams"));
+            try (Response response = client.invoke("echo", readXml("request/echo.xml")))
+            {
+                assertThat(xmlStreamToString(response.getBody()), containsString("<text>test response</text>"));
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unknownOperation() throws Exception
+    {
+        try (SoapProxyClient client = SoapProxyClient.create(ServiceDefinition.fromWsdl("wsdl/TestService.wsdl")))
+        {
+            client.operation("missing");
+        }
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.ws.api.metrics;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+public class LatencyHistogramTestCase
+{
+
+    @Test
+    public void bucketsAreContiguous()
+    {
+        for (long value = 0; value < 1 << 20; value++)
+        {
+            int index = LatencyHistogram.indexOf(value);
+            assertTrue(LatencyHistogram.highestValueOf(index) >= value);
+            assertTrue(index == 0 || LatencyHistogram.highestValueOf(index - 1) < value);
+        }
+    }
+
+    @Test
+    public void percentiles()
+    {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long value = 1; value <= 100_000; value++)
+        {
+            histogram.record(value * 1000);
+        }
+
+        HistogramSnapshot snapshot = histogram.snapshot();
+        assertThat(snapshot.getCount(), is(100_000L));
+        assertThat(snapshot.getMin(), is(1000L));
+        assertThat(snapshot.getMax(), is(100_000_000L));
+        assertWithinPrecision(snapshot.getValueAtPercentile(50), 50_000_000L);
+        assertWithinPrecision(snapshot.getValueAtPercentile(99), 99_000_000L);
+        assertThat(snapshot.getValueAtPercentile(100), is(100_000_000L));
+        assertWithinPrecision((long) snapshot.getMean(), 50_000_500L);
+    }
+
+    @Test
+    public void concurrentRecording() throws Exception
+    {
+        LatencyHistogram histogram = new LatencyHistogram();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try
+        {
+            List<Future<?>> writers = new ArrayList<>();
+            for (int i = 0; i < 4; i++)
+            {
+                writers.add(executor.submit(() ->
+                                            {
+                                                for (int value = 0; value < 100_000; value++)
+                                                {
+                                                    histogram.record(value);
+                                                    if (value % 10_000 == 0)
+                                                    {
+                                                        histogram.snapshot();
+                                                    }
+                                                }
+                                            }));
+            }
+            for (Future<?> writer : writers)
+            {
+                writer.get();
+            }
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+        assertThat(histogram.snapshot().getCount(), is(400_000L));
+    }
+
+    private static void assertWithinPrecision(long actual, long expected)
+    {
+        assertTrue(actual + " is not within 1/64 of " + expected, Math.abs(actual - expected) <= expected / 64);
+    }
+}
@@ -9,14 +9,13 @@ package org.mule.extension.ws.consumer;
 
 import org.mule.runtime.core.util.IOUtils;
 
-import java.io.File;
 import java.io.IOException;
 import java.net.MalformedURLException;
 import java.net.URISyntaxException;
 import java.net.URL;
 
 import javax.activation.DataHandler;
-import javax.activation.FileDataSource;
+import javax.activation.URLDataSource;
 import javax.jws.WebMethod;
 import javax.jws.WebParam;
 import javax.jws.WebResult;
@@ -56,8 +55,8 @@ public class TestAttachments
     @WebMethod(action = "downloadAttachment")
     public DataHandler downloadAttachment(@WebParam(mode = WebParam.Mode.IN, name = "fileName") String fileName)
     {
-        File file = new File(getResourceAsUrl(fileName).getPath());
-        return new DataHandler(new FileDataSource(file));
+        // Not a File so it can also be served from inside a jar
+        return new DataHandler(new URLDataSource(getResourceAsUrl(fileName)));
     }
 
     private URL getResourceAsUrl(String fileName)
@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.ws.internal;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import org.mule.extension.ws.api.CallResult;
+import org.mule.extension.ws.api.SoapCall;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.Test;
+
+public class CallBatchTestCase
+{
+
+    private static final int CALLS = 10;
+
+    @Test
+    public void abandonedCallsYieldResults() throws Exception
+    {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        List<SoapCall> calls = new ArrayList<>();
+        for (int i = 0; i < CALLS; i++)
+        {
+            calls.add(new SoapCall("echo", null));
+        }
+        CallBatch batch = new CallBatch(calls, call ->
+        {
+            started.countDown();
+            try
+            {
+                release.await();
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+            }
+            return null;
+        }).start(task -> new Thread(task).start(), 1);
+        started.await();
+
+        Thread.currentThread().interrupt();
+        try
+        {
+            batch.next();
+            fail();
+        }
+        catch (CancellationException e)
+        {
+            assertTrue(Thread.currentThread().isInterrupted());
+        }
+
+        // The calls that didn't start are there right away, even for an interrupted thread
+        for (int i = 1; i < CALLS; i++)
+        {
+            CallResult result = batch.next();
+            assertTrue(result.getFailure() instanceof CancellationException);
+        }
+        assertTrue(batch.hasNext());
+
+        // The one in flight completes as usual
+        Thread.interrupted();
+        release.countDown();
+        CallResult result = batch.next();
+        assertThat(result.getIndex(), is(0));
+        assertThat(result.getFailure() == null, is(true));
+        assertFalse(batch.hasNext());
+    }
+}
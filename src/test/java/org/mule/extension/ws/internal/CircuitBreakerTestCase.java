@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.ws.internal;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import org.mule.extension.ws.api.CircuitState;
+import org.mule.extension.ws.api.builder.CircuitBreakerConfigurationBuilder;
+
+import org.junit.Test;
+
+public class CircuitBreakerTestCase
+{
+
+    private final CircuitBreaker breaker = new CircuitBreaker(CircuitBreakerConfigurationBuilder.getInstance()
+                                                                      .setWindowSize(2)
+                                                                      .setMinCalls(2)
+                                                                      .setFailureRateThreshold(50)
+                                                                      .setOpenTime(1)
+                                                                      .setTrialCalls(2)
+                                                                      .build());
+
+    @Test
+    public void lateOutcomesAreNotTakenAsTrials() throws Exception
+    {
+        long late = breaker.tryAcquire(System.nanoTime());
+        long otherLate = breaker.tryAcquire(System.nanoTime());
+        breaker.record(breaker.tryAcquire(System.nanoTime()), true);
+        breaker.record(breaker.tryAcquire(System.nanoTime()), true);
+        assertThat(state(), is(CircuitState.OPEN));
+
+        Thread.sleep(10);
+        long trial = breaker.tryAcquire(System.nanoTime());
+        long otherTrial = breaker.tryAcquire(System.nanoTime());
+        assertTrue(trial != CircuitBreaker.REJECTED && otherTrial != CircuitBreaker.REJECTED);
+        assertThat(breaker.tryAcquire(System.nanoTime()), is(CircuitBreaker.REJECTED));
+
+        // Calls let through while closed neither close the circuit nor give back trials
+        breaker.record(late, false);
+        breaker.release(otherLate);
+        assertThat(state(), is(CircuitState.HALF_OPEN));
+        assertThat(breaker.tryAcquire(System.nanoTime()), is(CircuitBreaker.REJECTED));
+
+        breaker.record(trial, false);
+        breaker.record(otherTrial, false);
+        assertThat(state(), is(CircuitState.CLOSED));
+    }
+
+    @Test
+    public void lateFailuresDontReopen() throws Exception
+    {
+        breaker.record(breaker.tryAcquire(System.nanoTime()), true);
+        breaker.record(breaker.tryAcquire(System.nanoTime()), true);
+        Thread.sleep(10);
+        long trial = breaker.tryAcquire(System.nanoTime());
+        long late = breaker.tryAcquire(System.nanoTime());
+        breaker.record(trial, false);
+        breaker.record(breaker.tryAcquire(System.nanoTime()), false);
+        assertThat(state(), is(CircuitState.CLOSED));
+
+        // A trial that completes once the circuit closed again counts for nothing
+        breaker.record(late, true);
+        breaker.record(breaker.tryAcquire(System.nanoTime()), true);
+        assertThat(state(), is(CircuitState.CLOSED));
+    }
+
+    private CircuitState state()
+    {
+        return breaker.getStats().getState();
+    }
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.ws.internal;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import org.mule.extension.ws.api.builder.ClientConfigurationBuilder;
+import org.mule.extension.ws.api.builder.LoadBalancingConfigurationBuilder;
+
+import org.junit.Test;
+
+public class LoadBalancerTestCase
+{
+
+    private final LoadBalancer.Endpoint endpoint = new LoadBalancer.Endpoint("http://localhost/test", null, ClientConfigurationBuilder.getInstance()
+            .setLoadBalancing(LoadBalancingConfigurationBuilder.getInstance()
+                                      .setFailuresToEject(1)
+                                      .setEjectionTime(1)
+                                      .build())
+            .build());
+
+    @Test
+    public void onlyTheProbeGivesBackTheProbe() throws Exception
+    {
+        LoadBalancer.Call late = endpoint.claim(System.nanoTime());
+        late.started();
+        LoadBalancer.Call otherLate = endpoint.claim(System.nanoTime());
+        long otherLateStart = otherLate.started();
+        LoadBalancer.Call failing = endpoint.claim(System.nanoTime());
+        failing.failed(failing.started());
+        assertTrue(endpoint.getStats().isEjected());
+
+        Thread.sleep(5);
+        LoadBalancer.Call probe = endpoint.claim(System.nanoTime());
+        assertTrue(probe != null);
+        assertTrue(endpoint.claim(System.nanoTime()) == null);
+
+        // Calls sent before the ejection neither free the probe nor count as failed probes
+        late.abandoned();
+        otherLate.failed(otherLateStart);
+        assertTrue(endpoint.claim(System.nanoTime()) == null);
+        assertThat(endpoint.getStats().getEjections(), is(1L));
+
+        probe.skipped();
+        LoadBalancer.Call next = endpoint.claim(System.nanoTime());
+        assertTrue(next != null);
+        next.succeeded(next.started());
+        assertTrue(!endpoint.getStats().isEjected());
+    }
+}
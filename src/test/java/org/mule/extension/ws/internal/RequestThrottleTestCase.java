@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.ws.internal;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class RequestThrottleTestCase
+{
+
+    private final RequestThrottle throttle = new RequestThrottle(1);
+
+    @After
+    public void close()
+    {
+        throttle.close();
+    }
+
+    @Test
+    public void queuedRequestsAreDispatchedOffTheReleasingThread() throws Exception
+    {
+        throttle.submit(new CompletableFuture<>(), () ->
+        {
+        });
+        AtomicReference<Thread> dispatcher = new AtomicReference<>();
+        CountDownLatch dispatched = new CountDownLatch(1);
+        throttle.submit(new CompletableFuture<>(), () ->
+        {
+            dispatcher.set(Thread.currentThread());
+            dispatched.countDown();
+        });
+        assertThat(throttle.getQueued(), is(1));
+
+        throttle.release();
+        assertTrue(dispatched.await(5, SECONDS));
+        assertTrue(dispatcher.get() != Thread.currentThread());
+    }
+
+    @Test
+    public void cancelledRequestsAreNotDispatched() throws Exception
+    {
+        throttle.submit(new CompletableFuture<>(), () ->
+        {
+        });
+        AtomicBoolean sent = new AtomicBoolean();
+        CompletableFuture<Object> cancelled = new CompletableFuture<>();
+        throttle.submit(cancelled, () -> sent.set(true));
+        CountDownLatch dispatched = new CountDownLatch(1);
+        throttle.submit(new CompletableFuture<>(), dispatched::countDown);
+        cancelled.cancel(false);
+
+        throttle.release();
+        assertTrue(dispatched.await(5, SECONDS));
+        assertThat(sent.get(), is(false));
+    }
+
+    @Test
+    public void failedDispatchesGiveBackThePermit() throws Exception
+    {
+        CompletableFuture<Object> failed = new CompletableFuture<>();
+        throttle.submit(failed, () ->
+        {
+            throw new IllegalStateException("Client closed");
+        });
+        assertTrue(failed.isCompletedExceptionally());
+
+        CountDownLatch dispatched = new CountDownLatch(1);
+        throttle.submit(new CompletableFuture<>(), dispatched::countDown);
+        assertThat(dispatched.getCount(), is(0L));
+    }
+}
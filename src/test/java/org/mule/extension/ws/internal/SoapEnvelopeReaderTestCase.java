@@ -0,0 +1,168 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.ws.internal;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static javax.xml.stream.XMLStreamConstants.START_ELEMENT;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNull.nullValue;
+import static org.hamcrest.core.IsSame.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import org.mule.extension.ws.api.exception.SoapFaultException;
+
+import java.io.ByteArrayInputStream;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLStreamReader;
+
+import org.junit.Test;
+import org.w3c.dom.Element;
+
+public class SoapEnvelopeReaderTestCase
+{
+
+    private static final String SOAP_11 = "http://schemas.xmlsoap.org/soap/envelope/";
+    private static final String SOAP_12 = "http://www.w3.org/2003/05/soap-envelope";
+    private static final String APP = "http://app.example.org/";
+
+    @Test
+    public void soap11Fault() throws Exception
+    {
+        SoapFaultException fault = readFault("<soap:Envelope xmlns:soap=\"" + SOAP_11 + "\" xmlns:app=\"" + APP + "\">"
+                                             + "<soap:Header><app:trace>1</app:trace></soap:Header>"
+                                             + "<soap:Body><soap:Fault>"
+                                             + "<faultcode>soap:Server</faultcode>"
+                                             + "<faultstring> Something failed </faultstring>"
+                                             + "<detail><app:error code=\"42\">app:Broken</app:error></detail>"
+                                             + "</soap:Fault></soap:Body></soap:Envelope>");
+
+        assertThat(fault.getFaultCode(), is(new QName(SOAP_11, "Server")));
+        assertThat(fault.getSubCode(), is(nullValue()));
+        assertThat(fault.getMessage(), is("Something failed"));
+
+        Element detail = fault.getDetail();
+        assertThat(detail.getLocalName(), is("detail"));
+        assertThat(detail.getNamespaceURI(), is(nullValue()));
+        Element error = (Element) detail.getFirstChild();
+        assertThat(error.getNamespaceURI(), is(APP));
+        assertThat(error.getAttribute("code"), is("42"));
+        // Prefixes declared by the envelope can still be resolved within the detail
+        assertThat(error.lookupNamespaceURI("app"), is(APP));
+        assertThat(fault.getDetail(), sameInstance(detail));
+    }
+
+    @Test
+    public void soap12FaultWithSubcode() throws Exception
+    {
+        SoapFaultException fault = readFault("<env:Envelope xmlns:env=\"" + SOAP_12 + "\">"
+                                             + "<env:Body><env:Fault xmlns:app=\"" + APP + "\">"
+                                             + "<env:Code><env:Value>env:Sender</env:Value>"
+                                             + "<env:Subcode><env:Value>app:InvalidAccount</env:Value>"
+                                             + "<env:Subcode><env:Value>app:Closed</env:Value></env:Subcode>"
+                                             + "</env:Subcode></env:Code>"
+                                             + "<env:Reason><env:Text xml:lang=\"en\">Invalid account</env:Text>"
+                                             + "<env:Text xml:lang=\"es\">Cuenta invalida</env:Text></env:Reason>"
+                                             + "<env:Detail><app:account>1234</app:account></env:Detail>"
+                                             + "</env:Fault></env:Body></env:Envelope>");
+
+        assertThat(fault.getFaultCode(), is(new QName(SOAP_12, "Sender")));
+        assertThat(fault.getSubCode(), is(new QName(APP, "InvalidAccount")));
+        assertThat(fault.getMessage(), is("Invalid account"));
+
+        Element detail = fault.getDetail();
+        assertThat(detail.getNamespaceURI(), is(SOAP_12));
+        assertThat(detail.getLocalName(), is("Detail"));
+        assertThat(detail.getFirstChild().getTextContent(), is("1234"));
+    }
+
+    @Test
+    public void faultWithoutDetail() throws Exception
+    {
+        SoapFaultException fault = readFault("<soap:Envelope xmlns:soap=\"" + SOAP_11 + "\"><soap:Body><soap:Fault>"
+                                             + "<faultcode>soap:Client</faultcode><faultstring>Bad request</faultstring>"
+                                             + "</soap:Fault></soap:Body></soap:Envelope>");
+
+        assertThat(fault.getFaultCode(), is(new QName(SOAP_11, "Client")));
+        assertThat(fault.getDetail(), is(nullValue()));
+    }
+
+    @Test
+    public void bodiesWithManyChildrenAreRead() throws Exception
+    {
+        int children = 200000;
+        StringBuilder envelope = new StringBuilder("<soap:Envelope xmlns:soap=\"" + SOAP_11 + "\"><soap:Body><app:result xmlns:app=\"" + APP + "\">");
+        for (int i = 0; i < children; i++)
+        {
+            envelope.append("<item>").append(i).append("</item>");
+        }
+        envelope.append("</app:result></soap:Body></soap:Envelope>");
+
+        XMLStreamReader body = new SoapEnvelopeReader().read(new ByteArrayInputStream(envelope.toString().getBytes(UTF_8)), () -> {});
+        int read = 0;
+        body.nextTag();
+        while (body.nextTag() == START_ELEMENT)
+        {
+            body.getElementText();
+            read++;
+        }
+        assertThat(read, is(children));
+        body.close();
+    }
+
+    @Test
+    public void defaultNamespaceIsOnlyInheritedByRootsInIt() throws Exception
+    {
+        XMLStreamReader prefixed = readBody("<Envelope xmlns=\"" + SOAP_11 + "\" xmlns:app=\"" + APP + "\"><Body>"
+                                            + "<app:result>1</app:result></Body></Envelope>");
+        assertThat(declaredNamespace(prefixed, "app"), is(APP));
+        assertThat(declaredNamespace(prefixed, ""), is(nullValue()));
+        prefixed.close();
+
+        XMLStreamReader inDefault = readBody("<soap:Envelope xmlns:soap=\"" + SOAP_11 + "\" xmlns=\"" + APP + "\"><soap:Body>"
+                                             + "<result>1</result></soap:Body></soap:Envelope>");
+        assertThat(declaredNamespace(inDefault, ""), is(APP));
+        inDefault.close();
+    }
+
+    private static XMLStreamReader readBody(String envelope) throws Exception
+    {
+        XMLStreamReader body = new SoapEnvelopeReader().read(new ByteArrayInputStream(envelope.getBytes(UTF_8)), () -> {});
+        body.nextTag();
+        return body;
+    }
+
+    private static String declaredNamespace(XMLStreamReader reader, String prefix)
+    {
+        for (int i = 0; i < reader.getNamespaceCount(); i++)
+        {
+            String declared = reader.getNamespacePrefix(i);
+            if (prefix.equals(declared == null ? "" : declared))
+            {
+                return reader.getNamespaceURI(i);
+            }
+        }
+        return null;
+    }
+
+    private static SoapFaultException readFault(String envelope) throws Exception
+    {
+        AtomicBoolean released = new AtomicBoolean();
+        try
+        {
+            new SoapEnvelopeReader().read(new ByteArrayInputStream(envelope.getBytes(UTF_8)), () -> released.set(true));
+            fail("Expected a fault");
+            return null;
+        }
+        catch (SoapFaultException e)
+        {
+            assertThat(released.get(), is(true));
+            return e;
+        }
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.ws.internal.mime;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Arrays.asList;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertThat;
+import org.mule.runtime.core.util.IOUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+import org.apache.http.entity.ContentType;
+import org.junit.Test;
+
+public class MultipartContentTestCase
+{
+
+    private static final String ENVELOPE = "<soap:Envelope xmlns:soap=\"http://schemas.xmlsoap.org/soap/envelope/\"/>";
+
+    private final byte[] large = randomBytes(1024 * 1024);
+    private final byte[] small = "--uuid:not-the-boundary\r\n\r\n--".getBytes(UTF_8);
+
+    @Test
+    public void readPartsInOrder() throws Exception
+    {
+        AtomicBoolean released = new AtomicBoolean();
+        MultipartContent multipart = parse(released);
+
+        assertThat(IOUtils.toString(multipart.getRoot()), is(ENVELOPE));
+        List<InputStream> attachments = multipart.getAttachments();
+        assertArrayEquals(large, IOUtils.toByteArray(attachments.get(0)));
+        assertArrayEquals(small, IOUtils.toByteArray(attachments.get(1)));
+        assertThat(released.get(), is(true));
+        assertThat(attachments.size(), is(2));
+    }
+
+    @Test
+    public void readPartsOutOfOrder() throws Exception
+    {
+        AtomicBoolean released = new AtomicBoolean();
+        MultipartContent multipart = parse(released);
+
+        List<InputStream> attachments = multipart.getAttachments();
+        assertThat(attachments.size(), is(2));
+        assertThat(released.get(), is(true));
+        assertArrayEquals(small, IOUtils.toByteArray(attachments.get(1)));
+        assertArrayEquals(large, IOUtils.toByteArray(attachments.get(0)));
+        assertThat(IOUtils.toString(multipart.getRoot()), is(ENVELOPE));
+    }
+
+    @Test
+    public void largePartsAreBufferedInFiles() throws Exception
+    {
+        int spilled = spilledParts();
+        MultipartContent multipart = parse(new AtomicBoolean());
+
+        List<InputStream> attachments = multipart.getAttachments();
+        assertThat(attachments.size(), is(2));
+        assertThat(spilledParts(), is(spilled + 1));
+        assertArrayEquals(large, IOUtils.toByteArray(attachments.get(0)));
+        multipart.close();
+        assertThat(spilledParts(), is(spilled));
+    }
+
+    private static int spilledParts() throws IOException
+    {
+        try (Stream<Path> files = Files.list(Paths.get(System.getProperty("java.io.tmpdir"))))
+        {
+            return (int) files.filter(file -> file.getFileName().toString().startsWith("soap-part-")).count();
+        }
+    }
+
+    private MultipartContent parse(AtomicBoolean released) throws IOException
+    {
+        MultipartRelatedEntity entity = new MultipartRelatedEntity(out -> out.write(ENVELOPE.getBytes(UTF_8)),
+                                                                   ContentType.create("text/xml", UTF_8),
+                                                                   asList(new ByteArrayInputStream(large), new ByteArrayInputStream(small)));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        entity.writeTo(out);
+
+        String boundary = ContentType.parse(entity.getContentType().getValue()).getParameter("boundary");
+        return new MultipartContent(new ChunkedInputStream(out.toByteArray()), boundary, () -> released.set(true));
+    }
+
+    private static byte[] randomBytes(int size)
+    {
+        byte[] bytes = new byte[size];
+        new Random(42).nextBytes(bytes);
+        return bytes;
+    }
+
+    /**
+     * Returns the content in small irregular reads, as a socket would.
+     */
+    private static class ChunkedInputStream extends FilterInputStream
+    {
+        private final Random random = new Random(7);
+
+        ChunkedInputStream(byte[] content)
+        {
+            super(new ByteArrayInputStream(content));
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException
+        {
+            return super.read(b, off, Math.min(len, 1 + random.nextInt(97)));
+        }
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.ws;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.mule.extension.ws.SoapClientTestUtils.readXml;
+import static org.mule.extension.ws.SoapClientTestUtils.xmlStreamToString;
+import org.mule.extension.ws.api.CallResult;
+import org.mule.extension.ws.api.Response;
+import org.mule.extension.ws.api.ServiceDefinition;
+import org.mule.extension.ws.api.SoapCall;
+import org.mule.extension.ws.api.SoapProxyClient;
+import org.mule.extension.ws.api.builder.ClientConfigurationBuilder;
+import org.mule.extension.ws.api.transport.LoopbackSoapTransport;
+import org.mule.extension.ws.api.transport.TransportResponse;
+
+import java.io.ByteArrayInputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Sends 10k calls at once to a stub that only answers once all of them arrived, which can only complete when no
+ * call holds a platform thread while it waits.
+ */
+public class VirtualThreadsTestCase
+{
+
+    private static final int CALLS = 10000;
+    private static final String NAMESPACE = "http://consumer.ws.extension.mule.org/";
+    private static final ServiceDefinition TEST_SERVICE_DEFINITION = new ServiceDefinition("loopback://test", NAMESPACE, "TestService", "TestPort");
+
+    private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+    private CountDownLatch arrived;
+    private SoapProxyClient client;
+
+    @Before
+    public void setup()
+    {
+        arrived = new CountDownLatch(CALLS);
+        // Slow stub that echoes the request envelope back
+        LoopbackSoapTransport transport = new LoopbackSoapTransport((soapAction, envelope, attachments) ->
+                                                                    {
+                                                                        byte[] response = IOUtils.toByteArray(envelope);
+                                                                        maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+                                                                        arrived.countDown();
+                                                                        try
+                                                                        {
+                                                                            arrived.await(30, SECONDS);
+                                                                            Thread.sleep(100);
+                                                                        }
+                                                                        catch (InterruptedException e)
+                                                                        {
+                                                                            Thread.currentThread().interrupt();
+                                                                        }
+                                                                        inFlight.decrementAndGet();
+                                                                        return new TransportResponse(new ByteArrayInputStream(response), attachments, () -> {}, () -> {});
+                                                                    });
+        client = SoapProxyClient.create(TEST_SERVICE_DEFINITION, ClientConfigurationBuilder.getInstance().setVirtualThreads(true).build(), transport);
+        threads.resetPeakThreadCount();
+    }
+
+    @After
+    public void tearDown() throws Exception
+    {
+        client.close();
+    }
+
+    @Test
+    public void concurrentAsyncCalls() throws Exception
+    {
+        int platformThreads = threads.getThreadCount();
+        List<CompletableFuture<Response>> responses = new ArrayList<>();
+        for (int i = 0; i < CALLS; i++)
+        {
+            responses.add(client.invokeAsync("echo", readXml("request/echo.xml")));
+        }
+        for (CompletableFuture<Response> response : responses)
+        {
+            try (Response echo = response.get())
+            {
+                assertTrue(xmlStreamToString(echo.getBody()).contains("<text>test</text>"));
+            }
+        }
+        assertBoundedThreads(platformThreads);
+    }
+
+    @Test
+    public void concurrentBatch() throws Exception
+    {
+        int platformThreads = threads.getThreadCount();
+        List<SoapCall> calls = new ArrayList<>();
+        for (int i = 0; i < CALLS; i++)
+        {
+            calls.add(new SoapCall("echo", readXml("request/echo.xml")));
+        }
+        for (CallResult result : client.invokeAll(calls, CALLS))
+        {
+            assertTrue(result.isSuccess());
+            result.getResponse().close();
+        }
+        assertBoundedThreads(platformThreads);
+    }
+
+    private void assertBoundedThreads(int platformThreads)
+    {
+        assertThat(maxInFlight.get(), is(CALLS));
+        // Only the carrier threads of the virtual ones are added
+        int added = threads.getPeakThreadCount() - platformThreads;
+        assertTrue("Platform threads added: " + added, added <= 16);
+    }
+}